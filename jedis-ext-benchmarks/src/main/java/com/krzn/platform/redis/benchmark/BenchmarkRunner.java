@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口，接受JMH的命令行参数，并固定加上gc profiler，同时输出吞吐和每次操作的分配量。
+ * <p>例如：java -jar target/benchmarks.jar RedisClientBenchmark -t 16
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月24日
+ */
+public class BenchmarkRunner {
+	
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+	
+	private BenchmarkRunner(){}
+	
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.benchmark;
+
+import java.io.Closeable;
+import java.util.List;
+
+import com.krzn.platform.redis.jedis.JedisGroupShardInfo;
+import com.krzn.platform.redis.jedis.ShardInfoFactory;
+
+/**
+ * 若干个只有主节点的模拟redis分片。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月24日
+ */
+public class FakeRedisCluster implements Closeable {
+	
+	private final FakeRedisServer[] servers;
+	
+	public FakeRedisCluster(int shards) {
+		this.servers = new FakeRedisServer[shards];
+		for(int i = 0; i < shards; i++){
+			servers[i] = new FakeRedisServer();
+		}
+	}
+	
+	/**
+	 * 以ShardInfoFactory的格式返回各分片的地址。
+	 */
+	public String getUrl() {
+		StringBuilder url = new StringBuilder();
+		for(FakeRedisServer server : servers){
+			if(url.length() > 0){
+				url.append(';');
+			}
+			url.append("m=").append(server.getUrl());
+		}
+		return url.toString();
+	}
+	
+	public List<JedisGroupShardInfo> createShardInfos() {
+		return ShardInfoFactory.createJedisGroupShardInfos(getUrl());
+	}
+
+	@Override
+	public void close() {
+		for(FakeRedisServer server : servers){
+			server.close();
+		}
+	}
+	
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内的模拟redis服务，只实现基准测试用到的命令。
+ * <p>每个连接一个线程，数据保存在内存中，用于排除真实redis和网络的干扰，
+ * 单独衡量客户端各环节的开销。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月24日
+ */
+public class FakeRedisServer implements Runnable, Closeable {
+
+	private static final Charset CS_LATIN1 = Charset.forName("ISO-8859-1");
+
+	private static final byte[] OK = "+OK\r\n".getBytes(CS_LATIN1);
+
+	private static final byte[] PONG = "+PONG\r\n".getBytes(CS_LATIN1);
+
+	private static final byte[] NIL = "$-1\r\n".getBytes(CS_LATIN1);
+
+	private final ServerSocket serverSocket;
+
+	private final ConcurrentMap<String, byte[]> data = new ConcurrentHashMap<String, byte[]>();
+
+	private final List<Socket> sockets = new CopyOnWriteArrayList<Socket>();
+
+	private volatile boolean running = true;
+
+	public FakeRedisServer() {
+		try {
+			this.serverSocket = new ServerSocket(0, 128, InetAddress.getByName("127.0.0.1"));
+		} catch (IOException e) {
+			throw new IllegalStateException("can't start fake redis server!", e);
+		}
+		Thread thread = new Thread(this, "fake-redis-" + getPort());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * 以ShardInfoFactory的格式返回本服务的地址。
+	 */
+	public String getUrl() {
+		return "redis://127.0.0.1:" + getPort() + "/0";
+	}
+
+	@Override
+	public void run() {
+		while(running){
+			try {
+				final Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				sockets.add(socket);
+				Thread thread = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						serve(socket);
+					}
+				}, "fake-redis-conn-" + socket.getPort());
+				thread.setDaemon(true);
+				thread.start();
+			} catch (IOException e) {
+				// 关闭后accept抛出异常，退出循环。
+			}
+		}
+	}
+
+	private void serve(Socket socket){
+		try {
+			InputStream in = new BufferedInputStream(socket.getInputStream(), 16384);
+			OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 16384);
+			while(running){
+				List<byte[]> command = readCommand(in);
+				handle(command, out);
+				//管道中没有更多命令时才刷出，与redis的行为一致。
+				if(in.available() == 0){
+					out.flush();
+				}
+			}
+		} catch (IOException e) {
+			// 客户端关闭连接。
+		} finally {
+			sockets.remove(socket);
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	private void handle(List<byte[]> command, OutputStream out) throws IOException{
+		String name = new String(command.get(0), CS_LATIN1).toUpperCase();
+		switch(name){
+		case "PING":
+			out.write(PONG);
+			break;
+		case "AUTH":
+		case "SELECT":
+			out.write(OK);
+			break;
+		case "GET":
+			writeBulk(out, data.get(key(command, 1)));
+			break;
+		case "SET":
+			data.put(key(command, 1), command.get(2));
+			out.write(OK);
+			break;
+		case "SETEX":
+			data.put(key(command, 1), command.get(3));
+			out.write(OK);
+			break;
+		case "DEL":{
+			int count = 0;
+			for(int i = 1; i < command.size(); i++){
+				if(data.remove(key(command, i)) != null){
+					count++;
+				}
+			}
+			writeInteger(out, count);
+			break;
+		}
+		case "EXISTS":
+			writeInteger(out, data.containsKey(key(command, 1)) ? 1 : 0);
+			break;
+		case "MGET":
+			out.write(('*' + String.valueOf(command.size() - 1) + "\r\n").getBytes(CS_LATIN1));
+			for(int i = 1; i < command.size(); i++){
+				writeBulk(out, data.get(key(command, i)));
+			}
+			break;
+		case "INFO":
+			writeBulk(out, "# Server\r\nredis_version:3.0.7\r\n".getBytes(CS_LATIN1));
+			break;
+		default:
+			out.write(("-ERR unknown command '" + name + "'\r\n").getBytes(CS_LATIN1));
+		}
+	}
+
+	private static String key(List<byte[]> command, int index){
+		return new String(command.get(index), CS_LATIN1);
+	}
+
+	private static void writeBulk(OutputStream out, byte[] value) throws IOException{
+		if(value == null){
+			out.write(NIL);
+			return;
+		}
+		out.write(('$' + String.valueOf(value.length) + "\r\n").getBytes(CS_LATIN1));
+		out.write(value);
+		out.write('\r');
+		out.write('\n');
+	}
+
+	private static void writeInteger(OutputStream out, long value) throws IOException{
+		out.write((':' + String.valueOf(value) + "\r\n").getBytes(CS_LATIN1));
+	}
+
+	private static List<byte[]> readCommand(InputStream in) throws IOException{
+		int type = in.read();
+		if(type != '*'){
+			throw new EOFException();
+		}
+		int size = (int) readLong(in);
+		List<byte[]> command = new ArrayList<byte[]>(size);
+		for(int i = 0; i < size; i++){
+			if(in.read() != '$'){
+				throw new IOException("bulk string expected!");
+			}
+			byte[] arg = new byte[(int) readLong(in)];
+			int read = 0;
+			while(read < arg.length){
+				int count = in.read(arg, read, arg.length - read);
+				if(count < 0){
+					throw new EOFException();
+				}
+				read += count;
+			}
+			in.read();
+			in.read();
+			command.add(arg);
+		}
+		return command;
+	}
+
+	private static long readLong(InputStream in) throws IOException{
+		long value = 0;
+		int b = 0;
+		while((b = in.read()) != '\r'){
+			if(b < 0){
+				throw new EOFException();
+			}
+			value = value * 10 + (b - '0');
+		}
+		in.read();
+		return value;
+	}
+
+	@Override
+	public void close() {
+		running = false;
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			// ignore
+		}
+		for(Socket socket : sockets){
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+}
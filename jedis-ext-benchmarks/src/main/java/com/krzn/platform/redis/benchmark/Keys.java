@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 基准测试使用的键，每个线程按顺序循环取用，避免在测量中生成字符串。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月24日
+ */
+@State(Scope.Thread)
+public class Keys {
+	
+	/**
+	 * 键的个数，必须是2的幂。
+	 */
+	public static final int SIZE = 1024;
+	
+	private static final String[] PLAIN = create(false);
+	
+	private static final String[] TAGGED = create(true);
+	
+	private int index = 0;
+	
+	/**
+	 * 下一个普通键。
+	 */
+	public String next() {
+		return PLAIN[index++ & (SIZE - 1)];
+	}
+	
+	/**
+	 * 下一个带键标签的键，形如user:{42}:profile。
+	 */
+	public String nextTagged() {
+		return TAGGED[index++ & (SIZE - 1)];
+	}
+	
+	public static String[] all() {
+		return PLAIN.clone();
+	}
+	
+	private static String[] create(boolean tagged) {
+		String[] keys = new String[SIZE];
+		for(int i = 0; i < SIZE; i++){
+			keys[i] = tagged ? "user:{" + i + "}:profile" : "user:" + i + ":profile";
+		}
+		return keys;
+	}
+	
+}
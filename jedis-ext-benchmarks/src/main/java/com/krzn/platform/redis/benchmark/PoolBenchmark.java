@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.krzn.platform.redis.jedis.ShardedGroupJedis;
+import com.krzn.platform.redis.jedis.ShardedJedisGroupPool;
+
+/**
+ * 多线程竞争下ShardedJedisGroupPool申请和归还资源的开销，线程数多于池大小时包含等待时间。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月24日
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class PoolBenchmark {
+	
+	@Param({"8", "64"})
+	public int maxTotal;
+	
+	private FakeRedisCluster cluster;
+	
+	private ShardedJedisGroupPool pool;
+	
+	@Setup
+	public void setup() {
+		cluster = new FakeRedisCluster(4);
+		GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
+		poolConfig.setMaxTotal(maxTotal);
+		poolConfig.setMaxIdle(maxTotal);
+		pool = new ShardedJedisGroupPool(poolConfig, cluster.createShardInfos());
+	}
+	
+	@TearDown
+	public void tearDown() {
+		pool.destroy();
+		cluster.close();
+	}
+	
+	@Benchmark
+	public ShardedGroupJedis borrowAndReturn() {
+		ShardedGroupJedis resource = pool.getResource();
+		resource.close();
+		return resource;
+	}
+	
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.krzn.platform.redis.jedis.ShardedJedisGroupPool;
+import com.krzn.platform.redis.jedis.ShardedJedisNodePool;
+import com.krzn.platform.redis.nio.NioTransport;
+import com.krzn.platform.redis.support.CommandCoalescer;
+import com.krzn.platform.redis.support.RedisTransport;
+import com.krzn.platform.redis.support.ShardedJedisTemplate;
+import com.krzn.platform.redis.support.ShardedRedisClient;
+
+/**
+ * ShardedRedisClient端到端的GET/SET，对比不同的连接方式。
+ * <p>线程数用JMH的-t参数指定，观察并发下各方式的吞吐。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月24日
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisClientBenchmark {
+	
+	/**
+	 * group：ShardedJedisGroupPool；node：ShardedJedisNodePool；
+	 * coalescer：命令合并；nio：NIO多路复用传输层。
+	 */
+	@Param({"group", "node", "coalescer", "nio"})
+	public String transport;
+	
+	@Param({"32", "1024"})
+	public int valueSize;
+	
+	private FakeRedisCluster cluster;
+	
+	private ShardedJedisGroupPool groupPool;
+	
+	private ShardedJedisNodePool nodePool;
+	
+	private RedisTransport redisTransport;
+	
+	private ShardedRedisClient client;
+	
+	private byte[] value;
+	
+	@Setup
+	public void setup() {
+		cluster = new FakeRedisCluster(4);
+		GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
+		poolConfig.setMaxTotal(64);
+		poolConfig.setMaxIdle(64);
+		ShardedJedisTemplate template = null;
+		if("node".equals(transport)){
+			nodePool = new ShardedJedisNodePool(poolConfig, cluster.createShardInfos());
+			template = new ShardedJedisTemplate(nodePool);
+		}else{
+			groupPool = new ShardedJedisGroupPool(poolConfig, cluster.createShardInfos());
+			template = new ShardedJedisTemplate(groupPool);
+		}
+		if("coalescer".equals(transport)){
+			redisTransport = new CommandCoalescer();
+		}else if("nio".equals(transport)){
+			redisTransport = new NioTransport();
+		}
+		template.setTransport(redisTransport);
+		client = new ShardedRedisClient(template);
+		value = new byte[valueSize];
+		Arrays.fill(value, (byte) 'v');
+		for(String key : Keys.all()){
+			client.set(key, value);
+		}
+	}
+	
+	@TearDown
+	public void tearDown() {
+		if(redisTransport != null){
+			redisTransport.close();
+		}
+		if(groupPool != null){
+			groupPool.destroy();
+		}
+		if(nodePool != null){
+			nodePool.close();
+		}
+		cluster.close();
+	}
+	
+	@Benchmark
+	public byte[] get(Keys keys) {
+		return client.get(keys.next());
+	}
+	
+	@Benchmark
+	public void set(Keys keys) {
+		client.set(keys.next(), value);
+	}
+	
+}
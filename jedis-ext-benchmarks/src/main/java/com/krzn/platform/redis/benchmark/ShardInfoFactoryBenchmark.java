@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.krzn.platform.redis.jedis.JedisGroupShardInfo;
+import com.krzn.platform.redis.jedis.ShardInfoFactory;
+
+/**
+ * ShardInfoFactory解析主从地址配置的开销。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月24日
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardInfoFactoryBenchmark {
+	
+	@Param({"2", "16"})
+	public int shards;
+	
+	@Param({"0", "2"})
+	public int slaves;
+	
+	private String url;
+	
+	@Setup
+	public void setup() {
+		url = createUrl(shards, slaves);
+	}
+	
+	@Benchmark
+	public List<JedisGroupShardInfo> parse() {
+		return ShardInfoFactory.createJedisGroupShardInfos(url);
+	}
+	
+	/**
+	 * 生成指定分片数和从节点数的地址配置，地址不需要可以连接。
+	 */
+	static String createUrl(int shards, int slaves) {
+		StringBuilder url = new StringBuilder();
+		for(int i = 0; i < shards; i++){
+			if(i > 0){
+				url.append(';');
+			}
+			url.append("m=redis://10.0.0.").append(i + 1).append(":7000/1");
+			if(slaves > 0){
+				url.append(",s=[");
+				for(int j = 0; j < slaves; j++){
+					if(j > 0){
+						url.append(',');
+					}
+					url.append("redis://10.0.0.").append(i + 1).append(':').append(7010 + j).append("/1");
+				}
+				url.append(']');
+			}
+		}
+		return url.toString();
+	}
+	
+	static List<JedisGroupShardInfo> createShardInfos(int shards, int slaves) {
+		return ShardInfoFactory.createJedisGroupShardInfos(createUrl(shards, slaves));
+	}
+	
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.krzn.platform.redis.jedis.JedisGroup;
+import com.krzn.platform.redis.jedis.JedisGroupShardInfo;
+import com.krzn.platform.redis.jedis.ShardedGroupJedis;
+
+import redis.clients.util.Hashing;
+import redis.clients.util.Sharded;
+
+/**
+ * 分片查找的开销，使用MURMUR_HASH，对比是否使用键标签。
+ * <p>只计算分片，不建立任何连接，因此不需要模拟服务。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月24日
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardingBenchmark {
+	
+	@Param({"4", "32"})
+	public int shards;
+	
+	/**
+	 * 是否使用Sharded.DEFAULT_KEY_TAG_PATTERN，使用时键形如user:{42}:profile。
+	 */
+	@Param({"false", "true"})
+	public boolean keyTag;
+	
+	private ShardedGroupJedis sharded;
+	
+	@Setup
+	public void setup() {
+		sharded = keyTag
+				? new ShardedGroupJedis(ShardInfoFactoryBenchmark.createShardInfos(shards, 0), Hashing.MURMUR_HASH, Sharded.DEFAULT_KEY_TAG_PATTERN)
+				: new ShardedGroupJedis(ShardInfoFactoryBenchmark.createShardInfos(shards, 0), Hashing.MURMUR_HASH);
+	}
+	
+	@Benchmark
+	public JedisGroup getShard(Keys keys) {
+		return sharded.getShard(keyTag ? keys.nextTagged() : keys.next());
+	}
+	
+	@Benchmark
+	public JedisGroupShardInfo getShardInfo(Keys keys) {
+		return sharded.getShardInfo(keyTag ? keys.nextTagged() : keys.next());
+	}
+	
+}
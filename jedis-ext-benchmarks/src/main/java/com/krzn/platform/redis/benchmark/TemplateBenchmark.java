@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.krzn.platform.redis.jedis.ShardedJedisGroupPool;
+import com.krzn.platform.redis.jedis.ShardedJedisNodePool;
+import com.krzn.platform.redis.support.JedisCallback;
+import com.krzn.platform.redis.support.RW;
+import com.krzn.platform.redis.support.ShardedJedisTemplate;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * ShardedJedisTemplate.execute自身的开销：分片、申请和归还连接、异常包装，回调不访问redis。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月24日
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+	
+	private static final JedisCallback<Jedis> NOOP = new JedisCallback<Jedis>() {
+		@Override
+		public Jedis call(Jedis jedis) {
+			return jedis;
+		}
+	};
+	
+	/**
+	 * group：ShardedJedisGroupPool模式；node：ShardedJedisNodePool模式。
+	 */
+	@Param({"group", "node"})
+	public String mode;
+	
+	private FakeRedisCluster cluster;
+	
+	private ShardedJedisGroupPool groupPool;
+	
+	private ShardedJedisNodePool nodePool;
+	
+	private ShardedJedisTemplate template;
+	
+	@Setup
+	public void setup() {
+		cluster = new FakeRedisCluster(4);
+		GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
+		poolConfig.setMaxTotal(64);
+		poolConfig.setMaxIdle(64);
+		if("node".equals(mode)){
+			nodePool = new ShardedJedisNodePool(poolConfig, cluster.createShardInfos());
+			template = new ShardedJedisTemplate(nodePool);
+		}else{
+			groupPool = new ShardedJedisGroupPool(poolConfig, cluster.createShardInfos());
+			template = new ShardedJedisTemplate(groupPool);
+		}
+	}
+	
+	@TearDown
+	public void tearDown() {
+		if(groupPool != null){
+			groupPool.destroy();
+		}
+		if(nodePool != null){
+			nodePool.close();
+		}
+		cluster.close();
+	}
+	
+	@Benchmark
+	public Jedis executeRead(Keys keys) {
+		return template.execute(keys.next(), NOOP, RW.READ);
+	}
+	
+	@Benchmark
+	public Jedis executeWrite(Keys keys) {
+		return template.execute(keys.next(), NOOP, RW.WRITE);
+	}
+	
+}
@@ -0,0 +1,1052 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import redis.clients.jedis.SortingParams;
+import redis.clients.jedis.Tuple;
+
+/**
+ * 异步Redis客户端。
+ * <p>方法与RedisClient一一对应，调用后立即返回ListenableFuture，命令在其他线程中执行，
+ * 执行结果或异常(RedisClientRuntimeException)通过future获取。
+ * <p>异步只是不阻塞调用线程，命令是否仍占用阻塞线程取决于实现，
+ * 如ShardedAsyncRedisClient的每个分片都需要独立的执行线程。
+ * <p>覆盖RedisClient中除以下方法之外的全部方法：
+ * <ul>
+ * <li>阻塞式的列表弹出命令(单键和多键的blpop/brpop)，会长期占用执行线程；</li>
+ * <li>scan、sscan、zscan和分页读取(lrangePaged、zrangePaged等)，返回的是按需读取的迭代器，本身就不阻塞调用线程，直接使用RedisClient。</li>
+ * </ul>
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月17日
+ * @see RedisClient
+ */
+public interface AsyncRedisClient {
+
+	/*
+	 * 单值操作====================================
+	 */
+	
+	/**
+	 * 设置键值。
+	 * 
+	 * @param key 键。 
+	 * @param value 字符串形式的值。
+	 */
+	ListenableFuture<Void> set(String key, String value);
+	
+	/**
+	 * 设置键值。
+	 * 
+	 * @param key 键。 
+	 * @param value 字符串形式的值。
+	 * @param expireSecond 超时时间(秒)。
+	 */
+	ListenableFuture<Void> set(String key, String value, int expireSecond);
+	
+	/**
+	 * 设置键值。
+	 * 
+	 * @param key 键。 
+	 * @param value 字符串形式的值。
+	 * @param nx NX标示。 @see {@link NX}
+	 * @return 设置成功返回true；未设置返回false；
+	 */
+	ListenableFuture<Boolean> set(String key, String value, NX nx);
+	
+	/**
+	 * 设置键值。
+	 * 
+	 * @param key 键。
+	 * @param value 字符串形式的值。
+	 * @param nx NX标示。 @see {@link NX}
+	 * @param timeUnit 失效时间单位。 @see {@link TimeUnit} 
+	 * @param expires 失效时间。
+	 * @return 设置成功返回true；未设置返回false；
+	 */
+	ListenableFuture<Boolean> set(String key, String value, NX nx, TimeUnit timeUnit, long expires);
+	
+	/**
+	 * 设置键值。
+	 * 
+	 * @param key 键。 
+	 * @param value 字节数组形式的值。
+	 */
+	ListenableFuture<Void> set(String key, byte[] value);
+	
+	/**
+	 * 设置键值。
+	 * 
+	 * @param key 键。 
+	 * @param value 字节数组形式的值。
+	 * @param nx NX标示。 @see {@link NX}
+	 * @return 设置成功返回true；未设置返回false；
+	 */
+	ListenableFuture<Boolean> set(String key, byte[] value, NX nx);
+	
+	/**
+	 * 设置键值。
+	 * 
+	 * @param key 键。
+	 * @param value 字节数组形式的值。
+	 * @param nx NX标示。 @see {@link NX}
+	 * @param timeUnit 失效时间单位。 @see {@link TimeUnit} 
+	 * @param expires 失效时间。
+	 * @return 设置成功返回true；未设置返回false；
+	 */
+	ListenableFuture<Boolean> set(String key, byte[] value, NX nx, TimeUnit timeUnit, long expires);
+	
+	/**
+	 * 如果不存在给定的键对应的值，那么设置键值。
+	 * 
+	 * @param key 键。
+	 * @param value 字符串形式的值。
+	 * @return 设置成功返回true；未设置返回false；
+	 */
+	ListenableFuture<Boolean> setnx(String key, String value);
+	
+	/**
+	 * 如果不存在给定的键对应的值，那么设置键值。
+	 * 
+	 * @param key 键。
+	 * @param value 字节数组形式的值。
+	 * @return 设置成功返回true；未设置返回false；
+	 */
+	ListenableFuture<Boolean> setnx(String key, byte[] value);
+	
+	/**
+	 * 设置键值。
+	 * 
+	 * @param key 键。
+	 * @param value 字符串形式的值。
+	 * @param expires 失效时间(单位:秒)。
+	 * @return 设置成功返回true；未设置返回false；
+	 */
+	ListenableFuture<Boolean> setex(String key, String value, int expires);
+	
+	/**
+	 * 设置键值。
+	 * 
+	 * @param key 键。
+	 * @param value 字节数组形式的值。
+	 * @param expires 失效时间(单位:秒)。
+	 * @return 设置成功返回true；未设置返回false；
+	 */
+	ListenableFuture<Boolean> setex(String key, byte[] value, int expires);
+	
+	/**
+	 * 给指定的键设置值，并返回其旧值，如果不存在旧值，返回null。
+	 * 
+	 * @param key 键。
+	 * @param value 字符串形式的值。
+	 * @return 
+	 *      返回key的旧值。
+	 */
+	ListenableFuture<String> getSet(String key, String value);
+	
+	/**
+	 * 给指定的键设置值，并返回其旧值，如果不存在旧值，返回null。
+	 * 
+	 * @param key 键。
+	 * @param value 字节数组形式的值。
+	 * @return 
+	 *      返回key的旧值。
+	 */
+	ListenableFuture<byte[]> getSet(String key, byte[] value);
+	
+	/**
+	 * 通过键获取字符串形式的值。
+	 * 
+	 * @param key 键。
+	 * @return key对应的值。
+	 */
+	ListenableFuture<String> getString(String key);
+	
+	/**
+	 * 通过键获取字节数组的值。
+	 * 
+	 * @param key 键。
+	 * @return key对应的值。
+	 */
+	ListenableFuture<byte[]> get(String key);
+	
+	/**
+	 * 通过键删除对应的值。
+	 * 
+	 * @param key 键。
+	 * @return 返回成功删除数据的个数。
+	 */
+	ListenableFuture<Long> delete(String key);
+	
+	/**
+	 * 判断某个键是否存在。
+	 * 
+	 * @param key 键。
+	 * @return 如果key存在，返回true；否则返回false；
+	 */
+	ListenableFuture<Boolean> exists(String key);
+	
+	/**
+	 * 递增指定键对应的数值。
+	 * <p>如果不存在key对应的值，那么会先将key的值设置为0，
+	 * 然后执行incr操作，返回1。
+	 * 
+	 * @param key 键。
+	 * @return
+	 *      递增后key对应的值。
+	 * 或者key对应的数值越界或者发生异常等。
+	 */
+	ListenableFuture<Long> incr(String key);
+	
+	/**
+	 * 给指定键增加对应的数值。
+	 * <p>如果不存在key对应的值，那么会先将key的值设置为0，
+	 * 然后执行incrBy操作，返回increment。
+	 * 
+	 * @param key 键。
+	 * @param increment 整型的增量。
+	 * @return
+	 *      增加后key对应的值。
+	 * 或者key对应的数值越界或者发生异常等。
+	 */
+	ListenableFuture<Long> incrBy(String key, long increment);
+	
+	/**
+	 * 给指定键增加对应的数值。
+	 * <p>如果不存在key对应的值，那么会先将key的值设置为0，
+	 * 然后执行incrByFloat操作，返回increment。
+	 * 
+	 * @param key 键。
+	 * @param increment double型的增量。
+	 * @return
+	 *      增加后key对应的值。
+	 * 或者key对应的数值越界或者发生异常等。
+	 */
+	ListenableFuture<Double> incrByFloat(String key, double increment);
+	
+	/**
+	 * 递减指定键对应的数值。
+	 * <p>如果不存在key对应的值，那么会先将key的值设置为0，
+	 * 然后执行decr操作，返回-1。
+	 * 
+	 * @param key 键。
+	 * @return
+	 *      递减后key对应的值。
+	 * 或者key对应的数值越界或者发生异常等。
+	 */
+	ListenableFuture<Long> decr(String key);
+	
+	/**
+	 * 递给指定键减去对应的数值。
+	 * <p>如果不存在key对应的值，那么会先将key的值设置为0，
+	 * 然后执行decrBy操作，返回-decrement。
+	 * 
+	 * @param key 键。
+	 * @param decrement 减量。
+	 * @return
+	 *      减少后key对应的值。
+	 * 或者key对应的数值越界或者发生异常等。
+	 */
+	ListenableFuture<Long> decrBy(String key, long decrement);
+	
+	/**
+	 * 给指定的键追加给定的值。
+	 * 
+	 * @param key 键。
+	 * @param value 要追加的值。
+	 * @return
+	 *      追加后key对应的数据的长度。
+	 */
+	ListenableFuture<Long> append(String key, String value);
+	
+	/**
+	 * 给指定的键设置超时时间。
+	 * 
+	 * @param key 键。
+	 * @param seconds 超时时间(单位:秒)。
+	 * @return
+	 *      如果成功设置超时，返回true；
+	 *      如果key不存在或者未成功设置超时，返回false。
+	 */
+	ListenableFuture<Boolean> expire(String key, int seconds);
+	
+	/*
+	 * 哈希表相关操作====================================
+	 */
+	
+	/**
+	 * 为键对应的哈希表设置一个字段及对应的值。
+	 * 
+	 * @param key 哈希表在redis中的key。
+	 * @param field 哈希表中的字段。
+	 * @param value field对应的字符串形式的值。
+	 * @return
+	 *      如果field是哈希表中的一个新字段，返回1；
+	 *      如果field已经在哈希表中，值被更新，返回0；
+	 */
+	ListenableFuture<Long> hset(String key, String field, String value);
+	
+	/**
+	 * 为键对应的哈希表设置一个字段及对应的值。
+	 * 
+	 * @param key 哈希表在redis中的key。
+	 * @param field 哈希表中的字段。
+	 * @param value field对应的字节数组形式的值。
+	 * @return
+	 *      如果field是哈希表中的一个新字段，返回1；
+	 *      如果field已经在哈希表中，值被更新，返回0；
+	 */
+	ListenableFuture<Long> hset(String key, String field, byte[] value);
+	
+	/**
+	 * 为键对应的哈希表设置多个字段及对应的值。
+	 * 
+	 * @param key 哈希表在redis中的key。
+	 * @param fieldValues 多个字段及对应值组成的哈希表。
+	 */
+	ListenableFuture<Void> hmsetString(String key, Map<String, String> fieldValues);
+	
+	/**
+	 * 为键对应的哈希表设置多个字段及对应的值。
+	 * 
+	 * @param key 哈希表在redis中的key。
+	 * @param fieldValues 多个字段及对应值组成的哈希表。
+	 */
+	ListenableFuture<Void> hmset(String key, Map<String, byte[]> fieldValues);
+	
+	/**
+	 * 如果指定键对应的哈希表中不存在给定的字段，
+	 * 那么为这个字段设置一个值。
+	 * 
+	 * @param key 哈希表在redis中的key。
+	 * @param field 哈希表中的字段。
+	 * @param value field对应的字符串形式的值。
+	 * @return
+	 *      如果哈希表中不存在field，完成设置，返回1；
+	 *      如果哈希表中存在field，不做任何操作，返回0；
+	 */
+	ListenableFuture<Long> hsetnx(String key, String field, String value);
+	
+	/**
+	 * 如果指定键对应的哈希表中不存在给定的字段，
+	 * 那么为这个字段设置一个值。
+	 * 
+	 * @param key 哈希表在redis中的key。
+	 * @param field 哈希表中的字段。
+	 * @param value field对应的字节数组形式的值。
+	 * @return
+	 *      如果哈希表中不存在field，完成设置，返回1；
+	 *      如果哈希表中存在field，不做任何操作，返回0；
+	 */
+	ListenableFuture<Long> hsetnx(String key, String field, byte[] value);
+	
+	/**
+	 * 从键对应的哈希表中获取给定字段对应的值。
+	 * 
+	 * @param key 哈希表在redis中的key。
+	 * @param field 哈希表中的字段。
+	 * @return
+	 *      哈希表中field对应的字符串形式的值。
+	 */
+	ListenableFuture<String> hgetString(String key, String field);
+	
+	/**
+	 * 从键对应的哈希表中获取给定一批字段对应的值。
+	 * 
+	 * @param key 哈希表在redis中的key。
+	 * @param fields 哈希表中的一批字段。
+	 * @return
+	 *      哈希表中fields对应的字符串形式的值的集合。
+	 */
+	ListenableFuture<List<String>> hmgetString(String key, String... fields);
+	
+	/**
+	 * 从键对应的哈希表中获取给定一批字段对应的值。
+	 * 
+	 * @param key 哈希表在redis中的key。
+	 * @param fields 哈希表中的一批字段。
+	 * @return
+	 *      哈希表中fields对应的字节数组形式的值的集合。
+	 */
+	ListenableFuture<List<byte[]>> hmget(String key, String... fields);
+	
+	/**
+	 * 从键对应的哈希表中获取给定字段对应的值。
+	 * 
+	 * @param key 哈希表在redis中的key。
+	 * @param field 哈希表中的字段。
+	 * @return
+	 *      哈希表中field对应的字节数组形式的值。
+	 */
+	ListenableFuture<byte[]> hget(String key, String field);
+	
+	/**
+	 * 获取键对应的哈希表。
+	 * 
+	 * @param key 键。
+	 * @return key对应的哈希表。
+	 */
+	ListenableFuture<Map<String, String>> hgetAllString(String key);
+	
+	/**
+	 * 从键对应的哈希表中删除给定字段对应的值。
+	 * 
+	 * @param key 键。
+	 * @param fields 哈希表中的字段。
+	 * @return
+	 *      返回从哈希表中删除字段的数量。
+	 */
+	ListenableFuture<Long> hdel(String key, String... fields);
+	
+	/**
+	 * 判断键对应的哈希表中是否存在给定字段及对应的值。
+	 * 
+	 * @param key 键。
+	 * @param field 哈希表中的字段。
+	 * @return
+	 *      如果存在，返回true；不存在返回false；
+	 */
+	ListenableFuture<Boolean> hexists(String key, String field);
+	
+	/**
+	 * 获取给定键对应的哈希表中所有字段。
+	 * 
+	 * @param key 键。
+	 * @return key对应的哈希表的所有字段的集合。
+	 */
+	ListenableFuture<Set<String>> hkeys(String key);
+	
+	/**
+	 * 获取给定键对应的哈希表中的字段数量。
+	 * 
+	 * @param key 键。
+	 * @return key对应的哈希表的字段数量。
+	 */
+	ListenableFuture<Long> hlen(String key);
+	
+	/**
+	 * 获取给定键对应的哈希表中所有字段的值。
+	 * 
+	 * @param key 键。
+	 * @return key对应的哈希表的所有字段值的集合。
+	 */
+	ListenableFuture<List<String>> hStringVals(String key);
+	
+	/*
+	 * 列表相关操作=================================
+	 */
+	
+	/**
+	 * 获取给定键对应的列表的指定下标的字符串形式的值。
+	 * 
+	 * @param key 键。
+	 * @param index 下标。
+	 * @return 如果指定下标存在值，返回该值；否则返回null；
+	 */
+	ListenableFuture<String> lindexString(String key, long index);
+	
+	/**
+	 * 获取给定键对应的列表的指定下标的字节数组形式的值。
+	 * 
+	 * @param key 键。
+	 * @param index 下标。
+	 * @return 如果指定下标存在值，返回该值；否则返回null；
+	 */
+	ListenableFuture<byte[]> lindex(String key, long index);
+	
+	/**
+	 * 在给定键对应的列表头部插入一个或多个字符串形式的值。
+	 * 
+	 * @param key 键。
+	 * @param values 要插入链表的值。
+	 * @return 返回链表的长度。
+	 */
+	ListenableFuture<Long> lpush(String key, String... values);
+	
+	/**
+	 * 在给定键对应的列表头部插入一个或多个字节数组形式的值。
+	 * 
+	 * @param key 键。
+	 * @param values 要插入链表的值。
+	 * @return 返回链表的长度。
+	 */
+	ListenableFuture<Long> lpush(String key, byte[]... values);
+	
+	/**
+	 * 获取给定键对应的列表头部的元素值。
+	 * 
+	 * @param key 键。
+	 * @return 链表头部的字符串形式的值。
+	 */
+	ListenableFuture<String> lpopString(String key);
+	
+	/**
+	 * 获取并移除给定键对应的列表头部的元素值。
+	 * 
+	 * @param key 键。
+	 * @return 链表头部的字节数组形式的值。
+	 */
+	ListenableFuture<byte[]> lpop(String key);
+	
+	/**
+	 * 如果存在给定键对应的列表，那么在列表头部插入一个或多个字符串形式的值。
+	 * 否则不做任何操作。
+	 * 
+	 * @param key 键。
+	 * @param values 要插入列表的值。
+	 * @return 如果存在给定键对应的列表，执行操作，返回列表长度；
+	 *         否则不进行操作，返回0。
+	 */
+	ListenableFuture<Long> lpushx(String key, String... values);
+	
+	/**
+	 * 如果存在给定键对应的列表，那么在列表头部插入一个或多个字节数组形式的值。
+	 * 否则不做任何操作。
+	 * 
+	 * @param key 键。
+	 * @param values 要插入列表的值。
+	 * @return 如果存在给定键对应的列表，执行操作，返回列表长度；
+	 *         否则不进行操作，返回0。
+	 */
+	ListenableFuture<Long> lpushx(String key, byte[]... values);
+	
+	/**
+	 * 将给定键对应的列表的指定下标设置为给定的字符串形式的值。
+	 * 如果不存在给定键对应的列表或者下标越界，那么产生异常。
+	 * 
+	 * @param key 键。
+	 * @param index 下标。
+	 * @param value 要设置的值。
+	 *                 如果不存在给定键对应的列表，
+	 * 				       或者下标越界，
+	 *                 或者发生异常等。
+	 */
+	ListenableFuture<Void> lset(String key, long index, String value);
+	
+	/**
+	 * 将给定键对应的列表的指定下标设置为给定的字节数组形式的值。
+	 * 如果不存在给定键对应的列表或者下标越界，那么产生异常。
+	 * 
+	 * @param key 键。
+	 * @param index 下标。
+	 * @param value 要设置的值。
+	 *                 如果不存在给定键对应的列表，
+	 * 				       或者下标越界，
+	 *                 或者发生异常等。
+	 */
+	ListenableFuture<Void> lset(String key, long index, byte[] value);
+	
+	/**
+	 * 获取给定键对应的列表长度。
+	 * 
+	 * @param key 键。
+	 * @return 如果存在列表，返回列表长度；否则返回0；
+	 */
+	ListenableFuture<Long> llen(String key);
+	
+	/**
+	 * 从给定键对应的列表头开始移除元素值等于指定value的count个元素。
+	 * <p>如果count为0，则移除所有元素值等于指定value的元素。
+	 * <p>如果count为负数时，则从列表尾部往前移除|count|个元素。
+	 * 
+	 * @param key 键。
+	 * @param count 数量。
+	 * @param value 目标值。
+	 * @return
+	 *      成功移除元素的数量。
+	 */
+	ListenableFuture<Long> lrem(String key, long count, String value);
+	
+	/**
+	 * 获取给定键对应的列表的指定范围的字符串形式的元素。
+	 * 
+	 * @param key 键。
+	 * @param start 起始范围。
+	 * @param end 结束返回。
+	 * @return 指定范围内的元素集合。
+	 */
+	ListenableFuture<List<String>> lrangeString(String key, long start, long end);
+	
+	/**
+	 * 获取给定键对应的列表的指定范围的字节数组形式的元素。
+	 * 
+	 * @param key 键。
+	 * @param start 起始范围。
+	 * @param end 结束返回。
+	 * @return 指定范围内的元素集合。
+	 */
+	ListenableFuture<List<byte[]>> lrange(String key, long start, long end);
+	
+	/**
+	 * 在给定键对应的列表尾部插入一个或多个字符串形式的值。
+	 * 
+	 * @param key 键。
+	 * @param values 要插入链表的值。
+	 * @return 返回链表的长度。
+	 */
+	ListenableFuture<Long> rpush(String key, String... values);
+	
+	/**
+	 * 在给定键对应的列表尾部插入一个或多个字节数组形式的值。
+	 * 
+	 * @param key 键。
+	 * @param values 要插入链表的值。
+	 * @return 返回链表的长度。
+	 */
+	ListenableFuture<Long> rpush(String key, byte[]... values);
+	
+	/**
+	 * 获取给定键对应的列表尾部的元素值。
+	 * 
+	 * @param key 键。
+	 * @return 链表尾部的字符串形式的值。
+	 */
+	ListenableFuture<String> rpopString(String key);
+	
+	/**
+	 * 获取并移除给定键对应尾部的元素值。
+	 * 
+	 * @param key 键。
+	 * @return 链表尾部的字节数组形式的值。
+	 */
+	ListenableFuture<byte[]> rpop(String key);
+	
+	/**
+	 * 如果存在给定键对应的列表，那么在列表尾部插入一个或多个字符串形式的值。
+	 * 否则不做任何操作。
+	 * 
+	 * @param key 键。
+	 * @param values 要插入列表的值。
+	 * @return 如果存在给定键对应的列表，执行操作，返回列表长度；
+	 *         否则不进行操作，返回0。
+	 */
+	ListenableFuture<Long> rpushx(String key, String... values);
+	
+	/**
+	 * 如果存在给定键对应的列表，那么在列表尾部插入一个或多个字节数组形式的值。
+	 * 否则不做任何操作。
+	 * 
+	 * @param key 键。
+	 * @param values 要插入列表的值。
+	 * @return 如果存在给定键对应的列表，执行操作，返回列表长度；
+	 *         否则不进行操作，返回0。
+	 */
+	ListenableFuture<Long> rpushx(String key, byte[]... values);
+	
+	/*
+	 * 集合相关操作=================================
+	 */
+	
+	/**
+	 * 为给定键对应的集合中添加一个或多个字符串形式的元素。
+	 * 
+	 * @param key 键。
+	 * @param values 要添加的元素。
+	 * @return 如果集合中不存在给定元素，添加成功，返回true；
+	 *         如果集合中已经存在给定元素，不做任何操作，返回false。
+	 */
+	ListenableFuture<Boolean> sadd(String key, String... values);
+	
+	/**
+	 * 为给定键对应的集合中添加一个或多个字节数组形式的元素。
+	 * 
+	 * @param key 键。
+	 * @param values 要添加的元素。
+	 * @return 如果集合中不存在给定元素，添加成功，返回true；
+	 *         如果集合中已经存在给定元素，不做任何操作，返回false。
+	 */
+	ListenableFuture<Boolean> sadd(String key, byte[]... values);
+	
+	/**
+	 * 获取给定键对应的集合元素。
+	 * 
+	 * @param key 键。
+	 * @return 集合中所有元素
+	 */
+	ListenableFuture<Set<byte[]>> bsmembers(String key);
+	
+	/**
+	 * 获取给定键对应的集合元素。
+	 * 
+	 * @param key 键。
+	 * @return 集合中所有元素
+	 */
+	ListenableFuture<Set<String>> smembers(String key);
+	
+	/*
+	 * 有序集合相关操作=================================
+	 */
+	
+	/**
+	 * 给指定键对应的有序集合添加元素。
+	 * 
+	 * @param key 键。
+	 * @param value 字符串形式的元素。
+	 * @param score 元素的分数。
+	 * @return
+	 *      如果集合中不存在value，成功插入集合，返回true。
+	 *      如果集合中已存在value，更新集合元素，返回false。
+	 */
+	ListenableFuture<Boolean> zadd(String key, String value, double score);
+	
+	/**
+	 * 给指定键对应的有序集合添加元素。
+	 * 
+	 * @param key 键。
+	 * @param value 字节数组形式的元素。
+	 * @param score 元素的分数。
+	 * @return
+	 *      如果集合中不存在value，成功插入集合，返回true。
+	 *      如果集合中已存在value，更新集合元素，返回false。
+	 */
+	ListenableFuture<Boolean> zadd(String key, byte[] value, double score);
+	
+	/**
+	 * 给指定键对应的有序集合添加一批元素。
+	 * 
+	 * @param key 键。
+	 * @param valueScorePairs 字符串形式元素-分数对的集合。
+	 * @return
+	 *      返回新增到集合的元素个数，不包含更新的元素个数。
+	 */
+	ListenableFuture<Long> zaddString(String key, Map<String, Double> valueScorePairs);
+	
+	/**
+	 * 给指定键对应的有序集合添加一批元素。
+	 * 
+	 * @param key 键。
+	 * @param valueScorePairs 字节数组形式元素-分数对的集合。
+	 * @return
+	 *      返回新增到集合的元素个数，不包含更新的元素个数。
+	 */
+	ListenableFuture<Long> zadd(String key, Map<byte[], Double> valueScorePairs);
+	
+	/**
+	 * 删除指定键对应的有序集合中的一批元素。
+	 * 
+	 * @param key 键。
+	 * @param values 要删除的字符串形式的元素。
+	 * @return
+	 *      从集合中删除的元素数量。
+	 */
+	ListenableFuture<Long> zrem(String key, String... values);
+	
+	/**
+	 * 删除指定键对应的有序集合中的一批元素。
+	 * 
+	 * @param key 键。
+	 * @param values 要删除的字节数组形式的元素。
+	 * @return
+	 *      从集合中删除的元素数量。
+	 */
+	ListenableFuture<Long> zrem(String key, byte[]... values);
+	
+	/**
+	 * 获取指定键对应的有序集合中的元素个数。
+	 * 
+	 * @param key 键。
+	 * @return 元素个数。
+	 */
+	ListenableFuture<Long> zcard(String key);
+	
+	/**
+	 * 从指定键对应的有序集合中获取给定下标范围的字符串形式的元素。
+	 * <p>元素顺序按分数由小到大。
+	 * 
+	 * @param key 键。
+	 * @param start 起始下标。(下标从0开始)
+	 * @param end 结束下标。
+	 * @return
+	 *      指定下标范围内的元素集合。
+	 */
+	ListenableFuture<Set<String>> zrangeString(String key, long start, long end);
+	
+	/**
+	 * 从指定键对应的有序集合中获取给定下标范围的字节数组形式的元素。
+	 * <p>元素顺序按分数由小到大。
+	 * 
+	 * @param key 键。
+	 * @param start 起始下标。(下标从0开始)
+	 * @param end 结束下标。
+	 * @return
+	 *      指定下标范围内的元素集合。
+	 */
+	ListenableFuture<Set<byte[]>> zrange(String key, long start, long end);
+	
+	/**
+	 * 从指定键对应的有序集合中获取给定下标范围的字符串形式的元素和对应的分数。
+	 * <p>元素顺序按分数由小到大。
+	 * 
+	 * @param key 键。
+	 * @param start 起始下标。(下标从0开始)
+	 * @param end 结束下标。
+	 * @return
+	 *      指定下标范围内的元素-分数对集合。
+	 */
+	ListenableFuture<Set<Tuple>> zrangeStringWithScores(String key, long start, long end);
+	
+	/**
+	 * 从指定键对应的有序集合中获取给定下标范围的字节数组形式的元素和对应的分数。
+	 * <p>元素顺序按分数由小到大。
+	 * 
+	 * @param key 键。
+	 * @param start 起始下标。(下标从0开始)
+	 * @param end 结束下标。
+	 * @return
+	 *      指定下标范围内的元素-分数对集合。
+	 */
+	ListenableFuture<Set<Tuple>> zrangeWithScores(String key, long start, long end);
+	
+	/**
+	 * 为给定键对应的有序集合中的给定元素增加分数值。
+	 * 
+	 * @param key 键
+	 * @param value 元素
+	 * @param score 分数
+	 * @return
+	 * 		增加后新的分数值。
+	 */
+	ListenableFuture<Double> zincrby(String key, String value, double score);
+	
+	/**
+	 * 从指定键对应的有序集合中获取给定下标范围的字节数组形式的元素。
+	 * <p>元素反序输出。
+	 * 
+	 * @param key 键。
+	 * @param start 起始下标。(下标从0开始)
+	 * @param end 结束下标。
+	 * @return
+	 *      指定下标范围内的元素集合。
+	 */
+	ListenableFuture<Set<byte[]>> zrevrange(String key, long start, long end);
+	
+	/**
+	 * 从指定键对应的有序集合中获取给定下标范围的字符串形式的元素。
+	 * <p>元素反序输出。
+	 * 
+	 * @param key 键。
+	 * @param start 起始下标。(下标从0开始)
+	 * @param end 结束下标。
+	 * @return
+	 *      指定下标范围内的元素集合。
+	 */
+	ListenableFuture<Set<String>> zrevrangeString(String key, long start, long end);
+	
+	/**
+	 * 获取给定键对应的有序列表中给定元素的分数值。
+	 * 
+	 * @param key 键。
+	 * @param value 元素。
+	 * @return
+	 * 		元素的分数值。
+	 */
+	ListenableFuture<Double> zscore(String key, String value);
+	
+	/*
+	 * 排序操作=================================
+	 */
+	
+	/**
+	 * 对指定键对应的Set或者List进行排序。
+	 * <p>数据为字符串形式。
+	 * <p>默认升序。
+	 * 
+	 * @param key 键。
+	 * @return
+	 * 		排序后的数据列表。
+	 */
+	ListenableFuture<List<String>> sortString(String key);
+	
+	/**
+	 * 对指定键对应的Set或者List进行排序。
+	 * <p>数据为字节数组形式。
+	 * <p>默认升序。
+	 * 
+	 * @param key 键。
+	 * @return
+	 * 		排序后的数据列表。
+	 */
+	ListenableFuture<List<byte[]>> sort(String key);
+	
+	/**
+	 * 对指定键对应的Set或者List进行排序。
+	 * <p>数据为字符串形式。
+	 * 
+	 * @param key 键。
+	 * @param sortOrder 顺序。
+	 * @return
+	 * 		排序后的数据列表。
+	 */
+	ListenableFuture<List<String>> sortString(String key, SortOrder sortOrder);
+	
+	/**
+	 * 对指定键对应的Set或者List进行排序。
+	 * <p>数据为字节数组形式。
+	 * 
+	 * @param key 键。
+	 * @param sortOrder 顺序。
+	 * @return
+	 * 		排序后的数据列表。
+	 */
+	ListenableFuture<List<byte[]>> sort(String key, SortOrder sortOrder);
+	
+	/**
+	 * 对指定键对应的Set或者List进行排序。
+	 * <p>数据为字符串形式。
+	 * 
+	 * @param key 键。
+	 * @param sortingParams 排序参数。
+	 * @return
+	 * 		排序后的数据列表。
+	 */
+	ListenableFuture<List<String>> sortString(String key, SortingParams sortingParams);
+	
+	/**
+	 * 对指定键对应的Set或者List进行排序。
+	 * <p>数据为字节数组形式。
+	 * 
+	 * @param key 键。
+	 * @param sortingParams 排序参数。
+	 * @return
+	 * 		排序后的数据列表。
+	 */
+	ListenableFuture<List<byte[]>> sort(String key, SortingParams sortingParams);
+	
+	/*
+	 * 多键批量操作====================================
+	 */
+	
+	/**
+	 * 批量获取多个键的值。
+	 * <p>按分片分组，每个分片只发送一次MGET，结果顺序与keys一致，不存在的键对应null。
+	 * 
+	 * @param keys 键列表。
+	 * @return 与keys一一对应的字符串形式的值。
+	 */
+	ListenableFuture<List<String>> mgetString(List<String> keys);
+	
+	/**
+	 * 批量获取多个键的值。
+	 * <p>按分片分组，每个分片只发送一次MGET，结果顺序与keys一致，不存在的键对应null。
+	 * 
+	 * @param keys 键列表。
+	 * @return 与keys一一对应的字节数组形式的值。
+	 */
+	ListenableFuture<List<byte[]>> mget(List<String> keys);
+	
+	/**
+	 * 批量设置键值并设置失效时间。
+	 * <p>按分片分组，每个分片的SETEX命令通过一次pipeline发送。
+	 * 
+	 * @param keyValues 键及字符串形式的值。
+	 * @param expires 失效时间(单位:秒)。
+	 * @return 全部设置成功返回true；否则返回false；
+	 */
+	ListenableFuture<Boolean> msetexString(Map<String, String> keyValues, int expires);
+	
+	/**
+	 * 批量设置键值并设置失效时间。
+	 * <p>按分片分组，每个分片的SETEX命令通过一次pipeline发送。
+	 * 
+	 * @param keyValues 键及字节数组形式的值。
+	 * @param expires 失效时间(单位:秒)。
+	 * @return 全部设置成功返回true；否则返回false；
+	 */
+	ListenableFuture<Boolean> msetex(Map<String, byte[]> keyValues, int expires);
+	
+	/**
+	 * 批量删除多个键。
+	 * <p>按分片分组，每个分片的DEL命令通过一次pipeline发送。
+	 * 
+	 * @param keys 键集合。
+	 * @return 返回成功删除数据的个数。
+	 */
+	ListenableFuture<Long> mdelete(Collection<String> keys);
+	
+	/*
+	 * 对象读写====================================
+	 */
+	
+	/**
+	 * 读取用编解码器编码的对象。
+	 * 
+	 * @param key 键。
+	 * @param codec 编解码器。
+	 * @return 解码得到的对象，不存在时为null。
+	 * @see RedisClient#get(String, Codec)
+	 */
+	<T> ListenableFuture<T> get(String key, Codec<T> codec);
+	
+	/**
+	 * 用编解码器编码对象后写入。
+	 * 
+	 * @param key 键。
+	 * @param value 对象，不能为null。
+	 * @param codec 编解码器。
+	 * @see RedisClient#set(String, Object, Codec)
+	 */
+	<T> ListenableFuture<Void> set(String key, T value, Codec<T> codec);
+	
+	/**
+	 * 用编解码器编码对象后写入，同时设置过期时间。
+	 * 
+	 * @param key 键。
+	 * @param value 对象，不能为null。
+	 * @param codec 编解码器。
+	 * @param expires 过期时间(单位:秒)。
+	 * @return 是否成功。
+	 * @see RedisClient#setex(String, Object, Codec, int)
+	 */
+	<T> ListenableFuture<Boolean> setex(String key, T value, Codec<T> codec, int expires);
+	
+	/**
+	 * 批量读取用编解码器编码的对象。
+	 * 
+	 * @param keys 键列表。
+	 * @param codec 编解码器。
+	 * @return 与键列表一一对应的对象，不存在的键对应null。
+	 * @see RedisClient#mget(List, Codec)
+	 */
+	<T> ListenableFuture<List<T>> mget(List<String> keys, Codec<T> codec);
+	
+	/*
+	 * 缓存加载====================================
+	 */
+	
+	/**
+	 * 读取缓存的对象，不存在时加载并写入。加载在执行线程中进行，加载期间占用该执行线程。
+	 * 
+	 * @see RedisClient#getOrLoad(String, Codec, ValueLoader, long)
+	 */
+	<T> ListenableFuture<T> getOrLoad(String key, Codec<T> codec, ValueLoader<T> loader, long ttlMillis);
+	
+	/**
+	 * 读取缓存的对象，不存在时加载并写入。加载在执行线程中进行，加载期间占用该执行线程。
+	 * 
+	 * @see RedisClient#getOrLoad(String, Codec, ValueLoader, long, long)
+	 */
+	<T> ListenableFuture<T> getOrLoad(String key, Codec<T> codec, ValueLoader<T> loader, long ttlMillis, long staleMillis);
+	
+	/*
+	 * 统计方法====================================
+	 */
+	
+	/**
+	 * 获取Redis客户端统计信息。
+	 * 
+	 * @return
+	 *      Redis客户端统计信息。
+	 */
+	RedisClientStatistic getStatistic();
+	
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 对象值的编解码器。
+ * <p>编码直接写入输出流，解码直接读取回复数组中的一段，不产生中间的字符串和数组。
+ * 实现必须是线程安全的。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月30日
+ */
+public interface Codec<T> {
+
+	/**
+	 * 编码。
+	 * 
+	 * @param value 值，不为null。
+	 * @param out 输出流。
+	 * @throws IOException 编码失败。
+	 */
+	void encode(T value, OutputStream out) throws IOException;
+	
+	/**
+	 * 解码。
+	 * 
+	 * @param data 数据所在的数组。
+	 * @param offset 数据的起始位置。
+	 * @param length 数据的长度。
+	 * @return
+	 *      解码得到的值。
+	 * @throws IOException 解码失败。
+	 */
+	T decode(byte[] data, int offset, int length) throws IOException;
+	
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁的延迟直方图。
+ * <p>与HdrHistogram相同的对数-线性分桶：小于64的值每个值一个桶，
+ * 之后每个2的幂区间再均分为32个桶，相对误差不超过1/32。
+ * 记录只做一次原子加，不加锁，可以在调用线程中直接记录。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月25日
+ */
+class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+
+	private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_BITS;
+
+	private static final int SUB_BUCKET_COUNT = SUB_BUCKET_HALF_COUNT << 1;
+
+	/**
+	 * 可记录的最大值，超过的按最大值记录，以微秒计约19小时。
+	 */
+	static final long MAX_VALUE = (1L << 36) - 1;
+
+	private static final int BUCKET_COUNT = indexOf(MAX_VALUE) + 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+	private final AtomicLong max = new AtomicLong();
+
+	private final AtomicLong sum = new AtomicLong();
+
+	/**
+	 * 记录一个值。
+	 * 
+	 * @param value 值，负数按0记录。
+	 */
+	void record(long value){
+		if(value < 0){
+			value = 0;
+		}else if(value > MAX_VALUE){
+			value = MAX_VALUE;
+		}
+		counts.incrementAndGet(indexOf(value));
+		sum.addAndGet(value);
+		long current = 0;
+		while(value > (current = max.get())){
+			if(max.compareAndSet(current, value)){
+				break;
+			}
+		}
+	}
+
+	/**
+	 * 复制当前的计数。
+	 * 
+	 * @param reset 是否同时清零，清零与记录并发时不会丢失计数。
+	 * @return 各桶的计数，最后两个元素分别为总和与最大值。
+	 */
+	long[] copy(boolean reset){
+		long[] copy = new long[BUCKET_COUNT + 2];
+		for(int i = 0; i < BUCKET_COUNT; i++){
+			copy[i] = reset ? counts.getAndSet(i, 0) : counts.get(i);
+		}
+		copy[BUCKET_COUNT] = reset ? sum.getAndSet(0) : sum.get();
+		copy[BUCKET_COUNT + 1] = reset ? max.getAndSet(0) : max.get();
+		return copy;
+	}
+
+	/**
+	 * 从复制的计数中计算百分位值。
+	 * 
+	 * @param copy copy方法返回的计数。
+	 * @param total 总计数。
+	 * @param percentile 百分位，0到100。
+	 * @return 百分位所在桶的上界，没有记录时返回0。
+	 */
+	static long valueAtPercentile(long[] copy, long total, double percentile){
+		if(total == 0){
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+		long count = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++){
+			count += copy[i];
+			if(count >= target){
+				return Math.min(highestValueOf(i), copy[BUCKET_COUNT + 1]);
+			}
+		}
+		return copy[BUCKET_COUNT + 1];
+	}
+
+	static long sumOf(long[] copy){
+		return copy[BUCKET_COUNT];
+	}
+
+	static long maxOf(long[] copy){
+		return copy[BUCKET_COUNT + 1];
+	}
+
+	private static int indexOf(long value){
+		if(value < SUB_BUCKET_COUNT){
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift) - SUB_BUCKET_HALF_COUNT;
+	}
+
+	private static long highestValueOf(int index){
+		if(index < SUB_BUCKET_COUNT){
+			return index;
+		}
+		int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+		long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+}
@@ -4,6 +4,8 @@
 
 package com.krzn.platform.redis;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -765,6 +767,52 @@ public interface RedisClient {
 	 */
 	byte[] brpop(String key, int timeout);
 	
+	/**
+	 * 在多个列表上阻塞等待，弹出第一个非空列表的第一个字符串形式的元素。
+	 * <p>阻塞命令在主节点上执行，使用单独的阻塞命令连接通道，不占用普通命令的连接池。
+	 * 所有键必须在同一个分片上，可以用键标签保证。
+	 * 
+	 * @param timeout 超时时间(秒)，0表示一直等待。
+	 * @param keys 键，按顺序检查。
+	 * @return
+	 * 		弹出元素的键和元素；如果超时返回null。
+	 * @throws IllegalArgumentException 如果键不在同一个分片上。
+	 */
+	Map.Entry<String, String> blpopString(int timeout, String... keys);
+	
+	/**
+	 * 在多个列表上阻塞等待，弹出第一个非空列表的第一个字节数组形式的元素。
+	 * 
+	 * @param timeout 超时时间(秒)，0表示一直等待。
+	 * @param keys 键，按顺序检查。
+	 * @return
+	 * 		弹出元素的键和元素；如果超时返回null。
+	 * @see #blpopString(int, String...)
+	 */
+	Map.Entry<String, byte[]> blpop(int timeout, String... keys);
+	
+	/**
+	 * 在多个列表上阻塞等待，弹出第一个非空列表的最后一个字符串形式的元素。
+	 * 
+	 * @param timeout 超时时间(秒)，0表示一直等待。
+	 * @param keys 键，按顺序检查。
+	 * @return
+	 * 		弹出元素的键和元素；如果超时返回null。
+	 * @see #blpopString(int, String...)
+	 */
+	Map.Entry<String, String> brpopString(int timeout, String... keys);
+	
+	/**
+	 * 在多个列表上阻塞等待，弹出第一个非空列表的最后一个字节数组形式的元素。
+	 * 
+	 * @param timeout 超时时间(秒)，0表示一直等待。
+	 * @param keys 键，按顺序检查。
+	 * @return
+	 * 		弹出元素的键和元素；如果超时返回null。
+	 * @see #blpopString(int, String...)
+	 */
+	Map.Entry<String, byte[]> brpop(int timeout, String... keys);
+	
 	/*
 	 * 集合相关操作=================================
 	 */
@@ -1048,6 +1096,238 @@ public interface RedisClient {
 	 */
 	List<byte[]> sort(String key, SortingParams sortingParams);
 	
+	/*
+	 * 多键批量操作====================================
+	 */
+	
+	/**
+	 * 批量获取多个键的值。
+	 * <p>按分片分组，每个分片只发送一次MGET，结果顺序与keys一致，不存在的键对应null。
+	 * 
+	 * @param keys 键列表。
+	 * @return 与keys一一对应的字符串形式的值。
+	 * @throws RedisClientRuntimeException 如果发生异常等。
+	 */
+	List<String> mgetString(List<String> keys);
+	
+	/**
+	 * 批量获取多个键的值。
+	 * <p>按分片分组，每个分片只发送一次MGET，结果顺序与keys一致，不存在的键对应null。
+	 * 
+	 * @param keys 键列表。
+	 * @return 与keys一一对应的字节数组形式的值。
+	 * @throws RedisClientRuntimeException 如果发生异常等。
+	 */
+	List<byte[]> mget(List<String> keys);
+	
+	/**
+	 * 批量设置键值并设置失效时间。
+	 * <p>按分片分组，每个分片的SETEX命令通过一次pipeline发送。
+	 * 
+	 * @param keyValues 键及字符串形式的值。
+	 * @param expires 失效时间(单位:秒)。
+	 * @return 全部设置成功返回true；否则返回false；
+	 * @throws RedisClientRuntimeException 如果发生异常等。
+	 */
+	boolean msetexString(Map<String, String> keyValues, int expires);
+	
+	/**
+	 * 批量设置键值并设置失效时间。
+	 * <p>按分片分组，每个分片的SETEX命令通过一次pipeline发送。
+	 * 
+	 * @param keyValues 键及字节数组形式的值。
+	 * @param expires 失效时间(单位:秒)。
+	 * @return 全部设置成功返回true；否则返回false；
+	 * @throws RedisClientRuntimeException 如果发生异常等。
+	 */
+	boolean msetex(Map<String, byte[]> keyValues, int expires);
+	
+	/**
+	 * 批量删除多个键。
+	 * <p>按分片分组，每个分片的DEL命令通过一次pipeline发送。
+	 * 
+	 * @param keys 键集合。
+	 * @return 返回成功删除数据的个数。
+	 * @throws RedisClientRuntimeException 如果发生异常等。
+	 */
+	long mdelete(Collection<String> keys);
+	
+	/*
+	 * 游标遍历与分页读取====================================
+	 */
+	
+	/**
+	 * 用SCAN遍历所有分片上的键，逐个分片、逐页读取。
+	 * <p>迭代器当前页消费完才读取下一页，内存中最多只有一页，遍历不会长时间阻塞redis。
+	 * 同一个键可能返回多次，遍历期间增删的键不保证返回。迭代器不是线程安全的。
+	 * 
+	 * @param pattern 键的匹配模式，为null时返回所有键。
+	 * @param count 每页数量的提示。
+	 * @return 键的迭代器。
+	 * @throws RedisClientRuntimeException 如果读取某一页时发生异常等，由迭代器的hasNext或next抛出。
+	 */
+	Iterator<String> scan(String pattern, int count);
+	
+	/**
+	 * 用SSCAN逐页遍历集合的成员。
+	 * 
+	 * @param key 键。
+	 * @param count 每页数量的提示。
+	 * @return 成员的迭代器。
+	 * @see #scan(String, int)
+	 */
+	Iterator<String> sscan(String key, int count);
+	
+	/**
+	 * 用HSCAN逐页遍历哈希表的字段和值。
+	 * 
+	 * @param key 键。
+	 * @param count 每页数量的提示。
+	 * @return 字段和值的迭代器。
+	 * @see #scan(String, int)
+	 */
+	Iterator<Map.Entry<String, String>> hscanString(String key, int count);
+	
+	/**
+	 * 用HSCAN逐页遍历哈希表的字段和值。
+	 * 
+	 * @param key 键。
+	 * @param count 每页数量的提示。
+	 * @return 字段和值的迭代器。
+	 * @see #scan(String, int)
+	 */
+	Iterator<Map.Entry<String, byte[]>> hscan(String key, int count);
+	
+	/**
+	 * 用ZSCAN逐页遍历有序集合的成员和分值，返回顺序与分值无关。
+	 * 
+	 * @param key 键。
+	 * @param count 每页数量的提示。
+	 * @return 成员和分值的迭代器。
+	 * @see #scan(String, int)
+	 */
+	Iterator<Tuple> zscan(String key, int count);
+	
+	/**
+	 * 分页读取列表的全部元素，每页用一次LRANGE读取pageSize个元素，并在后台预读下一页。
+	 * <p>内存中最多有两页数据，单次命令只读取一页，不会长时间阻塞redis。
+	 * 按下标分页，遍历期间在列表前部插入或删除元素会导致元素重复返回或遗漏。
+	 * 读写分离时一次遍历的所有页都从第一页选定的节点读取，不会在复制进度不同的从节点间切换。
+	 * 每次调用iterator()都从头开始遍历，迭代器不是线程安全的。
+	 * 
+	 * @param key 键。
+	 * @param pageSize 每页的元素个数。
+	 * @return 元素的惰性集合。
+	 * @throws RedisClientRuntimeException 如果读取某一页时发生异常等，由迭代器的hasNext或next抛出。
+	 */
+	Iterable<String> lrangeStringPaged(String key, int pageSize);
+	
+	/**
+	 * 分页读取列表的全部元素。
+	 * 
+	 * @param key 键。
+	 * @param pageSize 每页的元素个数。
+	 * @return 元素的惰性集合。
+	 * @see #lrangeStringPaged(String, int)
+	 */
+	Iterable<byte[]> lrangePaged(String key, int pageSize);
+	
+	/**
+	 * 按分值从低到高分页读取有序集合的全部成员，每页用一次ZRANGE读取pageSize个成员，并在后台预读下一页。
+	 * 
+	 * @param key 键。
+	 * @param pageSize 每页的成员个数。
+	 * @return 成员的惰性集合。
+	 * @see #lrangeStringPaged(String, int)
+	 */
+	Iterable<String> zrangeStringPaged(String key, int pageSize);
+	
+	/**
+	 * 按分值从低到高分页读取有序集合的全部成员。
+	 * 
+	 * @param key 键。
+	 * @param pageSize 每页的成员个数。
+	 * @return 成员的惰性集合。
+	 * @see #lrangeStringPaged(String, int)
+	 */
+	Iterable<byte[]> zrangePaged(String key, int pageSize);
+	
+	/*
+	 * 对象读写====================================
+	 */
+	
+	/**
+	 * 读取用编解码器编码的对象。
+	 * <p>解码直接读取回复数组，不经过中间的字符串。
+	 * 
+	 * @param key 键。
+	 * @param codec 编解码器。
+	 * @return 解码得到的对象，不存在时返回null。
+	 * @throws RedisClientRuntimeException 如果解码失败或者发生异常等。
+	 */
+	<T> T get(String key, Codec<T> codec);
+	
+	/**
+	 * 用编解码器编码对象后写入。
+	 * <p>编码写入当前线程复用的缓冲区，只复制一次得到命令参数。
+	 * 
+	 * @param key 键。
+	 * @param value 对象，不能为null。
+	 * @param codec 编解码器。
+	 * @throws RedisClientRuntimeException 如果编码失败或者发生异常等。
+	 */
+	<T> void set(String key, T value, Codec<T> codec);
+	
+	/**
+	 * 用编解码器编码对象后写入，同时设置过期时间。
+	 * 
+	 * @param key 键。
+	 * @param value 对象，不能为null。
+	 * @param codec 编解码器。
+	 * @param expires 过期时间(单位:秒)。
+	 * @return 是否成功。
+	 * @throws RedisClientRuntimeException 如果编码失败或者发生异常等。
+	 */
+	<T> boolean setex(String key, T value, Codec<T> codec, int expires);
+	
+	/**
+	 * 批量读取用编解码器编码的对象。
+	 * 
+	 * @param keys 键列表。
+	 * @param codec 编解码器。
+	 * @return 与键列表一一对应的对象，不存在的键对应null。
+	 * @throws RedisClientRuntimeException 如果解码失败或者发生异常等。
+	 */
+	<T> List<T> mget(List<String> keys, Codec<T> codec);
+	
+	/*
+	 * 缓存加载====================================
+	 */
+	
+	/**
+	 * 读取缓存的对象，不存在时加载并写入，逻辑过期之后仍可返回旧值的时间与逻辑过期时间相同。
+	 * 
+	 * @see #getOrLoad(String, Codec, ValueLoader, long, long)
+	 */
+	<T> T getOrLoad(String key, Codec<T> codec, ValueLoader<T> loader, long ttlMillis);
+	
+	/**
+	 * 读取缓存的对象，不存在时加载并写入。
+	 * <p>逻辑过期之前按XFetch算法概率性地提前刷新，逻辑过期之后返回旧值，两种情况都只由一个后台线程刷新；
+	 * 不存在时只有用SET NX PX取得加载锁的调用方加载，其他调用方等待加载结果。
+	 * 数据库的负载不会在过期时刻集中出现。
+	 * <p>键中保存的是带过期信息的数据，只能通过getOrLoad读取。
+	 * 
+	 * @param key 键。
+	 * @param codec 编解码器。
+	 * @param loader 加载器。
+	 * @param ttlMillis 逻辑过期时间(单位:毫秒)。
+	 * @param staleMillis 逻辑过期之后仍可返回旧值的时间(单位:毫秒)。
+	 * @return 缓存或加载的值，加载结果为null时返回null，并在较短的时间内缓存不存在的结果(见CacheAsideLoader#setAbsentMillis)。
+	 * @throws RedisClientRuntimeException 如果加载失败或者发生异常等。
+	 */
+	<T> T getOrLoad(String key, Codec<T> codec, ValueLoader<T> loader, long ttlMillis, long staleMillis);
+	
 	/*
 	 * 统计方法====================================
 	 */
@@ -4,8 +4,26 @@
 
 package com.krzn.platform.redis;
 
+import java.lang.reflect.Method;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import redis.clients.jedis.JedisShardInfo;
+
 /**
  * RedisClient统计量。
+ * <p>按命令和按节点分别统计调用次数、错误数、超时数、收发字节数和延迟直方图，
+ * 记录过程无锁，可以在每次调用中直接记录。
+ * <p>命令名默认取回调所在的RedisClient方法名，例如getString、mget。
+ * 字节数只有自行编解码的传输层(NioTransport)能够获得，只按节点统计。
+ * <p>开启值压缩时另外统计压缩前后的字节数和压缩、解压耗时。
+ * <p>开启复制延迟监控时记录各从节点当前的复制延迟，是最近一次查询的值，不随reset清零。
+ * <p>按周期输出统计时应使用snapshotAndReset，读取和清零是同一次原子操作，不会丢失两者之间的调用。
  * 
  * @author yangzhishuo
  * @version 1.0 
@@ -13,6 +31,546 @@ package com.krzn.platform.redis;
  */
 public class RedisClientStatistic {
 
-	//FIXME
-	
+	/**
+	 * 回调类型与命令名的缓存。
+	 */
+	private static final ConcurrentMap<Class<?>, String> COMMAND_NAMES = new ConcurrentHashMap<Class<?>, String>();
+
+	private final Metrics total = new Metrics();
+
+	private final ConcurrentMap<String, Metrics> commands = new ConcurrentHashMap<String, Metrics>();
+
+	private final ConcurrentMap<JedisShardInfo, Metrics> nodes = new ConcurrentHashMap<JedisShardInfo, Metrics>();
+
+	private final CompressionMetrics compression = new CompressionMetrics();
+
+	private final ConcurrentMap<String, ReplicationLag> replicationLags = new ConcurrentHashMap<String, ReplicationLag>();
+
+	/**
+	 * 记录一次调用。
+	 * 
+	 * @param command 命令名。
+	 * @param node 执行的节点，未选出节点时为null。
+	 * @param elapsedNanos 耗时，单位纳秒。
+	 * @param error 调用失败时的异常，成功时为null。
+	 */
+	public void record(String command, JedisShardInfo node, long elapsedNanos, Throwable error) {
+		long micros = elapsedNanos / 1000;
+		boolean timeout = error != null && isTimeout(error);
+		total.record(micros, error != null, timeout);
+		metrics(commands, command).record(micros, error != null, timeout);
+		if(node != null){
+			metrics(nodes, node).record(micros, error != null, timeout);
+		}
+	}
+
+	/**
+	 * 记录节点上收发的字节数。
+	 * 
+	 * @param node 节点。
+	 * @param bytesOut 发送的字节数。
+	 * @param bytesIn 接收的字节数。
+	 */
+	public void recordBytes(JedisShardInfo node, long bytesOut, long bytesIn) {
+		total.recordBytes(bytesOut, bytesIn);
+		metrics(nodes, node).recordBytes(bytesOut, bytesIn);
+	}
+
+	/**
+	 * 记录一次写入时的压缩。
+	 * 
+	 * @param originalBytes 压缩前的字节数。
+	 * @param storedBytes 实际写入的字节数，压缩效果不足时与压缩前相同。
+	 * @param elapsedNanos 压缩耗时，单位纳秒。
+	 */
+	public void recordCompression(long originalBytes, long storedBytes, long elapsedNanos) {
+		compression.compressions.incrementAndGet();
+		compression.originalBytes.addAndGet(originalBytes);
+		compression.storedBytes.addAndGet(storedBytes);
+		compression.compressNanos.addAndGet(elapsedNanos);
+	}
+
+	/**
+	 * 记录一次读取时的解压。
+	 * 
+	 * @param elapsedNanos 解压耗时，单位纳秒。
+	 */
+	public void recordDecompression(long elapsedNanos) {
+		compression.decompressions.incrementAndGet();
+		compression.decompressNanos.addAndGet(elapsedNanos);
+	}
+
+	/**
+	 * 记录从节点当前的复制延迟。
+	 * 
+	 * @param slave 从节点。
+	 * @param lag 复制延迟。
+	 */
+	public void recordReplicationLag(JedisShardInfo slave, ReplicationLag lag) {
+		replicationLags.put(slave.getHost() + ":" + slave.getPort(), lag);
+	}
+
+	/**
+	 * 获取所有调用的统计快照。
+	 */
+	public Snapshot getTotal() {
+		return total.snapshot(false);
+	}
+
+	/**
+	 * 获取按命令统计的快照。
+	 * 
+	 * @return 命令名与快照的映射。
+	 */
+	public Map<String, Snapshot> getCommands() {
+		return snapshot(commands, false);
+	}
+
+	/**
+	 * 获取按节点统计的快照。
+	 * 
+	 * @return host:port与快照的映射。
+	 */
+	public Map<String, Snapshot> getNodes() {
+		return snapshotNodes(false);
+	}
+
+	/**
+	 * 获取值压缩的统计快照。
+	 */
+	public CompressionSnapshot getCompression() {
+		return compression.snapshot(false);
+	}
+
+	/**
+	 * 获取各从节点当前的复制延迟。
+	 * 
+	 * @return host:port与复制延迟的映射。
+	 */
+	public Map<String, ReplicationLag> getReplicationLags() {
+		return Collections.unmodifiableMap(new LinkedHashMap<String, ReplicationLag>(replicationLags));
+	}
+
+	/**
+	 * 将所有统计清零，清零前的值被丢弃。
+	 * <p>先读取再调用本方法时，两者之间的调用既不在读取的值中，也不计入下一个周期，
+	 * 按周期输出统计时应使用snapshotAndReset。
+	 */
+	public void reset() {
+		snapshotAndReset();
+	}
+
+	/**
+	 * 获取所有统计的快照并清零，用于按周期输出统计。
+	 * <p>每个计数器都是取值和清零一步完成，与记录并发时，每次调用要么计入返回的快照，要么计入下一个周期。
+	 * 
+	 * @return 清零前的统计。
+	 */
+	public StatisticSnapshot snapshotAndReset() {
+		return new StatisticSnapshot(total.snapshot(true), snapshot(commands, true), snapshotNodes(true),
+				compression.snapshot(true), getReplicationLags());
+	}
+
+	/**
+	 * 获取回调对应的命令名，取回调所在的方法名，非匿名类时取类名。
+	 * 
+	 * @param callback 回调实例。
+	 * @return 命令名。
+	 */
+	public static String commandOf(Object callback) {
+		Class<?> type = callback.getClass();
+		String name = COMMAND_NAMES.get(type);
+		if(name == null){
+			Method method = type.getEnclosingMethod();
+			name = method != null ? method.getName() : type.getSimpleName();
+			if(name.length() == 0){
+				name = type.getName();
+			}
+			COMMAND_NAMES.putIfAbsent(type, name);
+		}
+		return name;
+	}
+
+	private static boolean isTimeout(Throwable error) {
+		for(Throwable e = error; e != null; e = e.getCause()){
+			if(e instanceof RedisClientTimeoutException || e instanceof SocketTimeoutException){
+				return true;
+			}
+			if(e.getCause() == e){
+				break;
+			}
+		}
+		return false;
+	}
+
+	private static <K> Metrics metrics(ConcurrentMap<K, Metrics> metricsMap, K key) {
+		Metrics metrics = metricsMap.get(key);
+		if(metrics == null){
+			metrics = new Metrics();
+			Metrics existing = metricsMap.putIfAbsent(key, metrics);
+			if(existing != null){
+				metrics = existing;
+			}
+		}
+		return metrics;
+	}
+
+	private static Map<String, Snapshot> snapshot(ConcurrentMap<String, Metrics> metricsMap, boolean reset) {
+		Map<String, Snapshot> snapshots = new LinkedHashMap<String, Snapshot>();
+		for(Map.Entry<String, Metrics> entry : metricsMap.entrySet()){
+			snapshots.put(entry.getKey(), entry.getValue().snapshot(reset));
+		}
+		return Collections.unmodifiableMap(snapshots);
+	}
+
+	private Map<String, Snapshot> snapshotNodes(boolean reset) {
+		Map<String, Snapshot> snapshots = new LinkedHashMap<String, Snapshot>();
+		for(Map.Entry<JedisShardInfo, Metrics> entry : nodes.entrySet()){
+			snapshots.put(entry.getKey().getHost() + ":" + entry.getKey().getPort(), entry.getValue().snapshot(reset));
+		}
+		return Collections.unmodifiableMap(snapshots);
+	}
+
+	@Override
+	public String toString() {
+		return "RedisClientStatistic [total=" + getTotal() + ", commands=" + getCommands() + ", nodes=" + getNodes() + ", compression=" + getCompression()
+				+ ", replicationLags=" + getReplicationLags() + "]";
+	}
+
+	/**
+	 * 一个命令或一个节点的计数器。
+	 */
+	private static class Metrics {
+
+		private final AtomicLong calls = new AtomicLong();
+
+		private final AtomicLong errors = new AtomicLong();
+
+		private final AtomicLong timeouts = new AtomicLong();
+
+		private final AtomicLong bytesOut = new AtomicLong();
+
+		private final AtomicLong bytesIn = new AtomicLong();
+
+		private final LatencyHistogram latency = new LatencyHistogram();
+
+		void record(long micros, boolean error, boolean timeout){
+			calls.incrementAndGet();
+			if(error){
+				errors.incrementAndGet();
+			}
+			if(timeout){
+				timeouts.incrementAndGet();
+			}
+			latency.record(micros);
+		}
+
+		void recordBytes(long out, long in){
+			if(out > 0){
+				bytesOut.addAndGet(out);
+			}
+			if(in > 0){
+				bytesIn.addAndGet(in);
+			}
+		}
+
+		Snapshot snapshot(boolean reset){
+			if(reset){
+				return new Snapshot(calls.getAndSet(0), errors.getAndSet(0), timeouts.getAndSet(0),
+						bytesOut.getAndSet(0), bytesIn.getAndSet(0), latency.copy(true));
+			}
+			return new Snapshot(calls.get(), errors.get(), timeouts.get(), bytesOut.get(), bytesIn.get(), latency.copy(false));
+		}
+
+	}
+
+	/**
+	 * 值压缩的计数器。
+	 */
+	private static class CompressionMetrics {
+
+		private final AtomicLong compressions = new AtomicLong();
+
+		private final AtomicLong originalBytes = new AtomicLong();
+
+		private final AtomicLong storedBytes = new AtomicLong();
+
+		private final AtomicLong compressNanos = new AtomicLong();
+
+		private final AtomicLong decompressions = new AtomicLong();
+
+		private final AtomicLong decompressNanos = new AtomicLong();
+
+		CompressionSnapshot snapshot(boolean reset){
+			if(reset){
+				return new CompressionSnapshot(compressions.getAndSet(0), originalBytes.getAndSet(0), storedBytes.getAndSet(0),
+						compressNanos.getAndSet(0), decompressions.getAndSet(0), decompressNanos.getAndSet(0));
+			}
+			return new CompressionSnapshot(compressions.get(), originalBytes.get(), storedBytes.get(),
+					compressNanos.get(), decompressions.get(), decompressNanos.get());
+		}
+
+	}
+
+	/**
+	 * 值压缩的统计快照。只统计达到压缩阈值的值，耗时单位为微秒。
+	 */
+	public static class CompressionSnapshot {
+
+		private final long compressions;
+
+		private final long originalBytes;
+
+		private final long storedBytes;
+
+		private final long compressNanos;
+
+		private final long decompressions;
+
+		private final long decompressNanos;
+
+		CompressionSnapshot(long compressions, long originalBytes, long storedBytes, long compressNanos, long decompressions, long decompressNanos) {
+			this.compressions = compressions;
+			this.originalBytes = originalBytes;
+			this.storedBytes = storedBytes;
+			this.compressNanos = compressNanos;
+			this.decompressions = decompressions;
+			this.decompressNanos = decompressNanos;
+		}
+
+		public long getCompressions() {
+			return compressions;
+		}
+
+		public long getOriginalBytes() {
+			return originalBytes;
+		}
+
+		public long getStoredBytes() {
+			return storedBytes;
+		}
+
+		/**
+		 * 压缩率，压缩前的字节数除以实际写入的字节数，没有压缩时为1。
+		 */
+		public double getRatio() {
+			return storedBytes == 0 ? 1 : (double) originalBytes / storedBytes;
+		}
+
+		public long getCompressMicros() {
+			return compressNanos / 1000;
+		}
+
+		public long getDecompressions() {
+			return decompressions;
+		}
+
+		public long getDecompressMicros() {
+			return decompressNanos / 1000;
+		}
+
+		@Override
+		public String toString() {
+			return "[compressions=" + compressions + ", originalBytes=" + originalBytes + ", storedBytes=" + storedBytes
+					+ ", ratio=" + String.format("%.2f", getRatio()) + ", compressTime=" + getCompressMicros()
+					+ "us, decompressions=" + decompressions + ", decompressTime=" + getDecompressMicros() + "us]";
+		}
+
+	}
+
+	/**
+	 * 所有统计的快照，由snapshotAndReset返回。
+	 */
+	public static class StatisticSnapshot {
+
+		private final Snapshot total;
+
+		private final Map<String, Snapshot> commands;
+
+		private final Map<String, Snapshot> nodes;
+
+		private final CompressionSnapshot compression;
+
+		private final Map<String, ReplicationLag> replicationLags;
+
+		StatisticSnapshot(Snapshot total, Map<String, Snapshot> commands, Map<String, Snapshot> nodes,
+				CompressionSnapshot compression, Map<String, ReplicationLag> replicationLags) {
+			this.total = total;
+			this.commands = commands;
+			this.nodes = nodes;
+			this.compression = compression;
+			this.replicationLags = replicationLags;
+		}
+
+		public Snapshot getTotal() {
+			return total;
+		}
+
+		/**
+		 * @return 命令名与快照的映射。
+		 */
+		public Map<String, Snapshot> getCommands() {
+			return commands;
+		}
+
+		/**
+		 * @return host:port与快照的映射。
+		 */
+		public Map<String, Snapshot> getNodes() {
+			return nodes;
+		}
+
+		public CompressionSnapshot getCompression() {
+			return compression;
+		}
+
+		/**
+		 * @return host:port与复制延迟的映射。
+		 */
+		public Map<String, ReplicationLag> getReplicationLags() {
+			return replicationLags;
+		}
+
+		@Override
+		public String toString() {
+			return "[total=" + total + ", commands=" + commands + ", nodes=" + nodes + ", compression=" + compression
+					+ ", replicationLags=" + replicationLags + "]";
+		}
+
+	}
+
+	/**
+	 * 从节点的复制延迟。
+	 */
+	public static class ReplicationLag {
+
+		private final boolean linkUp;
+
+		private final long lagBytes;
+
+		private final long lagMillis;
+
+		/**
+		 * @param linkUp 与主节点的复制连接是否正常。
+		 * @param lagBytes 落后主节点的复制偏移量，单位字节。
+		 * @param lagMillis 估算的落后时间，单位毫秒。
+		 */
+		public ReplicationLag(boolean linkUp, long lagBytes, long lagMillis) {
+			this.linkUp = linkUp;
+			this.lagBytes = lagBytes;
+			this.lagMillis = lagMillis;
+		}
+
+		public boolean isLinkUp() {
+			return linkUp;
+		}
+
+		public long getLagBytes() {
+			return lagBytes;
+		}
+
+		public long getLagMillis() {
+			return lagMillis;
+		}
+
+		@Override
+		public String toString() {
+			if(!linkUp){
+				return "[link=down]";
+			}
+			return "[lagBytes=" + lagBytes + ", lag=" + lagMillis + "ms]";
+		}
+
+	}
+
+	/**
+	 * 统计快照，不随之后的调用变化。延迟单位为微秒。
+	 */
+	public static class Snapshot {
+
+		private final long calls;
+
+		private final long errors;
+
+		private final long timeouts;
+
+		private final long bytesOut;
+
+		private final long bytesIn;
+
+		private final long[] latency;
+
+		/**
+		 * 直方图中的记录数，与calls可能因并发略有差异。
+		 */
+		private final long latencyCount;
+
+		Snapshot(long calls, long errors, long timeouts, long bytesOut, long bytesIn, long[] latency) {
+			this.calls = calls;
+			this.errors = errors;
+			this.timeouts = timeouts;
+			this.bytesOut = bytesOut;
+			this.bytesIn = bytesIn;
+			this.latency = latency;
+			long count = 0;
+			for(int i = 0; i < latency.length - 2; i++){
+				count += latency[i];
+			}
+			this.latencyCount = count;
+		}
+
+		public long getCalls() {
+			return calls;
+		}
+
+		public long getErrors() {
+			return errors;
+		}
+
+		public long getTimeouts() {
+			return timeouts;
+		}
+
+		public long getBytesOut() {
+			return bytesOut;
+		}
+
+		public long getBytesIn() {
+			return bytesIn;
+		}
+
+		/**
+		 * 平均延迟，单位微秒。
+		 */
+		public long getMeanMicros() {
+			return latencyCount == 0 ? 0 : LatencyHistogram.sumOf(latency) / latencyCount;
+		}
+
+		/**
+		 * 最大延迟，单位微秒。
+		 */
+		public long getMaxMicros() {
+			return LatencyHistogram.maxOf(latency);
+		}
+
+		/**
+		 * 百分位延迟，单位微秒，误差不超过1/32。
+		 * 
+		 * @param percentile 百分位，例如99.9。
+		 */
+		public long getPercentileMicros(double percentile) {
+			return LatencyHistogram.valueAtPercentile(latency, latencyCount, percentile);
+		}
+
+		@Override
+		public String toString() {
+			return "[calls=" + calls + ", errors=" + errors + ", timeouts=" + timeouts
+					+ ", bytesOut=" + bytesOut + ", bytesIn=" + bytesIn
+					+ ", mean=" + getMeanMicros() + "us, p50=" + getPercentileMicros(50)
+					+ "us, p99=" + getPercentileMicros(99) + "us, p999=" + getPercentileMicros(99.9)
+					+ "us, max=" + getMaxMicros() + "us]";
+		}
+
+	}
+
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis;
+
+/**
+ * RedisClient超时异常。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月14日
+ */
+public class RedisClientTimeoutException extends RedisClientRuntimeException{
+
+	public RedisClientTimeoutException() {
+		super();
+	}
+
+	public RedisClientTimeoutException(String arg0, Throwable arg1) {
+		super(arg0, arg1);
+	}
+
+	public RedisClientTimeoutException(String arg0) {
+		super(arg0);
+	}
+
+	public RedisClientTimeoutException(Throwable arg0) {
+		super(arg0);
+	}
+
+	private static final long serialVersionUID = 1L;
+
+}
@@ -18,12 +18,27 @@ public enum TimeUnit {
 
 	private String unit;
 	
+	/**
+	 * unit的UTF-8编码，避免每次调用都重新编码。
+	 */
+	private final byte[] raw;
+	
 	private TimeUnit(String unit) {
 		this.unit = unit;
+		this.raw = unit.getBytes(RedisContants.CS_UTF8);
 	}
 
 	public String getUnit() {
 		return unit;
 	}
 	
+	/**
+	 * 获取unit的UTF-8编码。
+	 * 
+	 * @return 编码的副本，枚举常量被所有调用方共享，不能返回可修改的内部数组。
+	 */
+	public byte[] getRaw() {
+		return raw.clone();
+	}
+	
 }
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis;
+
+/**
+ * 缓存未命中或需要刷新时加载值，通常从数据库读取。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月30日
+ * @see RedisClient#getOrLoad(String, Codec, ValueLoader, long)
+ */
+public interface ValueLoader<T> {
+
+	/**
+	 * 加载值。
+	 * 
+	 * @param key 键。
+	 * @return
+	 *      加载的值，返回null时在较短的时间内缓存不存在的结果。
+	 * @throws Exception 加载失败。
+	 */
+	T load(String key) throws Exception;
+	
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+import com.krzn.platform.redis.Codec;
+
+/**
+ * 紧凑二进制格式的编解码器基类。
+ * <p>子类按字段顺序写入和读取，整数使用变长编码，字符串直接按UTF-8逐字符写入输出流，
+ * 解码直接读取回复数组，没有反射和中间对象，适合字段固定、读写频繁的对象。
+ * <p>字段的增删需要子类自行处理版本，例如先写一个版本号。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月31日
+ */
+public abstract class BinaryCodec<T> implements Codec<T> {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	@Override
+	public final void encode(T value, OutputStream out) throws IOException {
+		write(value, new Output(out));
+	}
+
+	@Override
+	public final T decode(byte[] data, int offset, int length) throws IOException {
+		return read(new Input(data, offset, length));
+	}
+
+	/**
+	 * 写入一个对象的所有字段。
+	 */
+	protected abstract void write(T value, Output out) throws IOException;
+
+	/**
+	 * 按写入的顺序读取所有字段。
+	 */
+	protected abstract T read(Input in) throws IOException;
+
+	/**
+	 * 二进制输出。
+	 */
+	public static final class Output {
+
+		private final OutputStream out;
+
+		Output(OutputStream out) {
+			this.out = out;
+		}
+
+		public void writeByte(int value) throws IOException {
+			out.write(value);
+		}
+
+		public void writeBoolean(boolean value) throws IOException {
+			out.write(value ? 1 : 0);
+		}
+
+		/**
+		 * 变长编码的整数，负数按zigzag编码，绝对值越小占用的字节越少。
+		 */
+		public void writeInt(int value) throws IOException {
+			writeUnsignedVarLong(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+		}
+
+		/**
+		 * 变长编码的长整数，负数按zigzag编码。
+		 */
+		public void writeLong(long value) throws IOException {
+			writeUnsignedVarLong((value << 1) ^ (value >> 63));
+		}
+
+		public void writeDouble(double value) throws IOException {
+			long bits = Double.doubleToRawLongBits(value);
+			for(int shift = 56; shift >= 0; shift -= 8){
+				out.write((int) (bits >>> shift));
+			}
+		}
+
+		/**
+		 * UTF-8字符串，先写字节长度，null的长度为-1。
+		 * <p>单独的代理字符写为'?'，与String.getBytes一致，这样的字符串读出后与原值不相等。
+		 */
+		public void writeString(String value) throws IOException {
+			if(value == null){
+				writeInt(-1);
+				return;
+			}
+			int length = value.length();
+			int utf8Length = 0;
+			for(int i = 0; i < length; i++){
+				char c = value.charAt(i);
+				if(c < 0x80){
+					utf8Length++;
+				}else if(c < 0x800){
+					utf8Length += 2;
+				}else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))){
+					utf8Length += 4;
+					i++;
+				}else if(Character.isSurrogate(c)){
+					utf8Length++;
+				}else{
+					utf8Length += 3;
+				}
+			}
+			writeInt(utf8Length);
+			for(int i = 0; i < length; i++){
+				char c = value.charAt(i);
+				if(c < 0x80){
+					out.write(c);
+				}else if(c < 0x800){
+					out.write(0xC0 | (c >> 6));
+					out.write(0x80 | (c & 0x3F));
+				}else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))){
+					int codePoint = Character.toCodePoint(c, value.charAt(++i));
+					out.write(0xF0 | (codePoint >> 18));
+					out.write(0x80 | ((codePoint >> 12) & 0x3F));
+					out.write(0x80 | ((codePoint >> 6) & 0x3F));
+					out.write(0x80 | (codePoint & 0x3F));
+				}else if(Character.isSurrogate(c)){
+					//单独的代理字符不是合法的UTF-8，与String.getBytes一致写入'?'，读出的也是'?'。
+					out.write('?');
+				}else{
+					out.write(0xE0 | (c >> 12));
+					out.write(0x80 | ((c >> 6) & 0x3F));
+					out.write(0x80 | (c & 0x3F));
+				}
+			}
+		}
+
+		/**
+		 * 字节数组，先写长度，null的长度为-1。
+		 */
+		public void writeBytes(byte[] value) throws IOException {
+			if(value == null){
+				writeInt(-1);
+				return;
+			}
+			writeInt(value.length);
+			out.write(value, 0, value.length);
+		}
+
+		private void writeUnsignedVarLong(long value) throws IOException {
+			while((value & ~0x7FL) != 0){
+				out.write((int) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			out.write((int) value);
+		}
+
+	}
+
+	/**
+	 * 二进制输入，直接读取回复数组。
+	 */
+	public static final class Input {
+
+		private final byte[] data;
+
+		private int pos;
+
+		private final int limit;
+
+		Input(byte[] data, int offset, int length) {
+			this.data = data;
+			this.pos = offset;
+			this.limit = offset + length;
+		}
+
+		public int readByte() throws IOException {
+			if(pos >= limit){
+				throw new EOFException();
+			}
+			return data[pos++];
+		}
+
+		public boolean readBoolean() throws IOException {
+			return readByte() != 0;
+		}
+
+		public int readInt() throws IOException {
+			long value = readUnsignedVarLong();
+			return (int) (value >>> 1) ^ -(int) (value & 1);
+		}
+
+		public long readLong() throws IOException {
+			long value = readUnsignedVarLong();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		public double readDouble() throws IOException {
+			long bits = 0;
+			for(int i = 0; i < 8; i++){
+				bits = (bits << 8) | (readByte() & 0xFF);
+			}
+			return Double.longBitsToDouble(bits);
+		}
+
+		public String readString() throws IOException {
+			int length = readInt();
+			if(length < 0){
+				return null;
+			}
+			checkRemaining(length);
+			String value = new String(data, pos, length, UTF8);
+			pos += length;
+			return value;
+		}
+
+		public byte[] readBytes() throws IOException {
+			int length = readInt();
+			if(length < 0){
+				return null;
+			}
+			checkRemaining(length);
+			byte[] value = new byte[length];
+			System.arraycopy(data, pos, value, 0, length);
+			pos += length;
+			return value;
+		}
+
+		/**
+		 * 是否还有未读取的数据，用于兼容旧版本写入的数据缺少新增字段的情况。
+		 */
+		public boolean hasRemaining() {
+			return pos < limit;
+		}
+
+		private long readUnsignedVarLong() throws IOException {
+			long value = 0;
+			for(int shift = 0; shift < 64; shift += 7){
+				int b = readByte();
+				value |= (long) (b & 0x7F) << shift;
+				if((b & 0x80) == 0){
+					return value;
+				}
+			}
+			throw new IOException("malformed variable length integer!");
+		}
+
+		private void checkRemaining(int length) throws IOException {
+			if(length > limit - pos){
+				throw new EOFException();
+			}
+		}
+
+	}
+
+}
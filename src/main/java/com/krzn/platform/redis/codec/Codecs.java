@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+import com.krzn.platform.redis.Codec;
+
+/**
+ * 常用的编解码器。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月31日
+ */
+public final class Codecs {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * UTF-8字符串，与getString、setString读写的格式相同。
+	 */
+	public static final Codec<String> STRING = new Codec<String>() {
+
+		@Override
+		public void encode(String value, OutputStream out) throws IOException {
+			out.write(value.getBytes(UTF8));
+		}
+
+		@Override
+		public String decode(byte[] data, int offset, int length) throws IOException {
+			return new String(data, offset, length, UTF8);
+		}
+
+	};
+
+	/**
+	 * 原样读写的字节数组。
+	 */
+	public static final Codec<byte[]> BYTES = new Codec<byte[]>() {
+
+		@Override
+		public void encode(byte[] value, OutputStream out) throws IOException {
+			out.write(value, 0, value.length);
+		}
+
+		@Override
+		public byte[] decode(byte[] data, int offset, int length) throws IOException {
+			byte[] value = new byte[length];
+			System.arraycopy(data, offset, value, 0, length);
+			return value;
+		}
+
+	};
+
+	private Codecs() {
+	}
+
+}
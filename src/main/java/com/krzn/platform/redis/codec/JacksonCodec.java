@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import com.krzn.platform.redis.Codec;
+
+/**
+ * 基于Jackson流式API的JSON编解码器。
+ * <p>编码由JsonGenerator直接写入输出流，解码由JsonParser直接解析回复数组中的一段，
+ * 不经过中间的JSON字符串。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月31日
+ */
+public class JacksonCodec<T> implements Codec<T> {
+
+	private static final ObjectMapper DEFAULT_MAPPER = new ObjectMapper();
+
+	private final ObjectMapper mapper;
+
+	private final Class<T> type;
+
+	public JacksonCodec(Class<T> type) {
+		this(DEFAULT_MAPPER, type);
+	}
+
+	/**
+	 * @param mapper 已配置好的ObjectMapper，配置完成后才能用于多个线程。
+	 * @param type 值的类型。
+	 */
+	public JacksonCodec(ObjectMapper mapper, Class<T> type) {
+		if(mapper == null || type == null){
+			throw new IllegalArgumentException("mapper and type can't be null！");
+		}
+		this.mapper = mapper;
+		this.type = type;
+	}
+
+	@Override
+	public void encode(T value, OutputStream out) throws IOException {
+		JsonGenerator generator = mapper.getJsonFactory().createJsonGenerator(out, JsonEncoding.UTF8);
+		//输出流由调用方管理，这里只刷新不关闭。
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		try{
+			mapper.writeValue(generator, value);
+		}finally{
+			generator.close();
+		}
+	}
+
+	@Override
+	public T decode(byte[] data, int offset, int length) throws IOException {
+		return mapper.readValue(data, offset, length, type);
+	}
+
+	public Class<T> getType() {
+		return type;
+	}
+
+}
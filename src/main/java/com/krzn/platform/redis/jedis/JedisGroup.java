@@ -4,14 +4,19 @@
 
 package com.krzn.platform.redis.jedis;
 
+import java.io.IOException;
+import java.net.Socket;
 import java.util.ArrayList;
 import java.util.List;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.exceptions.JedisException;
 
 /**
  * Jedis组，对应一个redis主节点和一个或多个redis从节点。
+ * <p>主从节点的Jedis在第一次被路由到时才创建，连接也在第一次执行命令时才建立，
+ * 没有被访问过的节点不会建立连接。
  * 
  * @author yangzhishuo
  * @version 1.0 
@@ -19,6 +24,11 @@ import redis.clients.jedis.JedisShardInfo;
  */
 public class JedisGroup {
 
+	/**
+	 * 组分片信息。
+	 */
+	private JedisGroupShardInfo jedisGroupShardInfo;
+	
 	/**
 	 * 对应redis主节点。
 	 */
@@ -29,24 +39,168 @@ public class JedisGroup {
 	 */
 	private List<Jedis> slaves;
 	
+	/**
+	 * 从节点是否已经创建。
+	 */
+	private boolean slavesCreated = false;
+	
 	public JedisGroup(JedisGroupShardInfo jedisGroupShardInfo) {
-		JedisShardInfo masterInfo = jedisGroupShardInfo.getMasterInfo();
-		this.master = new Jedis(masterInfo);
-		List<JedisShardInfo> slaveInfos = jedisGroupShardInfo.getSlaveInfos();
-		if(slaveInfos != null && slaveInfos.size() > 0){
-			slaves = new ArrayList<Jedis>(slaveInfos.size());
-			for(JedisShardInfo slaveInfo : slaveInfos){
-				slaves.add(new Jedis(slaveInfo));
-			}
-		}
+		this.jedisGroupShardInfo = jedisGroupShardInfo;
 	}
 
 	public Jedis getMaster(){
+		if(master == null){
+			master = new Jedis(jedisGroupShardInfo.getMasterInfo());
+		}
 		return master;
 	}
 	
 	public List<Jedis> getSlaves(){
+		if(!slavesCreated){
+			List<JedisShardInfo> slaveInfos = jedisGroupShardInfo.getSlaveInfos();
+			if(slaveInfos != null && slaveInfos.size() > 0){
+				slaves = new ArrayList<Jedis>(slaveInfos.size());
+				for(JedisShardInfo slaveInfo : slaveInfos){
+					slaves.add(new Jedis(slaveInfo));
+				}
+			}
+			slavesCreated = true;
+		}
 		return slaves;
 	}
 	
+	/**
+	 * 获取本组中jedis对应的节点信息。
+	 * 
+	 * @param jedis 本组的主节点或从节点。
+	 * @return 节点信息，jedis不属于本组时返回null。
+	 */
+	public JedisShardInfo getShardInfo(Jedis jedis){
+		if(jedis == null){
+			return null;
+		}
+		if(jedis == master){
+			return jedisGroupShardInfo.getMasterInfo();
+		}
+		if(slaves != null){
+			for(int i = 0; i < slaves.size(); i++){
+				if(slaves.get(i) == jedis){
+					return jedisGroupShardInfo.getSlaveInfos().get(i);
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * 获取本组中与节点信息对应的主节点或从节点，按地址和端口匹配。
+	 * 
+	 * @param shardInfo 主节点或从节点的信息。
+	 * @return 对应的jedis，节点不属于本组时返回null。
+	 */
+	public Jedis getJedis(JedisShardInfo shardInfo){
+		if(isSameNode(jedisGroupShardInfo.getMasterInfo(), shardInfo)){
+			return getMaster();
+		}
+		List<JedisShardInfo> slaveInfos = jedisGroupShardInfo.getSlaveInfos();
+		if(slaveInfos != null){
+			for(int i = 0; i < slaveInfos.size(); i++){
+				if(isSameNode(slaveInfos.get(i), shardInfo)){
+					return getSlaves().get(i);
+				}
+			}
+		}
+		return null;
+	}
+	
+	private static boolean isSameNode(JedisShardInfo a, JedisShardInfo b){
+		return a.getPort() == b.getPort() && a.getHost().equals(b.getHost());
+	}
+	
+	/**
+	 * 主节点是否已建立连接。
+	 */
+	public boolean isMasterConnected(){
+		return master != null && master.isConnected();
+	}
+	
+	/**
+	 * 主节点连接是否已损坏，未建立连接的主节点不认为是损坏的。
+	 */
+	public boolean isMasterBroken(){
+		return master != null && master.getClient().isBroken();
+	}
+	
+	/**
+	 * 重置已建立连接的节点状态。
+	 */
+	public void resetState(){
+		if(master != null){
+			master.resetState();
+		}
+		if(slaves != null){
+			for(Jedis slave : slaves){
+				slave.resetState();
+			}
+		}
+	}
+	
+	/**
+	 * 关闭已建立的连接，未建立连接的节点不做处理。
+	 */
+	public void disconnect(){
+		//关闭主节点连接。
+		disconnect(master);
+		//关闭从节点连接。
+		if(slaves != null){
+			for(Jedis slave : slaves){
+				disconnect(slave);
+			}
+		}
+	}
+	
+	/**
+	 * 直接关闭已建立连接的socket，不发送QUIT。
+	 * <p>用于连接可能仍被其他线程读写的情况，其他线程阻塞中的读写会因socket关闭而立即失败。
+	 */
+	public void closeSockets(){
+		closeSocket(master);
+		if(slaves != null){
+			for(Jedis slave : slaves){
+				closeSocket(slave);
+			}
+		}
+	}
+	
+	private static void disconnect(Jedis jedis){
+		if(jedis == null || !jedis.isConnected()){
+			return;
+		}
+		try {
+			jedis.quit();
+		} catch (JedisException e) {
+			// ignore the exception node, so that all other normal nodes can release all connections.
+		}
+		try {
+			jedis.disconnect();
+		} catch (JedisException e) {
+			// ignore the exception node, so that all other normal nodes can release all connections.
+		}
+	}
+	
+	private static void closeSocket(Jedis jedis){
+		if(jedis == null){
+			return;
+		}
+		Socket socket = jedis.getClient().getSocket();
+		if(socket == null){
+			return;
+		}
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// ignore the exception node, so that all other normal nodes can release all connections.
+		}
+	}
+	
 }
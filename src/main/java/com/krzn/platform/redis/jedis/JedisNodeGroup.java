@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.jedis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
+import redis.clients.jedis.JedisShardInfo;
+
+/**
+ * Jedis节点池组，对应一个redis主节点和一个或多个redis从节点，每个节点各自拥有一个连接池。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月11日
+ */
+public class JedisNodeGroup {
+
+	/**
+	 * 对应redis主节点的连接池。
+	 */
+	private JedisNodePool master;
+	
+	/**
+	 * 对应redis从节点的连接池。
+	 */
+	private List<JedisNodePool> slaves;
+	
+	public JedisNodeGroup(JedisGroupShardInfo jedisGroupShardInfo, GenericObjectPoolConfig poolConfig) {
+		this.master = new JedisNodePool(poolConfig, jedisGroupShardInfo.getMasterInfo());
+		List<JedisShardInfo> slaveInfos = jedisGroupShardInfo.getSlaveInfos();
+		if(slaveInfos != null && slaveInfos.size() > 0){
+			slaves = new ArrayList<JedisNodePool>(slaveInfos.size());
+			for(JedisShardInfo slaveInfo : slaveInfos){
+				slaves.add(new JedisNodePool(poolConfig, slaveInfo));
+			}
+		}else{
+			slaves = Collections.emptyList();
+		}
+	}
+
+	public JedisNodePool getMaster(){
+		return master;
+	}
+	
+	public List<JedisNodePool> getSlaves(){
+		return slaves;
+	}
+	
+	/**
+	 * 获取组内与节点信息对应的连接池，按地址和端口匹配。
+	 * 
+	 * @param shardInfo 主节点或从节点的信息。
+	 * @return 对应的连接池，节点不属于本组时返回null。
+	 */
+	public JedisNodePool getNodePool(JedisShardInfo shardInfo){
+		if(isSameNode(master.getShardInfo(), shardInfo)){
+			return master;
+		}
+		for(JedisNodePool slave : slaves){
+			if(isSameNode(slave.getShardInfo(), shardInfo)){
+				return slave;
+			}
+		}
+		return null;
+	}
+	
+	private static boolean isSameNode(JedisShardInfo a, JedisShardInfo b){
+		return a.getPort() == b.getPort() && a.getHost().equals(b.getHost());
+	}
+	
+	/**
+	 * 销毁组内所有节点的连接池。
+	 */
+	public void destroy(){
+		master.destroy();
+		for(JedisNodePool slave : slaves){
+			slave.destroy();
+		}
+	}
+	
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.jedis;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
+import redis.clients.util.ShardInfo;
+
+/**
+ * Jedis节点池组分片信息。
+ * <p>包装JedisGroupShardInfo，节点名称和权重与其保持一致，保证和ShardedGroupJedis的分片结果相同。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月11日
+ */
+public class JedisNodeGroupShardInfo extends ShardInfo<JedisNodeGroup>{
+
+	/**
+	 * 被包装的组分片信息。
+	 */
+	private JedisGroupShardInfo groupShardInfo;
+	
+	/**
+	 * 每个节点连接池的配置。
+	 */
+	private GenericObjectPoolConfig poolConfig;
+	
+	public JedisNodeGroupShardInfo(JedisGroupShardInfo groupShardInfo, GenericObjectPoolConfig poolConfig) {
+		super(groupShardInfo.getWeight());
+		this.groupShardInfo = groupShardInfo;
+		this.poolConfig = poolConfig;
+	}
+
+	@Override
+	protected JedisNodeGroup createResource() {
+		return new JedisNodeGroup(groupShardInfo, poolConfig);
+	}
+
+	@Override
+	public String getName() {
+		return groupShardInfo.getName();
+	}
+
+	public JedisGroupShardInfo getGroupShardInfo() {
+		return groupShardInfo;
+	}
+
+}
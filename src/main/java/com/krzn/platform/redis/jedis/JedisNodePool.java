@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.jedis;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisShardInfo;
+
+/**
+ * 单个redis节点(主或从)的Jedis连接池。
+ * <p>与ShardedJedisGroupPool不同，池中的每个Jedis只持有一个到对应节点的连接。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月11日
+ */
+public class JedisNodePool extends JedisPool{
+
+	/**
+	 * 对应节点配置。
+	 */
+	private JedisShardInfo shardInfo;
+	
+	public JedisNodePool(final GenericObjectPoolConfig poolConfig, JedisShardInfo shardInfo) {
+		super(poolConfig, shardInfo.getHost(), shardInfo.getPort(), shardInfo.getConnectionTimeout(),
+				shardInfo.getSoTimeout(), shardInfo.getPassword(), shardInfo.getDb(), null);
+		this.shardInfo = shardInfo;
+	}
+
+	public JedisShardInfo getShardInfo() {
+		return shardInfo;
+	}
+
+	@Override
+	public String toString() {
+		return shardInfo.getHost() + ":" + shardInfo.getPort();
+	}
+	
+}
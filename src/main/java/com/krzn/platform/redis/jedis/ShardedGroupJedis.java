@@ -8,8 +8,6 @@ import java.io.Closeable;
 import java.util.List;
 import java.util.regex.Pattern;
 
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.util.Hashing;
 import redis.clients.util.Pool;
 import redis.clients.util.Sharded;
@@ -27,6 +25,11 @@ public class ShardedGroupJedis extends Sharded<JedisGroup, JedisGroupShardInfo>
 	 * 存放ShardedGroupJedis的对象池。
 	 */
 	protected Pool<ShardedGroupJedis> dataSource = null;
+	
+	/**
+	 * 是否被标记为损坏，被标记的对象归还时直接销毁。
+	 */
+	private boolean broken = false;
 
 	public ShardedGroupJedis(List<JedisGroupShardInfo> shards, Hashing algo, Pattern tagPattern) {
 		super(shards, algo, tagPattern);
@@ -48,21 +51,14 @@ public class ShardedGroupJedis extends Sharded<JedisGroup, JedisGroupShardInfo>
 	@Override
 	public void close() {
 		if (dataSource != null) {
-			boolean broken = false;
+			boolean broken = this.broken;
 
 			for (JedisGroup jedisGroup : getAllShards()) {
-				broken = true;
-				broken  &= jedisGroup.getMaster().getClient().isBroken();
-				//TODO 暂时认为只要主出现问题就认为是Broken状态。
-//				List<Jedis> slaves = jedisGroup.getSlaves();
-//				if(slaves != null && slaves.size() > 0){
-//					for(Jedis slave : slaves){
-//						broken  &= slave.getClient().isBroken();
-//					}
-//				}
 				if (broken) {
 					break;
 				}
+				//TODO 暂时认为只要主出现问题就认为是Broken状态。
+				broken = jedisGroup.isMasterBroken();
 			}
 
 			if (broken) {
@@ -78,40 +74,25 @@ public class ShardedGroupJedis extends Sharded<JedisGroup, JedisGroupShardInfo>
 	
 	/**
 	 * 关闭链接。
+	 * <p>被标记为损坏的对象可能仍有其他线程在使用连接，直接关闭socket，不发送QUIT。
 	 */
 	public void disconnect() {
-
 		for (JedisGroup jedisGroup : getAllShards()) {
-			//关闭主节点连接。
-			Jedis master = jedisGroup.getMaster();
-			try {
-				master.quit();
-			} catch (JedisConnectionException e) {
-				// ignore the exception node, so that all other normal nodes can release all connections.
-			}
-			try {
-				master.disconnect();
-			} catch (JedisConnectionException e) {
-				// ignore the exception node, so that all other normal nodes can release all connections.
-			}
-
-			//关闭从节点连接。
-			List<Jedis> slaves = jedisGroup.getSlaves();
-			for(Jedis slave : slaves){
-				try {
-					slave.quit();
-				} catch (JedisConnectionException e) {
-					// ignore the exception node, so that all other normal nodes can release all connections.
-				}
-				try {
-					slave.disconnect();
-				} catch (JedisConnectionException e) {
-					// ignore the exception node, so that all other normal nodes can release all connections.
-				}
+			if (broken) {
+				jedisGroup.closeSockets();
+			} else {
+				jedisGroup.disconnect();
 			}
 		}
 	}
 
+	/**
+	 * 标记为损坏状态，例如连接仍被其他线程使用时，归还时销毁而不是放回池中。
+	 */
+	public void markBroken() {
+		this.broken = true;
+	}
+
 	public void setDataSource(Pool<ShardedGroupJedis> shardedGroupJedisPool) {
 		this.dataSource = shardedGroupJedisPool;
 	}
@@ -121,10 +102,7 @@ public class ShardedGroupJedis extends Sharded<JedisGroup, JedisGroupShardInfo>
 	 */
 	public void resetState() {
 		for (JedisGroup jedisGroup : getAllShards()) {
-			jedisGroup.getMaster().resetState();
-			for(Jedis jedis : jedisGroup.getSlaves()){
-				jedis.resetState();
-			}
+			jedisGroup.resetState();
 		}
 	}
 
@@ -4,6 +4,8 @@
 
 package com.krzn.platform.redis.jedis;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -12,8 +14,6 @@ import org.apache.commons.pool2.PooledObjectFactory;
 import org.apache.commons.pool2.impl.DefaultPooledObject;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.util.Hashing;
 import redis.clients.util.Pool;
 
@@ -26,6 +26,11 @@ import redis.clients.util.Pool;
  */
 public class ShardedJedisGroupPool extends Pool<ShardedGroupJedis>{
 
+	/**
+	 * 只用于计算分片的ShardedGroupJedis，不会建立任何连接。
+	 */
+	private final ShardedGroupJedis router;
+
 	public ShardedJedisGroupPool(final GenericObjectPoolConfig poolConfig, List<JedisGroupShardInfo> shards) {
 		this(poolConfig, shards, Hashing.MURMUR_HASH);
 	}
@@ -43,6 +48,32 @@ public class ShardedJedisGroupPool extends Pool<ShardedGroupJedis>{
 	public ShardedJedisGroupPool(final GenericObjectPoolConfig poolConfig, List<JedisGroupShardInfo> shards,
 			Hashing algo, Pattern keyTagPattern) {
 		super(poolConfig, new ShardedGroupJedisFactory(shards, algo, keyTagPattern));
+		this.router = new ShardedGroupJedis(shards, algo, keyTagPattern);
+	}
+
+	/**
+	 * 获取键所在分片的信息，不需要从池中申请资源。
+	 * 
+	 * @param key 键。
+	 * @return 分片信息。
+	 */
+	public JedisGroupShardInfo getShardInfo(String key) {
+		return router.getShardInfo(key);
+	}
+
+	/**
+	 * 获取分片个数，分片的序号与ShardedGroupJedis.getAllShards()的顺序一致。
+	 */
+	public int getShardCount() {
+		return router.getAllShards().size();
+	}
+
+	/**
+	 * 获取所有分片的信息，每个分片一个。
+	 * <p>Sharded.getAllShardInfo()返回的是哈希环上的虚拟节点，同一个分片会出现多次。
+	 */
+	public Collection<JedisGroupShardInfo> getAllShardInfo() {
+		return new LinkedHashSet<JedisGroupShardInfo>(router.getAllShardInfo());
 	}
 
 	@Override
@@ -75,43 +106,18 @@ public class ShardedJedisGroupPool extends Pool<ShardedGroupJedis>{
 		@Override
 		public void destroyObject(PooledObject<ShardedGroupJedis> pooledShardedJedis) throws Exception {
 			final ShardedGroupJedis shardedJedis = pooledShardedJedis.getObject();
-			for (JedisGroup jedisGroup : shardedJedis.getAllShards()) {
-				//关闭主节点连接。
-				Jedis master = jedisGroup.getMaster();
-				try {
-					master.quit();
-				} catch (JedisConnectionException e) {
-					// ignore the exception node, so that all other normal nodes can release all connections.
-				}
-				try {
-					master.disconnect();
-				} catch (JedisConnectionException e) {
-					// ignore the exception node, so that all other normal nodes can release all connections.
-				}
-
-				//关闭从节点连接。
-				List<Jedis> slaves = jedisGroup.getSlaves();
-				if(slaves != null && slaves.size() > 0){
-					for(Jedis slave : slaves){
-						try {
-							slave.quit();
-						} catch (JedisConnectionException e) {
-							// ignore the exception node, so that all other normal nodes can release all connections.
-						}
-						try {
-							slave.disconnect();
-						} catch (JedisConnectionException e) {
-							// ignore the exception node, so that all other normal nodes can release all connections.
-						}
-					}
-				}
-			}
+			//只关闭已建立的连接。
+			shardedJedis.disconnect();
 		}
 
 		@Override
 		public boolean validateObject(PooledObject<ShardedGroupJedis> pooledShardedJedis) {
 			ShardedGroupJedis jedis = pooledShardedJedis.getObject();
 			for (JedisGroup jedisGroup : jedis.getAllShards()) {
+				//未建立连接的节点不需要校验，避免校验时连接整个集群。
+				if(!jedisGroup.isMasterConnected()){
+					continue;
+				}
 				try{
 					String reply = jedisGroup.getMaster().ping();
 					if (!"PONG".equals(reply)) {
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.jedis;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
+import redis.clients.util.Hashing;
+import redis.clients.util.Sharded;
+
+/**
+ * 按节点划分连接池的分片Jedis池。
+ * <p>每个主、从节点各自拥有一个连接池，分片后只申请被选中节点的一个连接，
+ * 连接总数随单节点并发增长，而不是随并发数乘以集群规模增长。
+ * <p>分片算法与ShardedJedisGroupPool一致，两种模式下同一个键落在同一个组上。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月11日
+ */
+public class ShardedJedisNodePool extends Sharded<JedisNodeGroup, JedisNodeGroupShardInfo> implements Closeable{
+
+	public ShardedJedisNodePool(final GenericObjectPoolConfig poolConfig, List<JedisGroupShardInfo> shards) {
+		this(poolConfig, shards, Hashing.MURMUR_HASH);
+	}
+
+	public ShardedJedisNodePool(final GenericObjectPoolConfig poolConfig, List<JedisGroupShardInfo> shards,
+			Hashing algo) {
+		this(poolConfig, shards, algo, null);
+	}
+
+	public ShardedJedisNodePool(final GenericObjectPoolConfig poolConfig, List<JedisGroupShardInfo> shards,
+			Pattern keyTagPattern) {
+		this(poolConfig, shards, Hashing.MURMUR_HASH, keyTagPattern);
+	}
+
+	public ShardedJedisNodePool(final GenericObjectPoolConfig poolConfig, List<JedisGroupShardInfo> shards,
+			Hashing algo, Pattern keyTagPattern) {
+		super(wrap(poolConfig, shards), algo, keyTagPattern);
+	}
+
+	private static List<JedisNodeGroupShardInfo> wrap(GenericObjectPoolConfig poolConfig, List<JedisGroupShardInfo> shards){
+		if(shards == null || shards.isEmpty()){
+			throw new IllegalArgumentException("shards of ShardedJedisNodePool can't be empty!");
+		}
+		List<JedisNodeGroupShardInfo> nodeShards = new ArrayList<JedisNodeGroupShardInfo>(shards.size());
+		for(JedisGroupShardInfo shard : shards){
+			nodeShards.add(new JedisNodeGroupShardInfo(shard, poolConfig));
+		}
+		return nodeShards;
+	}
+
+	/**
+	 * 销毁所有节点的连接池。
+	 */
+	@Override
+	public void close() {
+		for(JedisNodeGroup nodeGroup : getAllShards()){
+			nodeGroup.destroy();
+		}
+	}
+	
+}
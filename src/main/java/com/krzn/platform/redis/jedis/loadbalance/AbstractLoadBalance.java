@@ -10,6 +10,8 @@ import redis.clients.jedis.Jedis;
 
 /**
  * 负载均衡基类，做一些特殊值处理。
+ * <p>selectNode可以在任意类型的候选节点中选择(Jedis、JedisNodePool或JedisShardInfo)，子类实现doSelectNode。
+ * 只实现了doSelect的旧子类仍然可用，但只能在Jedis中选择。
  * 
  * @author yangzhishuo
  * @version 1.0 
@@ -17,17 +19,49 @@ import redis.clients.jedis.Jedis;
  */
 public abstract class AbstractLoadBalance implements LoadBalance{
 
+	/**
+	 * @deprecated 使用selectNode。
+	 */
+	@Deprecated
 	@Override
 	public Jedis select(List<Jedis> jedisList) {
-		if(jedisList == null || jedisList.isEmpty()){
+		return selectNode(jedisList);
+	}
+
+	/**
+	 * 从一组节点中选择一个。
+	 * 
+	 * @param nodes 一组节点，可以是Jedis、JedisNodePool或JedisShardInfo。
+	 * @return
+	 *      选出的节点。
+	 */
+	public <T> T selectNode(List<T> nodes) {
+		if(nodes == null || nodes.isEmpty()){
 			throw new IllegalStateException("jedis list to load balance can't be empty!");
 		}
-		if(jedisList.size() == 1){
-			return jedisList.get(0);
+		if(nodes.size() == 1){
+			return nodes.get(0);
+		}
+		return doSelectNode(nodes);
+	}
+
+	/**
+	 * 从至少两个节点中选择一个，默认交给doSelect，只能在Jedis中选择。
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> T doSelectNode(List<T> nodes) {
+		if(!(nodes.get(0) instanceof Jedis)){
+			throw new UnsupportedOperationException(getClass().getName() + " can only select from jedis list, override doSelectNode to select from other nodes!");
 		}
-		return doSelect(jedisList);
+		return (T) doSelect((List<Jedis>) nodes);
 	}
 
-	protected abstract Jedis doSelect(List<Jedis> jedisList);
+	/**
+	 * @deprecated 覆盖doSelectNode。
+	 */
+	@Deprecated
+	protected Jedis doSelect(List<Jedis> jedisList) {
+		throw new UnsupportedOperationException(getClass().getName() + " must override doSelectNode!");
+	}
 
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.jedis.loadbalance;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.krzn.platform.redis.jedis.JedisNodePool;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+
+/**
+ * 按延迟选择节点的负载均衡器。
+ * <p>记录每个节点的延迟指数加权移动平均(EWMA)和正在执行的请求数，代价为二者的乘积；
+ * 每次随机取两个候选节点，选择代价较小的一个(power of two choices)，
+ * 既能避开正在做BGSAVE等变慢的节点，又不会让所有请求同时涌向同一个最快的节点。
+ * <p>延迟高于平均值时平均值直接取该延迟，节点变慢能立即反映出来；一段时间没有请求的节点，
+ * 平均值随时间衰减，之后会重新被选中并测量。失败的请求按平均值的两倍记录。
+ * <p>需要ShardedJedisTemplate在请求开始和结束时反馈，见{@link LoadFeedback}。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月05日
+ */
+public class EwmaLoadBalance extends AbstractLoadBalance implements LoadFeedback {
+
+	/**
+	 * 默认的衰减时间常数，单位毫秒。
+	 */
+	public static final long DEFAULT_DECAY_MILLIS = 10000;
+
+	/**
+	 * 衰减时间常数，单位纳秒，越小越快忘记旧的延迟。
+	 */
+	private final double decayNanos;
+
+	/**
+	 * 各节点的负载，以"host:port"为键，同一节点的不同连接共用。
+	 */
+	private final ConcurrentMap<String, NodeLoad> loads = new ConcurrentHashMap<String, NodeLoad>();
+
+	public EwmaLoadBalance() {
+		this(DEFAULT_DECAY_MILLIS);
+	}
+
+	/**
+	 * @param decayMillis 衰减时间常数，单位毫秒。
+	 */
+	public EwmaLoadBalance(long decayMillis) {
+		if(decayMillis <= 0){
+			throw new IllegalArgumentException("decayMillis must be positive!");
+		}
+		this.decayNanos = decayMillis * 1000000.0;
+	}
+
+	@Override
+	protected <T> T doSelectNode(List<T> nodes) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int size = nodes.size();
+		int first = random.nextInt(size);
+		int second = random.nextInt(size - 1);
+		if(second >= first){
+			second++;
+		}
+		T a = nodes.get(first);
+		T b = nodes.get(second);
+		long now = System.nanoTime();
+		return cost(a, now) <= cost(b, now) ? a : b;
+	}
+
+	@Override
+	public void onStart(JedisShardInfo node) {
+		loadOf(node.getHost(), node.getPort()).pending.incrementAndGet();
+	}
+
+	@Override
+	public void onComplete(JedisShardInfo node, long latencyNanos, boolean failed) {
+		NodeLoad load = loadOf(node.getHost(), node.getPort());
+		load.pending.decrementAndGet();
+		load.observe(latencyNanos, failed, System.nanoTime(), decayNanos);
+	}
+
+	/**
+	 * 获取节点当前的平均延迟，单位毫秒，没有记录时返回0。
+	 */
+	public double getLatencyMillis(JedisShardInfo node) {
+		NodeLoad load = loads.get(node.getHost() + ":" + node.getPort());
+		return load == null ? 0 : load.latency(System.nanoTime(), decayNanos) / 1000000.0;
+	}
+
+	private double cost(Object node, long now) {
+		String address = addressOf(node);
+		NodeLoad load = address == null ? null : loads.get(address);
+		if(load == null){
+			//没有记录的节点优先选择，以便尽快测量。
+			return 0;
+		}
+		return (load.latency(now, decayNanos) + 1) * (load.pending.get() + 1);
+	}
+
+	private NodeLoad loadOf(String host, int port) {
+		String address = host + ":" + port;
+		NodeLoad load = loads.get(address);
+		if(load == null){
+			load = new NodeLoad();
+			NodeLoad existing = loads.putIfAbsent(address, load);
+			if(existing != null){
+				load = existing;
+			}
+		}
+		return load;
+	}
+
+	/**
+	 * 候选节点的地址，候选节点可以是Jedis、JedisNodePool或JedisShardInfo。
+	 */
+	private static String addressOf(Object node) {
+		if(node instanceof Jedis){
+			Jedis jedis = (Jedis) node;
+			return jedis.getClient().getHost() + ":" + jedis.getClient().getPort();
+		}
+		if(node instanceof JedisNodePool){
+			node = ((JedisNodePool) node).getShardInfo();
+		}
+		if(node instanceof JedisShardInfo){
+			JedisShardInfo shardInfo = (JedisShardInfo) node;
+			return shardInfo.getHost() + ":" + shardInfo.getPort();
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("EwmaLoadBalance [");
+		long now = System.nanoTime();
+		boolean first = true;
+		for(Map.Entry<String, NodeLoad> entry : loads.entrySet()){
+			if(!first){
+				builder.append(", ");
+			}
+			first = false;
+			NodeLoad load = entry.getValue();
+			builder.append(entry.getKey()).append("=").append(String.format("%.3f", load.latency(now, decayNanos) / 1000000.0))
+					.append("ms/").append(load.pending.get());
+		}
+		return builder.append("]").toString();
+	}
+
+	/**
+	 * 一个节点的负载。
+	 */
+	private static final class NodeLoad {
+
+		/**
+		 * 正在执行的请求数。
+		 */
+		private final AtomicInteger pending = new AtomicInteger();
+
+		/**
+		 * 延迟的移动平均，单位纳秒。
+		 */
+		private double ewma;
+
+		/**
+		 * 上次更新的时间。
+		 */
+		private long stamp = System.nanoTime();
+
+		synchronized void observe(long latencyNanos, boolean failed, long now, double decayNanos) {
+			double sample = failed ? Math.max(latencyNanos, ewma * 2) : latencyNanos;
+			if(sample > ewma){
+				ewma = sample;
+			}else{
+				double weight = Math.exp(-Math.max(0, now - stamp) / decayNanos);
+				ewma = ewma * weight + sample * (1 - weight);
+			}
+			stamp = now;
+		}
+
+		synchronized double latency(long now, double decayNanos) {
+			return ewma * Math.exp(-Math.max(0, now - stamp) / decayNanos);
+		}
+
+	}
+
+}
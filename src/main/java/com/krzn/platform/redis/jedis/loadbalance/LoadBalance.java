@@ -10,6 +10,9 @@ import redis.clients.jedis.Jedis;
 
 /**
  * Jedis负载均衡策略。
+ * <p>本接口只能在一组Jedis中选择(ShardedJedisGroupPool模式)。
+ * 候选节点还可以是节点连接池(ShardedJedisNodePool模式)，只有继承AbstractLoadBalance的负载均衡器能在其中选择，
+ * 只实现本接口的负载均衡器在该模式下由默认的随机负载均衡器代替。
  * 
  * @author yangzhishuo
  * @version 1.0 
@@ -23,7 +26,9 @@ public interface LoadBalance {
 	 * @param jedisList 一组Jedis。
 	 * @return
 	 *      选出的Jedis。
+	 * @deprecated 只能在Jedis中选择，新的负载均衡器应继承AbstractLoadBalance，实现doSelectNode。
 	 */
+	@Deprecated
 	Jedis select(List<Jedis> jedisList);
 	
 }
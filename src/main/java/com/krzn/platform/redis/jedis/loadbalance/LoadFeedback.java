@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.jedis.loadbalance;
+
+import redis.clients.jedis.JedisShardInfo;
+
+/**
+ * 负载均衡器的请求反馈。
+ * <p>实现了本接口的负载均衡器，在选出的从节点上执行的每个请求开始和结束时都会收到通知，
+ * 可以据此统计各节点的延迟和正在执行的请求数。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月05日
+ */
+public interface LoadFeedback {
+
+	/**
+	 * 请求开始在节点上执行。
+	 * 
+	 * @param node 节点。
+	 */
+	void onStart(JedisShardInfo node);
+	
+	/**
+	 * 请求执行结束，与onStart一一对应。
+	 * 
+	 * @param node 节点。
+	 * @param latencyNanos 命令的耗时，不包括从池中申请连接的等待，单位纳秒。
+	 * @param failed 是否因节点故障失败，只有连接异常和超时算作节点故障，命令错误不算。
+	 */
+	void onComplete(JedisShardInfo node, long latencyNanos, boolean failed);
+	
+}
@@ -5,9 +5,7 @@
 package com.krzn.platform.redis.jedis.loadbalance;
 
 import java.util.List;
-import java.util.Random;
-
-import redis.clients.jedis.Jedis;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 随机负载均衡器。
@@ -19,10 +17,9 @@ import redis.clients.jedis.Jedis;
 public class RandomLoadBalance extends AbstractLoadBalance{
 
 	@Override
-	protected Jedis doSelect(List<Jedis> jedisList) {
-		Random random = new Random();
-		int index = random.nextInt(jedisList.size());
-		return jedisList.get(index);
+	protected <T> T doSelectNode(List<T> nodes) {
+		int index = ThreadLocalRandom.current().nextInt(nodes.size());
+		return nodes.get(index);
 	}
 
 }
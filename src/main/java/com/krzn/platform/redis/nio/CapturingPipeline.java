@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.nio;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol.Command;
+
+/**
+ * 只记录命令、不写连接的Pipeline。
+ * <p>CoalescableJedisCallback向其中加入命令后，由NIO连接发送记录下的命令，
+ * 收到的原始回复再通过reply方法交给Jedis的Response构建返回值。
+ * <p>只记录命令和参数的引用，编码直接在连接的输出缓冲区中完成；
+ * 实例在reset后可以复用，非线程安全。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月21日
+ */
+class CapturingPipeline extends Pipeline {
+	
+	private final CapturingClient capturingClient = new CapturingClient();
+	
+	CapturingPipeline() {
+		setClient(capturingClient);
+	}
+	
+	/**
+	 * 记录下的命令个数。
+	 */
+	int size(){
+		return capturingClient.commands.size();
+	}
+	
+	/**
+	 * 第index个命令的命令名。
+	 */
+	byte[] getCommand(int index){
+		return capturingClient.commands.get(index).raw;
+	}
+	
+	/**
+	 * 第index个命令的参数。
+	 */
+	byte[][] getArgs(int index){
+		return capturingClient.args.get(index);
+	}
+	
+	/**
+	 * 按顺序设置命令的原始回复。
+	 */
+	void reply(Object data){
+		generateResponse(data);
+	}
+	
+	/**
+	 * 清除记录的命令和未完成的回复，以便复用。
+	 */
+	void reset(){
+		clean();
+		capturingClient.commands.clear();
+		capturingClient.args.clear();
+	}
+	
+	private static class CapturingClient extends Client {
+		
+		private final List<Command> commands = new ArrayList<Command>(1);
+		
+		private final List<byte[][]> args = new ArrayList<byte[][]>(1);
+
+		@Override
+		protected Connection sendCommand(Command cmd, byte[]... args) {
+			this.commands.add(cmd);
+			this.args.add(args);
+			return this;
+		}
+		
+	}
+	
+}
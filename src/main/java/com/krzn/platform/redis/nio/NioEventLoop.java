@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.nio;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.krzn.platform.redis.RedisClientRuntimeException;
+
+/**
+ * NIO事件循环，一个线程一个Selector，负责所注册连接的读写。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月21日
+ */
+class NioEventLoop implements Runnable {
+	
+	private static final Logger logger = LoggerFactory.getLogger(NioEventLoop.class);
+	
+	private final Selector selector;
+	
+	private final Thread thread;
+	
+	/**
+	 * 需要在事件循环线程中执行的任务。
+	 */
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+	
+	private volatile boolean running = true;
+	
+	NioEventLoop(String name) {
+		try {
+			this.selector = Selector.open();
+		} catch (IOException e) {
+			throw new RedisClientRuntimeException("can't open selector!", e);
+		}
+		this.thread = new Thread(this, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+	
+	Selector selector(){
+		return selector;
+	}
+	
+	boolean inEventLoop(){
+		return Thread.currentThread() == thread;
+	}
+	
+	/**
+	 * 在事件循环线程中执行任务。
+	 */
+	void execute(Runnable task){
+		if(inEventLoop()){
+			task.run();
+			return;
+		}
+		tasks.offer(task);
+		selector.wakeup();
+	}
+
+	@Override
+	public void run() {
+		while(running){
+			try{
+				selector.select();
+				runTasks();
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while(keys.hasNext()){
+					SelectionKey key = keys.next();
+					keys.remove();
+					NioRedisConnection connection = (NioRedisConnection) key.attachment();
+					if(!key.isValid()){
+						continue;
+					}
+					try{
+						if(key.isReadable()){
+							connection.read();
+						}
+						if(key.isValid() && key.isWritable()){
+							connection.write();
+						}
+					}catch(Throwable e){
+						connection.close(e);
+					}
+				}
+			}catch(Throwable e){
+				logger.error("redis nio event loop error!", e);
+			}
+		}
+		runTasks();
+		try {
+			selector.close();
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+	
+	private void runTasks(){
+		Runnable task = null;
+		while((task = tasks.poll()) != null){
+			try{
+				task.run();
+			}catch(Throwable e){
+				logger.error("redis nio event loop task error!", e);
+			}
+		}
+	}
+	
+	void shutdown(){
+		running = false;
+		selector.wakeup();
+	}
+	
+}
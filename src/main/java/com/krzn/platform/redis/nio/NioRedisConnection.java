@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.nio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.krzn.platform.redis.RedisClientStatistic;
+
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * 到单个redis节点的多路复用NIO连接。
+ * <p>任意线程都可以发送命令，命令按发送顺序写出，回复按顺序交给对应的future。
+ * 读写只在所属的事件循环线程中进行。
+ * <p>等待写出的命令超过上限时，新命令直接失败，调用方不会在节点变慢时无限占用内存。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月21日
+ */
+class NioRedisConnection {
+	
+	private final JedisShardInfo shardInfo;
+	
+	private final NioEventLoop eventLoop;
+	
+	/**
+	 * 收发字节数的统计，为null时不统计。
+	 */
+	private final RedisClientStatistic statistic;
+	
+	/**
+	 * 等待写出的最大字节数。
+	 */
+	private final int maxPendingBytes;
+	
+	private final SocketChannel channel;
+	
+	private SelectionKey selectionKey;
+	
+	/**
+	 * 调用方写入命令的缓冲区，在sendLock保护下写入。
+	 */
+	private RespCodec.Encoder pendingOutput = new RespCodec.Encoder();
+	
+	/**
+	 * 事件循环线程正在写出的缓冲区，写完后与pendingOutput交换，两个缓冲区循环复用。
+	 */
+	private RespCodec.Encoder flushingOutput = new RespCodec.Encoder();
+	
+	/**
+	 * flushingOutput中尚未写出的部分，为null时表示没有正在写出的数据。
+	 */
+	private ByteBuffer outbound;
+	
+	/**
+	 * 等待回复的命令，顺序与写出顺序一致。
+	 */
+	private final Queue<SettableFuture<Object>> pendingReplies = new ConcurrentLinkedQueue<SettableFuture<Object>>();
+	
+	/**
+	 * 保证命令写入缓冲区与等待队列的入队顺序一致。
+	 */
+	private final Object sendLock = new Object();
+	
+	/**
+	 * 是否已经安排了一次写出。
+	 */
+	private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+	
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(16384);
+	
+	private final RespCodec.Decoder decoder = new RespCodec.Decoder();
+	
+	private volatile boolean closed = false;
+	
+	private final Runnable flushTask = new Runnable() {
+		@Override
+		public void run() {
+			flushScheduled.set(false);
+			try{
+				write();
+			}catch(Throwable e){
+				close(e);
+			}
+		}
+	};
+	
+	/**
+	 * 建立连接并注册到事件循环。
+	 */
+	NioRedisConnection(JedisShardInfo shardInfo, NioEventLoop eventLoop, RedisClientStatistic statistic, int maxPendingBytes) {
+		this.shardInfo = shardInfo;
+		this.eventLoop = eventLoop;
+		this.statistic = statistic;
+		this.maxPendingBytes = maxPendingBytes;
+		try {
+			this.channel = SocketChannel.open();
+			channel.socket().setTcpNoDelay(true);
+			channel.socket().setKeepAlive(true);
+			channel.socket().connect(new InetSocketAddress(shardInfo.getHost(), shardInfo.getPort()), shardInfo.getConnectionTimeout());
+			channel.configureBlocking(false);
+		} catch (IOException e) {
+			throw new JedisConnectionException(e);
+		}
+		eventLoop.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					selectionKey = channel.register(NioRedisConnection.this.eventLoop.selector(), SelectionKey.OP_READ, NioRedisConnection.this);
+					write();
+				} catch (Throwable e) {
+					close(e);
+				}
+			}
+		});
+	}
+	
+	JedisShardInfo getShardInfo(){
+		return shardInfo;
+	}
+	
+	boolean isClosed(){
+		return closed;
+	}
+	
+	/**
+	 * 发送命令，命令直接编码到连接的输出缓冲区中。
+	 * 
+	 * @param command 命令名。
+	 * @param args 命令参数。
+	 * @return 命令的回复。
+	 */
+	ListenableFuture<Object> send(byte[] command, byte[]... args){
+		SettableFuture<Object> reply = SettableFuture.create();
+		synchronized (sendLock) {
+			if(closed){
+				reply.setException(new JedisConnectionException("connection to " + shardInfo.getHost() + ":" + shardInfo.getPort() + " is closed!"));
+				return reply;
+			}
+			if(pendingOutput.size() >= maxPendingBytes){
+				reply.setException(new JedisConnectionException("more than " + maxPendingBytes + " bytes pending to "
+						+ shardInfo.getHost() + ":" + shardInfo.getPort() + ", the connection can't keep up!"));
+				return reply;
+			}
+			pendingOutput.write(command, args);
+			pendingReplies.offer(reply);
+		}
+		if(flushScheduled.compareAndSet(false, true)){
+			eventLoop.execute(flushTask);
+		}
+		return reply;
+	}
+	
+	/**
+	 * 写出缓冲区中的命令，写不完时关注OP_WRITE事件。
+	 */
+	void write() throws IOException{
+		if(selectionKey == null || closed){
+			return;
+		}
+		while(true){
+			if(outbound == null){
+				//交换缓冲区，调用方继续写入刚写完的那个缓冲区。
+				synchronized (sendLock) {
+					if(pendingOutput.isEmpty()){
+						break;
+					}
+					RespCodec.Encoder output = pendingOutput;
+					pendingOutput = flushingOutput;
+					flushingOutput = output;
+				}
+				outbound = flushingOutput.flip();
+			}
+			int count = channel.write(outbound);
+			if(statistic != null && count > 0){
+				statistic.recordBytes(shardInfo, count, 0);
+			}
+			if(outbound.hasRemaining()){
+				selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				return;
+			}
+			outbound = null;
+			flushingOutput.clear();
+		}
+		selectionKey.interestOps(SelectionKey.OP_READ);
+	}
+	
+	/**
+	 * 读取回复并按顺序交给等待的命令。
+	 */
+	void read() throws IOException{
+		int count = 0;
+		while((count = channel.read(readBuffer)) > 0){
+			if(statistic != null){
+				statistic.recordBytes(shardInfo, 0, count);
+			}
+			decoder.append(readBuffer.array(), 0, count);
+			readBuffer.clear();
+			Object reply = null;
+			while((reply = decoder.next()) != RespCodec.INCOMPLETE){
+				SettableFuture<Object> future = pendingReplies.poll();
+				if(future != null){
+					future.set(reply);
+				}
+			}
+		}
+		if(count < 0){
+			throw new EOFException("connection closed by server!");
+		}
+	}
+	
+	/**
+	 * 关闭连接，所有等待中的命令以异常结束。
+	 */
+	void close(Throwable cause){
+		synchronized (sendLock) {
+			if(closed){
+				return;
+			}
+			closed = true;
+		}
+		if(selectionKey != null){
+			selectionKey.cancel();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// ignore
+		}
+		JedisConnectionException exception = cause instanceof JedisConnectionException
+				? (JedisConnectionException) cause : new JedisConnectionException(cause == null ? new ClosedChannelException() : cause);
+		SettableFuture<Object> future = null;
+		while((future = pendingReplies.poll()) != null){
+			future.setException(exception);
+		}
+	}
+	
+}
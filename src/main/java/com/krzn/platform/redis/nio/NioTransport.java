@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.nio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.krzn.platform.redis.RedisClientRuntimeException;
+import com.krzn.platform.redis.RedisClientStatistic;
+import com.krzn.platform.redis.RedisClientTimeoutException;
+import com.krzn.platform.redis.RedisContants;
+import com.krzn.platform.redis.support.CoalescableJedisCallback;
+import com.krzn.platform.redis.support.RedisTransport;
+
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * 基于NIO的传输层。
+ * <p>少量事件循环线程服务所有连接，每个节点只有一个多路复用连接，直接编解码RESP协议，
+ * 大量并发调用方只占用少量socket和线程。
+ * <p>连接断开或等待回复超时后关闭连接，下一次请求时重新建立连接，超时的连接上迟到的回复不会错配给之后的命令。
+ * 建立连接只锁定对应的节点，一个节点不可达不影响其他节点的请求。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月21日
+ */
+public class NioTransport implements RedisTransport {
+	
+	/**
+	 * 默认事件循环线程数。
+	 */
+	public static final int DEFAULT_EVENT_LOOPS = 2;
+	
+	/**
+	 * 默认每个连接等待写出的最大字节数。
+	 */
+	public static final int DEFAULT_MAX_PENDING_BYTES = 32 * 1024 * 1024;
+	
+	private final NioEventLoop[] eventLoops;
+	
+	private final AtomicInteger nextEventLoop = new AtomicInteger();
+	
+	private final int maxPendingBytes;
+	
+	/**
+	 * 每个线程复用一个记录命令的pipeline，避免每次调用都创建pipeline和client。
+	 */
+	private static final ThreadLocal<CapturingPipeline> PIPELINES = new ThreadLocal<CapturingPipeline>() {
+		@Override
+		protected CapturingPipeline initialValue() {
+			return new CapturingPipeline();
+		}
+	};
+	
+	/**
+	 * 节点与连接的映射。
+	 */
+	private final ConcurrentMap<JedisShardInfo, NioRedisConnection> connections = new ConcurrentHashMap<JedisShardInfo, NioRedisConnection>();
+	
+	/**
+	 * 每个节点建立连接时使用的锁。
+	 */
+	private final ConcurrentMap<JedisShardInfo, Object> connectLocks = new ConcurrentHashMap<JedisShardInfo, Object>();
+	
+	/**
+	 * 按节点统计收发字节数，通常设置为模板的统计实例。
+	 */
+	private volatile RedisClientStatistic statistic;
+	
+	public NioTransport() {
+		this(DEFAULT_EVENT_LOOPS);
+	}
+	
+	public NioTransport(int eventLoops) {
+		this(eventLoops, DEFAULT_MAX_PENDING_BYTES);
+	}
+	
+	/**
+	 * @param eventLoops 事件循环线程数。
+	 * @param maxPendingBytes 每个连接等待写出的最大字节数，超过时新命令直接失败。
+	 */
+	public NioTransport(int eventLoops, int maxPendingBytes) {
+		if(eventLoops <= 0){
+			throw new IllegalArgumentException("eventLoops of NioTransport must be positive!");
+		}
+		if(maxPendingBytes <= 0){
+			throw new IllegalArgumentException("maxPendingBytes of NioTransport must be positive!");
+		}
+		this.maxPendingBytes = maxPendingBytes;
+		this.eventLoops = new NioEventLoop[eventLoops];
+		for(int i = 0; i < eventLoops; i++){
+			this.eventLoops[i] = new NioEventLoop("redis-nio-" + i);
+		}
+	}
+
+	@Override
+	public <T, R> R execute(JedisShardInfo node, CoalescableJedisCallback<T, R> callback) {
+		CapturingPipeline pipeline = PIPELINES.get();
+		NioRedisConnection connection = null;
+		try{
+			Response<T> response = callback.call(pipeline);
+			connection = connection(node);
+			int size = pipeline.size();
+			if(size == 1){
+				pipeline.reply(await(connection.send(pipeline.getCommand(0), pipeline.getArgs(0)), node.getSoTimeout()));
+			}else{
+				List<ListenableFuture<Object>> replies = new ArrayList<ListenableFuture<Object>>(size);
+				for(int i = 0; i < size; i++){
+					replies.add(connection.send(pipeline.getCommand(i), pipeline.getArgs(i)));
+				}
+				for(ListenableFuture<Object> reply : replies){
+					pipeline.reply(await(reply, node.getSoTimeout()));
+				}
+			}
+			return callback.convert(response.get());
+		}catch(TimeoutException e){
+			//回复可能仍会到达，关闭连接，之后的命令使用新连接。
+			connection.close(new JedisConnectionException("read timeout after " + node.getSoTimeout() + "ms!", e));
+			throw new RedisClientTimeoutException("read timeout after " + node.getSoTimeout() + "ms!", e);
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new RedisClientRuntimeException("interrupted while waiting for reply!", e);
+		}catch(ExecutionException e){
+			if(e.getCause() instanceof RuntimeException){
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RedisClientRuntimeException(e.getCause());
+		}finally{
+			pipeline.reset();
+		}
+	}
+	
+	/**
+	 * 在指定节点上异步执行一个命令，返回原始回复。
+	 * 
+	 * @param node 节点配置。
+	 * @param command 命令。
+	 * @param args 命令参数。
+	 * @return 原始回复，格式与Jedis的Protocol.read一致。
+	 */
+	public ListenableFuture<Object> send(JedisShardInfo node, Protocol.Command command, byte[]... args) {
+		return connection(node).send(command.raw, args);
+	}
+	
+	/**
+	 * 获取节点的连接，不存在或已关闭时重新建立。
+	 */
+	private NioRedisConnection connection(JedisShardInfo node){
+		NioRedisConnection connection = connections.get(node);
+		if(connection != null && !connection.isClosed()){
+			return connection;
+		}
+		synchronized (connectLock(node)) {
+			connection = connections.get(node);
+			if(connection == null || connection.isClosed()){
+				connection = new NioRedisConnection(node, nextEventLoop(), statistic, maxPendingBytes);
+				prepare(connection, node);
+				connections.put(node, connection);
+			}
+			return connection;
+		}
+	}
+	
+	private Object connectLock(JedisShardInfo node){
+		Object lock = connectLocks.get(node);
+		if(lock == null){
+			Object created = new Object();
+			lock = connectLocks.putIfAbsent(node, created);
+			if(lock == null){
+				lock = created;
+			}
+		}
+		return lock;
+	}
+	
+	/**
+	 * 新连接先发送AUTH和SELECT，失败时关闭连接。
+	 */
+	private void prepare(NioRedisConnection connection, JedisShardInfo node){
+		List<ListenableFuture<Object>> replies = new ArrayList<ListenableFuture<Object>>(2);
+		if(node.getPassword() != null){
+			replies.add(connection.send(Protocol.Command.AUTH.raw, node.getPassword().getBytes(RedisContants.CS_UTF8)));
+		}
+		if(node.getDb() != 0){
+			replies.add(connection.send(Protocol.Command.SELECT.raw, String.valueOf(node.getDb()).getBytes(RedisContants.CS_UTF8)));
+		}
+		for(ListenableFuture<Object> reply : replies){
+			Object data = null;
+			try {
+				data = await(reply, node.getConnectionTimeout());
+			} catch (Exception e) {
+				connection.close(e);
+				throw new RedisClientRuntimeException("can't prepare connection to " + node.getHost() + ":" + node.getPort(), e);
+			}
+			if(data instanceof JedisDataException){
+				connection.close((JedisDataException) data);
+				throw (JedisDataException) data;
+			}
+		}
+	}
+	
+	/**
+	 * 等待回复，超时时间不大于0时与Jedis的socket超时一致，表示不限时。
+	 */
+	private static Object await(ListenableFuture<Object> reply, int timeoutMillis) throws InterruptedException, ExecutionException, TimeoutException{
+		if(timeoutMillis <= 0){
+			return reply.get();
+		}
+		return reply.get(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	private NioEventLoop nextEventLoop(){
+		int index = (nextEventLoop.getAndIncrement() & Integer.MAX_VALUE) % eventLoops.length;
+		return eventLoops[index];
+	}
+
+	/**
+	 * 设置字节数统计，只对之后建立的连接生效。
+	 * 
+	 * @param statistic 统计实例，例如ShardedJedisTemplate.getStatistic()。
+	 */
+	public void setStatistic(RedisClientStatistic statistic) {
+		this.statistic = statistic;
+	}
+	
+	/**
+	 * 关闭所有连接和事件循环线程。
+	 */
+	@Override
+	public void close() {
+		for(NioRedisConnection connection : connections.values()){
+			connection.close(null);
+		}
+		connections.clear();
+		for(NioEventLoop eventLoop : eventLoops){
+			eventLoop.shutdown();
+		}
+	}
+	
+}
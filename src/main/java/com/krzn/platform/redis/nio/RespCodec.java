@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.nio;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import com.krzn.platform.redis.RedisContants;
+
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * RESP协议编解码。
+ * <p>解码结果与Jedis的Protocol.read保持一致：状态回复和批量回复为byte[]，整数回复为Long，
+ * 多批量回复为List，错误回复为JedisDataException，因此可以直接交给Jedis的Response构建返回值。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月21日
+ */
+class RespCodec {
+	
+	private static final byte[] CRLF = new byte[]{'\r', '\n'};
+	
+	/**
+	 * 回复不完整，需要等待更多数据。
+	 */
+	static final Object INCOMPLETE = new Object();
+	
+	/**
+	 * 状态回复OK，解码时复用，避免每次分配。
+	 */
+	private static final byte[] STATUS_OK = new byte[]{'O', 'K'};
+	
+	/**
+	 * RESP编码器，命令直接写入可复用的输出缓冲区，非线程安全，由所属连接负责同步。
+	 */
+	static class Encoder {
+		
+		private static final int INITIAL_CAPACITY = 8192;
+		
+		/**
+		 * 清空时超过该容量的缓冲区会被释放，避免大命令之后长期占用内存。
+		 */
+		private static final int MAX_RETAINED_CAPACITY = 1 << 20;
+		
+		private byte[] buffer = new byte[INITIAL_CAPACITY];
+		
+		/**
+		 * 缓冲区的ByteBuffer视图，缓冲区不变时一直复用。
+		 */
+		private ByteBuffer view = ByteBuffer.wrap(buffer);
+		
+		private int count = 0;
+		
+		/**
+		 * 将命令编码后追加到缓冲区。
+		 * 
+		 * @param command 命令名。
+		 * @param args 命令参数。
+		 */
+		void write(byte[] command, byte[]... args){
+			int length = 1 + digits(args.length + 1) + 2 + bulkLength(command);
+			for(byte[] arg : args){
+				length += bulkLength(arg);
+			}
+			ensureCapacity(count + length);
+			int pos = count;
+			buffer[pos++] = '*';
+			pos = writeInt(buffer, pos, args.length + 1);
+			pos = writeBulk(buffer, pos, command);
+			for(byte[] arg : args){
+				pos = writeBulk(buffer, pos, arg);
+			}
+			count = pos;
+		}
+		
+		boolean isEmpty(){
+			return count == 0;
+		}
+		
+		/**
+		 * 已写入的字节数。
+		 */
+		int size(){
+			return count;
+		}
+		
+		/**
+		 * 返回覆盖已写入数据的ByteBuffer视图，用于写出。
+		 */
+		ByteBuffer flip(){
+			view.limit(count);
+			view.position(0);
+			return view;
+		}
+		
+		/**
+		 * 清空缓冲区以便复用。
+		 */
+		void clear(){
+			count = 0;
+			if(buffer.length > MAX_RETAINED_CAPACITY){
+				buffer = new byte[INITIAL_CAPACITY];
+				view = ByteBuffer.wrap(buffer);
+			}
+			view.clear();
+		}
+		
+		private void ensureCapacity(int capacity){
+			if(capacity <= buffer.length){
+				return;
+			}
+			byte[] newBuffer = new byte[Math.max(buffer.length * 2, capacity)];
+			System.arraycopy(buffer, 0, newBuffer, 0, count);
+			buffer = newBuffer;
+			view = ByteBuffer.wrap(buffer);
+		}
+		
+	}
+	
+	private static int bulkLength(byte[] value){
+		return 1 + digits(value.length) + 2 + value.length + 2;
+	}
+	
+	private static int writeBulk(byte[] out, int pos, byte[] value){
+		out[pos++] = '$';
+		pos = writeInt(out, pos, value.length);
+		System.arraycopy(value, 0, out, pos, value.length);
+		pos += value.length;
+		out[pos++] = CRLF[0];
+		out[pos++] = CRLF[1];
+		return pos;
+	}
+	
+	private static int writeInt(byte[] out, int pos, int value){
+		int end = pos + digits(value);
+		for(int i = end - 1; i >= pos; i--){
+			out[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		out[end] = CRLF[0];
+		out[end + 1] = CRLF[1];
+		return end + 2;
+	}
+	
+	private static int digits(int value){
+		int digits = 1;
+		while(value >= 10){
+			value /= 10;
+			digits++;
+		}
+		return digits;
+	}
+	
+	/**
+	 * RESP增量解码器，非线程安全，只在所属连接的事件循环线程中使用。
+	 * <p>解析状态跨多次读取保留：已解析的多批量回复元素和批量回复的长度不会在下次读取时重新解析，
+	 * 不完整的行也只扫描新到达的部分，大回复分多次到达时解码的开销与数据量成线性关系。
+	 */
+	static class Decoder {
+		
+		private byte[] buffer = new byte[8192];
+		
+		/**
+		 * 未解码数据的起始位置。
+		 */
+		private int start = 0;
+		
+		/**
+		 * 未解码数据的结束位置。
+		 */
+		private int end = 0;
+		
+		/**
+		 * 从start开始已经扫描过、不含行尾的字节数，行不完整时下次从这里继续查找。
+		 */
+		private int scanned = 0;
+		
+		/**
+		 * 已解析长度、正在等待数据的批量回复的长度，为-1时表示没有。
+		 */
+		private int bulkLength = -1;
+		
+		/**
+		 * 尚未收齐元素的多批量回复，嵌套时内层在栈顶。
+		 */
+		private final Deque<Aggregate> aggregates = new ArrayDeque<Aggregate>();
+		
+		/**
+		 * 追加读到的数据。
+		 */
+		void append(byte[] data, int offset, int length){
+			if(end + length > buffer.length){
+				int remaining = end - start;
+				if(remaining + length > buffer.length){
+					byte[] newBuffer = new byte[Math.max(buffer.length * 2, remaining + length)];
+					System.arraycopy(buffer, start, newBuffer, 0, remaining);
+					buffer = newBuffer;
+				}else{
+					System.arraycopy(buffer, start, buffer, 0, remaining);
+				}
+				start = 0;
+				end = remaining;
+			}
+			System.arraycopy(data, offset, buffer, end, length);
+			end += length;
+		}
+		
+		/**
+		 * 解码下一个完整的回复。
+		 * 
+		 * @return 回复；数据不完整时返回INCOMPLETE，已解析的部分保留到下次调用。
+		 */
+		Object next(){
+			while(true){
+				Object value;
+				if(bulkLength >= 0){
+					if(end - start < bulkLength + 2){
+						return INCOMPLETE;
+					}
+					byte[] bulk = new byte[bulkLength];
+					System.arraycopy(buffer, start, bulk, 0, bulkLength);
+					start += bulkLength + 2;
+					bulkLength = -1;
+					value = bulk;
+				}else{
+					int lineEnd = findLineEnd();
+					if(lineEnd < 0){
+						return INCOMPLETE;
+					}
+					byte type = buffer[start];
+					int lineStart = start + 1;
+					start = lineEnd + 2;
+					scanned = 0;
+					switch(type){
+					case '+':
+						if(lineEnd - lineStart == 2 && buffer[lineStart] == 'O' && buffer[lineStart + 1] == 'K'){
+							value = STATUS_OK;
+						}else{
+							value = copyOfRange(lineStart, lineEnd);
+						}
+						break;
+					case '-':
+						value = new JedisDataException(new String(buffer, lineStart, lineEnd - lineStart, RedisContants.CS_UTF8));
+						break;
+					case ':':
+						value = parseLong(lineStart, lineEnd);
+						break;
+					case '$':{
+						long length = parseLong(lineStart, lineEnd);
+						if(length < 0){
+							value = null;
+							break;
+						}
+						if(length > Integer.MAX_VALUE - 2){
+							throw new JedisDataException("bulk reply too large: " + length);
+						}
+						bulkLength = (int) length;
+						continue;
+					}
+					case '*':{
+						long size = parseLong(lineStart, lineEnd);
+						if(size < 0){
+							value = null;
+							break;
+						}
+						if(size == 0){
+							value = new ArrayList<Object>(0);
+							break;
+						}
+						if(size > Integer.MAX_VALUE){
+							throw new JedisDataException("multi-bulk reply too large: " + size);
+						}
+						aggregates.push(new Aggregate((int) size));
+						continue;
+					}
+					default:
+						throw new JedisDataException("Unknown reply: " + (char) type);
+					}
+				}
+				//完整的值加入所在的多批量回复，最外层收齐时才是一个完整的回复。
+				while(true){
+					Aggregate aggregate = aggregates.peek();
+					if(aggregate == null){
+						return value;
+					}
+					aggregate.values.add(value);
+					if(aggregate.values.size() < aggregate.size){
+						break;
+					}
+					aggregates.pop();
+					value = aggregate.values;
+				}
+			}
+		}
+		
+		private int findLineEnd(){
+			for(int i = start + scanned; i < end - 1; i++){
+				if(buffer[i] == '\r' && buffer[i + 1] == '\n'){
+					return i;
+				}
+			}
+			scanned = Math.max(0, end - 1 - start);
+			return -1;
+		}
+		
+		private byte[] copyOfRange(int from, int to){
+			byte[] value = new byte[to - from];
+			System.arraycopy(buffer, from, value, 0, value.length);
+			return value;
+		}
+		
+		private long parseLong(int from, int to){
+			int pos = from;
+			boolean negative = pos < to && buffer[pos] == '-';
+			if(negative){
+				pos++;
+			}
+			if(pos >= to){
+				throw new JedisDataException("malformed integer in reply!");
+			}
+			long value = 0;
+			while(pos < to){
+				int digit = buffer[pos++] - '0';
+				if(digit < 0 || digit > 9){
+					throw new JedisDataException("malformed integer in reply!");
+				}
+				value = value * 10 + digit;
+			}
+			return negative ? -value : value;
+		}
+		
+	}
+	
+	/**
+	 * 正在接收元素的多批量回复。
+	 */
+	private static class Aggregate {
+		
+		private final int size;
+		
+		private final List<Object> values;
+		
+		Aggregate(int size){
+			this.size = size;
+			//长度来自网络，不按长度预分配过大的列表。
+			this.values = new ArrayList<Object>(Math.min(size, 1024));
+		}
+		
+	}
+	
+	private RespCodec(){}
+
+}
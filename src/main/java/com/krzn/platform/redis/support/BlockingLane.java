@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.io.Closeable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
+import com.krzn.platform.redis.jedis.JedisNodePool;
+
+import redis.clients.jedis.JedisShardInfo;
+
+/**
+ * 阻塞命令专用的连接通道。
+ * <p>BLPOP、BRPOP等阻塞命令会长时间占用连接，与普通命令共用连接池时，队列消费者会耗尽连接池，
+ * 缓存读写因申请不到连接而超时。阻塞命令改为使用每个主节点单独的、有上限的连接池，
+ * 消费者之间争用这些连接，不影响普通命令的连接池。
+ * <p>阻塞命令会从列表中取出元素，只在主节点上执行。连接池在第一次使用时创建。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月04日
+ */
+public class BlockingLane implements Closeable {
+
+	/**
+	 * 默认每个主节点的最大连接数。
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_MASTER = 8;
+
+	private final GenericObjectPoolConfig poolConfig;
+
+	private final ConcurrentMap<JedisShardInfo, JedisNodePool> pools = new ConcurrentHashMap<JedisShardInfo, JedisNodePool>();
+
+	private volatile boolean closed = false;
+
+	public BlockingLane() {
+		this(DEFAULT_MAX_CONNECTIONS_PER_MASTER);
+	}
+
+	/**
+	 * @param maxConnectionsPerMaster 每个主节点的最大连接数，即每个分片上同时阻塞等待的消费者上限，
+	 *                                超出的消费者等待连接归还。
+	 */
+	public BlockingLane(int maxConnectionsPerMaster) {
+		this(defaultPoolConfig(maxConnectionsPerMaster));
+	}
+
+	/**
+	 * @param poolConfig 每个主节点连接池的配置。
+	 */
+	public BlockingLane(GenericObjectPoolConfig poolConfig) {
+		if(poolConfig == null){
+			throw new IllegalArgumentException("poolConfig can't be null！");
+		}
+		this.poolConfig = poolConfig;
+	}
+
+	private static GenericObjectPoolConfig defaultPoolConfig(int maxConnectionsPerMaster) {
+		if(maxConnectionsPerMaster <= 0){
+			throw new IllegalArgumentException("maxConnectionsPerMaster must be positive!");
+		}
+		GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
+		poolConfig.setMaxTotal(maxConnectionsPerMaster);
+		poolConfig.setMaxIdle(maxConnectionsPerMaster);
+		poolConfig.setMinIdle(0);
+		//连接可能在阻塞期间被服务端或网络断开，申请时检查。
+		poolConfig.setTestOnBorrow(true);
+		return poolConfig;
+	}
+
+	/**
+	 * 获取主节点的阻塞命令连接池。
+	 * 
+	 * @param master 主节点。
+	 * @return 连接池。
+	 */
+	JedisNodePool getPool(JedisShardInfo master) {
+		if(closed){
+			throw new IllegalStateException("BlockingLane has been closed!");
+		}
+		JedisNodePool pool = pools.get(master);
+		if(pool == null){
+			pool = new JedisNodePool(poolConfig, master);
+			JedisNodePool existing = pools.putIfAbsent(master, pool);
+			if(existing != null){
+				pool.destroy();
+				pool = existing;
+			}
+		}
+		return pool;
+	}
+
+	/**
+	 * 获取正在使用的连接数，即正在阻塞等待的消费者个数。
+	 */
+	public int getNumActive() {
+		int active = 0;
+		for(JedisNodePool pool : pools.values()){
+			active += pool.getNumActive();
+		}
+		return active;
+	}
+
+	/**
+	 * 销毁所有连接池，正在阻塞等待的连接在命令返回后关闭。
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		for(JedisNodePool pool : pools.values()){
+			pool.destroy();
+		}
+		pools.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "BlockingLane [pools=" + pools.values() + "]";
+	}
+
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.krzn.platform.redis.Codec;
+import com.krzn.platform.redis.NX;
+import com.krzn.platform.redis.RedisClient;
+import com.krzn.platform.redis.RedisClientRuntimeException;
+import com.krzn.platform.redis.RedisClientTimeoutException;
+import com.krzn.platform.redis.TimeUnit;
+import com.krzn.platform.redis.ValueLoader;
+
+/**
+ * 旁路缓存加载器，实现RedisClient的getOrLoad。
+ * <p>值前面加一个15字节的头：标记、版本、逻辑过期时间、上次加载耗时和标志位，
+ * redis中的过期时间为逻辑过期时间加上可以返回旧值的时间窗口。
+ * <ul>
+ * <li>逻辑过期之前按XFetch算法提前刷新：加载耗时越长、越接近过期，提前刷新的概率越大，
+ * 刷新在后台进行，调用方直接得到当前值；</li>
+ * <li>逻辑过期之后、redis过期之前，返回旧值并在后台刷新；</li>
+ * <li>不存在时，只有用SET NX PX取得分布式锁的调用方加载，其他调用方以指数退避轮询等待加载结果；
+ * 超过锁的过期时间后重新竞争锁，仍未取得锁时抛出RedisClientTimeoutException，不会在没有锁的情况下加载。</li>
+ * </ul>
+ * 后台刷新同样需要取得锁，整个集群同一时刻对同一个键最多只有一次加载。
+ * <p>加载结果为null时写入带ABSENT标志、没有值的头，在较短的时间(默认5秒)内直接返回null，
+ * 等待加载结果的调用方和之后的请求不会逐个重新加载不存在的数据。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月30日
+ */
+public class CacheAsideLoader {
+
+	private static final Logger logger = LoggerFactory.getLogger(CacheAsideLoader.class);
+
+	private static final byte MAGIC = (byte) 0xCA;
+
+	private static final byte VERSION = 2;
+
+	/**
+	 * 标记1字节、版本1字节、逻辑过期时间8字节、加载耗时4字节、标志位1字节。
+	 */
+	private static final int HEADER_LENGTH = 15;
+
+	/**
+	 * 标志位：加载结果为null，头后面没有值。
+	 */
+	private static final byte FLAG_ABSENT = 1;
+
+	/**
+	 * 加载锁的键后缀。
+	 */
+	public static final String LOCK_SUFFIX = ":loading";
+
+	private static final long DEFAULT_LOCK_MILLIS = 3000;
+
+	private static final long POLL_MILLIS = 20;
+
+	private static final long MAX_POLL_MILLIS = 200;
+
+	private static final long DEFAULT_ABSENT_MILLIS = 5000;
+
+	/**
+	 * 默认的后台刷新线程池，最多16个线程，没有空闲线程时放弃本次刷新，由之后的请求重新触发。
+	 */
+	private static final ExecutorService DEFAULT_EXECUTOR = new ThreadPoolExecutor(0, 16, 60, java.util.concurrent.TimeUnit.SECONDS,
+			new SynchronousQueue<Runnable>(), new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "redis-cache-refresh-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	private final RedisClient redisClient;
+
+	/**
+	 * 后台刷新的线程池。
+	 */
+	private ExecutorService executor = DEFAULT_EXECUTOR;
+
+	/**
+	 * 加载锁的过期时间，单位毫秒，应大于加载耗时。
+	 */
+	private long lockMillis = DEFAULT_LOCK_MILLIS;
+
+	/**
+	 * XFetch的beta参数，越大越早刷新，0表示不提前刷新。
+	 */
+	private double beta = 1.0;
+
+	/**
+	 * 加载结果为null时缓存的时间，单位毫秒，不超过逻辑过期时间，0表示不缓存。
+	 */
+	private long absentMillis = DEFAULT_ABSENT_MILLIS;
+
+	/**
+	 * @param redisClient 读写缓存的客户端，通常就是调用getOrLoad的客户端本身。
+	 */
+	public CacheAsideLoader(RedisClient redisClient) {
+		if(redisClient == null){
+			throw new IllegalArgumentException("redisClient can't be null！");
+		}
+		this.redisClient = redisClient;
+	}
+
+	/**
+	 * 读取缓存的对象，不存在时加载并写入。
+	 * 
+	 * @param key 键。
+	 * @param codec 编解码器。
+	 * @param loader 加载器。
+	 * @param ttlMillis 逻辑过期时间(单位:毫秒)。
+	 * @param staleMillis 逻辑过期之后仍可返回旧值的时间(单位:毫秒)。
+	 * @return 缓存或加载的值。
+	 */
+	public <T> T getOrLoad(String key, Codec<T> codec, ValueLoader<T> loader, long ttlMillis, long staleMillis) {
+		if(codec == null || loader == null){
+			throw new IllegalArgumentException("codec and loader can't be null！");
+		}
+		if(ttlMillis <= 0 || staleMillis < 0){
+			throw new IllegalArgumentException("ttlMillis must be positive and staleMillis can't be negative!");
+		}
+		byte[] data = redisClient.get(key);
+		if(isEnvelope(data)){
+			long now = System.currentTimeMillis();
+			long expireAt = readLong(data, 2);
+			if(now >= expireAt || shouldRefreshEarly(now, expireAt, readInt(data, 10))){
+				refreshInBackground(key, codec, loader, ttlMillis, staleMillis);
+			}
+			return decode(codec, data);
+		}
+		return loadOnMiss(key, codec, loader, ttlMillis, staleMillis);
+	}
+
+	/**
+	 * XFetch：now - delta * beta * ln(random) >= expireAt时提前刷新。
+	 */
+	private boolean shouldRefreshEarly(long now, long expireAt, int deltaMillis) {
+		if(beta <= 0 || deltaMillis <= 0){
+			return false;
+		}
+		double random = ThreadLocalRandom.current().nextDouble();
+		if(random == 0){
+			return true;
+		}
+		return now - deltaMillis * beta * Math.log(random) >= expireAt;
+	}
+
+	private <T> T loadOnMiss(String key, Codec<T> codec, ValueLoader<T> loader, long ttlMillis, long staleMillis) {
+		String token = UUID.randomUUID().toString();
+		long deadline = System.currentTimeMillis() + lockMillis;
+		long pollMillis = POLL_MILLIS;
+		while(true){
+			//超过锁的过期时间后，卡住的加载方的锁已经过期，同样只有重新取得锁的调用方加载。
+			if(tryLock(key, token)){
+				try{
+					//取得锁之前上一个加载方可能刚刚写入并释放锁。
+					byte[] data = redisClient.get(key);
+					if(isEnvelope(data)){
+						return decode(codec, data);
+					}
+					return loadAndStore(key, codec, loader, ttlMillis, staleMillis);
+				}finally{
+					unlock(key, token);
+				}
+			}
+			long remaining = deadline - System.currentTimeMillis();
+			if(remaining <= 0){
+				throw new RedisClientTimeoutException("timed out waiting for key " + key + " to be loaded!");
+			}
+			//其他调用方正在加载，退避等待加载结果。
+			try {
+				Thread.sleep(Math.min(pollMillis, remaining));
+				pollMillis = Math.min(pollMillis * 2, MAX_POLL_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RedisClientRuntimeException("interrupted while waiting for key " + key + " to be loaded!", e);
+			}
+			byte[] data = redisClient.get(key);
+			if(isEnvelope(data)){
+				return decode(codec, data);
+			}
+		}
+	}
+
+	private <T> void refreshInBackground(final String key, final Codec<T> codec, final ValueLoader<T> loader, final long ttlMillis, final long staleMillis) {
+		final String token = UUID.randomUUID().toString();
+		if(!tryLock(key, token)){
+			return;
+		}
+		try{
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try{
+						loadAndStore(key, codec, loader, ttlMillis, staleMillis);
+					}catch(Throwable e){
+						logger.warn("refresh of key " + key + " failed!", e);
+					}finally{
+						unlock(key, token);
+					}
+				}
+			});
+		}catch(RejectedExecutionException e){
+			unlock(key, token);
+		}
+	}
+
+	private <T> T loadAndStore(String key, Codec<T> codec, ValueLoader<T> loader, long ttlMillis, long staleMillis) {
+		long start = System.currentTimeMillis();
+		T value = null;
+		try {
+			value = loader.load(key);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RedisClientRuntimeException("load key " + key + " failed!", e);
+		}
+		long now = System.currentTimeMillis();
+		if(value == null){
+			storeAbsent(key, now, (int) Math.min(Integer.MAX_VALUE, now - start), ttlMillis);
+			return null;
+		}
+		byte[] header = newHeader(now + ttlMillis, (int) Math.min(Integer.MAX_VALUE, now - start), (byte) 0);
+		byte[] data;
+		ValueBuffer out = ValueBuffer.acquire();
+		try {
+			out.write(header, 0, HEADER_LENGTH);
+			codec.encode(value, out);
+			data = out.toByteArray();
+		} catch (IOException e) {
+			throw new RedisClientRuntimeException("encode value of key " + key + " failed!", e);
+		} finally {
+			out.release();
+		}
+		//redis的过期时间向上取整到秒。
+		long expires = (ttlMillis + staleMillis + 999) / 1000;
+		redisClient.setex(key, data, (int) Math.min(Integer.MAX_VALUE, expires));
+		return value;
+	}
+
+	/**
+	 * 写入只有头的ABSENT记录，不保留旧值的时间窗口，redis中的过期时间向上取整到秒。
+	 */
+	private void storeAbsent(String key, long now, int deltaMillis, long ttlMillis) {
+		long millis = Math.min(absentMillis, ttlMillis);
+		if(millis <= 0){
+			return;
+		}
+		redisClient.setex(key, newHeader(now + millis, deltaMillis, FLAG_ABSENT), (int) Math.min(Integer.MAX_VALUE, (millis + 999) / 1000));
+	}
+
+	private static byte[] newHeader(long expireAt, int deltaMillis, byte flags) {
+		byte[] header = new byte[HEADER_LENGTH];
+		header[0] = MAGIC;
+		header[1] = VERSION;
+		writeLong(header, 2, expireAt);
+		writeInt(header, 10, deltaMillis);
+		header[14] = flags;
+		return header;
+	}
+
+	private boolean tryLock(String key, String token) {
+		return redisClient.set(key + LOCK_SUFFIX, token, NX.NOTEXIST, TimeUnit.MILLISECOND, lockMillis);
+	}
+
+	/**
+	 * 锁仍属于自己时释放，检查与删除之间锁恰好过期并被其他调用方取得时会误删，只会导致多一次加载。
+	 */
+	private void unlock(String key, String token) {
+		try{
+			if(token.equals(redisClient.getString(key + LOCK_SUFFIX))){
+				redisClient.delete(key + LOCK_SUFFIX);
+			}
+		}catch(RuntimeException e){
+			logger.warn("unlock of key " + key + " failed, the lock will expire in " + lockMillis + "ms.", e);
+		}
+	}
+
+	private static boolean isEnvelope(byte[] data) {
+		return data != null && data.length >= HEADER_LENGTH && data[0] == MAGIC && data[1] == VERSION;
+	}
+
+	private static <T> T decode(Codec<T> codec, byte[] data) {
+		if((data[14] & FLAG_ABSENT) != 0){
+			return null;
+		}
+		try {
+			return codec.decode(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+		} catch (IOException e) {
+			throw new RedisClientRuntimeException("decode cached value failed!", e);
+		}
+	}
+
+	private static void writeLong(byte[] buffer, int offset, long value) {
+		for(int i = 7; i >= 0; i--){
+			buffer[offset + i] = (byte) value;
+			value >>>= 8;
+		}
+	}
+
+	private static long readLong(byte[] buffer, int offset) {
+		long value = 0;
+		for(int i = 0; i < 8; i++){
+			value = (value << 8) | (buffer[offset + i] & 0xFF);
+		}
+		return value;
+	}
+
+	private static void writeInt(byte[] buffer, int offset, int value) {
+		for(int i = 3; i >= 0; i--){
+			buffer[offset + i] = (byte) value;
+			value >>>= 8;
+		}
+	}
+
+	private static int readInt(byte[] buffer, int offset) {
+		int value = 0;
+		for(int i = 0; i < 4; i++){
+			value = (value << 8) | (buffer[offset + i] & 0xFF);
+		}
+		return value;
+	}
+
+	public void setExecutor(ExecutorService executor) {
+		if(executor == null){
+			throw new IllegalArgumentException("executor can't be null！");
+		}
+		this.executor = executor;
+	}
+
+	public void setLockMillis(long lockMillis) {
+		if(lockMillis <= 0){
+			throw new IllegalArgumentException("lockMillis must be positive!");
+		}
+		this.lockMillis = lockMillis;
+	}
+
+	public void setBeta(double beta) {
+		this.beta = beta;
+	}
+
+	public void setAbsentMillis(long absentMillis) {
+		if(absentMillis < 0){
+			throw new IllegalArgumentException("absentMillis can't be negative!");
+		}
+		this.absentMillis = absentMillis;
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+/**
+ * 可合并执行的Jedis回调。
+ * <p>除了同步执行的call(Jedis)外，还提供pipeline形式的命令，开启命令合并时，
+ * 同一节点上并发的多个命令会合并到一个pipeline中发送，各自的回复再交还给对应的调用方。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月19日
+ */
+public abstract class CoalescableJedisCallback<T, R> implements JedisCallback<R> {
+
+	/**
+	 * 将命令加入pipeline。
+	 * 
+	 * @param pipeline pipeline实例。
+	 * @return
+	 *      命令的回复。
+	 */
+	public abstract Response<T> call(Pipeline pipeline);
+	
+	/**
+	 * 将pipeline中的回复转换为回调返回值，默认直接返回回复。
+	 * 
+	 * @param reply 命令的回复。
+	 * @return
+	 *      回调返回值。
+	 */
+	@SuppressWarnings("unchecked")
+	public R convert(T reply) {
+		return (R) reply;
+	}
+	
+	/**
+	 * 热点键本地缓存中回复的视图，同一个键的不同读取方式必须返回不同的视图。
+	 * <p>默认返回null，不缓存。只有结果只取决于键和视图的读命令才应返回视图。
+	 * 
+	 * @return
+	 *      视图，需要实现equals和hashCode。
+	 */
+	public Object getCacheView() {
+		return null;
+	}
+	
+}
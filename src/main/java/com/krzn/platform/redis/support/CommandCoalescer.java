@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.krzn.platform.redis.RedisClientRuntimeException;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * 命令合并器(隐式pipeline)。
+ * <p>每个节点持有一个专用连接，并发发往同一节点的命令先进入该节点的队列，
+ * 由抢到发送权的调用线程一次取出最多maxBatchSize个命令，作为一个pipeline写到专用连接上，
+ * 再把每个回复交还给对应的调用线程。其他线程在此期间继续入队，形成下一批。
+ * <p>发送线程自己的命令完成后即释放发送权并唤醒队首命令的调用线程，由它继续发送，
+ * 持续高负载时单个调用线程也不会一直替其他线程发送。
+ * <p>windowMicros大于0时，发送线程在队列未满时最多额外等待windowMicros微秒以凑成更大的批次。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月19日
+ */
+public class CommandCoalescer implements RedisTransport{
+
+	/**
+	 * 默认每批最大命令数。
+	 */
+	public static final int DEFAULT_MAX_BATCH_SIZE = 128;
+	
+	/**
+	 * 每批最大命令数。
+	 */
+	private final int maxBatchSize;
+	
+	/**
+	 * 凑批等待时间(纳秒)。
+	 */
+	private final long windowNanos;
+	
+	/**
+	 * 节点与对应合并队列的映射。
+	 */
+	private final ConcurrentMap<JedisShardInfo, NodeCoalescer> nodes = new ConcurrentHashMap<JedisShardInfo, NodeCoalescer>();
+	
+	public CommandCoalescer() {
+		this(DEFAULT_MAX_BATCH_SIZE, 0);
+	}
+	
+	public CommandCoalescer(int maxBatchSize, long windowMicros) {
+		if(maxBatchSize <= 0){
+			throw new IllegalArgumentException("maxBatchSize of CommandCoalescer must be positive!");
+		}
+		if(windowMicros < 0){
+			throw new IllegalArgumentException("windowMicros of CommandCoalescer can't be negative!");
+		}
+		this.maxBatchSize = maxBatchSize;
+		this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+	}
+
+	@Override
+	public <T, R> R execute(JedisShardInfo node, CoalescableJedisCallback<T, R> callback){
+		NodeCoalescer coalescer = nodes.get(node);
+		if(coalescer == null){
+			NodeCoalescer newCoalescer = new NodeCoalescer(node);
+			coalescer = nodes.putIfAbsent(node, newCoalescer);
+			if(coalescer == null){
+				coalescer = newCoalescer;
+			}
+		}
+		PendingCommand<T, R> command = new PendingCommand<T, R>(callback);
+		coalescer.enqueue(command);
+		return command.get(coalescer);
+	}
+
+	/**
+	 * 关闭所有专用连接。
+	 */
+	@Override
+	public void close() {
+		for(NodeCoalescer coalescer : nodes.values()){
+			coalescer.close();
+		}
+	}
+	
+	/**
+	 * 单个节点的合并队列。
+	 */
+	private class NodeCoalescer {
+		
+		private final JedisShardInfo shardInfo;
+		
+		private final Queue<PendingCommand<?, ?>> queue = new ConcurrentLinkedQueue<PendingCommand<?, ?>>();
+		
+		/**
+		 * 队列中的命令数。
+		 */
+		private final AtomicInteger pending = new AtomicInteger();
+		
+		/**
+		 * 发送权，持有者独占专用连接。
+		 */
+		private final ReentrantLock lock = new ReentrantLock();
+		
+		/**
+		 * 专用连接，只在持有发送权时访问。
+		 */
+		private Jedis jedis;
+		
+		NodeCoalescer(JedisShardInfo shardInfo){
+			this.shardInfo = shardInfo;
+		}
+		
+		void enqueue(PendingCommand<?, ?> command){
+			queue.offer(command);
+			pending.incrementAndGet();
+		}
+		
+		/**
+		 * 尝试获取发送权并发送队列中的命令，直到own完成或队列为空。
+		 * <p>释放发送权后队列中仍有命令时唤醒队首命令的调用线程，由它获取发送权继续发送，
+		 * 获取发送权失败的线程等待持有者释放后的唤醒，保证队列中的命令一定会被发送。
+		 */
+		void flush(PendingCommand<?, ?> own){
+			if(own.isDone() || !lock.tryLock()){
+				return;
+			}
+			try{
+				awaitWindow();
+				while(!own.isDone() && pending.get() > 0){
+					flushBatch();
+				}
+			}finally{
+				lock.unlock();
+			}
+			if(pending.get() > 0){
+				PendingCommand<?, ?> next = queue.peek();
+				if(next != null){
+					next.wakeUp();
+				}
+			}
+		}
+		
+		/**
+		 * 凑批等待，队列满或超过windowNanos时返回，等待期间不占用CPU。
+		 */
+		private void awaitWindow(){
+			if(windowNanos <= 0){
+				return;
+			}
+			long deadline = System.nanoTime() + windowNanos;
+			long remaining;
+			while(pending.get() < maxBatchSize && (remaining = deadline - System.nanoTime()) > 0){
+				LockSupport.parkNanos(this, remaining);
+			}
+		}
+		
+		private void flushBatch(){
+			List<PendingCommand<?, ?>> batch = new ArrayList<PendingCommand<?, ?>>(Math.min(pending.get(), maxBatchSize));
+			PendingCommand<?, ?> command = null;
+			while(batch.size() < maxBatchSize && (command = queue.poll()) != null){
+				pending.decrementAndGet();
+				batch.add(command);
+			}
+			if(batch.isEmpty()){
+				return;
+			}
+			try{
+				if(jedis == null){
+					jedis = new Jedis(shardInfo);
+				}
+				Pipeline pipeline = jedis.pipelined();
+				for(PendingCommand<?, ?> pendingCommand : batch){
+					pendingCommand.append(pipeline);
+				}
+				pipeline.sync();
+				for(PendingCommand<?, ?> pendingCommand : batch){
+					pendingCommand.complete();
+				}
+			}catch(Throwable e){
+				for(PendingCommand<?, ?> pendingCommand : batch){
+					pendingCommand.fail(e);
+				}
+				//连接状态未知，断开后下次发送时重建。
+				close();
+			}
+		}
+		
+		void close(){
+			lock.lock();
+			try{
+				if(jedis != null){
+					try {
+						jedis.disconnect();
+					} catch (JedisConnectionException e) {
+						// ignore the exception node, so that all other normal nodes can release all connections.
+					}
+					jedis = null;
+				}
+			}finally{
+				lock.unlock();
+			}
+		}
+		
+	}
+	
+	/**
+	 * 等待回复的命令。
+	 */
+	private static class PendingCommand<T, R> {
+		
+		private final CoalescableJedisCallback<T, R> callback;
+		
+		/**
+		 * 等待回复的调用线程。
+		 */
+		private final Thread waiter = Thread.currentThread();
+		
+		private volatile boolean done = false;
+		
+		private Response<T> response;
+		
+		private R result;
+		
+		private Throwable error;
+		
+		PendingCommand(CoalescableJedisCallback<T, R> callback){
+			this.callback = callback;
+		}
+		
+		void append(Pipeline pipeline){
+			try{
+				response = callback.call(pipeline);
+			}catch(IllegalArgumentException e){
+				//参数校验失败的命令不会写入连接，不影响同批次的其他命令。
+				error = e;
+			}
+		}
+		
+		void complete(){
+			if(error == null){
+				try{
+					result = callback.convert(response.get());
+				}catch(Throwable e){
+					error = e;
+				}
+			}
+			done = true;
+			wakeUp();
+		}
+		
+		void fail(Throwable e){
+			if(!done){
+				error = e;
+				done = true;
+				wakeUp();
+			}
+		}
+		
+		boolean isDone(){
+			return done;
+		}
+		
+		void wakeUp(){
+			LockSupport.unpark(waiter);
+		}
+		
+		/**
+		 * 等待回复，被唤醒时没有回复则尝试获取发送权自行发送。
+		 */
+		R get(NodeCoalescer coalescer){
+			boolean interrupted = false;
+			while(true){
+				coalescer.flush(this);
+				if(done){
+					break;
+				}
+				LockSupport.park(this);
+				if(Thread.interrupted()){
+					interrupted = true;
+				}
+			}
+			if(interrupted){
+				Thread.currentThread().interrupt();
+			}
+			if(error != null){
+				if(error instanceof RuntimeException){
+					throw (RuntimeException) error;
+				}
+				throw new RedisClientRuntimeException(error);
+			}
+			return result;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import com.krzn.platform.redis.RedisContants;
+
+/**
+ * 以UTF-8编码后的键查看字符串键Map的只读视图。
+ * <p>Jedis的二进制hmset只遍历一次entrySet，遍历时才对键编码，
+ * 不再为每次调用复制一份HashMap&lt;byte[], byte[]&gt;。
+ * 视图的键没有按内容比较，不支持get/containsKey查找。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月22日
+ */
+class EncodedKeyMap extends AbstractMap<byte[], byte[]> {
+	
+	private final Map<String, byte[]> map;
+	
+	EncodedKeyMap(Map<String, byte[]> map) {
+		this.map = map;
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@Override
+	public Set<Entry<byte[], byte[]>> entrySet() {
+		return new AbstractSet<Entry<byte[], byte[]>>() {
+			@Override
+			public Iterator<Entry<byte[], byte[]>> iterator() {
+				final Iterator<Entry<String, byte[]>> iterator = map.entrySet().iterator();
+				return new Iterator<Entry<byte[], byte[]>>() {
+					@Override
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+					@Override
+					public Entry<byte[], byte[]> next() {
+						Entry<String, byte[]> entry = iterator.next();
+						return new SimpleImmutableEntry<byte[], byte[]>(entry.getKey().getBytes(RedisContants.CS_UTF8), entry.getValue());
+					}
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+			@Override
+			public int size() {
+				return map.size();
+			}
+		};
+	}
+	
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.krzn.platform.redis.RedisClientRuntimeException;
+
+/**
+ * 读请求的对冲策略。
+ * <p>请求发往选中的从节点后，如果超过最近读请求延迟的某个百分位(默认p95)还没有返回，
+ * 再向同组的另一个从节点或主节点发送同样的读请求，使用先返回的结果，单个慢节点不再决定整个请求的长尾延迟。
+ * <p>对冲请求受预算限制：每个读请求积累一定比例的额度(默认5%)，对冲一次消耗一个额度，额度有上限，
+ * 节点整体变慢时额外的负载不会超过该比例。
+ * <p>请求在本策略的线程池中执行，线程池满时不对冲，由调用线程直接执行。只适用于幂等的读请求。
+ * <p>即使最终没有发出对冲请求，每个读请求也要交给线程池执行，调用线程等待结果，
+ * 多出一次线程切换的开销(通常为几到几十微秒)，延迟本身很低的场景收益有限。
+ * <p>对冲延迟只根据首个请求的延迟计算，首个请求在对冲请求返回后才完成时，也在完成时记录其实际延迟，
+ * 对冲请求的延迟不参与计算，否则对冲越多百分位越低。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月09日
+ */
+public class HedgePolicy implements Closeable {
+
+	/**
+	 * 默认的对冲延迟百分位。
+	 */
+	public static final double DEFAULT_PERCENTILE = 95;
+
+	/**
+	 * 默认的对冲预算，对冲请求数占读请求数的比例。
+	 */
+	public static final double DEFAULT_BUDGET_RATIO = 0.05;
+
+	/**
+	 * 默认的最小对冲延迟，单位毫秒。
+	 */
+	public static final long DEFAULT_MIN_DELAY_MILLIS = 1;
+
+	/**
+	 * 默认的线程数。
+	 */
+	public static final int DEFAULT_THREADS = 64;
+
+	/**
+	 * 记录的最近延迟个数，为2的幂。
+	 */
+	private static final int SAMPLE_SIZE = 1024;
+
+	/**
+	 * 每记录这么多次延迟重新计算一次对冲延迟。
+	 */
+	private static final int RECOMPUTE_INTERVAL = 128;
+
+	/**
+	 * 额度的单位，一次对冲消耗的额度。
+	 */
+	private static final long TOKEN = 1000;
+
+	/**
+	 * 额度的上限，允许短时间内连续对冲的次数。
+	 */
+	private static final long MAX_TOKENS = 10 * TOKEN;
+
+	private final double percentile;
+
+	private final long earnPerRead;
+
+	private final long minDelayNanos;
+
+	private final ThreadPoolExecutor executor;
+
+	private final AtomicLongArray samples = new AtomicLongArray(SAMPLE_SIZE);
+
+	private final AtomicLong sampleCount = new AtomicLong();
+
+	/**
+	 * 当前的对冲延迟，单位纳秒，记录的延迟不够计算百分位时不对冲。
+	 */
+	private volatile long delayNanos = Long.MAX_VALUE;
+
+	private final AtomicLong tokens = new AtomicLong();
+
+	private final AtomicLong hedges = new AtomicLong();
+
+	private final AtomicLong hedgeWins = new AtomicLong();
+
+	public HedgePolicy() {
+		this(DEFAULT_PERCENTILE, DEFAULT_BUDGET_RATIO, DEFAULT_MIN_DELAY_MILLIS, DEFAULT_THREADS);
+	}
+
+	/**
+	 * @param percentile 对冲延迟取最近读请求延迟的百分位，例如95。
+	 * @param budgetRatio 对冲请求数占读请求数的最大比例，例如0.05。
+	 * @param minDelayMillis 最小对冲延迟，单位毫秒。
+	 * @param threads 执行请求的最大线程数，每个对冲的读请求最多占用两个线程。
+	 */
+	public HedgePolicy(double percentile, double budgetRatio, long minDelayMillis, int threads) {
+		if(percentile <= 0 || percentile >= 100){
+			throw new IllegalArgumentException("percentile of HedgePolicy must be between 0 and 100!");
+		}
+		if(budgetRatio <= 0 || budgetRatio > 1){
+			throw new IllegalArgumentException("budgetRatio of HedgePolicy must be between 0 and 1!");
+		}
+		if(minDelayMillis < 0 || threads <= 0){
+			throw new IllegalArgumentException("minDelayMillis can't be negative and threads must be positive!");
+		}
+		this.percentile = percentile;
+		this.earnPerRead = Math.max(1, Math.round(budgetRatio * TOKEN));
+		this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+		this.executor = new ThreadPoolExecutor(0, threads, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+				new ThreadFactoryBuilder().setNameFormat("redis-hedged-read-%d").setDaemon(true).build());
+	}
+
+	/**
+	 * 执行读请求，超过对冲延迟没有返回时执行对冲请求，返回先成功的结果。
+	 * <p>先返回的请求失败时等待另一个请求，都失败时抛出首个请求的异常。
+	 * 
+	 * @param primary 首个请求。
+	 * @param backup 对冲请求，只在需要对冲时执行。
+	 * @return 先成功的请求的结果。
+	 */
+	public <R> R execute(final Callable<R> primary, Callable<R> backup) {
+		earn();
+		CompletionService<R> completion = new ExecutorCompletionService<R>(executor);
+		final long start = System.nanoTime();
+		Future<R> first;
+		try{
+			//首个请求完成时自行记录延迟，对冲请求先返回时首个请求仍会在完成后记录。
+			first = completion.submit(new Callable<R>() {
+				@Override
+				public R call() throws Exception {
+					try{
+						return primary.call();
+					}finally{
+						record(System.nanoTime() - start);
+					}
+				}
+			});
+		}catch(RejectedExecutionException e){
+			//线程池已满，不对冲。
+			R result = call(primary);
+			record(System.nanoTime() - start);
+			return result;
+		}
+		Future<R> second = null;
+		try{
+			Future<R> done = completion.poll(delayNanos, TimeUnit.NANOSECONDS);
+			if(done == null){
+				second = submitBackup(completion, backup);
+				done = completion.take();
+			}
+			try{
+				R result = done.get();
+				if(done == second){
+					hedgeWins.incrementAndGet();
+				}
+				return result;
+			}catch(ExecutionException e){
+				if(second == null){
+					throw unwrap(e);
+				}
+				Future<R> other = completion.take();
+				try{
+					R result = other.get();
+					if(other == second){
+						hedgeWins.incrementAndGet();
+					}
+					return result;
+				}catch(ExecutionException e2){
+					throw unwrap(done == first ? e : e2);
+				}
+			}
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new RedisClientRuntimeException("interrupted while waiting for hedged read!", e);
+		}finally{
+			//未开始执行的请求不再执行，已经在执行的请求完成后自行归还连接。
+			first.cancel(false);
+			if(second != null){
+				second.cancel(false);
+			}
+		}
+	}
+
+	private <R> Future<R> submitBackup(CompletionService<R> completion, Callable<R> backup) {
+		if(!acquire()){
+			return null;
+		}
+		try{
+			Future<R> future = completion.submit(backup);
+			hedges.incrementAndGet();
+			return future;
+		}catch(RejectedExecutionException e){
+			return null;
+		}
+	}
+
+	private void earn() {
+		long current;
+		do{
+			current = tokens.get();
+			if(current >= MAX_TOKENS){
+				return;
+			}
+		}while(!tokens.compareAndSet(current, Math.min(MAX_TOKENS, current + earnPerRead)));
+	}
+
+	private boolean acquire() {
+		long current;
+		do{
+			current = tokens.get();
+			if(current < TOKEN){
+				return false;
+			}
+		}while(!tokens.compareAndSet(current, current - TOKEN));
+		return true;
+	}
+
+	/**
+	 * 记录一次首个请求的延迟，定期按最近的延迟重新计算对冲延迟。
+	 */
+	private void record(long nanos) {
+		long count = sampleCount.incrementAndGet();
+		//第count个延迟写入count - 1，前SAMPLE_SIZE个延迟依次写入0到SAMPLE_SIZE - 1。
+		samples.set((int) ((count - 1) & (SAMPLE_SIZE - 1)), nanos);
+		if(count % RECOMPUTE_INTERVAL == 0){
+			int size = (int) Math.min(count, SAMPLE_SIZE);
+			long[] sorted = new long[size];
+			for(int i = 0; i < size; i++){
+				sorted[i] = samples.get(i);
+			}
+			Arrays.sort(sorted);
+			int index = (int) Math.min(size - 1, Math.ceil(size * percentile / 100) - 1);
+			delayNanos = Math.max(minDelayNanos, sorted[Math.max(0, index)]);
+		}
+	}
+
+	private static <R> R call(Callable<R> callable) {
+		try {
+			return callable.call();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RedisClientRuntimeException(e);
+		}
+	}
+
+	private static RuntimeException unwrap(ExecutionException e) {
+		Throwable cause = e.getCause();
+		if(cause instanceof RuntimeException){
+			return (RuntimeException) cause;
+		}
+		return new RedisClientRuntimeException(cause);
+	}
+
+	/**
+	 * 获取当前的对冲延迟，单位毫秒，还没有足够的延迟记录时返回-1。
+	 */
+	public double getDelayMillis() {
+		long current = delayNanos;
+		return current == Long.MAX_VALUE ? -1 : current / 1000000.0;
+	}
+
+	/**
+	 * 获取发出的对冲请求数。
+	 */
+	public long getHedges() {
+		return hedges.get();
+	}
+
+	/**
+	 * 获取对冲请求先于首个请求返回的次数。
+	 */
+	public long getHedgeWins() {
+		return hedgeWins.get();
+	}
+
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+	@Override
+	public String toString() {
+		return "HedgePolicy [percentile=" + percentile + ", delay=" + String.format("%.3f", getDelayMillis()) + "ms, hedges=" + hedges.get()
+				+ ", hedgeWins=" + hedgeWins.get() + "]";
+	}
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 热点键探测器。
+ * <p>按采样率抽样记录键的访问，用count-min sketch估算访问次数，每个统计周期结束时所有计数减半，
+ * 估算值是按周期衰减的累计访问次数，访问稳定时约为每个周期访问次数的两倍，突发访问在一个周期内即可达到阈值。
+ * 估算值达到阈值的键成为热点键，最多保留topK个，已满时替换访问次数最少的热点键。
+ * <p>未被抽中的访问只查询一次热点键集合，不写共享计数，热点键的访问不会在计数器上形成争用。
+ * <p>计数减半分片进行：周期结束后的每次访问只处理一段计数器，约64次访问完成一轮减半，
+ * 计数器很多时也不会由某一个请求线程承担全部的减半开销。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月28日
+ */
+public class HotKeyDetector {
+
+	private static final int DEPTH = 4;
+
+	private static final long[] SEEDS = new long[]{0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0x27D4EB2F165667C5L};
+
+	/**
+	 * 一轮减半分成的段数。
+	 */
+	private static final int DECAY_SLICES = 64;
+
+	/**
+	 * 每段最少的计数器个数。
+	 */
+	private static final int MIN_DECAY_SLICE = 1024;
+
+	/**
+	 * 每行计数器个数。
+	 */
+	private final int width;
+
+	private final AtomicLongArray counters;
+
+	/**
+	 * 最多保留的热点键个数。
+	 */
+	private final int topK;
+
+	/**
+	 * 成为热点键的估算访问次数。
+	 */
+	private final long threshold;
+
+	/**
+	 * 统计周期，单位毫秒。
+	 */
+	private final long windowMillis;
+
+	/**
+	 * 采样率，每sampleRate次访问记录一次。
+	 */
+	private final int sampleRate;
+
+	/**
+	 * 热点键与估算的访问次数。
+	 */
+	private final ConcurrentMap<String, Long> hotKeys = new ConcurrentHashMap<String, Long>();
+
+	private final AtomicLong nextDecay;
+
+	/**
+	 * 每次访问减半的计数器个数。
+	 */
+	private final int decaySlice;
+
+	/**
+	 * 下一段待减半的计数器下标，不小于计数器个数时没有进行中的减半。
+	 */
+	private final AtomicInteger decayCursor;
+
+	/**
+	 * @param topK 最多保留的热点键个数。
+	 * @param threshold 成为热点键的估算访问次数。
+	 * @param windowMillis 统计周期，单位毫秒。
+	 * @param sampleRate 采样率，每sampleRate次访问记录一次，1表示全部记录。
+	 */
+	public HotKeyDetector(int topK, long threshold, long windowMillis, int sampleRate) {
+		if(topK <= 0 || threshold <= 0 || windowMillis <= 0 || sampleRate <= 0){
+			throw new IllegalArgumentException("topK, threshold, windowMillis and sampleRate of HotKeyDetector must be positive!");
+		}
+		this.topK = topK;
+		this.threshold = threshold;
+		this.windowMillis = windowMillis;
+		this.sampleRate = sampleRate;
+		//宽度取热点键个数的256倍，误判为热点的概率很低。
+		int w = Integer.highestOneBit(Math.max(1024, Math.min(1 << 20, topK * 256)) - 1) << 1;
+		this.width = w;
+		this.counters = new AtomicLongArray(DEPTH * w);
+		this.nextDecay = new AtomicLong(System.currentTimeMillis() + windowMillis);
+		this.decaySlice = Math.max(MIN_DECAY_SLICE, counters.length() / DECAY_SLICES);
+		this.decayCursor = new AtomicInteger(counters.length());
+	}
+
+	/**
+	 * 记录一次访问。
+	 * 
+	 * @param key 键。
+	 * @return 是否为热点键。
+	 */
+	public boolean record(String key) {
+		decayIfNecessary();
+		if(sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0){
+			return hotKeys.containsKey(key);
+		}
+		int hash = key.hashCode();
+		long min = Long.MAX_VALUE;
+		for(int i = 0; i < DEPTH; i++){
+			min = Math.min(min, counters.incrementAndGet(i * width + index(hash, i)));
+		}
+		long estimate = min * sampleRate;
+		if(estimate < threshold){
+			return hotKeys.containsKey(key);
+		}
+		if(hotKeys.replace(key, estimate) != null){
+			return true;
+		}
+		return promote(key, estimate);
+	}
+
+	/**
+	 * 是否为热点键。
+	 */
+	public boolean isHot(String key) {
+		return hotKeys.containsKey(key);
+	}
+
+	/**
+	 * 获取当前的热点键。
+	 * 
+	 * @return 热点键与估算的访问次数，按访问次数从高到低排列。
+	 */
+	public Map<String, Long> getTopKeys() {
+		List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>(hotKeys.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+			@Override
+			public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+				return o2.getValue().compareTo(o1.getValue());
+			}
+		});
+		Map<String, Long> topKeys = new LinkedHashMap<String, Long>();
+		for(Map.Entry<String, Long> entry : entries){
+			topKeys.put(entry.getKey(), entry.getValue());
+		}
+		return Collections.unmodifiableMap(topKeys);
+	}
+
+	/**
+	 * 清空所有计数和热点键。
+	 */
+	public void reset() {
+		for(int i = 0; i < counters.length(); i++){
+			counters.set(i, 0);
+		}
+		hotKeys.clear();
+	}
+
+	/**
+	 * 加入热点键，已满时替换访问次数最少的键，比新键还少时才替换。
+	 */
+	private synchronized boolean promote(String key, long estimate) {
+		if(hotKeys.containsKey(key) || hotKeys.size() < topK){
+			hotKeys.put(key, estimate);
+			return true;
+		}
+		String coldest = null;
+		long coldestCount = Long.MAX_VALUE;
+		for(Map.Entry<String, Long> entry : hotKeys.entrySet()){
+			if(entry.getValue() < coldestCount){
+				coldest = entry.getKey();
+				coldestCount = entry.getValue();
+			}
+		}
+		if(coldest == null || coldestCount >= estimate){
+			return false;
+		}
+		hotKeys.remove(coldest);
+		hotKeys.put(key, estimate);
+		return true;
+	}
+
+	/**
+	 * 周期结束时开始一轮减半，每次调用减半一段计数器，上一轮没有完成时不开始新的一轮。
+	 * 完成最后一段的调用方重新计算热点键，减半后估算值低于阈值一半的键不再是热点键，
+	 * 留出余量避免热点键在阈值附近反复进出。
+	 */
+	private void decayIfNecessary() {
+		long now = System.currentTimeMillis();
+		long next = nextDecay.get();
+		int length = counters.length();
+		if(now >= next && nextDecay.compareAndSet(next, now + windowMillis)){
+			int cursor = decayCursor.get();
+			if(cursor >= length){
+				decayCursor.compareAndSet(cursor, 0);
+			}
+		}
+		if(decayCursor.get() >= length){
+			return;
+		}
+		int start = decayCursor.getAndAdd(decaySlice);
+		if(start >= length){
+			return;
+		}
+		int end = Math.min(length, start + decaySlice);
+		for(int i = start; i < end; i++){
+			long count = counters.get(i);
+			if(count != 0){
+				counters.addAndGet(i, -(count >>> 1));
+			}
+		}
+		if(end < length){
+			return;
+		}
+		synchronized (this) {
+			for(Map.Entry<String, Long> entry : hotKeys.entrySet()){
+				long count = estimate(entry.getKey());
+				if(count < threshold / 2){
+					hotKeys.remove(entry.getKey());
+				}else{
+					entry.setValue(count);
+				}
+			}
+		}
+	}
+
+	private long estimate(String key) {
+		int hash = key.hashCode();
+		long min = Long.MAX_VALUE;
+		for(int i = 0; i < DEPTH; i++){
+			min = Math.min(min, counters.get(i * width + index(hash, i)));
+		}
+		return min * sampleRate;
+	}
+
+	private int index(int hash, int row) {
+		long h = (hash & 0xFFFFFFFFL) * SEEDS[row];
+		h ^= h >>> 32;
+		return (int) h & (width - 1);
+	}
+
+	@Override
+	public String toString() {
+		return "HotKeyDetector [topKeys=" + getTopKeys() + "]";
+	}
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * LZ4块格式的压缩和解压。
+ * <p>压缩使用单个哈希表贪心查找4字节匹配，速度优先，输出与LZ4的块格式兼容。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月01日
+ */
+final class Lz4 {
+
+	private static final int MIN_MATCH = 4;
+
+	/**
+	 * 块末尾必须是字面量的字节数。
+	 */
+	private static final int LAST_LITERALS = 5;
+
+	/**
+	 * 最后一个匹配的起始位置距块末尾至少的字节数。
+	 */
+	private static final int MF_LIMIT = 12;
+
+	private static final int MAX_DISTANCE = 65535;
+
+	private static final int HASH_LOG = 14;
+
+	private static final int RUN_MASK = 15;
+
+	/**
+	 * 每个线程复用的哈希表，保存4字节序列上一次出现的位置。
+	 */
+	private static final ThreadLocal<int[]> TABLES = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[1 << HASH_LOG];
+		}
+	};
+
+	private Lz4() {
+	}
+
+	/**
+	 * 压缩结果的最大长度。
+	 */
+	static int maxCompressedLength(int length) {
+		return length + length / 255 + 16;
+	}
+
+	/**
+	 * 压缩数据可能解压出的最大长度，每个字节最多扩展为255个字节。
+	 */
+	static long maxDecompressedLength(int compressedLength) {
+		return (long) compressedLength * 255 + 16;
+	}
+
+	/**
+	 * 压缩。
+	 * 
+	 * @param src 原始数据。
+	 * @param dest 输出数组，从destOff开始至少有maxCompressedLength(src.length)的空间。
+	 * @param destOff 输出的起始位置。
+	 * @return 压缩后的长度。
+	 */
+	static int compress(byte[] src, byte[] dest, int destOff) {
+		int srcLen = src.length;
+		int op = destOff;
+		int anchor = 0;
+		if(srcLen > MF_LIMIT){
+			int[] table = TABLES.get();
+			Arrays.fill(table, -1);
+			int matchLimit = srcLen - LAST_LITERALS;
+			int limit = srcLen - MF_LIMIT;
+			int pos = 0;
+			while(pos <= limit){
+				int sequence = readInt(src, pos);
+				int h = hash(sequence);
+				int ref = table[h];
+				table[h] = pos;
+				if(ref < 0 || pos - ref > MAX_DISTANCE || readInt(src, ref) != sequence){
+					//长时间找不到匹配时加大步长，不可压缩的数据很快扫描完。
+					pos += 1 + ((pos - anchor) >>> 6);
+					continue;
+				}
+				while(pos > anchor && ref > 0 && src[pos - 1] == src[ref - 1]){
+					pos--;
+					ref--;
+				}
+				int matchLen = MIN_MATCH;
+				while(pos + matchLen < matchLimit && src[pos + matchLen] == src[ref + matchLen]){
+					matchLen++;
+				}
+				op = writeSequence(src, anchor, pos - anchor, pos - ref, matchLen, dest, op);
+				pos += matchLen;
+				anchor = pos;
+				if(pos - 2 <= limit){
+					table[hash(readInt(src, pos - 2))] = pos - 2;
+				}
+			}
+		}
+		return writeSequence(src, anchor, srcLen - anchor, 0, 0, dest, op) - destOff;
+	}
+
+	/**
+	 * 解压。
+	 * 
+	 * @param src 压缩数据所在的数组。
+	 * @param srcOff 压缩数据的起始位置。
+	 * @param srcLen 压缩数据的长度。
+	 * @param destLen 原始数据的长度。
+	 * @return 原始数据。
+	 * @throws IOException 数据不完整或格式错误。
+	 */
+	static byte[] decompress(byte[] src, int srcOff, int srcLen, int destLen) throws IOException {
+		byte[] dest = new byte[destLen];
+		int ip = srcOff;
+		int end = srcOff + srcLen;
+		int op = 0;
+		while(true){
+			if(ip >= end){
+				throw new IOException("truncated lz4 block!");
+			}
+			int token = src[ip++] & 0xFF;
+			int literalLen = token >>> 4;
+			if(literalLen == RUN_MASK){
+				int b;
+				do{
+					if(ip >= end){
+						throw new IOException("truncated lz4 block!");
+					}
+					b = src[ip++] & 0xFF;
+					literalLen += b;
+				}while(b == 255);
+			}
+			if(literalLen < 0 || literalLen > end - ip || literalLen > destLen - op){
+				throw new IOException("malformed lz4 literals!");
+			}
+			System.arraycopy(src, ip, dest, op, literalLen);
+			ip += literalLen;
+			op += literalLen;
+			if(ip == end){
+				break;
+			}
+			if(end - ip < 2){
+				throw new IOException("truncated lz4 block!");
+			}
+			int offset = (src[ip] & 0xFF) | ((src[ip + 1] & 0xFF) << 8);
+			ip += 2;
+			if(offset == 0 || offset > op){
+				throw new IOException("malformed lz4 match offset " + offset + "!");
+			}
+			int matchLen = token & RUN_MASK;
+			if(matchLen == RUN_MASK){
+				int b;
+				do{
+					if(ip >= end){
+						throw new IOException("truncated lz4 block!");
+					}
+					b = src[ip++] & 0xFF;
+					matchLen += b;
+				}while(b == 255);
+			}
+			matchLen += MIN_MATCH;
+			if(matchLen < 0 || matchLen > destLen - op){
+				throw new IOException("malformed lz4 match length!");
+			}
+			int ref = op - offset;
+			if(offset >= matchLen){
+				System.arraycopy(dest, ref, dest, op, matchLen);
+				op += matchLen;
+			}else{
+				//重叠的匹配需要逐字节复制。
+				for(int i = 0; i < matchLen; i++){
+					dest[op++] = dest[ref++];
+				}
+			}
+		}
+		if(op != destLen){
+			throw new IOException("lz4 block length " + op + " doesn't match " + destLen + "!");
+		}
+		return dest;
+	}
+
+	/**
+	 * 写入一个序列，matchLen为0时是只有字面量的最后一个序列。
+	 */
+	private static int writeSequence(byte[] src, int literalOff, int literalLen, int offset, int matchLen, byte[] dest, int op) {
+		int tokenPos = op++;
+		int token;
+		if(literalLen >= RUN_MASK){
+			token = RUN_MASK << 4;
+			op = writeLength(literalLen - RUN_MASK, dest, op);
+		}else{
+			token = literalLen << 4;
+		}
+		System.arraycopy(src, literalOff, dest, op, literalLen);
+		op += literalLen;
+		if(matchLen > 0){
+			dest[op++] = (byte) offset;
+			dest[op++] = (byte) (offset >>> 8);
+			int length = matchLen - MIN_MATCH;
+			if(length >= RUN_MASK){
+				token |= RUN_MASK;
+				op = writeLength(length - RUN_MASK, dest, op);
+			}else{
+				token |= length;
+			}
+		}
+		dest[tokenPos] = (byte) token;
+		return op;
+	}
+
+	private static int writeLength(int length, byte[] dest, int op) {
+		while(length >= 255){
+			dest[op++] = (byte) 255;
+			length -= 255;
+		}
+		dest[op++] = (byte) length;
+		return op;
+	}
+
+	private static int readInt(byte[] buffer, int offset) {
+		return (buffer[offset] & 0xFF) | ((buffer[offset + 1] & 0xFF) << 8)
+				| ((buffer[offset + 2] & 0xFF) << 16) | ((buffer[offset + 3] & 0xFF) << 24);
+	}
+
+	private static int hash(int sequence) {
+		return (sequence * -1640531535) >>> (32 - HASH_LOG);
+	}
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.util.List;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * 多键Jedis回调接口。
+ * <p>模板按分片对键进行分组，每个分片回调一次，回调中传入的键都落在同一个节点上。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月13日
+ */
+public interface MultiKeyJedisCallback<R> {
+
+	/**
+	 * 回调方法。
+	 * 
+	 * @param jedis jedis实例。
+	 * @param keys 落在当前节点上的键。
+	 * @return
+	 *      回调返回值，必须与keys一一对应。
+	 */
+	List<R> call(Jedis jedis, List<String> keys);
+	
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+/**
+ * 进程内的近端缓存。
+ * <p>按redis键组织，一个键下可以缓存多种读取方式的结果(视图)，例如getString、hget的某个字段，
+ * 键被修改时整体失效。容量按估算的字节数限制，超出时按LRU淘汰；每个键按前缀配置过期时间。
+ * <p>读取redis前先取得键的版本号，写入缓存时版本号已变化(期间键被失效过)则不缓存，
+ * 避免把失效前读到的旧值放回缓存。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月26日
+ */
+public class NearCache {
+
+	/**
+	 * 未命中。
+	 */
+	public static final Object MISS = new Object();
+
+	/**
+	 * 缓存的null值，键不存在也会被缓存。
+	 */
+	private static final Object NULL = new Object();
+
+	/**
+	 * 版本号的分段数，不同的键可能共用一个版本号，只会导致少量本可以缓存的结果不被缓存。
+	 */
+	private static final int GENERATION_STRIPES = 4096;
+
+	/**
+	 * 每个键最多缓存的视图数，避免大hash的字段无限增长。
+	 */
+	private static final int MAX_VIEWS_PER_KEY = 64;
+
+	/**
+	 * 每个缓存项的估算固定开销，单位字节。
+	 */
+	private static final int ENTRY_OVERHEAD = 64;
+
+	private final Cache<String, Entry> cache;
+
+	private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+	/**
+	 * 默认过期时间，单位毫秒。
+	 */
+	private final long defaultTtlMillis;
+
+	/**
+	 * 按键前缀配置的过期时间，先配置的前缀优先匹配。
+	 */
+	private volatile Map<String, Long> prefixTtls = Collections.emptyMap();
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * @param maximumWeight 最大容量，按键和值估算的字节数计算。
+	 * @param defaultTtlMillis 默认过期时间，单位毫秒，不大于0时只缓存配置了前缀过期时间的键。
+	 */
+	public NearCache(long maximumWeight, long defaultTtlMillis) {
+		if(maximumWeight <= 0){
+			throw new IllegalArgumentException("maximumWeight of NearCache must be positive!");
+		}
+		this.defaultTtlMillis = defaultTtlMillis;
+		this.cache = CacheBuilder.newBuilder()
+				.maximumWeight(maximumWeight)
+				.weigher(new Weigher<String, Entry>() {
+					@Override
+					public int weigh(String key, Entry entry) {
+						return entry.weight;
+					}
+				})
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * 为指定前缀的键设置过期时间。
+	 * 
+	 * @param keyPrefix 键前缀。
+	 * @param ttlMillis 过期时间，单位毫秒，不大于0表示这些键不缓存。
+	 */
+	public synchronized void setTtl(String keyPrefix, long ttlMillis) {
+		if(keyPrefix == null){
+			throw new IllegalArgumentException("keyPrefix can't be null！");
+		}
+		Map<String, Long> ttls = new LinkedHashMap<String, Long>(prefixTtls);
+		ttls.put(keyPrefix, ttlMillis);
+		this.prefixTtls = ttls;
+	}
+
+	/**
+	 * 获取键的过期时间。
+	 * 
+	 * @param key 键。
+	 * @return 过期时间，单位毫秒，不大于0表示不缓存。
+	 */
+	public long getTtl(String key) {
+		for(Map.Entry<String, Long> entry : prefixTtls.entrySet()){
+			if(key.startsWith(entry.getKey())){
+				return entry.getValue();
+			}
+		}
+		return defaultTtlMillis;
+	}
+
+	/**
+	 * 查找缓存。
+	 * 
+	 * @param key 键。
+	 * @param view 读取方式。
+	 * @return 缓存的值，未命中时返回MISS。
+	 */
+	public Object get(String key, Object view) {
+		Entry entry = cache.getIfPresent(key);
+		Object value = entry == null ? null : entry.get(view);
+		if(value == null){
+			missCount.incrementAndGet();
+			return MISS;
+		}
+		hitCount.incrementAndGet();
+		return value == NULL ? null : value;
+	}
+
+	/**
+	 * 获取键的当前版本号，在读取redis之前调用。
+	 */
+	public long generation(String key) {
+		return generations.get(stripe(key));
+	}
+
+	/**
+	 * 放入缓存，键在generation之后被失效过时不放入。
+	 * 
+	 * @param key 键。
+	 * @param view 读取方式。
+	 * @param value 从redis读到的值，可以为null。
+	 * @param weight 值的估算字节数。
+	 * @param generation 读取redis之前取得的版本号。
+	 */
+	public void put(String key, Object view, Object value, int weight, long generation) {
+		long ttl = getTtl(key);
+		if(ttl <= 0){
+			return;
+		}
+		Object stored = value == null ? NULL : value;
+		ConcurrentMap<String, Entry> map = cache.asMap();
+		long now = System.currentTimeMillis();
+		Entry existing = map.get(key);
+		Entry entry = null;
+		if(existing == null || existing.isExpired(now)){
+			entry = new Entry(now + ttl, key.length() * 2 + ENTRY_OVERHEAD).with(view, stored, weight);
+		}else{
+			entry = existing.with(view, stored, weight);
+			if(entry == null){
+				return;
+			}
+		}
+		if(generations.get(stripe(key)) != generation){
+			return;
+		}
+		if(existing == null){
+			map.putIfAbsent(key, entry);
+		}else{
+			map.replace(key, existing, entry);
+		}
+		//放入之后再检查一次，放入期间被失效时移除，宁可少缓存也不缓存旧值。
+		if(generations.get(stripe(key)) != generation){
+			map.remove(key, entry);
+		}
+	}
+
+	/**
+	 * 失效一个键的所有视图。
+	 */
+	public void invalidate(String key) {
+		generations.incrementAndGet(stripe(key));
+		cache.invalidate(key);
+	}
+
+	/**
+	 * 失效所有键。
+	 */
+	public void invalidateAll() {
+		for(int i = 0; i < GENERATION_STRIPES; i++){
+			generations.incrementAndGet(i);
+		}
+		cache.invalidateAll();
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return cache.stats().evictionCount();
+	}
+
+	public long size() {
+		return cache.size();
+	}
+
+	private static int stripe(String key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return h & (GENERATION_STRIPES - 1);
+	}
+
+	@Override
+	public String toString() {
+		return "NearCache [size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+				+ ", evictions=" + getEvictionCount() + "]";
+	}
+
+	/**
+	 * 一个键下缓存的所有视图，不可变，增加视图时复制。
+	 */
+	private static class Entry {
+
+		private final long expireAt;
+
+		/**
+		 * 视图与值交替存放。
+		 */
+		private final Object[] views;
+
+		private final int weight;
+
+		Entry(long expireAt, int weight) {
+			this(expireAt, new Object[0], weight);
+		}
+
+		private Entry(long expireAt, Object[] views, int weight) {
+			this.expireAt = expireAt;
+			this.views = views;
+			this.weight = weight;
+		}
+
+		boolean isExpired(long now) {
+			return now >= expireAt;
+		}
+
+		Object get(Object view) {
+			if(isExpired(System.currentTimeMillis())){
+				return null;
+			}
+			for(int i = 0; i < views.length; i += 2){
+				if(views[i].equals(view)){
+					return views[i + 1];
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * 返回增加或替换了视图的新缓存项，视图数已满时返回null。
+		 * 替换视图时沿用原来的估算大小。
+		 */
+		Entry with(Object view, Object value, int valueWeight) {
+			for(int i = 0; i < views.length; i += 2){
+				if(views[i].equals(view)){
+					Object[] copy = views.clone();
+					copy[i + 1] = value;
+					return new Entry(expireAt, copy, weight);
+				}
+			}
+			if(views.length / 2 >= MAX_VIEWS_PER_KEY){
+				return null;
+			}
+			Object[] copy = new Object[views.length + 2];
+			System.arraycopy(views, 0, copy, 0, views.length);
+			copy[views.length] = view;
+			copy[views.length + 1] = value;
+			return new Entry(expireAt, copy, weight + valueWeight);
+		}
+
+	}
+
+}
@@ -0,0 +1,495 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.krzn.platform.redis.RedisContants;
+import com.krzn.platform.redis.jedis.JedisGroupShardInfo;
+
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * 近端缓存的跨实例失效。
+ * <p>每个组的master上维持两个连接：订阅连接和控制连接。
+ * redis支持CLIENT TRACKING(6.0及以上)时，在控制连接上以广播模式开启跟踪，
+ * 失效消息重定向到订阅连接的__redis__:invalidate频道，任何客户端修改了匹配前缀的键都会收到通知；
+ * 不支持时退化为普通的发布订阅，写入方通过publish方法把修改的键发布到失效频道。
+ * 两种方式同时订阅，不同版本的redis混用时也能工作。
+ * <p>订阅断开期间可能错过失效消息，重新订阅成功后清空整个近端缓存。
+ * <p>失效消息来自master，此时从节点可能还没有复制到新值。收到失效消息的键记录在RecentWriteFilter中，
+ * 一个复制时间窗口内NearCacheRedisClient读到的值不放入缓存；与ShardedJedisTemplate共用同一个过滤器时，
+ * 这些键的读请求还会直接发往主节点。
+ * 订阅连接定期发送PING，超过3个心跳周期收不到任何回复时认为连接已断开。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月27日
+ */
+public class NearCacheInvalidator implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(NearCacheInvalidator.class);
+
+	/**
+	 * CLIENT TRACKING重定向失效消息的频道。
+	 */
+	public static final String TRACKING_CHANNEL = "__redis__:invalidate";
+
+	/**
+	 * 默认的发布订阅失效频道。
+	 */
+	public static final String DEFAULT_CHANNEL = "__jedis_ext__:invalidate";
+
+	private static final long DEFAULT_HEARTBEAT_MILLIS = 1000;
+
+	private final NearCache nearCache;
+
+	private final List<Subscription> subscriptions;
+
+	/**
+	 * 发布订阅失效频道。
+	 */
+	private String channel = DEFAULT_CHANNEL;
+
+	/**
+	 * 广播跟踪的键前缀，为空时跟踪所有键。
+	 */
+	private String[] keyPrefixes = new String[0];
+
+	/**
+	 * 是否尝试开启CLIENT TRACKING。
+	 */
+	private boolean tracking = true;
+
+	/**
+	 * 心跳周期，也是断开后重新连接的间隔，单位毫秒。
+	 */
+	private long heartbeatMillis = DEFAULT_HEARTBEAT_MILLIS;
+
+	private ScheduledExecutorService heartbeat;
+
+	private volatile boolean running = false;
+
+	/**
+	 * 最近收到失效消息的键。
+	 */
+	private volatile RecentWriteFilter recentWriteFilter = new RecentWriteFilter();
+
+	public NearCacheInvalidator(NearCache nearCache, List<JedisGroupShardInfo> shards) {
+		if(nearCache == null){
+			throw new IllegalArgumentException("nearCache can't be null！");
+		}
+		if(shards == null || shards.isEmpty()){
+			throw new IllegalArgumentException("shards of NearCacheInvalidator can't be empty!");
+		}
+		this.nearCache = nearCache;
+		this.subscriptions = new ArrayList<Subscription>(shards.size());
+		for(JedisGroupShardInfo shard : shards){
+			subscriptions.add(new Subscription(shard.getMasterInfo()));
+		}
+	}
+
+	/**
+	 * 开始订阅，每个master一个订阅线程。
+	 */
+	public synchronized void start() {
+		if(running){
+			return;
+		}
+		running = true;
+		heartbeat = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "near-cache-heartbeat");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		heartbeat.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				for(Subscription subscription : subscriptions){
+					subscription.ping();
+				}
+			}
+		}, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+		for(Subscription subscription : subscriptions){
+			subscription.start();
+		}
+	}
+
+	/**
+	 * 通知其他实例失效一个键。
+	 * <p>所有master都已开启跟踪时由redis负责通知，不再发布；否则发布到按键选出的一个master，
+	 * 每个实例都订阅了所有master，任意一个master上的消息都能送达。
+	 * 该master的订阅断开或发布失败时依次尝试下一个master，全部失败时只记录日志。
+	 * 
+	 * @param key 被修改的键。
+	 */
+	public void publish(String key) {
+		if(!running || isTracking()){
+			return;
+		}
+		int size = subscriptions.size();
+		int index = (key.hashCode() & Integer.MAX_VALUE) % size;
+		for(int i = 0; i < size; i++){
+			if(subscriptions.get((index + i) % size).publish(key)){
+				return;
+			}
+		}
+		logger.warn("near cache invalidation of key " + key + " not published, no subscribed master is available.");
+	}
+
+	/**
+	 * 键是否在最近一个复制时间窗口内收到过失效消息，可能误判为收到过。
+	 */
+	public boolean isRecentlyInvalidated(String key) {
+		return recentWriteFilter.contains(key);
+	}
+
+	/**
+	 * 通知其他实例失效多个键。
+	 * 
+	 * @param keys 被修改的键。
+	 */
+	public void publish(Collection<String> keys) {
+		for(String key : keys){
+			publish(key);
+		}
+	}
+
+	/**
+	 * 是否所有master都已开启CLIENT TRACKING。
+	 */
+	public boolean isTracking() {
+		for(Subscription subscription : subscriptions){
+			if(!subscription.trackingActive){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 是否所有master都已订阅成功。
+	 */
+	public boolean isSubscribed() {
+		for(Subscription subscription : subscriptions){
+			if(!subscription.subscribed){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 处理一条订阅消息。
+	 */
+	@SuppressWarnings("unchecked")
+	private void onMessage(List<Object> message){
+		if(message.size() < 3 || !"message".equals(asString(message.get(0)))){
+			return;
+		}
+		Object payload = message.get(2);
+		if(payload == null){
+			//FLUSHALL、FLUSHDB时跟踪消息的内容为空。
+			nearCache.invalidateAll();
+		}else if(payload instanceof List){
+			for(Object key : (List<Object>) payload){
+				invalidate(asString(key));
+			}
+		}else{
+			invalidate(asString(payload));
+		}
+	}
+
+	/**
+	 * 先记录再失效，读取方看到失效之后一定也能看到记录，不会把从节点上的旧值放回缓存。
+	 */
+	private void invalidate(String key){
+		recentWriteFilter.add(key);
+		nearCache.invalidate(key);
+	}
+
+	private static String asString(Object value){
+		return value instanceof byte[] ? new String((byte[]) value, RedisContants.CS_UTF8) : String.valueOf(value);
+	}
+
+	private static byte[] raw(String value){
+		return value.getBytes(RedisContants.CS_UTF8);
+	}
+
+	/**
+	 * 设置发布订阅失效频道，所有实例必须一致，在start之前设置。
+	 */
+	public void setChannel(String channel) {
+		if(channel == null){
+			throw new IllegalArgumentException("channel can't be null！");
+		}
+		this.channel = channel;
+	}
+
+	/**
+	 * 设置广播跟踪的键前缀，应与近端缓存的键前缀一致，在start之前设置。
+	 */
+	public void setKeyPrefixes(String... keyPrefixes) {
+		this.keyPrefixes = keyPrefixes == null ? new String[0] : keyPrefixes.clone();
+	}
+
+	/**
+	 * 设置是否尝试开启CLIENT TRACKING，关闭时只使用发布订阅，在start之前设置。
+	 */
+	public void setTracking(boolean tracking) {
+		this.tracking = tracking;
+	}
+
+	/**
+	 * 设置记录最近失效的键的过滤器，时间窗口应大于从节点的复制延迟，默认使用独立的1秒窗口的过滤器。
+	 * <p>设置为ShardedJedisTemplate的RecentWriteFilter时，这些键在窗口内从主节点读取。
+	 */
+	public void setRecentWriteFilter(RecentWriteFilter recentWriteFilter) {
+		if(recentWriteFilter == null){
+			throw new IllegalArgumentException("recentWriteFilter can't be null！");
+		}
+		this.recentWriteFilter = recentWriteFilter;
+	}
+
+	public void setHeartbeatMillis(long heartbeatMillis) {
+		if(heartbeatMillis <= 0){
+			throw new IllegalArgumentException("heartbeatMillis must be positive!");
+		}
+		this.heartbeatMillis = heartbeatMillis;
+	}
+
+	/**
+	 * 停止订阅并关闭所有连接。
+	 */
+	@Override
+	public synchronized void close() {
+		if(!running){
+			return;
+		}
+		running = false;
+		heartbeat.shutdownNow();
+		for(Subscription subscription : subscriptions){
+			subscription.stop();
+		}
+	}
+
+	/**
+	 * 一个master上的订阅，断开后在订阅线程中重新建立。
+	 */
+	private class Subscription implements Runnable {
+
+		private final JedisShardInfo master;
+
+		private volatile InvalidationConnection subscriber;
+
+		private volatile InvalidationConnection control;
+
+		private volatile boolean subscribed = false;
+
+		private volatile boolean trackingActive = false;
+
+		private Thread thread;
+
+		Subscription(JedisShardInfo master) {
+			this.master = master;
+		}
+
+		void start(){
+			thread = new Thread(this, "near-cache-invalidator-" + master.getHost() + ":" + master.getPort());
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		@Override
+		public void run() {
+			while(running){
+				try {
+					subscribe();
+				} catch (Throwable e) {
+					if(running){
+						logger.warn("near cache invalidation subscription to " + master.getHost() + ":" + master.getPort() + " broken!", e);
+					}
+				} finally {
+					subscribed = false;
+					trackingActive = false;
+					disconnect();
+				}
+				if(running){
+					try {
+						Thread.sleep(heartbeatMillis);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		}
+
+		private void subscribe(){
+			control = connect();
+			subscriber = connect();
+			if(tracking){
+				try {
+					Object id = subscriber.command(Protocol.Command.CLIENT, raw("ID"));
+					List<byte[]> args = new ArrayList<byte[]>();
+					args.add(raw("TRACKING"));
+					args.add(raw("on"));
+					args.add(raw("REDIRECT"));
+					args.add(raw(String.valueOf(id)));
+					args.add(raw("BCAST"));
+					for(String prefix : keyPrefixes){
+						args.add(raw("PREFIX"));
+						args.add(raw(prefix));
+					}
+					control.command(Protocol.Command.CLIENT, args.toArray(new byte[args.size()][]));
+					trackingActive = true;
+				} catch (JedisDataException e) {
+					logger.info("redis " + master.getHost() + ":" + master.getPort()
+							+ " doesn't support client tracking, near cache invalidation falls back to pub/sub: " + e.getMessage());
+				}
+			}
+			subscriber.send(Protocol.Command.SUBSCRIBE, raw(TRACKING_CHANNEL), raw(channel));
+			subscriber.setSoTimeout((int) Math.min(Integer.MAX_VALUE, heartbeatMillis * 3));
+			for(int confirmed = 0; confirmed < 2; ){
+				List<Object> reply = subscriber.read();
+				if("subscribe".equals(asString(reply.get(0)))){
+					confirmed++;
+				}
+			}
+			//订阅之前缓存的值可能已经错过了失效消息。
+			nearCache.invalidateAll();
+			subscribed = true;
+			while(running){
+				onMessage(subscriber.read());
+			}
+		}
+
+		private InvalidationConnection connect(){
+			InvalidationConnection connection = new InvalidationConnection(master);
+			if(master.getPassword() != null){
+				connection.command(Protocol.Command.AUTH, raw(master.getPassword()));
+			}
+			if(master.getDb() != 0){
+				connection.command(Protocol.Command.SELECT, raw(String.valueOf(master.getDb())));
+			}
+			return connection;
+		}
+
+		/**
+		 * 在心跳线程中检查两个连接，控制连接断开时跟踪随之失效，关闭订阅连接使订阅线程重新建立。
+		 */
+		void ping(){
+			InvalidationConnection subscriber = this.subscriber;
+			InvalidationConnection control = this.control;
+			if(!subscribed || subscriber == null || control == null){
+				return;
+			}
+			try {
+				subscriber.send(Protocol.Command.PING);
+				control.command(Protocol.Command.PING);
+			} catch (Throwable e) {
+				logger.warn("near cache invalidation heartbeat to " + master.getHost() + ":" + master.getPort() + " failed!", e);
+				subscriber.disconnect();
+			}
+		}
+
+		/**
+		 * 发布到本master，订阅断开或发布失败时返回false。
+		 */
+		boolean publish(String key){
+			InvalidationConnection control = this.control;
+			if(!subscribed || control == null){
+				return false;
+			}
+			try {
+				control.command(Protocol.Command.PUBLISH, raw(channel), raw(key));
+				return true;
+			} catch (Throwable e) {
+				logger.warn("near cache invalidation of key " + key + " not published to " + master.getHost() + ":" + master.getPort() + "!", e);
+				InvalidationConnection subscriber = this.subscriber;
+				if(subscriber != null){
+					subscriber.disconnect();
+				}
+				return false;
+			}
+		}
+
+		void stop(){
+			disconnect();
+			if(thread != null){
+				thread.interrupt();
+			}
+		}
+
+		private void disconnect(){
+			InvalidationConnection subscriber = this.subscriber;
+			InvalidationConnection control = this.control;
+			if(subscriber != null){
+				subscriber.disconnect();
+			}
+			if(control != null){
+				control.disconnect();
+			}
+		}
+
+	}
+
+	/**
+	 * 可以发送任意命令、单独读取回复的连接，写入与flush在同一个锁内完成，读取只在订阅线程中进行。
+	 */
+	private static class InvalidationConnection extends Connection {
+
+		InvalidationConnection(JedisShardInfo shardInfo) {
+			super(shardInfo.getHost(), shardInfo.getPort());
+			setConnectionTimeout(shardInfo.getConnectionTimeout());
+			setSoTimeout(shardInfo.getSoTimeout());
+			connect();
+		}
+
+		synchronized void send(Protocol.Command command, byte[]... args){
+			sendCommand(command, args);
+			flush();
+		}
+
+		/**
+		 * 发送命令并等待回复，只用于非订阅状态的连接。
+		 */
+		synchronized Object command(Protocol.Command command, byte[]... args){
+			sendCommand(command, args);
+			return getOne();
+		}
+
+		@SuppressWarnings("unchecked")
+		List<Object> read(){
+			return (List<Object>) readProtocolWithCheckingBroken();
+		}
+
+		@Override
+		public void disconnect() {
+			try {
+				super.disconnect();
+			} catch (Exception e) {
+				// ignore
+			}
+		}
+
+	}
+
+}
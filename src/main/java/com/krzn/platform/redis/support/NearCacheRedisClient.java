@@ -0,0 +1,1107 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.krzn.platform.redis.Codec;
+import com.krzn.platform.redis.NX;
+import com.krzn.platform.redis.RedisClient;
+import com.krzn.platform.redis.RedisClientStatistic;
+import com.krzn.platform.redis.SortOrder;
+import com.krzn.platform.redis.TimeUnit;
+import com.krzn.platform.redis.ValueLoader;
+
+import redis.clients.jedis.SortingParams;
+import redis.clients.jedis.Tuple;
+
+/**
+ * 带近端缓存的RedisClient装饰器。
+ * <p>getString、get、hgetString、hget、hgetAllString、mgetString、mget先查进程内缓存，
+ * 未命中时再读redis并放入缓存；通过本实例执行的写命令在执行后失效对应的键。
+ * 其他实例或其他进程的写入需要设置NearCacheInvalidator才能及时失效，否则只能等待缓存过期，过期时间按键前缀配置。
+ * <p>收到其他实例的失效消息后的一个复制时间窗口内，该键读到的值不放入缓存，避免从从节点读到的旧值在缓存中长期保留，
+ * 见NearCacheInvalidator#setRecentWriteFilter。
+ * <p>缓存中的byte[]和Map每次返回副本，调用方修改返回值不影响缓存。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月26日
+ * @see NearCache
+ */
+public class NearCacheRedisClient implements RedisClient {
+	
+	private static final Object VIEW_STRING = "getString";
+	
+	private static final Object VIEW_BYTES = "get";
+	
+	private static final Object VIEW_HASH_STRING = "hgetAllString";
+	
+	/**
+	 * 被装饰的客户端。
+	 */
+	private final RedisClient redisClient;
+	
+	private final NearCache nearCache;
+	
+	/**
+	 * 跨实例失效，为null时只失效本实例的缓存。
+	 */
+	private volatile NearCacheInvalidator invalidator;
+	
+	public NearCacheRedisClient(RedisClient redisClient, NearCache nearCache) {
+		if(redisClient == null || nearCache == null){
+			throw new IllegalArgumentException("redisClient and nearCache can't be null！");
+		}
+		this.redisClient = redisClient;
+		this.nearCache = nearCache;
+	}
+	
+	public NearCache getNearCache() {
+		return nearCache;
+	}
+	
+	/**
+	 * 设置跨实例失效，本实例的写命令同时通知其他实例，其他实例的写入也会失效本实例的缓存。
+	 * <p>失效器由调用方启动和关闭。
+	 */
+	public void setInvalidator(NearCacheInvalidator invalidator) {
+		this.invalidator = invalidator;
+	}
+
+	@Override
+	public String getString(String key) {
+		Object cached = nearCache.get(key, VIEW_STRING);
+		if(cached != NearCache.MISS){
+			return (String) cached;
+		}
+		long generation = nearCache.generation(key);
+		String value = redisClient.getString(key);
+		cache(key, VIEW_STRING, value, weightOf(value), generation);
+		return value;
+	}
+
+	@Override
+	public byte[] get(String key) {
+		Object cached = nearCache.get(key, VIEW_BYTES);
+		if(cached != NearCache.MISS){
+			return cached == null ? null : ((byte[]) cached).clone();
+		}
+		long generation = nearCache.generation(key);
+		byte[] value = redisClient.get(key);
+		cache(key, VIEW_BYTES, value == null ? null : value.clone(), weightOf(value), generation);
+		return value;
+	}
+
+	@Override
+	public String hgetString(String key, String field) {
+		FieldView view = new FieldView(field, false);
+		Object cached = nearCache.get(key, view);
+		if(cached != NearCache.MISS){
+			return (String) cached;
+		}
+		long generation = nearCache.generation(key);
+		String value = redisClient.hgetString(key, field);
+		cache(key, view, value, weightOf(field) + weightOf(value), generation);
+		return value;
+	}
+
+	@Override
+	public byte[] hget(String key, String field) {
+		FieldView view = new FieldView(field, true);
+		Object cached = nearCache.get(key, view);
+		if(cached != NearCache.MISS){
+			return cached == null ? null : ((byte[]) cached).clone();
+		}
+		long generation = nearCache.generation(key);
+		byte[] value = redisClient.hget(key, field);
+		cache(key, view, value == null ? null : value.clone(), weightOf(field) + weightOf(value), generation);
+		return value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Map<String, String> hgetAllString(String key) {
+		Object cached = nearCache.get(key, VIEW_HASH_STRING);
+		if(cached != NearCache.MISS){
+			return cached == null ? null : new HashMap<String, String>((Map<String, String>) cached);
+		}
+		long generation = nearCache.generation(key);
+		Map<String, String> value = redisClient.hgetAllString(key);
+		if(value == null){
+			cache(key, VIEW_HASH_STRING, null, 0, generation);
+		}else{
+			int weight = 0;
+			for(Map.Entry<String, String> entry : value.entrySet()){
+				weight += weightOf(entry.getKey()) + weightOf(entry.getValue());
+			}
+			cache(key, VIEW_HASH_STRING, new HashMap<String, String>(value), weight, generation);
+		}
+		return value;
+	}
+
+	@Override
+	public List<String> mgetString(List<String> keys) {
+		List<String> results = new ArrayList<String>(keys.size());
+		List<String> missedKeys = new ArrayList<String>();
+		List<Integer> missedIndexes = new ArrayList<Integer>();
+		for(int i = 0; i < keys.size(); i++){
+			Object cached = nearCache.get(keys.get(i), VIEW_STRING);
+			if(cached == NearCache.MISS){
+				missedKeys.add(keys.get(i));
+				missedIndexes.add(i);
+				results.add(null);
+			}else{
+				results.add((String) cached);
+			}
+		}
+		if(missedKeys.isEmpty()){
+			return results;
+		}
+		long[] generations = generations(missedKeys);
+		List<String> values = redisClient.mgetString(missedKeys);
+		for(int i = 0; i < missedKeys.size(); i++){
+			String value = values.get(i);
+			cache(missedKeys.get(i), VIEW_STRING, value, weightOf(value), generations[i]);
+			results.set(missedIndexes.get(i), value);
+		}
+		return results;
+	}
+
+	@Override
+	public List<byte[]> mget(List<String> keys) {
+		List<byte[]> results = new ArrayList<byte[]>(keys.size());
+		List<String> missedKeys = new ArrayList<String>();
+		List<Integer> missedIndexes = new ArrayList<Integer>();
+		for(int i = 0; i < keys.size(); i++){
+			Object cached = nearCache.get(keys.get(i), VIEW_BYTES);
+			if(cached == NearCache.MISS){
+				missedKeys.add(keys.get(i));
+				missedIndexes.add(i);
+				results.add(null);
+			}else{
+				results.add(cached == null ? null : ((byte[]) cached).clone());
+			}
+		}
+		if(missedKeys.isEmpty()){
+			return results;
+		}
+		long[] generations = generations(missedKeys);
+		List<byte[]> values = redisClient.mget(missedKeys);
+		for(int i = 0; i < missedKeys.size(); i++){
+			byte[] value = values.get(i);
+			cache(missedKeys.get(i), VIEW_BYTES, value == null ? null : value.clone(), weightOf(value), generations[i]);
+			results.set(missedIndexes.get(i), value);
+		}
+		return results;
+	}
+
+	@Override
+	public Map.Entry<String, String> blpopString(int timeout, String... keys) {
+		return redisClient.blpopString(timeout, keys);
+	}
+
+	@Override
+	public Map.Entry<String, byte[]> blpop(int timeout, String... keys) {
+		return redisClient.blpop(timeout, keys);
+	}
+
+	@Override
+	public Map.Entry<String, String> brpopString(int timeout, String... keys) {
+		return redisClient.brpopString(timeout, keys);
+	}
+
+	@Override
+	public Map.Entry<String, byte[]> brpop(int timeout, String... keys) {
+		return redisClient.brpop(timeout, keys);
+	}
+
+	@Override
+	public Iterator<String> scan(String pattern, int count) {
+		return redisClient.scan(pattern, count);
+	}
+
+	@Override
+	public Iterator<String> sscan(String key, int count) {
+		return redisClient.sscan(key, count);
+	}
+
+	@Override
+	public Iterator<Map.Entry<String, String>> hscanString(String key, int count) {
+		return redisClient.hscanString(key, count);
+	}
+
+	@Override
+	public Iterator<Map.Entry<String, byte[]>> hscan(String key, int count) {
+		return redisClient.hscan(key, count);
+	}
+
+	@Override
+	public Iterator<Tuple> zscan(String key, int count) {
+		return redisClient.zscan(key, count);
+	}
+
+	@Override
+	public Iterable<String> lrangeStringPaged(String key, int pageSize) {
+		return redisClient.lrangeStringPaged(key, pageSize);
+	}
+
+	@Override
+	public Iterable<byte[]> lrangePaged(String key, int pageSize) {
+		return redisClient.lrangePaged(key, pageSize);
+	}
+
+	@Override
+	public Iterable<String> zrangeStringPaged(String key, int pageSize) {
+		return redisClient.zrangeStringPaged(key, pageSize);
+	}
+
+	@Override
+	public Iterable<byte[]> zrangePaged(String key, int pageSize) {
+		return redisClient.zrangePaged(key, pageSize);
+	}
+
+	@Override
+	public <T> T get(String key, Codec<T> codec) {
+		return ValueBuffer.decode(codec, get(key));
+	}
+
+	@Override
+	public <T> void set(String key, T value, Codec<T> codec) {
+		set(key, ValueBuffer.encode(codec, value));
+	}
+
+	@Override
+	public <T> boolean setex(String key, T value, Codec<T> codec, int expires) {
+		return setex(key, ValueBuffer.encode(codec, value), expires);
+	}
+
+	@Override
+	public <T> List<T> mget(List<String> keys, Codec<T> codec) {
+		List<byte[]> values = mget(keys);
+		List<T> results = new ArrayList<T>(values.size());
+		for(byte[] value : values){
+			results.add(ValueBuffer.decode(codec, value));
+		}
+		return results;
+	}
+
+	/**
+	 * 不经过近端缓存，等待其他调用方加载时需要读到redis中的最新值；加载时会写入redis，与其他写方法一样失效近端缓存中的该键。
+	 */
+	@Override
+	public <T> T getOrLoad(String key, Codec<T> codec, ValueLoader<T> loader, long ttlMillis) {
+		try{
+			return redisClient.getOrLoad(key, codec, loader, ttlMillis);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	/**
+	 * 不经过近端缓存，等待其他调用方加载时需要读到redis中的最新值；加载时会写入redis，与其他写方法一样失效近端缓存中的该键。
+	 */
+	@Override
+	public <T> T getOrLoad(String key, Codec<T> codec, ValueLoader<T> loader, long ttlMillis, long staleMillis) {
+		try{
+			return redisClient.getOrLoad(key, codec, loader, ttlMillis, staleMillis);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public RedisClientStatistic getStatistic() {
+		return redisClient.getStatistic();
+	}
+
+	@Override
+	public void set(String key, String value) {
+		try{
+			redisClient.set(key, value);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public void set(String key, String value, int expireSecond) {
+		try{
+			redisClient.set(key, value, expireSecond);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public boolean set(String key, String value, NX nx) {
+		try{
+			return redisClient.set(key, value, nx);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public boolean set(String key, String value, NX nx, TimeUnit timeUnit, long expires) {
+		try{
+			return redisClient.set(key, value, nx, timeUnit, expires);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public void set(String key, byte[] value) {
+		try{
+			redisClient.set(key, value);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public boolean set(String key, byte[] value, NX nx) {
+		try{
+			return redisClient.set(key, value, nx);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public boolean set(String key, byte[] value, NX nx, TimeUnit timeUnit, long expires) {
+		try{
+			return redisClient.set(key, value, nx, timeUnit, expires);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public boolean setnx(String key, String value) {
+		try{
+			return redisClient.setnx(key, value);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public boolean setnx(String key, byte[] value) {
+		try{
+			return redisClient.setnx(key, value);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public boolean setex(String key, String value, int expires) {
+		try{
+			return redisClient.setex(key, value, expires);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public boolean setex(String key, byte[] value, int expires) {
+		try{
+			return redisClient.setex(key, value, expires);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public String getSet(String key, String value) {
+		try{
+			return redisClient.getSet(key, value);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public byte[] getSet(String key, byte[] value) {
+		try{
+			return redisClient.getSet(key, value);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long delete(String key) {
+		try{
+			return redisClient.delete(key);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public boolean exists(String key) {
+		return redisClient.exists(key);
+	}
+
+	@Override
+	public long incr(String key) {
+		try{
+			return redisClient.incr(key);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long incrBy(String key, long increment) {
+		try{
+			return redisClient.incrBy(key, increment);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public double incrByFloat(String key, double increment) {
+		try{
+			return redisClient.incrByFloat(key, increment);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long decr(String key) {
+		try{
+			return redisClient.decr(key);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long decrBy(String key, long decrement) {
+		try{
+			return redisClient.decrBy(key, decrement);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long append(String key, String value) {
+		try{
+			return redisClient.append(key, value);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public boolean expire(String key, int seconds) {
+		try{
+			return redisClient.expire(key, seconds);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long hset(String key, String field, String value) {
+		try{
+			return redisClient.hset(key, field, value);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long hset(String key, String field, byte[] value) {
+		try{
+			return redisClient.hset(key, field, value);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public void hmsetString(String key, Map<String, String> fieldValues) {
+		try{
+			redisClient.hmsetString(key, fieldValues);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public void hmset(String key, Map<String, byte[]> fieldValues) {
+		try{
+			redisClient.hmset(key, fieldValues);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long hsetnx(String key, String field, String value) {
+		try{
+			return redisClient.hsetnx(key, field, value);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long hsetnx(String key, String field, byte[] value) {
+		try{
+			return redisClient.hsetnx(key, field, value);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public List<String> hmgetString(String key, String... fields) {
+		return redisClient.hmgetString(key, fields);
+	}
+
+	@Override
+	public List<byte[]> hmget(String key, String... fields) {
+		return redisClient.hmget(key, fields);
+	}
+
+	@Override
+	public long hdel(String key, String... fields) {
+		try{
+			return redisClient.hdel(key, fields);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public boolean hexists(String key, String field) {
+		return redisClient.hexists(key, field);
+	}
+
+	@Override
+	public Set<String> hkeys(String key) {
+		return redisClient.hkeys(key);
+	}
+
+	@Override
+	public long hlen(String key) {
+		return redisClient.hlen(key);
+	}
+
+	@Override
+	public List<String> hStringVals(String key) {
+		return redisClient.hStringVals(key);
+	}
+
+	@Override
+	public String lindexString(String key, long index) {
+		return redisClient.lindexString(key, index);
+	}
+
+	@Override
+	public byte[] lindex(String key, long index) {
+		return redisClient.lindex(key, index);
+	}
+
+	@Override
+	public long lpush(String key, String... values) {
+		try{
+			return redisClient.lpush(key, values);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long lpush(String key, byte[]... values) {
+		try{
+			return redisClient.lpush(key, values);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public String lpopString(String key) {
+		try{
+			return redisClient.lpopString(key);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public byte[] lpop(String key) {
+		try{
+			return redisClient.lpop(key);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long lpushx(String key, String... values) {
+		try{
+			return redisClient.lpushx(key, values);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long lpushx(String key, byte[]... values) {
+		try{
+			return redisClient.lpushx(key, values);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public void lset(String key, long index, String value) {
+		try{
+			redisClient.lset(key, index, value);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public void lset(String key, long index, byte[] value) {
+		try{
+			redisClient.lset(key, index, value);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long llen(String key) {
+		return redisClient.llen(key);
+	}
+
+	@Override
+	public long lrem(String key, long count, String value) {
+		try{
+			return redisClient.lrem(key, count, value);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public List<String> lrangeString(String key, long start, long end) {
+		return redisClient.lrangeString(key, start, end);
+	}
+
+	@Override
+	public List<byte[]> lrange(String key, long start, long end) {
+		return redisClient.lrange(key, start, end);
+	}
+
+	@Override
+	public long rpush(String key, String... values) {
+		try{
+			return redisClient.rpush(key, values);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long rpush(String key, byte[]... values) {
+		try{
+			return redisClient.rpush(key, values);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public String rpopString(String key) {
+		try{
+			return redisClient.rpopString(key);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public byte[] rpop(String key) {
+		try{
+			return redisClient.rpop(key);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long rpushx(String key, String... values) {
+		try{
+			return redisClient.rpushx(key, values);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long rpushx(String key, byte[]... values) {
+		try{
+			return redisClient.rpushx(key, values);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public String blpopString(String key) {
+		try{
+			return redisClient.blpopString(key);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public byte[] blpop(String key) {
+		try{
+			return redisClient.blpop(key);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public String blpopString(String key, int timeout) {
+		try{
+			return redisClient.blpopString(key, timeout);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public byte[] blpop(String key, int timeout) {
+		try{
+			return redisClient.blpop(key, timeout);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public String brpopString(String key) {
+		try{
+			return redisClient.brpopString(key);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public byte[] brpop(String key) {
+		try{
+			return redisClient.brpop(key);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public String brpopString(String key, int timeout) {
+		try{
+			return redisClient.brpopString(key, timeout);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public byte[] brpop(String key, int timeout) {
+		try{
+			return redisClient.brpop(key, timeout);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public boolean sadd(String key, String... values) {
+		try{
+			return redisClient.sadd(key, values);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public boolean sadd(String key, byte[]... values) {
+		try{
+			return redisClient.sadd(key, values);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public Set<byte[]> bsmembers(String key) {
+		return redisClient.bsmembers(key);
+	}
+
+	@Override
+	public Set<String> smembers(String key) {
+		return redisClient.smembers(key);
+	}
+
+	@Override
+	public boolean zadd(String key, String value, double score) {
+		try{
+			return redisClient.zadd(key, value, score);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public boolean zadd(String key, byte[] value, double score) {
+		try{
+			return redisClient.zadd(key, value, score);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long zaddString(String key, Map<String, Double> valueScorePairs) {
+		try{
+			return redisClient.zaddString(key, valueScorePairs);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long zadd(String key, Map<byte[], Double> valueScorePairs) {
+		try{
+			return redisClient.zadd(key, valueScorePairs);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long zrem(String key, String... values) {
+		try{
+			return redisClient.zrem(key, values);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long zrem(String key, byte[]... values) {
+		try{
+			return redisClient.zrem(key, values);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public long zcard(String key) {
+		return redisClient.zcard(key);
+	}
+
+	@Override
+	public Set<String> zrangeString(String key, long start, long end) {
+		return redisClient.zrangeString(key, start, end);
+	}
+
+	@Override
+	public Set<byte[]> zrange(String key, long start, long end) {
+		return redisClient.zrange(key, start, end);
+	}
+
+	@Override
+	public Set<Tuple> zrangeStringWithScores(String key, long start, long end) {
+		return redisClient.zrangeStringWithScores(key, start, end);
+	}
+
+	@Override
+	public Set<Tuple> zrangeWithScores(String key, long start, long end) {
+		return redisClient.zrangeWithScores(key, start, end);
+	}
+
+	@Override
+	public double zincrby(String key, String value, double score) {
+		try{
+			return redisClient.zincrby(key, value, score);
+		}finally{
+			invalidate(key);
+		}
+	}
+
+	@Override
+	public Set<byte[]> zrevrange(String key, long start, long end) {
+		return redisClient.zrevrange(key, start, end);
+	}
+
+	@Override
+	public Set<String> zrevrangeString(String key, long start, long end) {
+		return redisClient.zrevrangeString(key, start, end);
+	}
+
+	@Override
+	public Double zscore(String key, String value) {
+		return redisClient.zscore(key, value);
+	}
+
+	@Override
+	public List<String> sortString(String key) {
+		return redisClient.sortString(key);
+	}
+
+	@Override
+	public List<byte[]> sort(String key) {
+		return redisClient.sort(key);
+	}
+
+	@Override
+	public List<String> sortString(String key, SortOrder sortOrder) {
+		return redisClient.sortString(key, sortOrder);
+	}
+
+	@Override
+	public List<byte[]> sort(String key, SortOrder sortOrder) {
+		return redisClient.sort(key, sortOrder);
+	}
+
+	@Override
+	public List<String> sortString(String key, SortingParams sortingParams) {
+		return redisClient.sortString(key, sortingParams);
+	}
+
+	@Override
+	public List<byte[]> sort(String key, SortingParams sortingParams) {
+		return redisClient.sort(key, sortingParams);
+	}
+
+	@Override
+	public boolean msetexString(Map<String, String> keyValues, int expires) {
+		try{
+			return redisClient.msetexString(keyValues, expires);
+		}finally{
+			invalidate(keyValues.keySet());
+		}
+	}
+
+	@Override
+	public boolean msetex(Map<String, byte[]> keyValues, int expires) {
+		try{
+			return redisClient.msetex(keyValues, expires);
+		}finally{
+			invalidate(keyValues.keySet());
+		}
+	}
+
+	@Override
+	public long mdelete(Collection<String> keys) {
+		try{
+			return redisClient.mdelete(keys);
+		}finally{
+			invalidate(keys);
+		}
+	}
+
+	private long[] generations(List<String> keys){
+		long[] generations = new long[keys.size()];
+		for(int i = 0; i < keys.size(); i++){
+			generations[i] = nearCache.generation(keys.get(i));
+		}
+		return generations;
+	}
+
+	/**
+	 * 放入近端缓存，刚被其他实例修改的键不放入：此时从节点可能还没有复制到新值，读到的可能是旧值。
+	 */
+	private void cache(String key, Object view, Object value, int weight, long generation){
+		NearCacheInvalidator invalidator = this.invalidator;
+		if(invalidator != null && invalidator.isRecentlyInvalidated(key)){
+			return;
+		}
+		nearCache.put(key, view, value, weight, generation);
+	}
+
+	private void invalidate(String key){
+		nearCache.invalidate(key);
+		NearCacheInvalidator invalidator = this.invalidator;
+		if(invalidator != null){
+			invalidator.publish(key);
+		}
+	}
+
+	private void invalidate(Collection<String> keys){
+		if(keys == null){
+			return;
+		}
+		for(String key : keys){
+			invalidate(key);
+		}
+	}
+	
+	private static int weightOf(String value){
+		return value == null ? 0 : value.length() * 2;
+	}
+	
+	private static int weightOf(byte[] value){
+		return value == null ? 0 : value.length;
+	}
+	
+	/**
+	 * hash字段的读取方式。
+	 */
+	private static final class FieldView {
+		
+		private final String field;
+		
+		private final boolean binary;
+		
+		FieldView(String field, boolean binary) {
+			this.field = field;
+			this.binary = binary;
+		}
+
+		@Override
+		public int hashCode() {
+			return field == null ? 0 : field.hashCode() * 31 + (binary ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof FieldView)){
+				return false;
+			}
+			FieldView other = (FieldView) obj;
+			return binary == other.binary && (field == null ? other.field == null : field.equals(other.field));
+		}
+		
+	}
+	
+}
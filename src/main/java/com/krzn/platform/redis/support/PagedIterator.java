@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.krzn.platform.redis.RedisClientRuntimeException;
+
+import redis.clients.jedis.JedisShardInfo;
+
+/**
+ * 按下标分页读取列表、有序集合的迭代器。
+ * <p>每次读取pageSize个元素，当前页读到之后立即在后台预读下一页，调用方处理当前页时下一页已在传输中，
+ * 内存中最多有两页数据，单次命令的耗时也以一页为上限。
+ * 后台线程繁忙或没有设置线程池时，下一页在当前页消费完之后同步读取。
+ * <p>按下标分页，遍历期间在前部插入或删除元素会导致元素重复返回或遗漏。
+ * <p>读取第一页时选定节点，之后的每一页(包括预读)都在同一个节点上读取，
+ * 避免各页分别从复制进度不同的从节点读取，下标错位而重复返回或遗漏元素。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月03日
+ */
+public abstract class PagedIterator<T> implements Iterator<T> {
+
+	/**
+	 * 默认的预读线程池，最多16个线程，没有空闲线程时不预读。
+	 */
+	public static final ExecutorService DEFAULT_EXECUTOR = new ThreadPoolExecutor(0, 16, 60, TimeUnit.SECONDS,
+			new SynchronousQueue<Runnable>(), new ThreadFactoryBuilder().setNameFormat("redis-page-prefetch-%d").setDaemon(true).build());
+
+	private final int pageSize;
+
+	/**
+	 * 预读下一页的线程池，为null时不预读。
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * 下一页的起始下标。
+	 */
+	private long offset = 0;
+
+	private Iterator<T> page = Collections.<T>emptyList().iterator();
+
+	/**
+	 * 预读中的下一页。
+	 */
+	private Future<List<T>> prefetched;
+
+	private boolean lastPage = false;
+
+	/**
+	 * 遍历所在的节点，读取第一页时选定。
+	 */
+	private JedisShardInfo node;
+
+	/**
+	 * @param pageSize 每页的元素个数。
+	 * @param executor 预读下一页的线程池，为null时不预读。
+	 */
+	protected PagedIterator(int pageSize, ExecutorService executor) {
+		if(pageSize <= 0){
+			throw new IllegalArgumentException("pageSize must be positive!");
+		}
+		this.pageSize = pageSize;
+		this.executor = executor;
+	}
+
+	/**
+	 * 选择遍历所在的节点，只在读取第一页前调用一次。
+	 */
+	protected abstract JedisShardInfo selectNode();
+
+	/**
+	 * 在选定的节点上读取一页，可能在预读线程中调用。
+	 * 
+	 * @param node 遍历所在的节点。
+	 * @param start 起始下标。
+	 * @param end 结束下标，包含在内。
+	 * @return 本页的元素，少于pageSize个时表示已经读完。
+	 */
+	protected abstract List<T> fetch(JedisShardInfo node, long start, long end);
+
+	@Override
+	public boolean hasNext() {
+		while(!page.hasNext()){
+			if(lastPage){
+				return false;
+			}
+			List<T> elements = nextPage();
+			lastPage = elements.size() < pageSize;
+			page = elements.iterator();
+			if(!lastPage){
+				prefetch();
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if(!hasNext()){
+			throw new NoSuchElementException();
+		}
+		return page.next();
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("remove of PagedIterator is not supported!");
+	}
+
+	/**
+	 * 遍历所在的节点，还没有读取第一页时为null。
+	 */
+	public JedisShardInfo getNode() {
+		return node;
+	}
+
+	private List<T> nextPage() {
+		Future<List<T>> future = prefetched;
+		prefetched = null;
+		if(future == null){
+			if(node == null){
+				node = selectNode();
+			}
+			long start = offset;
+			offset += pageSize;
+			return fetch(node, start, start + pageSize - 1);
+		}
+		try {
+			return Uninterruptibles.getUninterruptibly(future);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException) cause;
+			}
+			if(cause instanceof Error){
+				throw (Error) cause;
+			}
+			throw new RedisClientRuntimeException(cause);
+		}
+	}
+
+	private void prefetch() {
+		if(executor == null){
+			return;
+		}
+		final JedisShardInfo node = this.node;
+		final long start = offset;
+		FutureTask<List<T>> task = new FutureTask<List<T>>(new Callable<List<T>>() {
+			@Override
+			public List<T> call() {
+				return fetch(node, start, start + pageSize - 1);
+			}
+		});
+		try{
+			executor.execute(task);
+		}catch(RejectedExecutionException e){
+			//没有空闲线程，消费完当前页之后同步读取。
+			return;
+		}
+		offset += pageSize;
+		prefetched = task;
+	}
+
+}
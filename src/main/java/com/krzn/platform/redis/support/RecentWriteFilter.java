@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 最近写过的键，用于读己之写。
+ * <p>开启读写分离时，写入之后立即从从节点读取可能读到旧值。写过的键在一个复制时间窗口内记录下来，
+ * 这些键的读请求发往主节点，其他读请求仍发往从节点。
+ * <p>键记录在按时间分段的布隆过滤器中：当前时间段和上一个时间段各一个过滤器，时间段结束时丢弃更早的过滤器，
+ * 写过的键在一到两个时间窗口内都能查到。内存占用固定，与写入的键数无关；误判只会使少量读请求发往主节点。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月08日
+ */
+public class RecentWriteFilter {
+
+	/**
+	 * 默认的时间窗口，单位毫秒，应大于从节点的复制延迟。
+	 */
+	public static final long DEFAULT_WINDOW_MILLIS = 1000;
+
+	/**
+	 * 默认每个时间窗口内写入的键数。
+	 */
+	public static final int DEFAULT_EXPECTED_WRITES = 100000;
+
+	/**
+	 * 哈希函数个数，每个键约10个比特时误判率约1%。
+	 */
+	private static final int HASHES = 7;
+
+	private final long windowMillis;
+
+	/**
+	 * 每个过滤器的比特数，为2的幂。
+	 */
+	private final int bits;
+
+	private volatile Bucket current;
+
+	private volatile Bucket previous;
+
+	public RecentWriteFilter() {
+		this(DEFAULT_WINDOW_MILLIS, DEFAULT_EXPECTED_WRITES);
+	}
+
+	/**
+	 * @param windowMillis 时间窗口，单位毫秒，应大于从节点的复制延迟。
+	 * @param expectedWrites 每个时间窗口内写入的键数，超出时误判率上升。
+	 */
+	public RecentWriteFilter(long windowMillis, int expectedWrites) {
+		if(windowMillis <= 0 || expectedWrites <= 0){
+			throw new IllegalArgumentException("windowMillis and expectedWrites of RecentWriteFilter must be positive!");
+		}
+		this.windowMillis = windowMillis;
+		this.bits = Integer.highestOneBit(Math.max(64, (int) Math.min(1 << 29, expectedWrites * 10L)) * 2 - 1);
+		long start = System.currentTimeMillis();
+		this.current = new Bucket(start, bits);
+		this.previous = new Bucket(start - windowMillis, bits);
+	}
+
+	/**
+	 * 记录写过的键。
+	 */
+	public void add(String key) {
+		Bucket bucket = bucket(System.currentTimeMillis());
+		long hash = mix(key.hashCode());
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32) | 1;
+		for(int i = 0; i < HASHES; i++){
+			bucket.set((h1 + i * h2) & (bits - 1));
+		}
+	}
+
+	/**
+	 * 键是否在最近的时间窗口内写过，可能误判为写过，不会误判为没有写过。
+	 */
+	public boolean contains(String key) {
+		Bucket bucket = bucket(System.currentTimeMillis());
+		long hash = mix(key.hashCode());
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32) | 1;
+		return bucket.containsAll(h1, h2, bits - 1) || previous.containsAll(h1, h2, bits - 1);
+	}
+
+	/**
+	 * 获取当前时间所在的过滤器，时间段结束时轮换。
+	 */
+	private Bucket bucket(long now) {
+		Bucket bucket = current;
+		if(now < bucket.start + windowMillis){
+			return bucket;
+		}
+		synchronized (this) {
+			bucket = current;
+			if(now >= bucket.start + windowMillis){
+				//相邻的时间段保留上一个过滤器，中间有空闲的时间段时全部丢弃。
+				previous = now < bucket.start + 2 * windowMillis ? bucket : new Bucket(now - windowMillis, bits);
+				bucket = new Bucket(now, bits);
+				current = bucket;
+			}
+			return bucket;
+		}
+	}
+
+	/**
+	 * fmix64，将32位的哈希值扩散为两个独立的32位哈希值。
+	 */
+	private static long mix(int hashCode) {
+		long h = hashCode;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	public long getWindowMillis() {
+		return windowMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "RecentWriteFilter [windowMillis=" + windowMillis + ", bits=" + bits + "]";
+	}
+
+	/**
+	 * 一个时间段的布隆过滤器。
+	 */
+	private static final class Bucket {
+
+		private final long start;
+
+		private final AtomicLongArray words;
+
+		Bucket(long start, int bits) {
+			this.start = start;
+			this.words = new AtomicLongArray(bits >>> 6);
+		}
+
+		void set(int bit) {
+			int index = bit >>> 6;
+			long mask = 1L << bit;
+			long word;
+			do{
+				word = words.get(index);
+				if((word & mask) != 0){
+					return;
+				}
+			}while(!words.compareAndSet(index, word, word | mask));
+		}
+
+		boolean containsAll(int h1, int h2, int bitMask) {
+			for(int i = 0; i < HASHES; i++){
+				int bit = (h1 + i * h2) & bitMask;
+				if((words.get(bit >>> 6) & (1L << bit)) == 0){
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.io.Closeable;
+
+import redis.clients.jedis.JedisShardInfo;
+
+/**
+ * 节点级的命令传输层。
+ * <p>模板完成分片和主从选择后，将CoalescableJedisCallback交给传输层在选中的节点上执行，
+ * 不再从连接池中申请连接。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月21日
+ * @see CommandCoalescer
+ */
+public interface RedisTransport extends Closeable {
+
+	/**
+	 * 在指定节点上执行命令，阻塞直到得到该命令的回复。
+	 * 
+	 * @param node 节点配置。
+	 * @param callback 可合并执行的回调。
+	 * @return 回调返回值。
+	 */
+	<T, R> R execute(JedisShardInfo node, CoalescableJedisCallback<T, R> callback);
+	
+	/**
+	 * 关闭传输层持有的所有连接。
+	 */
+	@Override
+	void close();
+	
+}
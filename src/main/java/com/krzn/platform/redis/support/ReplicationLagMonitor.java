@@ -0,0 +1,418 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.krzn.platform.redis.RedisClientStatistic;
+import com.krzn.platform.redis.RedisClientStatistic.ReplicationLag;
+import com.krzn.platform.redis.jedis.JedisGroupShardInfo;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+
+/**
+ * 从节点的复制延迟监控。
+ * <p>后台线程定时对每个分片先查询主节点、再查询各从节点的INFO replication，
+ * 比较主节点的master_repl_offset和从节点的slave_repl_offset得到落后的字节数。
+ * 主节点最近的偏移量按时间记录下来，从节点的偏移量对应主节点哪个时刻的偏移量，就落后了多长时间。
+ * 该时刻在相邻两次记录之间按写入速度均匀估算，写入不均匀时误差在一个查询间隔以内，延迟上限应为查询间隔的数倍。
+ * <p>所有分片由同一个后台线程依次查询，查询连接使用单独的较短超时，单个节点无响应时不会拖慢其他分片的查询。
+ * <p>落后时间超过上限、复制连接断开或查询失败的从节点不参与负载均衡，读请求发往同组的其他从节点或主节点。
+ * 各从节点当前的延迟记录在RedisClientStatistic中。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月07日
+ */
+public class ReplicationLagMonitor implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReplicationLagMonitor.class);
+
+	/**
+	 * 默认的查询间隔，单位毫秒。
+	 */
+	public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+	/**
+	 * 默认的延迟上限，单位毫秒，为默认查询间隔的3倍。
+	 */
+	public static final long DEFAULT_MAX_LAG_MILLIS = 3 * DEFAULT_INTERVAL_MILLIS;
+
+	/**
+	 * 默认的查询连接超时，单位毫秒。
+	 */
+	public static final int DEFAULT_SOCKET_TIMEOUT_MILLIS = 200;
+
+	/**
+	 * 每个主节点保留的偏移量记录个数。
+	 */
+	private static final int HISTORY_SIZE = 64;
+
+	private final long intervalMillis;
+
+	private final long maxLagMillis;
+
+	private final int socketTimeoutMillis;
+
+	private final List<GroupState> groups = new ArrayList<GroupState>();
+
+	/**
+	 * 各从节点的状态，以"host:port"为键。
+	 */
+	private final ConcurrentMap<String, SlaveState> slaves = new ConcurrentHashMap<String, SlaveState>();
+
+	/**
+	 * 超过延迟上限的从节点个数，为0时不需要过滤候选节点。
+	 */
+	private final AtomicInteger laggingCount = new AtomicInteger();
+
+	private RedisClientStatistic statistic;
+
+	private ScheduledExecutorService scheduler;
+
+	private volatile boolean started = false;
+
+	public ReplicationLagMonitor() {
+		this(DEFAULT_INTERVAL_MILLIS, DEFAULT_MAX_LAG_MILLIS);
+	}
+
+	/**
+	 * @param intervalMillis 查询间隔，单位毫秒。
+	 * @param maxLagMillis 延迟上限，单位毫秒，落后超过该值的从节点不参与负载均衡。
+	 */
+	public ReplicationLagMonitor(long intervalMillis, long maxLagMillis) {
+		this(intervalMillis, maxLagMillis, DEFAULT_SOCKET_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * @param intervalMillis 查询间隔，单位毫秒。
+	 * @param maxLagMillis 延迟上限，单位毫秒，落后超过该值的从节点不参与负载均衡。
+	 * @param socketTimeoutMillis 查询连接的连接和读超时，单位毫秒，与业务连接的超时无关。
+	 */
+	public ReplicationLagMonitor(long intervalMillis, long maxLagMillis, int socketTimeoutMillis) {
+		if(intervalMillis <= 0 || maxLagMillis <= 0 || socketTimeoutMillis <= 0){
+			throw new IllegalArgumentException("intervalMillis, maxLagMillis and socketTimeoutMillis of ReplicationLagMonitor must be positive!");
+		}
+		this.intervalMillis = intervalMillis;
+		this.maxLagMillis = maxLagMillis;
+		this.socketTimeoutMillis = socketTimeoutMillis;
+	}
+
+	/**
+	 * 登记所有分片并开始定时查询，重复调用时忽略。
+	 * <p>第一次查询完成之前所有从节点都视为没有延迟。
+	 * 
+	 * @param groupShardInfos 所有分片的信息。
+	 * @param statistic 记录复制延迟的统计，可以为null。
+	 */
+	public synchronized void start(Collection<JedisGroupShardInfo> groupShardInfos, RedisClientStatistic statistic) {
+		if(started){
+			return;
+		}
+		this.statistic = statistic;
+		for(JedisGroupShardInfo groupShardInfo : groupShardInfos){
+			List<JedisShardInfo> slaveInfos = groupShardInfo.getSlaveInfos();
+			if(slaveInfos == null || slaveInfos.isEmpty()){
+				continue;
+			}
+			GroupState group = new GroupState(new InfoConnection(groupShardInfo.getMasterInfo(), socketTimeoutMillis));
+			for(JedisShardInfo slaveInfo : slaveInfos){
+				SlaveState slave = new SlaveState(new InfoConnection(slaveInfo, socketTimeoutMillis));
+				group.slaves.add(slave);
+				slaves.putIfAbsent(SlaveHealthChecker.addressOf(slaveInfo.getHost(), slaveInfo.getPort()), slave);
+			}
+			groups.add(group);
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactoryBuilder().setNameFormat("redis-replication-lag-monitor-%d").setDaemon(true).build());
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				pollAll();
+			}
+		}, 0, intervalMillis, TimeUnit.MILLISECONDS);
+		started = true;
+	}
+
+	public boolean isStarted() {
+		return started;
+	}
+
+	/**
+	 * 过滤掉延迟超过上限的从节点，候选节点可以是Jedis、JedisNodePool或JedisShardInfo。
+	 * 
+	 * @param candidates 一组从节点。
+	 * @return 延迟在上限以内的从节点，没有从节点超过上限时直接返回candidates。
+	 */
+	public <T> List<T> withinLag(List<T> candidates) {
+		if(laggingCount.get() == 0){
+			return candidates;
+		}
+		List<T> result = new ArrayList<T>(candidates.size());
+		for(T candidate : candidates){
+			SlaveState slave = slaves.get(SlaveHealthChecker.addressOf(candidate));
+			if(slave == null || !slave.lagging){
+				result.add(candidate);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 获取从节点最近一次查询到的复制延迟，还没有查询到时返回null。
+	 */
+	public ReplicationLag getLag(JedisShardInfo slave) {
+		SlaveState state = slaves.get(SlaveHealthChecker.addressOf(slave.getHost(), slave.getPort()));
+		return state == null ? null : state.lag;
+	}
+
+	/**
+	 * 查询所有分片，由后台线程调用。
+	 */
+	private void pollAll() {
+		for(GroupState group : groups){
+			try{
+				poll(group);
+			}catch(Throwable e){
+				logger.warn("poll replication offsets of redis master " + group.master + " failed!", e);
+			}
+		}
+	}
+
+	private void poll(GroupState group) {
+		long masterOffset;
+		try{
+			masterOffset = parseOffset(group.master.info(), "master_repl_offset");
+		}catch(RuntimeException e){
+			//主节点不可用时保留从节点上次的状态。
+			group.master.close();
+			throw e;
+		}
+		long now = System.currentTimeMillis();
+		group.addSample(now, masterOffset);
+		for(SlaveState slave : group.slaves){
+			ReplicationLag lag;
+			try{
+				String info = slave.connection.info();
+				if(!"up".equals(parseField(info, "master_link_status"))){
+					lag = new ReplicationLag(false, -1, -1);
+				}else{
+					long slaveOffset = parseOffset(info, "slave_repl_offset");
+					long lagBytes = Math.max(0, masterOffset - slaveOffset);
+					lag = new ReplicationLag(true, lagBytes, lagBytes == 0 ? 0 : now - group.timeAfter(slaveOffset));
+				}
+			}catch(RuntimeException e){
+				slave.connection.close();
+				lag = new ReplicationLag(false, -1, -1);
+			}
+			update(slave, lag);
+		}
+	}
+
+	private void update(SlaveState slave, ReplicationLag lag) {
+		slave.lag = lag;
+		boolean lagging = !lag.isLinkUp() || lag.getLagMillis() > maxLagMillis;
+		if(lagging != slave.lagging){
+			slave.lagging = lagging;
+			if(lagging){
+				laggingCount.incrementAndGet();
+				logger.warn("redis slave " + slave.connection + " is lagging behind: " + lag + ".");
+			}else{
+				laggingCount.decrementAndGet();
+				logger.info("redis slave " + slave.connection + " caught up: " + lag + ".");
+			}
+		}
+		RedisClientStatistic current = statistic;
+		if(current != null){
+			current.recordReplicationLag(slave.connection.shardInfo, lag);
+		}
+	}
+
+	private static long parseOffset(String info, String field) {
+		String value = parseField(info, field);
+		if(value == null){
+			throw new IllegalStateException(field + " not found in INFO replication!");
+		}
+		return Long.parseLong(value);
+	}
+
+	/**
+	 * 从INFO的输出中取出一个字段的值，每行为"字段:值"的形式。
+	 */
+	private static String parseField(String info, String field) {
+		int index = 0;
+		while(true){
+			index = info.indexOf(field + ":", index);
+			if(index < 0){
+				return null;
+			}
+			if(index == 0 || info.charAt(index - 1) == '\n'){
+				break;
+			}
+			index += field.length();
+		}
+		int start = index + field.length() + 1;
+		int end = start;
+		while(end < info.length() && info.charAt(end) != '\r' && info.charAt(end) != '\n'){
+			end++;
+		}
+		return info.substring(start, end);
+	}
+
+	/**
+	 * 停止查询并关闭查询连接。
+	 */
+	@Override
+	public synchronized void close() {
+		if(scheduler != null){
+			scheduler.shutdownNow();
+			try {
+				scheduler.awaitTermination(intervalMillis, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		for(GroupState group : groups){
+			group.master.close();
+			for(SlaveState slave : group.slaves){
+				slave.connection.close();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ReplicationLagMonitor [maxLagMillis=" + maxLagMillis + ", lagging=" + laggingCount.get() + "]";
+	}
+
+	/**
+	 * 查询INFO replication用的连接，断开后下次查询时重连，只由查询线程访问。
+	 */
+	private static final class InfoConnection {
+
+		private final JedisShardInfo shardInfo;
+
+		private final int timeoutMillis;
+
+		private Jedis jedis;
+
+		InfoConnection(JedisShardInfo shardInfo, int timeoutMillis) {
+			this.shardInfo = shardInfo;
+			this.timeoutMillis = timeoutMillis;
+		}
+
+		String info() {
+			if(jedis == null){
+				jedis = new Jedis(shardInfo);
+				//连接前覆盖分片配置的超时，业务连接的超时通常较长。
+				jedis.getClient().setConnectionTimeout(timeoutMillis);
+				jedis.getClient().setSoTimeout(timeoutMillis);
+			}
+			return jedis.info("replication");
+		}
+
+		void close() {
+			if(jedis != null){
+				try{
+					jedis.close();
+				}catch(RuntimeException e){
+					//连接已不可用，忽略。
+				}
+				jedis = null;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return shardInfo.getHost() + ":" + shardInfo.getPort();
+		}
+
+	}
+
+	/**
+	 * 一个分片的主节点和最近的偏移量记录。
+	 */
+	private static final class GroupState {
+
+		private final InfoConnection master;
+
+		private final List<SlaveState> slaves = new ArrayList<SlaveState>();
+
+		private final long[] times = new long[HISTORY_SIZE];
+
+		private final long[] offsets = new long[HISTORY_SIZE];
+
+		/**
+		 * 记录的总次数，最近的记录在(count - 1) % HISTORY_SIZE。
+		 */
+		private int count;
+
+		GroupState(InfoConnection master) {
+			this.master = master;
+		}
+
+		void addSample(long time, long offset) {
+			int index = count % HISTORY_SIZE;
+			times[index] = time;
+			offsets[index] = offset;
+			count++;
+		}
+
+		/**
+		 * 估算主节点的偏移量达到offset的时间，从节点缺少的数据都是这一时刻之后写入的。
+		 * 在不超过offset的最近一次记录和其后一次记录之间按偏移量线性插值，
+		 * 记录中的偏移量都超过offset时取最早的记录时间，估算的落后时间偏小。
+		 */
+		long timeAfter(long offset) {
+			int size = Math.min(count, HISTORY_SIZE);
+			int after = (count - 1) % HISTORY_SIZE;
+			for(int i = count - 1; i >= count - size; i--){
+				int index = i % HISTORY_SIZE;
+				if(offsets[index] <= offset){
+					if(offsets[after] <= offset){
+						return times[after];
+					}
+					double ratio = (double) (offset - offsets[index]) / (offsets[after] - offsets[index]);
+					return times[index] + Math.round(ratio * (times[after] - times[index]));
+				}
+				after = index;
+			}
+			return times[after];
+		}
+
+	}
+
+	/**
+	 * 一个从节点的状态。
+	 */
+	private static final class SlaveState {
+
+		private final InfoConnection connection;
+
+		private volatile ReplicationLag lag;
+
+		private volatile boolean lagging = false;
+
+		SlaveState(InfoConnection connection) {
+			this.connection = connection;
+		}
+
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+/**
+ * 基于游标的SCAN系列命令的迭代器。
+ * <p>当前页遍历完之后才用上次返回的游标读取下一页，内存中最多只有一页数据，
+ * 调用方消费得慢时不会继续读取，每页的大小由COUNT提示决定。
+ * <p>遵循SCAN的语义：遍历期间一直存在的元素至少返回一次，可能重复返回，遍历期间增删的元素不保证返回。
+ * <p>游标只在发出它的节点上有效，读取第一页时选定节点，之后的每一页都在同一个节点上读取。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月02日
+ */
+public abstract class ScanIterator<T> implements Iterator<T> {
+
+	/**
+	 * 开始和结束时的游标。
+	 */
+	public static final String START_CURSOR = ScanParams.SCAN_POINTER_START;
+
+	private String cursor = START_CURSOR;
+
+	private boolean finished = false;
+
+	private Iterator<T> page = Collections.<T>emptyList().iterator();
+
+	/**
+	 * 遍历所在的节点，读取第一页时选定。
+	 */
+	private JedisShardInfo node;
+
+	/**
+	 * 选择遍历所在的节点，只在读取第一页前调用一次。
+	 */
+	protected abstract JedisShardInfo selectNode();
+
+	/**
+	 * 在选定的节点上读取一页。
+	 * 
+	 * @param node 遍历所在的节点。
+	 * @param cursor 游标，第一页为START_CURSOR。
+	 * @return 本页的数据和下一页的游标。
+	 */
+	protected abstract ScanResult<T> scan(JedisShardInfo node, String cursor);
+
+	@Override
+	public boolean hasNext() {
+		//一页可能为空，需要继续读取直到有数据或游标回到起点。
+		while(!page.hasNext()){
+			if(finished){
+				return false;
+			}
+			if(node == null){
+				node = selectNode();
+			}
+			ScanResult<T> result = scan(node, cursor);
+			cursor = result.getStringCursor();
+			finished = START_CURSOR.equals(cursor);
+			page = result.getResult().iterator();
+		}
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if(!hasNext()){
+			throw new NoSuchElementException();
+		}
+		return page.next();
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("remove of ScanIterator is not supported!");
+	}
+
+	/**
+	 * 下一页的游标，遍历结束时为START_CURSOR。
+	 */
+	public String getCursor() {
+		return cursor;
+	}
+
+	/**
+	 * 遍历所在的节点，还没有读取第一页时为null。
+	 */
+	public JedisShardInfo getNode() {
+		return node;
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.krzn.platform.redis.RedisClientRuntimeException;
+import com.krzn.platform.redis.RedisClientTimeoutException;
+
+/**
+ * 分片批量请求的并行执行器。
+ * <p>将多键请求拆分后的各分片子请求同时发送到对应节点，合并结果，并对整个请求使用一个总的超时时间，
+ * 宽扇出请求的延迟接近于最慢的单个分片，而不是所有分片之和。
+ * <p>线程数和队列长度都是有界的，队列满时请求直接以超时失败，不在调用线程中执行子请求，总的超时时间对所有子请求都有效。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月14日
+ */
+public class ScatterGatherExecutor implements Closeable{
+
+	/**
+	 * 默认超时时间(毫秒)。
+	 */
+	public static final long DEFAULT_TIMEOUT_MILLIS = 2000;
+	
+	/**
+	 * 执行子请求的线程池。
+	 */
+	private final ThreadPoolExecutor executor;
+	
+	/**
+	 * 整个请求的超时时间(毫秒)。
+	 */
+	private final long timeoutMillis;
+	
+	public ScatterGatherExecutor(int threads) {
+		this(threads, threads * 16, DEFAULT_TIMEOUT_MILLIS);
+	}
+	
+	public ScatterGatherExecutor(int threads, int queueSize, long timeoutMillis) {
+		if(threads <= 0 || queueSize <= 0){
+			throw new IllegalArgumentException("threads and queueSize of ScatterGatherExecutor must be positive!");
+		}
+		if(timeoutMillis <= 0){
+			throw new IllegalArgumentException("timeoutMillis of ScatterGatherExecutor must be positive!");
+		}
+		this.timeoutMillis = timeoutMillis;
+		this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize),
+				new ThreadFactoryBuilder().setNameFormat("redis-scatter-gather-%d").setDaemon(true).build(),
+				new ThreadPoolExecutor.AbortPolicy());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * 并行执行一组子请求，并按顺序返回各子请求的结果。
+	 * 
+	 * @param tasks 子请求。
+	 * @return 与tasks一一对应的结果。
+	 * @throws RedisClientTimeoutException 如果在超时时间内没有全部完成，未完成的子请求会被取消；队列已满时也立即抛出。
+	 * @throws RedisClientRuntimeException 如果任意一个子请求发生异常。
+	 */
+	public <T> List<T> invokeAll(List<? extends Callable<T>> tasks){
+		List<Future<T>> futures = null;
+		try {
+			futures = executor.invokeAll(tasks, timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			//已提交的子请求由invokeAll取消。
+			throw new RedisClientTimeoutException("scatter-gather executor is saturated, request rejected!", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RedisClientRuntimeException("scatter-gather request interrupted!", e);
+		}
+		List<T> results = new ArrayList<T>(futures.size());
+		for(Future<T> future : futures){
+			try {
+				results.add(future.get());
+			} catch (CancellationException e) {
+				throw new RedisClientTimeoutException("scatter-gather request timeout after " + timeoutMillis + "ms!", e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RedisClientRuntimeException("scatter-gather request interrupted!", e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if(cause instanceof RuntimeException){
+					throw (RuntimeException) cause;
+				}
+				throw new RedisClientRuntimeException(cause);
+			}
+		}
+		return results;
+	}
+
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * 关闭执行器。
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+	
+}
@@ -0,0 +1,1146 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.krzn.platform.redis.*;
+import com.krzn.platform.redis.jedis.JedisGroupShardInfo;
+
+import redis.clients.jedis.SortingParams;
+import redis.clients.jedis.Tuple;
+
+/**
+ * 基于ShardedRedisClient实现的异步RedisClient。
+ * <p>每个分片拥有threadsPerShard个执行线程，每个线程有独立的有界命令队列，单键命令按键的哈希值固定进入其中一个队列，
+ * 同一个键的命令按提交顺序依次执行，例如先提交的set一定在之后提交的get之前完成。
+ * 跨分片的批量命令使用单独的线程池，与单键命令之间、批量命令相互之间都不保证顺序。
+ * <p>队列满时不阻塞调用线程，返回的future直接以RedisClientRuntimeException失败。
+ * <p>命令由传入的ShardedRedisClient执行，压缩、预读等设置与同步调用一致。
+ * <p>注意：本实现只是把同步客户端包装到线程池中，命令仍然在执行线程中阻塞等待响应，
+ * 并不能减少线程数。每个分片占用threadsPerShard个执行线程，批量命令再占用threadsPerShard个，
+ * 即总线程数为(分片数 + 1) * threadsPerShard，单个分片的并发度也不超过threadsPerShard。
+ * 需要以少量线程承载大量并发请求时，应在模板上配置NioTransport(见ShardedJedisTemplate#setTransport)，
+ * 由同步客户端直接使用。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月17日
+ */
+public class ShardedAsyncRedisClient implements AsyncRedisClient, Closeable {
+
+	/**
+	 * 每个分片默认的执行线程数，也是单个分片上同时执行的命令数上限。
+	 */
+	public static final int DEFAULT_THREADS_PER_SHARD = 4;
+	
+	/**
+	 * 每个分片默认的队列长度。
+	 */
+	public static final int DEFAULT_QUEUE_SIZE_PER_SHARD = 1024;
+	
+	/**
+	 * 实际执行命令的同步客户端，其模板用于计算分片。
+	 */
+	private final ShardedRedisClient redisClient;
+	
+	/**
+	 * 每个分片的执行线程数。
+	 */
+	private final int threadsPerShard;
+	
+	/**
+	 * 每个执行线程的队列长度，由每个分片的队列长度平均分配。
+	 */
+	private final int queueSizePerThread;
+	
+	/**
+	 * 分片与其各执行线程的映射。
+	 */
+	private final ConcurrentMap<JedisGroupShardInfo, ListeningExecutorService[]> shardExecutors = new ConcurrentHashMap<JedisGroupShardInfo, ListeningExecutorService[]>();
+	
+	/**
+	 * 跨分片批量命令的线程池。
+	 */
+	private final ListeningExecutorService batchExecutor;
+	
+	/**
+	 * @param redisClient 执行命令的同步客户端，通常就是应用中使用的客户端。
+	 */
+	public ShardedAsyncRedisClient(ShardedRedisClient redisClient) {
+		this(redisClient, DEFAULT_THREADS_PER_SHARD, DEFAULT_QUEUE_SIZE_PER_SHARD);
+	}
+	
+	/**
+	 * @param redisClient 执行命令的同步客户端，通常就是应用中使用的客户端。
+	 * @param threadsPerShard 每个分片的执行线程数。
+	 * @param queueSizePerShard 每个分片的队列长度，平均分给各执行线程。
+	 */
+	public ShardedAsyncRedisClient(ShardedRedisClient redisClient, int threadsPerShard, int queueSizePerShard) {
+		super();
+		if(redisClient == null || redisClient.getTemplate() == null){
+			throw new IllegalArgumentException("redisClient and its template can't be null！");
+		}
+		if(threadsPerShard <= 0 || queueSizePerShard <= 0){
+			throw new IllegalArgumentException("threadsPerShard and queueSizePerShard must be positive!");
+		}
+		this.redisClient = redisClient;
+		this.threadsPerShard = threadsPerShard;
+		this.queueSizePerThread = Math.max(1, queueSizePerShard / threadsPerShard);
+		this.batchExecutor = newExecutor("batch", threadsPerShard, queueSizePerShard);
+	}
+
+	/**
+	 * 将命令提交到键所在分片、按键的哈希值选出的执行线程的队列中。
+	 */
+	private <T> ListenableFuture<T> submit(String key, Callable<T> command) {
+		if(key == null || key.trim().length() == 0){
+			return Futures.immediateFailedFuture(new IllegalArgumentException("key set to redis can't be null!"));
+		}
+		JedisGroupShardInfo shardInfo = redisClient.getTemplate().getShardInfo(key);
+		ListeningExecutorService[] executors = shardExecutors.get(shardInfo);
+		if(executors == null){
+			ListeningExecutorService[] newExecutors = new ListeningExecutorService[threadsPerShard];
+			String name = shardInfo.getMasterInfo().getHost() + ":" + shardInfo.getMasterInfo().getPort();
+			for(int i = 0; i < threadsPerShard; i++){
+				newExecutors[i] = newExecutor(name, 1, queueSizePerThread);
+			}
+			executors = shardExecutors.putIfAbsent(shardInfo, newExecutors);
+			if(executors == null){
+				executors = newExecutors;
+			}else{
+				for(ListeningExecutorService executor : newExecutors){
+					executor.shutdown();
+				}
+			}
+		}
+		return submit(executors[(key.hashCode() & Integer.MAX_VALUE) % executors.length], command);
+	}
+
+	/**
+	 * 将跨分片的批量命令提交到批量命令线程池中。
+	 */
+	private <T> ListenableFuture<T> submit(Callable<T> command) {
+		return submit(batchExecutor, command);
+	}
+	
+	private <T> ListenableFuture<T> submit(ListeningExecutorService executor, Callable<T> command) {
+		try {
+			return executor.submit(command);
+		} catch (RejectedExecutionException e) {
+			return Futures.immediateFailedFuture(new RedisClientRuntimeException("the command queue of redis client is full!", e));
+		}
+	}
+	
+	private static ListeningExecutorService newExecutor(String name, int threads, int queueSize) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, java.util.concurrent.TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize),
+				new ThreadFactoryBuilder().setNameFormat("redis-async-" + name + "-%d").setDaemon(true).build(),
+				new ThreadPoolExecutor.AbortPolicy());
+		return MoreExecutors.listeningDecorator(executor);
+	}
+
+	@Override
+	public RedisClientStatistic getStatistic() {
+		return redisClient.getStatistic();
+	}
+
+	/**
+	 * 关闭所有命令队列，已入队的命令会继续执行完成。
+	 */
+	@Override
+	public void close() {
+		for(ListeningExecutorService[] executors : shardExecutors.values()){
+			for(ListeningExecutorService executor : executors){
+				executor.shutdown();
+			}
+		}
+		batchExecutor.shutdown();
+	}
+
+	@Override
+	public ListenableFuture<Void> set(final String key, final String value) {
+		return submit(key, new Callable<Void>() {
+			@Override
+			public Void call() {
+				redisClient.set(key, value);
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Void> set(final String key, final String value, final int expireSecond) {
+		return submit(key, new Callable<Void>() {
+			@Override
+			public Void call() {
+				redisClient.set(key, value, expireSecond);
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> set(final String key, final String value, final NX nx) {
+		return submit(key, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.set(key, value, nx);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> set(final String key, final String value, final NX nx, final TimeUnit timeUnit, final long expires) {
+		return submit(key, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.set(key, value, nx, timeUnit, expires);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Void> set(final String key, final byte[] value) {
+		return submit(key, new Callable<Void>() {
+			@Override
+			public Void call() {
+				redisClient.set(key, value);
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> set(final String key, final byte[] value, final NX nx) {
+		return submit(key, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.set(key, value, nx);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> set(final String key, final byte[] value, final NX nx, final TimeUnit timeUnit, final long expires) {
+		return submit(key, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.set(key, value, nx, timeUnit, expires);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> setnx(final String key, final String value) {
+		return submit(key, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.setnx(key, value);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> setnx(final String key, final byte[] value) {
+		return submit(key, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.setnx(key, value);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> setex(final String key, final String value, final int expires) {
+		return submit(key, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.setex(key, value, expires);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> setex(final String key, final byte[] value, final int expires) {
+		return submit(key, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.setex(key, value, expires);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<String> getSet(final String key, final String value) {
+		return submit(key, new Callable<String>() {
+			@Override
+			public String call() {
+				return redisClient.getSet(key, value);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<byte[]> getSet(final String key, final byte[] value) {
+		return submit(key, new Callable<byte[]>() {
+			@Override
+			public byte[] call() {
+				return redisClient.getSet(key, value);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<String> getString(final String key) {
+		return submit(key, new Callable<String>() {
+			@Override
+			public String call() {
+				return redisClient.getString(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<byte[]> get(final String key) {
+		return submit(key, new Callable<byte[]>() {
+			@Override
+			public byte[] call() {
+				return redisClient.get(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> delete(final String key) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.delete(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> exists(final String key) {
+		return submit(key, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.exists(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> incr(final String key) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.incr(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> incrBy(final String key, final long increment) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.incrBy(key, increment);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Double> incrByFloat(final String key, final double increment) {
+		return submit(key, new Callable<Double>() {
+			@Override
+			public Double call() {
+				return redisClient.incrByFloat(key, increment);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> decr(final String key) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.decr(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> decrBy(final String key, final long decrement) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.decrBy(key, decrement);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> append(final String key, final String value) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.append(key, value);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> expire(final String key, final int seconds) {
+		return submit(key, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.expire(key, seconds);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> hset(final String key, final String field, final String value) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.hset(key, field, value);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> hset(final String key, final String field, final byte[] value) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.hset(key, field, value);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Void> hmsetString(final String key, final Map<String, String> fieldValues) {
+		return submit(key, new Callable<Void>() {
+			@Override
+			public Void call() {
+				redisClient.hmsetString(key, fieldValues);
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Void> hmset(final String key, final Map<String, byte[]> fieldValues) {
+		return submit(key, new Callable<Void>() {
+			@Override
+			public Void call() {
+				redisClient.hmset(key, fieldValues);
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> hsetnx(final String key, final String field, final String value) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.hsetnx(key, field, value);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> hsetnx(final String key, final String field, final byte[] value) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.hsetnx(key, field, value);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<String> hgetString(final String key, final String field) {
+		return submit(key, new Callable<String>() {
+			@Override
+			public String call() {
+				return redisClient.hgetString(key, field);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<List<String>> hmgetString(final String key, final String... fields) {
+		return submit(key, new Callable<List<String>>() {
+			@Override
+			public List<String> call() {
+				return redisClient.hmgetString(key, fields);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<List<byte[]>> hmget(final String key, final String... fields) {
+		return submit(key, new Callable<List<byte[]>>() {
+			@Override
+			public List<byte[]> call() {
+				return redisClient.hmget(key, fields);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<byte[]> hget(final String key, final String field) {
+		return submit(key, new Callable<byte[]>() {
+			@Override
+			public byte[] call() {
+				return redisClient.hget(key, field);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Map<String, String>> hgetAllString(final String key) {
+		return submit(key, new Callable<Map<String, String>>() {
+			@Override
+			public Map<String, String> call() {
+				return redisClient.hgetAllString(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> hdel(final String key, final String... fields) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.hdel(key, fields);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> hexists(final String key, final String field) {
+		return submit(key, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.hexists(key, field);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Set<String>> hkeys(final String key) {
+		return submit(key, new Callable<Set<String>>() {
+			@Override
+			public Set<String> call() {
+				return redisClient.hkeys(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> hlen(final String key) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.hlen(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<List<String>> hStringVals(final String key) {
+		return submit(key, new Callable<List<String>>() {
+			@Override
+			public List<String> call() {
+				return redisClient.hStringVals(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<String> lindexString(final String key, final long index) {
+		return submit(key, new Callable<String>() {
+			@Override
+			public String call() {
+				return redisClient.lindexString(key, index);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<byte[]> lindex(final String key, final long index) {
+		return submit(key, new Callable<byte[]>() {
+			@Override
+			public byte[] call() {
+				return redisClient.lindex(key, index);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> lpush(final String key, final String... values) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.lpush(key, values);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> lpush(final String key, final byte[]... values) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.lpush(key, values);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<String> lpopString(final String key) {
+		return submit(key, new Callable<String>() {
+			@Override
+			public String call() {
+				return redisClient.lpopString(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<byte[]> lpop(final String key) {
+		return submit(key, new Callable<byte[]>() {
+			@Override
+			public byte[] call() {
+				return redisClient.lpop(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> lpushx(final String key, final String... values) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.lpushx(key, values);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> lpushx(final String key, final byte[]... values) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.lpushx(key, values);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Void> lset(final String key, final long index, final String value) {
+		return submit(key, new Callable<Void>() {
+			@Override
+			public Void call() {
+				redisClient.lset(key, index, value);
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Void> lset(final String key, final long index, final byte[] value) {
+		return submit(key, new Callable<Void>() {
+			@Override
+			public Void call() {
+				redisClient.lset(key, index, value);
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> llen(final String key) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.llen(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> lrem(final String key, final long count, final String value) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.lrem(key, count, value);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<List<String>> lrangeString(final String key, final long start, final long end) {
+		return submit(key, new Callable<List<String>>() {
+			@Override
+			public List<String> call() {
+				return redisClient.lrangeString(key, start, end);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<List<byte[]>> lrange(final String key, final long start, final long end) {
+		return submit(key, new Callable<List<byte[]>>() {
+			@Override
+			public List<byte[]> call() {
+				return redisClient.lrange(key, start, end);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> rpush(final String key, final String... values) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.rpush(key, values);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> rpush(final String key, final byte[]... values) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.rpush(key, values);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<String> rpopString(final String key) {
+		return submit(key, new Callable<String>() {
+			@Override
+			public String call() {
+				return redisClient.rpopString(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<byte[]> rpop(final String key) {
+		return submit(key, new Callable<byte[]>() {
+			@Override
+			public byte[] call() {
+				return redisClient.rpop(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> rpushx(final String key, final String... values) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.rpushx(key, values);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> rpushx(final String key, final byte[]... values) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.rpushx(key, values);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> sadd(final String key, final String... values) {
+		return submit(key, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.sadd(key, values);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> sadd(final String key, final byte[]... values) {
+		return submit(key, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.sadd(key, values);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Set<byte[]>> bsmembers(final String key) {
+		return submit(key, new Callable<Set<byte[]>>() {
+			@Override
+			public Set<byte[]> call() {
+				return redisClient.bsmembers(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Set<String>> smembers(final String key) {
+		return submit(key, new Callable<Set<String>>() {
+			@Override
+			public Set<String> call() {
+				return redisClient.smembers(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> zadd(final String key, final String value, final double score) {
+		return submit(key, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.zadd(key, value, score);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> zadd(final String key, final byte[] value, final double score) {
+		return submit(key, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.zadd(key, value, score);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> zaddString(final String key, final Map<String, Double> valueScorePairs) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.zaddString(key, valueScorePairs);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> zadd(final String key, final Map<byte[], Double> valueScorePairs) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.zadd(key, valueScorePairs);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> zrem(final String key, final String... values) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.zrem(key, values);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> zrem(final String key, final byte[]... values) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.zrem(key, values);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> zcard(final String key) {
+		return submit(key, new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.zcard(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Set<String>> zrangeString(final String key, final long start, final long end) {
+		return submit(key, new Callable<Set<String>>() {
+			@Override
+			public Set<String> call() {
+				return redisClient.zrangeString(key, start, end);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Set<byte[]>> zrange(final String key, final long start, final long end) {
+		return submit(key, new Callable<Set<byte[]>>() {
+			@Override
+			public Set<byte[]> call() {
+				return redisClient.zrange(key, start, end);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Set<Tuple>> zrangeStringWithScores(final String key, final long start, final long end) {
+		return submit(key, new Callable<Set<Tuple>>() {
+			@Override
+			public Set<Tuple> call() {
+				return redisClient.zrangeStringWithScores(key, start, end);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Set<Tuple>> zrangeWithScores(final String key, final long start, final long end) {
+		return submit(key, new Callable<Set<Tuple>>() {
+			@Override
+			public Set<Tuple> call() {
+				return redisClient.zrangeWithScores(key, start, end);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Double> zincrby(final String key, final String value, final double score) {
+		return submit(key, new Callable<Double>() {
+			@Override
+			public Double call() {
+				return redisClient.zincrby(key, value, score);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Set<byte[]>> zrevrange(final String key, final long start, final long end) {
+		return submit(key, new Callable<Set<byte[]>>() {
+			@Override
+			public Set<byte[]> call() {
+				return redisClient.zrevrange(key, start, end);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Set<String>> zrevrangeString(final String key, final long start, final long end) {
+		return submit(key, new Callable<Set<String>>() {
+			@Override
+			public Set<String> call() {
+				return redisClient.zrevrangeString(key, start, end);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Double> zscore(final String key, final String value) {
+		return submit(key, new Callable<Double>() {
+			@Override
+			public Double call() {
+				return redisClient.zscore(key, value);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<List<String>> sortString(final String key) {
+		return submit(key, new Callable<List<String>>() {
+			@Override
+			public List<String> call() {
+				return redisClient.sortString(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<List<byte[]>> sort(final String key) {
+		return submit(key, new Callable<List<byte[]>>() {
+			@Override
+			public List<byte[]> call() {
+				return redisClient.sort(key);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<List<String>> sortString(final String key, final SortOrder sortOrder) {
+		return submit(key, new Callable<List<String>>() {
+			@Override
+			public List<String> call() {
+				return redisClient.sortString(key, sortOrder);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<List<byte[]>> sort(final String key, final SortOrder sortOrder) {
+		return submit(key, new Callable<List<byte[]>>() {
+			@Override
+			public List<byte[]> call() {
+				return redisClient.sort(key, sortOrder);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<List<String>> sortString(final String key, final SortingParams sortingParams) {
+		return submit(key, new Callable<List<String>>() {
+			@Override
+			public List<String> call() {
+				return redisClient.sortString(key, sortingParams);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<List<byte[]>> sort(final String key, final SortingParams sortingParams) {
+		return submit(key, new Callable<List<byte[]>>() {
+			@Override
+			public List<byte[]> call() {
+				return redisClient.sort(key, sortingParams);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<List<String>> mgetString(final List<String> keys) {
+		return submit(new Callable<List<String>>() {
+			@Override
+			public List<String> call() {
+				return redisClient.mgetString(keys);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<List<byte[]>> mget(final List<String> keys) {
+		return submit(new Callable<List<byte[]>>() {
+			@Override
+			public List<byte[]> call() {
+				return redisClient.mget(keys);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> msetexString(final Map<String, String> keyValues, final int expires) {
+		return submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.msetexString(keyValues, expires);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Boolean> msetex(final Map<String, byte[]> keyValues, final int expires) {
+		return submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.msetex(keyValues, expires);
+			}
+		});
+	}
+
+	@Override
+	public ListenableFuture<Long> mdelete(final Collection<String> keys) {
+		return submit(new Callable<Long>() {
+			@Override
+			public Long call() {
+				return redisClient.mdelete(keys);
+			}
+		});
+	}
+
+	@Override
+	public <T> ListenableFuture<T> get(final String key, final Codec<T> codec) {
+		return submit(key, new Callable<T>() {
+			@Override
+			public T call() {
+				return redisClient.get(key, codec);
+			}
+		});
+	}
+
+	@Override
+	public <T> ListenableFuture<Void> set(final String key, final T value, final Codec<T> codec) {
+		return submit(key, new Callable<Void>() {
+			@Override
+			public Void call() {
+				redisClient.set(key, value, codec);
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public <T> ListenableFuture<Boolean> setex(final String key, final T value, final Codec<T> codec, final int expires) {
+		return submit(key, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return redisClient.setex(key, value, codec, expires);
+			}
+		});
+	}
+
+	@Override
+	public <T> ListenableFuture<List<T>> mget(final List<String> keys, final Codec<T> codec) {
+		return submit(new Callable<List<T>>() {
+			@Override
+			public List<T> call() {
+				return redisClient.mget(keys, codec);
+			}
+		});
+	}
+
+	@Override
+	public <T> ListenableFuture<T> getOrLoad(final String key, final Codec<T> codec, final ValueLoader<T> loader, final long ttlMillis) {
+		return submit(key, new Callable<T>() {
+			@Override
+			public T call() {
+				return redisClient.getOrLoad(key, codec, loader, ttlMillis);
+			}
+		});
+	}
+
+	@Override
+	public <T> ListenableFuture<T> getOrLoad(final String key, final Codec<T> codec, final ValueLoader<T> loader, final long ttlMillis, final long staleMillis) {
+		return submit(key, new Callable<T>() {
+			@Override
+			public T call() {
+				return redisClient.getOrLoad(key, codec, loader, ttlMillis, staleMillis);
+			}
+		});
+	}
+
+}
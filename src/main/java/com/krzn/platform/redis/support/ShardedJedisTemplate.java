@@ -5,20 +5,46 @@
 package com.krzn.platform.redis.support;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 import com.krzn.platform.redis.RedisClientRuntimeException;
+import com.krzn.platform.redis.RedisClientStatistic;
+import com.krzn.platform.redis.RedisClientTimeoutException;
 import com.krzn.platform.redis.RedisContants;
 import com.krzn.platform.redis.jedis.JedisGroup;
+import com.krzn.platform.redis.jedis.JedisGroupShardInfo;
+import com.krzn.platform.redis.jedis.JedisNodeGroup;
+import com.krzn.platform.redis.jedis.JedisNodeGroupShardInfo;
+import com.krzn.platform.redis.jedis.JedisNodePool;
 import com.krzn.platform.redis.jedis.ShardedGroupJedis;
 import com.krzn.platform.redis.jedis.ShardedJedisGroupPool;
+import com.krzn.platform.redis.jedis.ShardedJedisNodePool;
+import com.krzn.platform.redis.jedis.loadbalance.AbstractLoadBalance;
 import com.krzn.platform.redis.jedis.loadbalance.LoadBalance;
+import com.krzn.platform.redis.jedis.loadbalance.LoadFeedback;
 import com.krzn.platform.redis.jedis.loadbalance.RandomLoadBalance;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.exceptions.JedisConnectionException;
 
 /**
  * ShardedJedis模板。
  * <p>封装Jedis调用过程中方法骨架，做一些申请、归还链接，分片，读写分离的逻辑等。
  * <p>暴露回调接口给外部使用。
+ * <p>支持两种池模式：ShardedJedisGroupPool(池化整个分片对象)和ShardedJedisNodePool(每个节点一个连接池)，
+ * 设置了ShardedJedisNodePool时优先使用节点池模式。
+ * <p>开启singleFlight时，并发的相同读请求只执行一次，共享同一个结果。
+ * <p>设置了HotKeyDetector时，探测到的热点键的读命令结果在本地短暂缓存，避免单个热点键压垮所在分片。
  * 
  * @author yangzhishuo
  * @version 1.0 
@@ -31,18 +57,105 @@ public class ShardedJedisTemplate {
 	 */
 	private ShardedJedisGroupPool shardedJedisGroupPool;
 	
+	/**
+	 * 按节点划分连接池的分片池。
+	 */
+	private ShardedJedisNodePool shardedJedisNodePool;
+	
 	/**
 	 * 是否读写分离。
 	 * <p>默认不进行读写分离。
 	 */
 	private boolean isReadFromSlave = false;
 	
-	private static final LoadBalance DUFAULT_LOADBALANCE = new RandomLoadBalance();
+	private static final RandomLoadBalance DUFAULT_LOADBALANCE = new RandomLoadBalance();
 	
 	/**
 	 * 用于选择从节点的负载均衡器。
+	 * <p>实现了LoadFeedback时，在选出的从节点上执行的请求开始和结束时都会通知它。
+	 */
+	private LoadBalance loadBalance = DUFAULT_LOADBALANCE;
+	
+	/**
+	 * 多键请求的并行执行器。
+	 * <p>默认为空，各分片的子请求顺序执行。
+	 */
+	private ScatterGatherExecutor scatterGatherExecutor;
+	
+	/**
+	 * 节点级传输层，例如命令合并器或NIO传输层。
+	 * <p>默认为空，使用连接池；设置后，CoalescableJedisCallback类型的回调交给传输层在选中的节点上执行。
+	 */
+	private RedisTransport transport;
+	
+	/**
+	 * 调用统计，按命令和节点记录调用次数、错误和延迟。
+	 * <p>设置为null时不做统计。
+	 */
+	private RedisClientStatistic statistic = new RedisClientStatistic();
+	
+	/**
+	 * 热点键探测器。
+	 * <p>默认为空，不探测；设置后，热点键的读命令结果缓存在hotKeyCache中，只缓存提供了缓存视图的回调。
+	 */
+	private HotKeyDetector hotKeyDetector;
+	
+	/**
+	 * 热点键的本地缓存，过期时间应较短，本实例的写命令会失效对应的键。
+	 */
+	private NearCache hotKeyCache;
+	
+	/**
+	 * 相同读请求的合并执行。
+	 * <p>默认为空，不合并；开启后，同一个键、同一种读取方式的并发读请求只执行一次，只合并提供了缓存视图的回调。
+	 */
+	private SingleFlight singleFlight;
+	
+	/**
+	 * 阻塞命令专用的连接通道。
+	 */
+	private volatile BlockingLane blockingLane;
+	
+	/**
+	 * 从节点的健康检查和熔断。
+	 * <p>默认为空，不检查；设置后，被摘除的从节点不参与负载均衡，同组从节点全部被摘除时读主节点。
+	 */
+	private SlaveHealthChecker slaveHealthChecker;
+	
+	/**
+	 * 从节点的复制延迟监控。
+	 * <p>默认为空，不监控；设置后，延迟超过上限的从节点不参与负载均衡，各从节点的延迟记录在统计中。
+	 */
+	private ReplicationLagMonitor replicationLagMonitor;
+	
+	/**
+	 * 最近写过的键。
+	 * <p>默认为空，不记录；设置后，本实例在时间窗口内写过的键从主节点读取，读己之写，其他读请求仍发往从节点。
+	 */
+	private RecentWriteFilter recentWriteFilter;
+	
+	/**
+	 * 字符串类型值的压缩。
+	 * <p>默认为空，不压缩；设置后，通过本模板读写的所有客户端一致地压缩和解压，压缩统计记录在statistic中。
+	 */
+	private volatile ValueCompressor valueCompressor;
+	
+	/**
+	 * 读请求的对冲策略。
+	 * <p>默认为空，不对冲；设置后，节点池模式下发往从节点的单键读请求超过对冲延迟没有返回时，
+	 * 向同组的另一个从节点或主节点再发一次，使用先返回的结果。
+	 */
+	private HedgePolicy hedgePolicy;
+	
+	/**
+	 * 默认的热点键缓存容量，单位字节。
+	 */
+	private static final long DEFAULT_HOT_KEY_CACHE_WEIGHT = 16L << 20;
+	
+	/**
+	 * 默认的热点键缓存过期时间，单位毫秒。
 	 */
-	private LoadBalance loadBalance;
+	private static final long DEFAULT_HOT_KEY_CACHE_TTL = 1000;
 	
 	public ShardedJedisTemplate() {
 	}
@@ -85,6 +198,23 @@ public class ShardedJedisTemplate {
 		this.isReadFromSlave = isReadFromSlave;
 	}
 
+	public ShardedJedisTemplate(ShardedJedisNodePool shardedJedisNodePool) {
+		this(shardedJedisNodePool, false, DUFAULT_LOADBALANCE);
+	}
+
+	public ShardedJedisTemplate(ShardedJedisNodePool shardedJedisNodePool, boolean isReadFromSlave, LoadBalance loadBalance) {
+		super();
+		if(shardedJedisNodePool == null){
+			throw new IllegalArgumentException("shardedJedisNodePool can't be null！");
+		}
+		if(loadBalance == null){
+			throw new IllegalArgumentException("loadBalance can't be null！");
+		}
+		this.shardedJedisNodePool = shardedJedisNodePool;
+		this.loadBalance = loadBalance;
+		this.isReadFromSlave = isReadFromSlave;
+	}
+
 	/**
 	 * 模板执行方法。
 	 * 
@@ -93,10 +223,134 @@ public class ShardedJedisTemplate {
 	 * @return 执行结果。
 	 */
 	public <R> R execute(String key, JedisCallback<R> callback, RW rw){
+		if(hotKeyDetector != null && key != null){
+			return executeWithHotKeyCache(key, callback, rw);
+		}
+		return executeSingleFlight(key, callback, rw);
+	}
+
+	/**
+	 * 启用了热点键探测时的模板执行方法。
+	 * <p>读命令记录访问，热点键命中本地缓存时直接返回；写命令执行后失效本地缓存。
+	 * 
+	 * @param key 键。
+	 * @param callback 回调接口。
+	 * @return 执行结果。
+	 */
+	@SuppressWarnings("unchecked")
+	private <R> R executeWithHotKeyCache(String key, JedisCallback<R> callback, RW rw){
+		if(RW.WRITE.equals(rw)){
+			try{
+				return executeSingleFlight(key, callback, rw);
+			}finally{
+				hotKeyCache.invalidate(key);
+			}
+		}
+		if(!hotKeyDetector.record(key) || !(callback instanceof CoalescableJedisCallback)){
+			return executeSingleFlight(key, callback, rw);
+		}
+		Object view = ((CoalescableJedisCallback<?, R>) callback).getCacheView();
+		if(view == null){
+			return executeSingleFlight(key, callback, rw);
+		}
+		Object cached = hotKeyCache.get(key, view);
+		if(cached != NearCache.MISS){
+			return (R) copyOf(cached);
+		}
+		long generation = hotKeyCache.generation(key);
+		R result = executeSingleFlight(key, callback, rw);
+		hotKeyCache.put(key, view, copyOf(result), weightOf(result), generation);
+		return result;
+	}
+
+	/**
+	 * 开启了读请求合并时，并发的相同读请求共享一次执行，写命令完成后使之后的读请求不再共享写之前的结果。
+	 * 
+	 * @param key 键。
+	 * @param callback 回调接口。
+	 * @return 执行结果。
+	 */
+	@SuppressWarnings("unchecked")
+	private <R> R executeSingleFlight(String key, JedisCallback<R> callback, RW rw){
+		SingleFlight singleFlight = this.singleFlight;
+		if(singleFlight == null || key == null){
+			return doExecute(key, callback, rw);
+		}
+		if(RW.WRITE.equals(rw)){
+			try{
+				return doExecute(key, callback, rw);
+			}finally{
+				singleFlight.written(key);
+			}
+		}
+		Object view = callback instanceof CoalescableJedisCallback ? ((CoalescableJedisCallback<?, R>) callback).getCacheView() : null;
+		if(view == null){
+			return doExecute(key, callback, rw);
+		}
+		SingleFlight.Call call = singleFlight.join(key, view);
+		if(!call.isLeader()){
+			return (R) copyOf(call.await());
+		}
+		boolean completed = false;
+		try{
+			R result = doExecute(key, callback, rw);
+			call.complete(copyOf(result));
+			completed = true;
+			return result;
+		}catch(RuntimeException e){
+			call.fail(e);
+			completed = true;
+			throw e;
+		}finally{
+			if(!completed){
+				call.fail(new RedisClientRuntimeException("shared read of key " + key + " failed!"));
+			}
+		}
+	}
+
+	/**
+	 * byte[]结果在缓存和调用方之间复制，其他可缓存的结果都是不可变的。
+	 */
+	private static Object copyOf(Object value){
+		return value instanceof byte[] ? ((byte[]) value).clone() : value;
+	}
+
+	private static int weightOf(Object value){
+		if(value instanceof byte[]){
+			return ((byte[]) value).length;
+		}
+		if(value instanceof String){
+			return ((String) value).length() * 2;
+		}
+		return 16;
+	}
+
+	/**
+	 * 单键模板执行方法，选择节点并执行回调。
+	 * 
+	 * @param key 键。
+	 * @param callback 回调接口。
+	 * @return 执行结果。
+	 */
+	private <R> R doExecute(String key, JedisCallback<R> callback, RW rw){
+		if(RW.WRITE.equals(rw) && key != null){
+			rememberWrite(key);
+		}
+		if(transport != null && callback instanceof CoalescableJedisCallback){
+			return executeOnTransport(key, (CoalescableJedisCallback<?, R>) callback, rw);
+		}
+		if(shardedJedisNodePool != null){
+			return executeOnNode(key, callback, rw);
+		}
 		Jedis jedis = null;
 		ShardedGroupJedis shardedGroupJedis = null;
+		JedisGroup jedisGroup = null;
 		R result = null;
 		boolean isMaster = true;
+		LoadFeedback feedback = null;
+		long start = System.nanoTime();
+		long commandStart = 0;
+		Throwable error = null;
 		try{
 			if(key == null || key.trim().length() == 0){
 				throw new IllegalArgumentException("key set to redis can't be null!");
@@ -104,54 +358,1153 @@ public class ShardedJedisTemplate {
 			//从jedis池中申请一个jedis资源。
 			shardedGroupJedis = shardedJedisGroupPool.getResource();
 			//分片逻辑。
-			JedisGroup jedisGroup = shardedGroupJedis.getShard(key);
+			jedisGroup = shardedGroupJedis.getShard(key);
 			if(RW.WRITE.equals(rw)){
 				jedis = jedisGroup.getMaster();
 			}else{
 				//判断读写分离标志。
-				if(isReadFromSlave){
-					jedis = loadBalance.select(jedisGroup.getSlaves());
+				if(readFromSlave(key)){
+					jedis = selectSlave(jedisGroup.getSlaves());
+				}
+				if(jedis != null){
 					isMaster = false;
+					feedback = startOnSlave(jedisGroup.getShardInfo(jedis));
 				}else{
 					jedis = jedisGroup.getMaster();
 				}
 			}
 			//执行回调逻辑，获取执行结果。
+			commandStart = System.nanoTime();
+			result = callback.call(jedis);
+		}catch(Throwable e){
+			error = e;
+			throw wrapException(e, jedis, isMaster);
+		}finally{
+			//归还链接到jedis池。
+			if(shardedGroupJedis != null){
+				shardedGroupJedis.close();
+			}
+			record(statistic, callback, jedisGroup == null ? null : jedisGroup.getShardInfo(jedis), start, error);
+			complete(feedback, jedisGroup == null ? null : jedisGroup.getShardInfo(jedis), commandStart, error);
+		}
+		return result;
+	}
+
+	/**
+	 * 节点池模式下的模板执行方法，只从分片选中的节点池中申请一个连接。
+	 * 
+	 * @param key 键。
+	 * @param callback 回调接口。
+	 * @return 执行结果。
+	 */
+	private <R> R executeOnNode(String key, JedisCallback<R> callback, RW rw){
+		HedgePolicy hedgePolicy = this.hedgePolicy;
+		if(hedgePolicy != null && RW.READ.equals(rw) && key != null && key.trim().length() != 0 && readFromSlave(key)){
+			return executeHedged(key, callback, hedgePolicy);
+		}
+		Jedis jedis = null;
+		JedisNodePool nodePool = null;
+		R result = null;
+		boolean isMaster = true;
+		LoadFeedback feedback = null;
+		long start = System.nanoTime();
+		long commandStart = 0;
+		Throwable error = null;
+		try{
+			if(key == null || key.trim().length() == 0){
+				throw new IllegalArgumentException("key set to redis can't be null!");
+			}
+			//分片逻辑。
+			JedisNodeGroup nodeGroup = shardedJedisNodePool.getShard(key);
+			if(RW.READ.equals(rw) && readFromSlave(key)){
+				nodePool = selectSlave(nodeGroup.getSlaves());
+			}
+			if(nodePool != null){
+				isMaster = false;
+				feedback = startOnSlave(nodePool.getShardInfo());
+			}else{
+				nodePool = nodeGroup.getMaster();
+			}
+			//从节点池中申请一个jedis资源。
+			jedis = nodePool.getResource();
+			//执行回调逻辑，获取执行结果。
+			commandStart = System.nanoTime();
 			result = callback.call(jedis);
 		}catch(Throwable e){
-			String errMsg = null;
-			if(jedis == null){
-				errMsg = e.getMessage();
+			error = e;
+			throw wrapException(e, jedis, isMaster);
+		}finally{
+			//归还链接到节点池。
+			if(jedis != null){
+				jedis.close();
+			}
+			record(statistic, callback, nodePool == null ? null : nodePool.getShardInfo(), start, error);
+			complete(feedback, nodePool == null ? null : nodePool.getShardInfo(), commandStart, error);
+		}
+		return result;
+	}
+
+	/**
+	 * 节点池模式下对冲的读请求，首个请求发往选中的从节点，对冲请求发往同组的另一个从节点，没有其他可用的从节点时发往主节点。
+	 * 
+	 * @param key 键。
+	 * @param callback 回调接口。
+	 * @return 先成功的请求的执行结果。
+	 */
+	private <R> R executeHedged(String key, final JedisCallback<R> callback, HedgePolicy hedgePolicy){
+		//分片逻辑。
+		final JedisNodeGroup nodeGroup = shardedJedisNodePool.getShard(key);
+		final JedisNodePool primary = selectSlave(nodeGroup.getSlaves());
+		if(primary == null){
+			//没有可用的从节点。
+			return nodeTask(nodeGroup.getMaster(), true, callback).call();
+		}
+		Callable<R> backup = new Callable<R>() {
+			@Override
+			public R call() {
+				List<JedisNodePool> others = new ArrayList<JedisNodePool>(nodeGroup.getSlaves());
+				others.remove(primary);
+				JedisNodePool nodePool = others.isEmpty() ? null : selectSlave(others);
+				if(nodePool == null){
+					return nodeTask(nodeGroup.getMaster(), true, callback).call();
+				}
+				return nodeTask(nodePool, false, callback).call();
+			}
+		};
+		return hedgePolicy.execute(nodeTask(primary, false, callback), backup);
+	}
+
+	private <R> NodeTask<R> nodeTask(JedisNodePool nodePool, boolean isMaster, JedisCallback<R> callback){
+		return new NodeTask<R>(nodePool, isMaster, callback, statistic, isMaster ? null : feedback());
+	}
+
+	/**
+	 * 传输层模式下的模板执行方法，命令交给传输层在分片选中的节点上执行，不从池中申请连接。
+	 * 
+	 * @param key 键。
+	 * @param callback 可合并执行的回调。
+	 * @return 执行结果。
+	 */
+	private <T, R> R executeOnTransport(String key, CoalescableJedisCallback<T, R> callback, RW rw){
+		JedisShardInfo node = null;
+		boolean isMaster = true;
+		LoadFeedback feedback = null;
+		long start = System.nanoTime();
+		long commandStart = 0;
+		Throwable error = null;
+		try{
+			if(key == null || key.trim().length() == 0){
+				throw new IllegalArgumentException("key set to redis can't be null!");
+			}
+			//分片逻辑。
+			JedisGroupShardInfo groupShardInfo = getShardInfo(key);
+			if(RW.READ.equals(rw) && readFromSlave(key)){
+				node = selectSlave(groupShardInfo.getSlaveInfos());
+			}
+			if(node != null){
+				isMaster = false;
+				feedback = startOnSlave(node);
 			}else{
-				//异常处理，加入服务器信息，方便程序更好的定位问题。
-				errMsg = MessageFormat.format(
-						RedisContants.ERR_MSG_TEMPLATE,
-						e.getMessage(),
-						isMaster ? "master" : "slave",
-						jedis.getClient().getHost(),
-						jedis.getClient().getPort());
+				node = groupShardInfo.getMasterInfo();
+			}
+			commandStart = System.nanoTime();
+			return transport.execute(node, callback);
+		}catch(Throwable e){
+			error = e;
+			if(node == null){
+				throw wrapException(e, null, isMaster);
+			}
+			throw wrapException(e, node.getHost(), node.getPort(), isMaster);
+		}finally{
+			record(statistic, callback, node, start, error);
+			complete(feedback, node, commandStart, error);
+		}
+	}
+
+	/**
+	 * 多键模板执行方法。
+	 * <p>按分片对键进行分组，每个分片只申请一个连接并回调一次，回调结果按调用方传入的键顺序返回。
+	 * <p>设置了ScatterGatherExecutor时，各分片的子请求并行执行。
+	 * 
+	 * @param keys 键列表。
+	 * @param callback 多键回调接口。
+	 * @return 与keys一一对应的执行结果。
+	 */
+	public <R> List<R> execute(List<String> keys, MultiKeyJedisCallback<R> callback, RW rw){
+		if(keys == null || keys.isEmpty()){
+			throw new IllegalArgumentException("keys set to redis can't be empty!");
+		}
+		for(String key : keys){
+			if(key == null || key.trim().length() == 0){
+				throw new IllegalArgumentException("key set to redis can't be null!");
+			}
+		}
+		if(RW.WRITE.equals(rw) && (hotKeyDetector != null || singleFlight != null)){
+			try{
+				return doExecute(keys, callback, rw);
+			}finally{
+				for(String key : keys){
+					written(key);
+				}
+			}
+		}
+		if(hotKeyDetector == null){
+			return doExecute(keys, callback, rw);
+		}
+		//多键读命令只参与热点探测，不使用本地缓存。
+		for(String key : keys){
+			hotKeyDetector.record(key);
+		}
+		return doExecute(keys, callback, rw);
+	}
+
+	/**
+	 * 开启了读己之写时记录写过的键，在写命令执行之前记录，写完成后的读请求一定能查到。
+	 */
+	private void rememberWrite(String key){
+		RecentWriteFilter filter = recentWriteFilter;
+		if(filter != null){
+			filter.add(key);
+		}
+	}
+
+	/**
+	 * 键的读请求是否发往从节点，开启了读己之写时最近写过的键读主节点。
+	 */
+	private boolean readFromSlave(String key){
+		if(!isReadFromSlave){
+			return false;
+		}
+		RecentWriteFilter filter = recentWriteFilter;
+		return filter == null || !filter.contains(key);
+	}
+
+	/**
+	 * 同一分片的一批键的读请求是否发往从节点，其中任意一个键最近写过时整批读主节点。
+	 */
+	private boolean readFromSlave(List<String> keys){
+		if(!isReadFromSlave){
+			return false;
+		}
+		RecentWriteFilter filter = recentWriteFilter;
+		if(filter != null){
+			for(String key : keys){
+				if(filter.contains(key)){
+					return false;
+				}
 			}
+		}
+		return true;
+	}
+
+	/**
+	 * 多键写命令完成后失效本地缓存和进行中的读请求。
+	 */
+	private void written(String key){
+		if(hotKeyCache != null && hotKeyDetector != null){
+			hotKeyCache.invalidate(key);
+		}
+		if(singleFlight != null){
+			singleFlight.written(key);
+		}
+	}
 
-			throw new RedisClientRuntimeException(errMsg, e);
+	private <R> List<R> doExecute(List<String> keys, MultiKeyJedisCallback<R> callback, RW rw){
+		if(RW.WRITE.equals(rw)){
+			for(String key : keys){
+				rememberWrite(key);
+			}
+		}
+		if(shardedJedisNodePool != null){
+			return executeOnNodes(keys, callback, rw);
+		}
+		ShardedGroupJedis shardedGroupJedis = null;
+		boolean parallel = false;
+		try{
+			//从jedis池中申请一个jedis资源。
+			shardedGroupJedis = shardedJedisGroupPool.getResource();
+			//分片逻辑。
+			Map<JedisGroup, KeyBatch> batches = new LinkedHashMap<JedisGroup, KeyBatch>();
+			for(int i = 0; i < keys.size(); i++){
+				String key = keys.get(i);
+				JedisGroup jedisGroup = shardedGroupJedis.getShard(key);
+				KeyBatch batch = batches.get(jedisGroup);
+				if(batch == null){
+					batch = new KeyBatch();
+					batches.put(jedisGroup, batch);
+				}
+				batch.add(i, key);
+			}
+			List<KeyBatch> batchList = new ArrayList<KeyBatch>(batches.size());
+			List<Callable<List<R>>> tasks = new ArrayList<Callable<List<R>>>(batches.size());
+			for(Map.Entry<JedisGroup, KeyBatch> entry : batches.entrySet()){
+				//节点选择在调用线程中完成，子请求只使用选出的jedis。
+				JedisGroup jedisGroup = entry.getKey();
+				Jedis jedis = null;
+				boolean isMaster = true;
+				if(RW.READ.equals(rw) && readFromSlave(entry.getValue().keys)){
+					jedis = selectSlave(jedisGroup.getSlaves());
+				}
+				if(jedis != null){
+					isMaster = false;
+				}else{
+					jedis = jedisGroup.getMaster();
+				}
+				batchList.add(entry.getValue());
+				tasks.add(new GroupBatchTask<R>(jedis, jedisGroup.getShardInfo(jedis), isMaster, callback, entry.getValue().keys, statistic, isMaster ? null : feedback()));
+			}
+			parallel = scatterGatherExecutor != null && tasks.size() > 1;
+			return merge(keys.size(), batchList, invokeAll(tasks));
+		}catch(RedisClientRuntimeException e){
+			if(parallel && shardedGroupJedis != null){
+				//超时或失败时可能仍有子请求在使用连接，不能放回池中复用。
+				shardedGroupJedis.markBroken();
+			}
+			throw e;
+		}catch(Throwable e){
+			throw wrapException(e, null, true);
 		}finally{
 			//归还链接到jedis池。
 			if(shardedGroupJedis != null){
 				shardedGroupJedis.close();
 			}
 		}
-		return result;
 	}
 
-	public void setShardedJedisGroupPool(ShardedJedisGroupPool shardedJedisGroupPool) {
-		this.shardedJedisGroupPool = shardedJedisGroupPool;
+	/**
+	 * 节点池模式下的多键模板执行方法，每个子请求各自从节点池中申请、归还连接。
+	 */
+	private <R> List<R> executeOnNodes(List<String> keys, MultiKeyJedisCallback<R> callback, RW rw){
+		//分片逻辑。
+		Map<JedisNodeGroup, KeyBatch> batches = new LinkedHashMap<JedisNodeGroup, KeyBatch>();
+		for(int i = 0; i < keys.size(); i++){
+			String key = keys.get(i);
+			JedisNodeGroup nodeGroup = shardedJedisNodePool.getShard(key);
+			KeyBatch batch = batches.get(nodeGroup);
+			if(batch == null){
+				batch = new KeyBatch();
+				batches.put(nodeGroup, batch);
+			}
+			batch.add(i, key);
+		}
+		List<KeyBatch> batchList = new ArrayList<KeyBatch>(batches.size());
+		List<Callable<List<R>>> tasks = new ArrayList<Callable<List<R>>>(batches.size());
+		for(Map.Entry<JedisNodeGroup, KeyBatch> entry : batches.entrySet()){
+			JedisNodeGroup nodeGroup = entry.getKey();
+			JedisNodePool nodePool = null;
+			boolean isMaster = true;
+			if(RW.READ.equals(rw) && readFromSlave(entry.getValue().keys)){
+				nodePool = selectSlave(nodeGroup.getSlaves());
+			}
+			if(nodePool != null){
+				isMaster = false;
+			}else{
+				nodePool = nodeGroup.getMaster();
+			}
+			batchList.add(entry.getValue());
+			tasks.add(new NodeBatchTask<R>(nodePool, isMaster, callback, entry.getValue().keys, statistic, isMaster ? null : feedback()));
+		}
+		return merge(keys.size(), batchList, invokeAll(tasks));
 	}
 
-	public void setReadFromSlave(boolean isReadFromSlave) {
-		this.isReadFromSlave = isReadFromSlave;
+	/**
+	 * 执行各分片的子请求，设置了ScatterGatherExecutor时并行执行，否则顺序执行。
+	 */
+	private <R> List<List<R>> invokeAll(List<Callable<List<R>>> tasks){
+		if(scatterGatherExecutor != null && tasks.size() > 1){
+			return scatterGatherExecutor.invokeAll(tasks);
+		}
+		List<List<R>> results = new ArrayList<List<R>>(tasks.size());
+		for(Callable<List<R>> task : tasks){
+			try {
+				results.add(task.call());
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new RedisClientRuntimeException(e);
+			}
+		}
+		return results;
 	}
 
-	public void setLoadBalance(LoadBalance loadBalance) {
-		this.loadBalance = loadBalance;
+	/**
+	 * 将各分片的结果按原始位置合并。
+	 */
+	private static <R> List<R> merge(int size, List<KeyBatch> batchList, List<List<R>> batchResults){
+		Object[] results = new Object[size];
+		for(int i = 0; i < batchList.size(); i++){
+			batchList.get(i).merge(batchResults.get(i), results);
+		}
+		return toList(results);
+	}
+
+	/**
+	 * ShardedJedisGroupPool模式下的分片子请求，使用调用线程已选出的jedis。
+	 */
+	private static class GroupBatchTask<R> implements Callable<List<R>> {
+		
+		private final Jedis jedis;
+		
+		private final JedisShardInfo node;
+		
+		private final boolean isMaster;
+		
+		private final MultiKeyJedisCallback<R> callback;
+		
+		private final List<String> keys;
+		
+		private final RedisClientStatistic statistic;
+		
+		private final LoadFeedback feedback;
+		
+		GroupBatchTask(Jedis jedis, JedisShardInfo node, boolean isMaster, MultiKeyJedisCallback<R> callback, List<String> keys, RedisClientStatistic statistic, LoadFeedback feedback){
+			this.jedis = jedis;
+			this.node = node;
+			this.isMaster = isMaster;
+			this.callback = callback;
+			this.keys = keys;
+			this.statistic = statistic;
+			this.feedback = feedback;
+		}
+
+		@Override
+		public List<R> call() {
+			long start = System.nanoTime();
+			long commandStart = 0;
+			Throwable error = null;
+			if(feedback != null){
+				feedback.onStart(node);
+			}
+			try{
+				commandStart = System.nanoTime();
+				return callback.call(jedis, keys);
+			}catch(Throwable e){
+				error = e;
+				throw wrapException(e, jedis, isMaster);
+			}finally{
+				record(statistic, callback, node, start, error);
+				complete(feedback, node, commandStart, error);
+			}
+		}
+		
+	}
+
+	/**
+	 * ShardedJedisNodePool模式下的分片子请求，自行从节点池中申请、归还连接。
+	 */
+	private static class NodeBatchTask<R> implements Callable<List<R>> {
+		
+		private final JedisNodePool nodePool;
+		
+		private final boolean isMaster;
+		
+		private final MultiKeyJedisCallback<R> callback;
+		
+		private final List<String> keys;
+		
+		private final RedisClientStatistic statistic;
+		
+		private final LoadFeedback feedback;
+		
+		NodeBatchTask(JedisNodePool nodePool, boolean isMaster, MultiKeyJedisCallback<R> callback, List<String> keys, RedisClientStatistic statistic, LoadFeedback feedback){
+			this.nodePool = nodePool;
+			this.isMaster = isMaster;
+			this.callback = callback;
+			this.keys = keys;
+			this.statistic = statistic;
+			this.feedback = feedback;
+		}
+
+		@Override
+		public List<R> call() {
+			Jedis jedis = null;
+			long start = System.nanoTime();
+			long commandStart = 0;
+			Throwable error = null;
+			if(feedback != null){
+				feedback.onStart(nodePool.getShardInfo());
+			}
+			try{
+				jedis = nodePool.getResource();
+				commandStart = System.nanoTime();
+				return callback.call(jedis, keys);
+			}catch(Throwable e){
+				error = e;
+				throw wrapException(e, jedis, isMaster);
+			}finally{
+				//归还链接到节点池。
+				if(jedis != null){
+					jedis.close();
+				}
+				record(statistic, callback, nodePool.getShardInfo(), start, error);
+				complete(feedback, nodePool.getShardInfo(), commandStart, error);
+			}
+		}
+		
+	}
+
+	/**
+	 * ShardedJedisNodePool模式下在单个节点上执行的请求，自行从节点池中申请、归还连接。
+	 */
+	private static class NodeTask<R> implements Callable<R> {
+		
+		private final JedisNodePool nodePool;
+		
+		private final boolean isMaster;
+		
+		private final JedisCallback<R> callback;
+		
+		private final RedisClientStatistic statistic;
+		
+		private final LoadFeedback feedback;
+		
+		NodeTask(JedisNodePool nodePool, boolean isMaster, JedisCallback<R> callback, RedisClientStatistic statistic, LoadFeedback feedback){
+			this.nodePool = nodePool;
+			this.isMaster = isMaster;
+			this.callback = callback;
+			this.statistic = statistic;
+			this.feedback = feedback;
+		}
+
+		@Override
+		public R call() {
+			Jedis jedis = null;
+			long start = System.nanoTime();
+			long commandStart = 0;
+			Throwable error = null;
+			if(feedback != null){
+				feedback.onStart(nodePool.getShardInfo());
+			}
+			try{
+				jedis = nodePool.getResource();
+				commandStart = System.nanoTime();
+				return callback.call(jedis);
+			}catch(Throwable e){
+				error = e;
+				throw wrapException(e, jedis, isMaster);
+			}finally{
+				//归还链接到节点池。
+				if(jedis != null){
+					jedis.close();
+				}
+				record(statistic, callback, nodePool.getShardInfo(), start, error);
+				complete(feedback, nodePool.getShardInfo(), commandStart, error);
+			}
+		}
+		
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <R> List<R> toList(Object[] results){
+		return (List<R>) Arrays.asList(results);
+	}
+
+	/**
+	 * 落在同一个分片上的一批键，记录每个键在调用方列表中的位置。
+	 */
+	private static class KeyBatch {
+		
+		private List<String> keys = new ArrayList<String>();
+		
+		private List<Integer> indexes = new ArrayList<Integer>();
+		
+		void add(int index, String key){
+			indexes.add(index);
+			keys.add(key);
+		}
+		
+		/**
+		 * 将本批次的结果按原始位置放回结果数组。
+		 */
+		void merge(List<?> batchResults, Object[] results){
+			if(batchResults == null || batchResults.size() != keys.size()){
+				throw new IllegalStateException("the size of batch results must be equal to the size of keys!");
+			}
+			for(int i = 0; i < indexes.size(); i++){
+				results[indexes.get(i)] = batchResults.get(i);
+			}
+		}
+		
+	}
+
+	/**
+	 * 记录一次调用的统计，命令名取回调所在的方法名。
+	 */
+	private static void record(RedisClientStatistic statistic, Object callback, JedisShardInfo node, long start, Throwable error){
+		if(statistic != null){
+			statistic.record(RedisClientStatistic.commandOf(callback), node, System.nanoTime() - start, error);
+		}
+	}
+
+	/**
+	 * 负载均衡器需要请求反馈时返回反馈接口，否则返回null。
+	 */
+	private LoadFeedback feedback(){
+		LoadBalance current = loadBalance;
+		LoadFeedback balancer = current instanceof LoadFeedback ? (LoadFeedback) current : null;
+		SlaveHealthChecker checker = slaveHealthChecker;
+		return checker == null ? balancer : checker.feedback(balancer);
+	}
+
+	/**
+	 * 选择一个从节点，设置了健康检查时只在未被摘除的从节点中选择，设置了复制延迟监控时只在延迟不超过上限的从节点中选择。
+	 * 
+	 * @return 选出的从节点，没有可用的从节点时返回null，由调用方改为使用主节点。
+	 */
+	private <T> T selectSlave(List<T> slaves){
+		//没有从节点的组getSlaves()返回null。
+		if(slaves == null || slaves.isEmpty()){
+			return null;
+		}
+		SlaveHealthChecker checker = slaveHealthChecker;
+		if(checker != null){
+			if(!checker.isStarted()){
+				checker.start(getGroupShardInfos());
+			}
+			slaves = checker.healthy(slaves);
+			if(slaves.isEmpty()){
+				return null;
+			}
+		}
+		ReplicationLagMonitor monitor = replicationLagMonitor;
+		if(monitor != null){
+			if(!monitor.isStarted()){
+				monitor.start(getGroupShardInfos(), statistic);
+			}
+			slaves = monitor.withinLag(slaves);
+			if(slaves.isEmpty()){
+				return null;
+			}
+		}
+		return balance(loadBalance, slaves);
+	}
+
+	/**
+	 * 用负载均衡器选择节点，只实现了LoadBalance接口的负载均衡器只能在Jedis中选择，其他节点改用默认的随机负载均衡器。
+	 */
+	@SuppressWarnings({"unchecked", "deprecation"})
+	private static <T> T balance(LoadBalance loadBalance, List<T> nodes){
+		if(loadBalance instanceof AbstractLoadBalance){
+			return ((AbstractLoadBalance) loadBalance).selectNode(nodes);
+		}
+		if(nodes.isEmpty() || nodes.get(0) instanceof Jedis){
+			return (T) loadBalance.select((List<Jedis>) nodes);
+		}
+		return DUFAULT_LOADBALANCE.selectNode(nodes);
+	}
+
+	/**
+	 * 通知负载均衡器请求开始在选出的从节点上执行。
+	 * 
+	 * @return 需要在请求结束时通知的反馈接口，不需要反馈时返回null。
+	 */
+	private LoadFeedback startOnSlave(JedisShardInfo slave){
+		LoadFeedback feedback = feedback();
+		if(feedback != null){
+			feedback.onStart(slave);
+		}
+		return feedback;
+	}
+
+	/**
+	 * 通知负载均衡器请求结束，耗时只计算命令本身，不包括从池中申请连接的等待。
+	 * 
+	 * @param commandStart 命令开始执行的时间，为0时表示没有执行到命令，耗时记为0。
+	 */
+	private static void complete(LoadFeedback feedback, JedisShardInfo node, long commandStart, Throwable error){
+		if(feedback != null){
+			long latencyNanos = commandStart == 0 ? 0 : System.nanoTime() - commandStart;
+			feedback.onComplete(node, latencyNanos, isNodeFailure(error));
+		}
+	}
+
+	/**
+	 * 是否是节点本身的故障，只有连接异常和超时算作节点故障。
+	 * <p>WRONGTYPE、参数错误等命令错误与节点健康无关，从池中申请连接超时是连接池耗尽，也不是节点故障。
+	 */
+	private static boolean isNodeFailure(Throwable error){
+		if(error instanceof JedisConnectionException){
+			return !(error.getCause() instanceof NoSuchElementException);
+		}
+		return error instanceof RedisClientTimeoutException;
+	}
+
+	/**
+	 * 异常处理，加入服务器信息，方便程序更好的定位问题。
+	 */
+	private static RedisClientRuntimeException wrapException(Throwable e, Jedis jedis, boolean isMaster){
+		if(jedis == null){
+			return wrapException(e, null, 0, isMaster);
+		}
+		return wrapException(e, jedis.getClient().getHost(), jedis.getClient().getPort(), isMaster);
+	}
+
+	private static RedisClientRuntimeException wrapException(Throwable e, String host, int port, boolean isMaster){
+		String errMsg = null;
+		if(host == null){
+			errMsg = e.getMessage();
+		}else{
+			errMsg = MessageFormat.format(
+					RedisContants.ERR_MSG_TEMPLATE,
+					e.getMessage(),
+					isMaster ? "master" : "slave",
+					host,
+					port);
+		}
+		if(e instanceof RedisClientTimeoutException){
+			return new RedisClientTimeoutException(errMsg, e);
+		}
+		return new RedisClientRuntimeException(errMsg, e);
+	}
+
+	/**
+	 * 阻塞命令的模板执行方法，在键所在分片的主节点上，使用阻塞命令通道的连接执行回调，不占用普通命令的连接池。
+	 * <p>多个键必须在同一个分片上，可以用键标签保证。
+	 * 
+	 * @param keys 阻塞等待的键。
+	 * @param callback 回调接口。
+	 * @return 执行结果。
+	 */
+	public <R> R executeBlocking(List<String> keys, JedisCallback<R> callback){
+		if(keys == null || keys.isEmpty()){
+			throw new IllegalArgumentException("keys of blocking command can't be empty!");
+		}
+		JedisGroupShardInfo shardInfo = null;
+		for(String key : keys){
+			if(key == null || key.trim().length() == 0){
+				throw new IllegalArgumentException("key set to redis can't be null!");
+			}
+			JedisGroupShardInfo keyShardInfo = getShardInfo(key);
+			if(shardInfo != null && shardInfo != keyShardInfo){
+				throw new IllegalArgumentException("keys of blocking command must be on the same shard: " + keys);
+			}
+			shardInfo = keyShardInfo;
+		}
+		for(String key : keys){
+			rememberWrite(key);
+		}
+		Jedis jedis = null;
+		JedisShardInfo master = shardInfo.getMasterInfo();
+		long start = System.nanoTime();
+		Throwable error = null;
+		try{
+			//从阻塞命令通道中申请主节点的连接。
+			jedis = getBlockingLane().getPool(master).getResource();
+			return callback.call(jedis);
+		}catch(Throwable e){
+			error = e;
+			throw wrapException(e, jedis, true);
+		}finally{
+			if(jedis != null){
+				jedis.close();
+			}
+			record(statistic, callback, master, start, error);
+			//阻塞命令取出了列表中的元素。
+			for(String key : keys){
+				written(key);
+			}
+		}
+	}
+
+	/**
+	 * 获取阻塞命令通道，没有设置时在第一次使用时创建默认的通道。
+	 */
+	public BlockingLane getBlockingLane(){
+		BlockingLane lane = blockingLane;
+		if(lane == null){
+			synchronized (this) {
+				lane = blockingLane;
+				if(lane == null){
+					lane = new BlockingLane();
+					blockingLane = lane;
+				}
+			}
+		}
+		return lane;
+	}
+
+	public void setBlockingLane(BlockingLane blockingLane) {
+		this.blockingLane = blockingLane;
+	}
+
+	/**
+	 * 获取分片个数。
+	 */
+	public int getShardCount(){
+		if(shardedJedisNodePool != null){
+			return shardedJedisNodePool.getAllShards().size();
+		}
+		return shardedJedisGroupPool.getShardCount();
+	}
+
+	/**
+	 * 在指定序号的分片上执行回调，用于SCAN等需要逐个遍历分片、与键无关的命令。
+	 * <p>不经过热点键缓存、读请求合并和传输层。
+	 * 
+	 * @param shardIndex 分片序号，从0到getShardCount()-1。
+	 * @param callback 回调接口。
+	 * @return 执行结果。
+	 */
+	public <R> R executeOnShard(int shardIndex, JedisCallback<R> callback, RW rw){
+		if(shardIndex < 0 || shardIndex >= getShardCount()){
+			throw new IllegalArgumentException("shardIndex " + shardIndex + " out of range!");
+		}
+		if(shardedJedisNodePool != null){
+			return executeOnNodeGroup(elementAt(shardedJedisNodePool.getAllShards(), shardIndex), callback, rw);
+		}
+		Jedis jedis = null;
+		ShardedGroupJedis shardedGroupJedis = null;
+		JedisGroup jedisGroup = null;
+		boolean isMaster = true;
+		LoadFeedback feedback = null;
+		long start = System.nanoTime();
+		long commandStart = 0;
+		Throwable error = null;
+		try{
+			//从jedis池中申请一个jedis资源。
+			shardedGroupJedis = shardedJedisGroupPool.getResource();
+			jedisGroup = elementAt(shardedGroupJedis.getAllShards(), shardIndex);
+			if(RW.READ.equals(rw) && isReadFromSlave){
+				jedis = selectSlave(jedisGroup.getSlaves());
+			}
+			if(jedis != null){
+				isMaster = false;
+				feedback = startOnSlave(jedisGroup.getShardInfo(jedis));
+			}else{
+				jedis = jedisGroup.getMaster();
+			}
+			commandStart = System.nanoTime();
+			return callback.call(jedis);
+		}catch(Throwable e){
+			error = e;
+			throw wrapException(e, jedis, isMaster);
+		}finally{
+			//归还链接到jedis池。
+			if(shardedGroupJedis != null){
+				shardedGroupJedis.close();
+			}
+			record(statistic, callback, jedisGroup == null ? null : jedisGroup.getShardInfo(jedis), start, error);
+			complete(feedback, jedisGroup == null ? null : jedisGroup.getShardInfo(jedis), commandStart, error);
+		}
+	}
+
+	private <R> R executeOnNodeGroup(JedisNodeGroup nodeGroup, JedisCallback<R> callback, RW rw){
+		Jedis jedis = null;
+		JedisNodePool nodePool = null;
+		boolean isMaster = true;
+		LoadFeedback feedback = null;
+		long start = System.nanoTime();
+		long commandStart = 0;
+		Throwable error = null;
+		try{
+			if(RW.READ.equals(rw) && isReadFromSlave){
+				nodePool = selectSlave(nodeGroup.getSlaves());
+			}
+			if(nodePool != null){
+				isMaster = false;
+				feedback = startOnSlave(nodePool.getShardInfo());
+			}else{
+				nodePool = nodeGroup.getMaster();
+			}
+			//从节点池中申请一个jedis资源。
+			jedis = nodePool.getResource();
+			commandStart = System.nanoTime();
+			return callback.call(jedis);
+		}catch(Throwable e){
+			error = e;
+			throw wrapException(e, jedis, isMaster);
+		}finally{
+			//归还链接到节点池。
+			if(jedis != null){
+				jedis.close();
+			}
+			record(statistic, callback, nodePool == null ? null : nodePool.getShardInfo(), start, error);
+			complete(feedback, nodePool == null ? null : nodePool.getShardInfo(), commandStart, error);
+		}
+	}
+
+	/**
+	 * 为游标类命令和分页读取选择键所在分片的读节点，读写分离时在可用的从节点中选择，否则为主节点。
+	 * <p>SCAN系列命令的游标只在发出它的节点上有效，按下标分页读取在不同从节点上可能错位，
+	 * 整个遍历过程应通过executeOnFixedNode固定在选出的节点上执行。
+	 * 
+	 * @param key 键。
+	 * @return 选出的节点。
+	 */
+	public JedisShardInfo selectReadNode(String key){
+		if(key == null || key.trim().length() == 0){
+			throw new IllegalArgumentException("key set to redis can't be null!");
+		}
+		if(shardedJedisNodePool != null){
+			return selectReadNode(shardedJedisNodePool.getShard(key), readFromSlave(key));
+		}
+		ShardedGroupJedis shardedGroupJedis = null;
+		try{
+			shardedGroupJedis = shardedJedisGroupPool.getResource();
+			return selectReadNode(shardedGroupJedis.getShard(key), readFromSlave(key));
+		}catch(Throwable e){
+			throw wrapException(e, null, true);
+		}finally{
+			if(shardedGroupJedis != null){
+				shardedGroupJedis.close();
+			}
+		}
+	}
+
+	/**
+	 * 为游标类命令选择指定序号分片的读节点，用于SCAN等与键无关的命令。
+	 * 
+	 * @param shardIndex 分片序号，从0到getShardCount()-1。
+	 * @return 选出的节点。
+	 * @see #selectReadNode(String)
+	 */
+	public JedisShardInfo selectReadNode(int shardIndex){
+		if(shardIndex < 0 || shardIndex >= getShardCount()){
+			throw new IllegalArgumentException("shardIndex " + shardIndex + " out of range!");
+		}
+		if(shardedJedisNodePool != null){
+			return selectReadNode(elementAt(shardedJedisNodePool.getAllShards(), shardIndex), isReadFromSlave);
+		}
+		ShardedGroupJedis shardedGroupJedis = null;
+		try{
+			shardedGroupJedis = shardedJedisGroupPool.getResource();
+			return selectReadNode(elementAt(shardedGroupJedis.getAllShards(), shardIndex), isReadFromSlave);
+		}catch(Throwable e){
+			throw wrapException(e, null, true);
+		}finally{
+			if(shardedGroupJedis != null){
+				shardedGroupJedis.close();
+			}
+		}
+	}
+
+	private JedisShardInfo selectReadNode(JedisNodeGroup nodeGroup, boolean fromSlave){
+		JedisNodePool nodePool = fromSlave ? selectSlave(nodeGroup.getSlaves()) : null;
+		return nodePool != null ? nodePool.getShardInfo() : nodeGroup.getMaster().getShardInfo();
+	}
+
+	private JedisShardInfo selectReadNode(JedisGroup jedisGroup, boolean fromSlave){
+		List<Jedis> slaves = jedisGroup.getSlaves();
+		Jedis jedis = fromSlave && slaves != null && !slaves.isEmpty() ? selectSlave(slaves) : null;
+		return jedisGroup.getShardInfo(jedis != null ? jedis : jedisGroup.getMaster());
+	}
+
+	/**
+	 * 在指定的节点上执行读回调，用于SCAN系列等游标只在发出它的节点上有效的命令。
+	 * <p>不经过热点键缓存、读请求合并、传输层和对冲请求，节点不可用时直接失败，不切换到其他节点。
+	 * 
+	 * @param node selectReadNode选出的节点。
+	 * @param callback 回调接口。
+	 * @return 执行结果。
+	 */
+	public <R> R executeOnFixedNode(JedisShardInfo node, JedisCallback<R> callback){
+		if(node == null){
+			throw new IllegalArgumentException("node can't be null！");
+		}
+		Jedis jedis = null;
+		ShardedGroupJedis shardedGroupJedis = null;
+		JedisNodePool nodePool = null;
+		boolean isMaster = true;
+		LoadFeedback feedback = null;
+		long start = System.nanoTime();
+		long commandStart = 0;
+		Throwable error = null;
+		try{
+			if(shardedJedisNodePool != null){
+				for(JedisNodeGroup nodeGroup : shardedJedisNodePool.getAllShards()){
+					nodePool = nodeGroup.getNodePool(node);
+					if(nodePool != null){
+						isMaster = nodePool == nodeGroup.getMaster();
+						break;
+					}
+				}
+			}else{
+				//从jedis池中申请一个jedis资源。
+				shardedGroupJedis = shardedJedisGroupPool.getResource();
+				for(JedisGroup jedisGroup : shardedGroupJedis.getAllShards()){
+					jedis = jedisGroup.getJedis(node);
+					if(jedis != null){
+						isMaster = jedis == jedisGroup.getMaster();
+						break;
+					}
+				}
+			}
+			if(nodePool == null && jedis == null){
+				throw new IllegalArgumentException("node " + node.getHost() + ":" + node.getPort() + " doesn't belong to any shard!");
+			}
+			if(!isMaster){
+				feedback = startOnSlave(node);
+			}
+			if(nodePool != null){
+				//从节点池中申请一个jedis资源。
+				jedis = nodePool.getResource();
+			}
+			commandStart = System.nanoTime();
+			return callback.call(jedis);
+		}catch(Throwable e){
+			error = e;
+			throw wrapException(e, jedis, isMaster);
+		}finally{
+			//归还链接。
+			if(shardedGroupJedis != null){
+				shardedGroupJedis.close();
+			}else if(jedis != null){
+				jedis.close();
+			}
+			record(statistic, callback, node, start, error);
+			complete(feedback, node, commandStart, error);
+		}
+	}
+
+	private static <T> T elementAt(Collection<T> shards, int index){
+		Iterator<T> iterator = shards.iterator();
+		for(int i = 0; i < index; i++){
+			iterator.next();
+		}
+		return iterator.next();
+	}
+
+	/**
+	 * 获取键所在分片的信息，只计算分片，不申请连接。
+	 * 
+	 * @param key 键。
+	 * @return 分片信息。
+	 */
+	public JedisGroupShardInfo getShardInfo(String key){
+		if(shardedJedisNodePool != null){
+			return shardedJedisNodePool.getShardInfo(key).getGroupShardInfo();
+		}
+		return shardedJedisGroupPool.getShardInfo(key);
+	}
+
+	/**
+	 * 获取所有分片的信息，每个分片只出现一次。
+	 */
+	public List<JedisGroupShardInfo> getGroupShardInfos(){
+		if(shardedJedisNodePool != null){
+			//哈希环上的虚拟节点，同一个分片会出现多次。
+			Set<JedisGroupShardInfo> groups = new LinkedHashSet<JedisGroupShardInfo>();
+			for(JedisNodeGroupShardInfo shardInfo : shardedJedisNodePool.getAllShardInfo()){
+				groups.add(shardInfo.getGroupShardInfo());
+			}
+			return new ArrayList<JedisGroupShardInfo>(groups);
+		}
+		return new ArrayList<JedisGroupShardInfo>(shardedJedisGroupPool.getAllShardInfo());
+	}
+
+	public void setShardedJedisGroupPool(ShardedJedisGroupPool shardedJedisGroupPool) {
+		this.shardedJedisGroupPool = shardedJedisGroupPool;
+	}
+
+	public void setShardedJedisNodePool(ShardedJedisNodePool shardedJedisNodePool) {
+		this.shardedJedisNodePool = shardedJedisNodePool;
+	}
+
+	public void setReadFromSlave(boolean isReadFromSlave) {
+		this.isReadFromSlave = isReadFromSlave;
+	}
+
+	public SlaveHealthChecker getSlaveHealthChecker() {
+		return slaveHealthChecker;
+	}
+
+	public void setSlaveHealthChecker(SlaveHealthChecker slaveHealthChecker) {
+		this.slaveHealthChecker = slaveHealthChecker;
+	}
+
+	public ReplicationLagMonitor getReplicationLagMonitor() {
+		return replicationLagMonitor;
+	}
+
+	public void setReplicationLagMonitor(ReplicationLagMonitor replicationLagMonitor) {
+		this.replicationLagMonitor = replicationLagMonitor;
+	}
+
+	public RecentWriteFilter getRecentWriteFilter() {
+		return recentWriteFilter;
+	}
+
+	public void setRecentWriteFilter(RecentWriteFilter recentWriteFilter) {
+		this.recentWriteFilter = recentWriteFilter;
+	}
+
+	public ValueCompressor getValueCompressor() {
+		return valueCompressor;
+	}
+
+	public void setValueCompressor(ValueCompressor valueCompressor) {
+		this.valueCompressor = valueCompressor;
+	}
+
+	public HedgePolicy getHedgePolicy() {
+		return hedgePolicy;
+	}
+
+	public void setHedgePolicy(HedgePolicy hedgePolicy) {
+		this.hedgePolicy = hedgePolicy;
+	}
+
+	public void setLoadBalance(LoadBalance loadBalance) {
+		this.loadBalance = loadBalance;
+	}
+
+	public void setScatterGatherExecutor(ScatterGatherExecutor scatterGatherExecutor) {
+		this.scatterGatherExecutor = scatterGatherExecutor;
+	}
+
+	public void setTransport(RedisTransport transport) {
+		this.transport = transport;
+	}
+
+	public RedisClientStatistic getStatistic() {
+		return statistic;
+	}
+
+	public void setStatistic(RedisClientStatistic statistic) {
+		this.statistic = statistic;
+	}
+
+	/**
+	 * 设置是否合并并发的相同读请求。
+	 */
+	public void setSingleFlight(boolean singleFlight) {
+		this.singleFlight = singleFlight ? new SingleFlight() : null;
+	}
+
+	/**
+	 * 获取共享了其他请求结果的读请求数，未开启读请求合并时返回0。
+	 */
+	public long getSingleFlightSharedCount() {
+		SingleFlight singleFlight = this.singleFlight;
+		return singleFlight == null ? 0 : singleFlight.getSharedCount();
+	}
+
+	public HotKeyDetector getHotKeyDetector() {
+		return hotKeyDetector;
+	}
+
+	/**
+	 * 设置热点键探测器，未设置热点键缓存时使用默认容量和1秒过期时间的缓存。
+	 */
+	public void setHotKeyDetector(HotKeyDetector hotKeyDetector) {
+		if(hotKeyDetector != null && hotKeyCache == null){
+			hotKeyCache = new NearCache(DEFAULT_HOT_KEY_CACHE_WEIGHT, DEFAULT_HOT_KEY_CACHE_TTL);
+		}
+		this.hotKeyDetector = hotKeyDetector;
+	}
+
+	public NearCache getHotKeyCache() {
+		return hotKeyCache;
+	}
+
+	/**
+	 * 设置热点键缓存，不能为null，不需要缓存时应移除热点键探测器。
+	 */
+	public void setHotKeyCache(NearCache hotKeyCache) {
+		if(hotKeyCache == null){
+			throw new IllegalArgumentException("hotKeyCache can't be null！");
+		}
+		this.hotKeyCache = hotKeyCache;
 	}
 	
 }
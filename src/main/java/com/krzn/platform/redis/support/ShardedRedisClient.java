@@ -4,13 +4,25 @@
 
 package com.krzn.platform.redis.support;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
+import com.google.common.collect.Iterators;
 import com.krzn.platform.redis.*;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
 import redis.clients.jedis.SortingParams;
 import redis.clients.jedis.Tuple;
 
@@ -28,6 +40,16 @@ public class ShardedRedisClient implements RedisClient {
 	 */
 	private ShardedJedisTemplate template;
 	
+	/**
+	 * getOrLoad的实现，通过本客户端读写缓存。
+	 */
+	private final CacheAsideLoader cacheAsideLoader = new CacheAsideLoader(this);
+	
+	/**
+	 * 分页读取时预读下一页的线程池，为null时不预读。
+	 */
+	private volatile ExecutorService prefetchExecutor = PagedIterator.DEFAULT_EXECUTOR;
+	
 	public ShardedRedisClient(ShardedJedisTemplate template) {
 		super();
 		this.template = template;
@@ -39,13 +61,52 @@ public class ShardedRedisClient implements RedisClient {
 	public void setTemplate(ShardedJedisTemplate template) {
 		this.template = template;
 	}
+	
+	public ShardedJedisTemplate getTemplate() {
+		return template;
+	}
+	
+	/**
+	 * 获取getOrLoad使用的加载器，用于设置后台刷新线程池、加载锁过期时间等。
+	 */
+	public CacheAsideLoader getCacheAsideLoader() {
+		return cacheAsideLoader;
+	}
+	
+	/**
+	 * 设置字符串类型值的压缩，对byte[]值的set、setex、setnx、getSet、msetex写入和get、mget、getSet读取生效，
+	 * 哈希、列表等其他类型的值不压缩。为null时不压缩也不解压。
+	 * <p>压缩设置在模板上，包装同一模板的所有客户端共享；同一组键的所有读写方需要一致地开启压缩。
+	 * @see ShardedJedisTemplate#setValueCompressor(ValueCompressor)
+	 */
+	public void setValueCompressor(ValueCompressor valueCompressor) {
+		template.setValueCompressor(valueCompressor);
+	}
+	
+	public ValueCompressor getValueCompressor() {
+		return template.getValueCompressor();
+	}
+	
+	/**
+	 * 设置分页读取时预读下一页的线程池，为null时不预读。
+	 */
+	public void setPrefetchExecutor(ExecutorService prefetchExecutor) {
+		this.prefetchExecutor = prefetchExecutor;
+	}
 
 	@Override
 	public void set(final String key, final String value) {
-		template.execute(key, new JedisCallback<Void>() {
+		template.execute(key, new CoalescableJedisCallback<String, Void>() {
 			@Override
 			public Void call(Jedis jedis) {
-				String reply = jedis.set(key, value);
+				return convert(jedis.set(key, value));
+			}
+			@Override
+			public Response<String> call(Pipeline pipeline) {
+				return pipeline.set(key, value);
+			}
+			@Override
+			public Void convert(String reply) {
 				if(!RedisContants.REDIS_REPLY_STATUS_OK.equals(reply)){
 					throw new RedisClientRuntimeException("the reply of set is ["+reply+"]");
 				}
@@ -56,20 +117,36 @@ public class ShardedRedisClient implements RedisClient {
 
 	@Override
 	public String getString(final String key) {
-		return template.execute(key, new JedisCallback<String>() {
+		return template.execute(key, new CoalescableJedisCallback<String, String>() {
 			@Override
 			public String call(Jedis jedis) {
 				return jedis.get(key);
 			}
+			@Override
+			public Response<String> call(Pipeline pipeline) {
+				return pipeline.get(key);
+			}
+			@Override
+			public Object getCacheView() {
+				return "getString";
+			}
 		}, RW.READ);
 	}
 
 	@Override
 	public void set(final String key, final byte[] value) {
-		template.execute(key, new JedisCallback<Void>() {
+		final byte[] data = compress(value);
+		template.execute(key, new CoalescableJedisCallback<String, Void>() {
 			@Override
 			public Void call(Jedis jedis) {
-				String reply = jedis.set(key.getBytes(RedisContants.CS_UTF8), value);
+				return convert(jedis.set(key.getBytes(RedisContants.CS_UTF8), data));
+			}
+			@Override
+			public Response<String> call(Pipeline pipeline) {
+				return pipeline.set(key.getBytes(RedisContants.CS_UTF8), data);
+			}
+			@Override
+			public Void convert(String reply) {
 				if(!RedisContants.REDIS_REPLY_STATUS_OK.equals(reply)){
 					throw new RedisClientRuntimeException("the reply of set is ["+reply+"]");
 				}
@@ -80,28 +157,39 @@ public class ShardedRedisClient implements RedisClient {
 
 	@Override
 	public byte[] get(final String key) {
-		return template.execute(key, new JedisCallback<byte[]>() {
+		return decompress(template.execute(key, new CoalescableJedisCallback<byte[], byte[]>() {
 			@Override
 			public byte[] call(Jedis jedis) {
 				return jedis.get(key.getBytes(RedisContants.CS_UTF8));
 			}
-		}, RW.READ);
+			@Override
+			public Response<byte[]> call(Pipeline pipeline) {
+				return pipeline.get(key.getBytes(RedisContants.CS_UTF8));
+			}
+			@Override
+			public Object getCacheView() {
+				return "get";
+			}
+		}, RW.READ));
 	}
 	
 	@Override
 	public long delete(final String key) {
-		return template.execute(key, new JedisCallback<Long>() {
+		return template.execute(key, new CoalescableJedisCallback<Long, Long>() {
 			@Override
 			public Long call(Jedis jedis) {
 				return jedis.del(key);
 			}
+			@Override
+			public Response<Long> call(Pipeline pipeline) {
+				return pipeline.del(key);
+			}
 		}, RW.WRITE);
 	}
 
 	@Override
 	public RedisClientStatistic getStatistic() {
-		// FIXME 添加一些客户端监控数据。
-		return null;
+		return template.getStatistic();
 	}
 
 	@Override
@@ -145,13 +233,14 @@ public class ShardedRedisClient implements RedisClient {
 
 	@Override
 	public boolean set(final String key, final byte[] value, final NX nx) {
+		final byte[] data = compress(value);
 		return template.execute(key, new JedisCallback<Boolean>() {
 			@Override
 			public Boolean call(Jedis jedis) {
 				if(nx == null){
 					throw new IllegalArgumentException("option:[NX] of set can't be null!");
 				}
-				String reply = jedis.set(key.getBytes(RedisContants.CS_UTF8), value, nx.getCode().getBytes(RedisContants.CS_UTF8));
+				String reply = jedis.set(key.getBytes(RedisContants.CS_UTF8), data, nx.getRaw());
 				if(RedisContants.REDIS_REPLY_STATUS_OK.equals(reply)){
 					return true;
 				}else{
@@ -163,6 +252,7 @@ public class ShardedRedisClient implements RedisClient {
 
 	@Override
 	public boolean set(final String key, final byte[] value, final NX nx, final TimeUnit timeUnit, final long expires) {
+		final byte[] data = compress(value);
 		return template.execute(key, new JedisCallback<Boolean>() {
 			@Override
 			public Boolean call(Jedis jedis) {
@@ -172,7 +262,7 @@ public class ShardedRedisClient implements RedisClient {
 				if(timeUnit == null){
 					throw new IllegalArgumentException("option:[TimeUnit] of set can't be null!");
 				}
-				String reply = jedis.set(key.getBytes(RedisContants.CS_UTF8), value, nx.getCode().getBytes(RedisContants.CS_UTF8), timeUnit.getUnit().getBytes(RedisContants.CS_UTF8), expires);
+				String reply = jedis.set(key.getBytes(RedisContants.CS_UTF8), data, nx.getRaw(), timeUnit.getRaw(), expires);
 				if(RedisContants.REDIS_REPLY_STATUS_OK.equals(reply)){
 					return true;
 				}else{
@@ -184,21 +274,29 @@ public class ShardedRedisClient implements RedisClient {
 
 	@Override
 	public boolean exists(final String key) {
-		return template.execute(key, new JedisCallback<Boolean>() {
+		return template.execute(key, new CoalescableJedisCallback<Boolean, Boolean>() {
 			@Override
 			public Boolean call(Jedis jedis) {
 				return jedis.exists(key);
 			}
+			@Override
+			public Response<Boolean> call(Pipeline pipeline) {
+				return pipeline.exists(key);
+			}
 		}, RW.READ);
 	}
 
 	@Override
 	public long incr(final String key) {
-		return template.execute(key, new JedisCallback<Long>() {
+		return template.execute(key, new CoalescableJedisCallback<Long, Long>() {
 			@Override
 			public Long call(Jedis jedis) {
 				return jedis.incr(key);
 			}
+			@Override
+			public Response<Long> call(Pipeline pipeline) {
+				return pipeline.incr(key);
+			}
 		}, RW.WRITE);
 	}
 
@@ -297,21 +395,37 @@ public class ShardedRedisClient implements RedisClient {
 
 	@Override
 	public String hgetString(final String key, final String field) {
-		return template.execute(key, new JedisCallback<String>() {
+		return template.execute(key, new CoalescableJedisCallback<String, String>() {
 			@Override
 			public String call(Jedis jedis) {
 				return jedis.hget(key, field);
 			}
+			@Override
+			public Response<String> call(Pipeline pipeline) {
+				return pipeline.hget(key, field);
+			}
+			@Override
+			public Object getCacheView() {
+				return "hgetString:" + field;
+			}
 		}, RW.READ);
 	}
 
 	@Override
 	public byte[] hget(final String key, final String field) {
-		return template.execute(key, new JedisCallback<byte[]>() {
+		return template.execute(key, new CoalescableJedisCallback<byte[], byte[]>() {
 			@Override
 			public byte[] call(Jedis jedis) {
 				return jedis.hget(key.getBytes(RedisContants.CS_UTF8), field.getBytes(RedisContants.CS_UTF8));
 			}
+			@Override
+			public Response<byte[]> call(Pipeline pipeline) {
+				return pipeline.hget(key.getBytes(RedisContants.CS_UTF8), field.getBytes(RedisContants.CS_UTF8));
+			}
+			@Override
+			public Object getCacheView() {
+				return "hget:" + field;
+			}
 		}, RW.READ);
 	}
 
@@ -363,11 +477,7 @@ public class ShardedRedisClient implements RedisClient {
 				if(fieldValues == null || fieldValues.isEmpty()){
 					throw new IllegalArgumentException("fieldvalues of hmset can't be null!");
 				}
-				HashMap<byte[], byte[]> hash = new HashMap<byte[], byte[]>(fieldValues.size(), 1.0f);
-				for(String field : fieldValues.keySet()){
-					hash.put(field.getBytes(RedisContants.CS_UTF8), fieldValues.get(field));
-				}
-				String reply = jedis.hmset(key.getBytes(RedisContants.CS_UTF8), hash);
+				String reply = jedis.hmset(key.getBytes(RedisContants.CS_UTF8), new EncodedKeyMap(fieldValues));
 				if(!RedisContants.REDIS_REPLY_STATUS_OK.equals(reply)){
 					throw new RedisClientRuntimeException("the reply of hmset is ["+reply+"]");
 				}
@@ -459,10 +569,11 @@ public class ShardedRedisClient implements RedisClient {
 
 	@Override
 	public boolean setnx(final String key, final byte[] value) {
+		final byte[] data = compress(value);
 		return template.execute(key, new JedisCallback<Boolean>() {
 			@Override
 			public Boolean call(Jedis jedis) {
-				return jedis.setnx(key.getBytes(RedisContants.CS_UTF8), value).intValue() == 1;
+				return jedis.setnx(key.getBytes(RedisContants.CS_UTF8), data).intValue() == 1;
 			}
 		}, RW.WRITE);
 	}
@@ -479,12 +590,13 @@ public class ShardedRedisClient implements RedisClient {
 
 	@Override
 	public byte[] getSet(final String key, final byte[] value) {
-		return template.execute(key, new JedisCallback<byte[]>() {
+		final byte[] data = compress(value);
+		return decompress(template.execute(key, new JedisCallback<byte[]>() {
 			@Override
 			public byte[] call(Jedis jedis) {
-				return jedis.getSet(key.getBytes(RedisContants.CS_UTF8), value);
+				return jedis.getSet(key.getBytes(RedisContants.CS_UTF8), data);
 			}
-		}, RW.WRITE);
+		}, RW.WRITE));
 	}
 
 	@Override
@@ -763,40 +875,55 @@ public class ShardedRedisClient implements RedisClient {
 	
 	@Override
 	public boolean expire(final String key, final int seconds) {
-		return template.execute(key, new JedisCallback<Boolean>() {
+		return template.execute(key, new CoalescableJedisCallback<Long, Boolean>() {
 			@Override
 			public Boolean call(Jedis jedis) {
-				return jedis.expire(key, seconds) == 1;
+				return convert(jedis.expire(key, seconds));
+			}
+			@Override
+			public Response<Long> call(Pipeline pipeline) {
+				return pipeline.expire(key, seconds);
+			}
+			@Override
+			public Boolean convert(Long reply) {
+				return reply == 1;
 			}
 		}, RW.WRITE);
 	}
 
 	@Override
 	public boolean setex(final String key, final String value, final int expires) {
-		return template.execute(key, new JedisCallback<Boolean>() {
+		return template.execute(key, new CoalescableJedisCallback<String, Boolean>() {
 			@Override
 			public Boolean call(Jedis jedis) {
-				String reply = jedis.setex(key, expires, value);
-				if(RedisContants.REDIS_REPLY_STATUS_OK.equals(reply)){
-					return true;
-				}else{
-					return false;
-				}
+				return convert(jedis.setex(key, expires, value));
+			}
+			@Override
+			public Response<String> call(Pipeline pipeline) {
+				return pipeline.setex(key, expires, value);
+			}
+			@Override
+			public Boolean convert(String reply) {
+				return RedisContants.REDIS_REPLY_STATUS_OK.equals(reply);
 			}
 		}, RW.WRITE);
 	}
 
 	@Override
 	public boolean setex(final String key, final byte[] value, final int expires) {
-		return template.execute(key, new JedisCallback<Boolean>() {
+		final byte[] data = compress(value);
+		return template.execute(key, new CoalescableJedisCallback<String, Boolean>() {
 			@Override
 			public Boolean call(Jedis jedis) {
-				String reply = jedis.setex(key.getBytes(RedisContants.CS_UTF8), expires, value);
-				if(RedisContants.REDIS_REPLY_STATUS_OK.equals(reply)){
-					return true;
-				}else{
-					return false;
-				}
+				return convert(jedis.setex(key.getBytes(RedisContants.CS_UTF8), expires, data));
+			}
+			@Override
+			public Response<String> call(Pipeline pipeline) {
+				return pipeline.setex(key.getBytes(RedisContants.CS_UTF8), expires, data);
+			}
+			@Override
+			public Boolean convert(String reply) {
+				return RedisContants.REDIS_REPLY_STATUS_OK.equals(reply);
 			}
 		}, RW.WRITE);
 	}
@@ -981,53 +1108,53 @@ public class ShardedRedisClient implements RedisClient {
 
 	@Override
 	public String blpopString(final String key) {
-		return template.execute(key, new JedisCallback<String>() {
+		return template.executeBlocking(Collections.singletonList(key), new JedisCallback<String>() {
 			@Override
 			public String call(Jedis jedis) {
 				List<String> result = jedis.blpop(Integer.MAX_VALUE, key);
 				return result.get(1);
 			}
-		}, RW.READ);
+		});
 	}
 
 	@Override
 	public byte[] blpop(final String key) {
-		return template.execute(key, new JedisCallback<byte[]>() {
+		return template.executeBlocking(Collections.singletonList(key), new JedisCallback<byte[]>() {
 			@Override
 			public byte[] call(Jedis jedis) {
 				byte[][] oneKey = new byte[][]{key.getBytes(RedisContants.CS_UTF8)};
 				List<byte[]> result = jedis.blpop(Integer.MAX_VALUE, oneKey);
 				return result.get(1);
 			}
-		}, RW.READ);
+		});
 	}
 
 	@Override
 	public String brpopString(final String key) {
-		return template.execute(key, new JedisCallback<String>() {
+		return template.executeBlocking(Collections.singletonList(key), new JedisCallback<String>() {
 			@Override
 			public String call(Jedis jedis) {
 				List<String> result = jedis.brpop(Integer.MAX_VALUE, key);
 				return result.get(1);
 			}
-		}, RW.READ);
+		});
 	}
 
 	@Override
 	public byte[] brpop(final String key) {
-		return template.execute(key, new JedisCallback<byte[]>() {
+		return template.executeBlocking(Collections.singletonList(key), new JedisCallback<byte[]>() {
 			@Override
 			public byte[] call(Jedis jedis) {
 				byte[][] oneKey = new byte[][]{key.getBytes(RedisContants.CS_UTF8)};
 				List<byte[]> result = jedis.brpop(Integer.MAX_VALUE, oneKey);
 				return result.get(1);
 			}
-		}, RW.READ);
+		});
 	}
 
 	@Override
 	public String blpopString(final String key, final int timeout) {
-		return template.execute(key, new JedisCallback<String>() {
+		return template.executeBlocking(Collections.singletonList(key), new JedisCallback<String>() {
 			@Override
 			public String call(Jedis jedis) {
 				List<String> result = jedis.blpop(timeout, key);
@@ -1037,12 +1164,12 @@ public class ShardedRedisClient implements RedisClient {
 				}
 				return result.get(1);
 			}
-		}, RW.READ);
+		});
 	}
 
 	@Override
 	public byte[] blpop(final String key, final int timeout) {
-		return template.execute(key, new JedisCallback<byte[]>() {
+		return template.executeBlocking(Collections.singletonList(key), new JedisCallback<byte[]>() {
 			@Override
 			public byte[] call(Jedis jedis) {
 				byte[][] oneKey = new byte[][]{key.getBytes(RedisContants.CS_UTF8)};
@@ -1053,12 +1180,12 @@ public class ShardedRedisClient implements RedisClient {
 				}
 				return result.get(1);
 			}
-		}, RW.READ);
+		});
 	}
 
 	@Override
 	public String brpopString(final String key, final int timeout) {
-		return template.execute(key, new JedisCallback<String>() {
+		return template.executeBlocking(Collections.singletonList(key), new JedisCallback<String>() {
 			@Override
 			public String call(Jedis jedis) {
 				List<String> result = jedis.brpop(timeout, key);
@@ -1068,12 +1195,12 @@ public class ShardedRedisClient implements RedisClient {
 				}
 				return result.get(1);
 			}
-		}, RW.READ);
+		});
 	}
 
 	@Override
 	public byte[] brpop(final String key, final int timeout) {
-		return template.execute(key, new JedisCallback<byte[]>() {
+		return template.executeBlocking(Collections.singletonList(key), new JedisCallback<byte[]>() {
 			@Override
 			public byte[] call(Jedis jedis) {
 				byte[][] oneKey = new byte[][]{key.getBytes(RedisContants.CS_UTF8)};
@@ -1084,7 +1211,7 @@ public class ShardedRedisClient implements RedisClient {
 				}
 				return result.get(1);
 			}
-		}, RW.READ);
+		});
 	}
 
 	@Override
@@ -1158,5 +1285,468 @@ public class ShardedRedisClient implements RedisClient {
 			}
 		}, RW.READ);
 	}
+
+	@Override
+	public List<String> mgetString(final List<String> keys) {
+		return template.execute(keys, new MultiKeyJedisCallback<String>() {
+			@Override
+			public List<String> call(Jedis jedis, List<String> shardKeys) {
+				return jedis.mget(shardKeys.toArray(new String[shardKeys.size()]));
+			}
+		}, RW.READ);
+	}
+
+	@Override
+	public List<byte[]> mget(final List<String> keys) {
+		List<byte[]> values = template.execute(keys, new MultiKeyJedisCallback<byte[]>() {
+			@Override
+			public List<byte[]> call(Jedis jedis, List<String> shardKeys) {
+				int length = shardKeys.size();
+				byte[] ks[] = new byte[length][];
+				for(int i=0;i<length;i++){
+					ks[i] = shardKeys.get(i).getBytes(RedisContants.CS_UTF8);
+				}
+				return jedis.mget(ks);
+			}
+		}, RW.READ);
+		if(template.getValueCompressor() != null){
+			for(int i = 0; i < values.size(); i++){
+				values.set(i, decompress(values.get(i)));
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public boolean msetexString(final Map<String, String> keyValues, final int expires) {
+		if(keyValues == null || keyValues.isEmpty()){
+			throw new IllegalArgumentException("keyValues of msetex can't be empty!");
+		}
+		List<Boolean> replies = template.execute(new ArrayList<String>(keyValues.keySet()), new MultiKeyJedisCallback<Boolean>() {
+			@Override
+			public List<Boolean> call(Jedis jedis, List<String> shardKeys) {
+				Pipeline pipeline = jedis.pipelined();
+				List<Response<String>> responses = new ArrayList<Response<String>>(shardKeys.size());
+				for(String key : shardKeys){
+					responses.add(pipeline.setex(key, expires, keyValues.get(key)));
+				}
+				pipeline.sync();
+				return toStatusList(responses);
+			}
+		}, RW.WRITE);
+		return !replies.contains(Boolean.FALSE);
+	}
+
+	@Override
+	public boolean msetex(final Map<String, byte[]> keyValues, final int expires) {
+		if(keyValues == null || keyValues.isEmpty()){
+			throw new IllegalArgumentException("keyValues of msetex can't be empty!");
+		}
+		List<Boolean> replies = template.execute(new ArrayList<String>(keyValues.keySet()), new MultiKeyJedisCallback<Boolean>() {
+			@Override
+			public List<Boolean> call(Jedis jedis, List<String> shardKeys) {
+				Pipeline pipeline = jedis.pipelined();
+				List<Response<String>> responses = new ArrayList<Response<String>>(shardKeys.size());
+				for(String key : shardKeys){
+					responses.add(pipeline.setex(key.getBytes(RedisContants.CS_UTF8), expires, compress(keyValues.get(key))));
+				}
+				pipeline.sync();
+				return toStatusList(responses);
+			}
+		}, RW.WRITE);
+		return !replies.contains(Boolean.FALSE);
+	}
+
+	@Override
+	public long mdelete(final Collection<String> keys) {
+		if(keys == null || keys.isEmpty()){
+			throw new IllegalArgumentException("keys of mdelete can't be empty!");
+		}
+		List<Long> replies = template.execute(new ArrayList<String>(keys), new MultiKeyJedisCallback<Long>() {
+			@Override
+			public List<Long> call(Jedis jedis, List<String> shardKeys) {
+				Pipeline pipeline = jedis.pipelined();
+				List<Response<Long>> responses = new ArrayList<Response<Long>>(shardKeys.size());
+				for(String key : shardKeys){
+					responses.add(pipeline.del(key));
+				}
+				pipeline.sync();
+				List<Long> result = new ArrayList<Long>(responses.size());
+				for(Response<Long> response : responses){
+					result.add(response.get());
+				}
+				return result;
+			}
+		}, RW.WRITE);
+		long count = 0;
+		for(Long reply : replies){
+			count += reply;
+		}
+		return count;
+	}
+
+	@Override
+	public Map.Entry<String, String> blpopString(final int timeout, final String... keys) {
+		return template.executeBlocking(keyList(keys), new JedisCallback<Map.Entry<String, String>>() {
+			@Override
+			public Map.Entry<String, String> call(Jedis jedis) {
+				return toEntry(jedis.blpop(timeout, keys));
+			}
+		});
+	}
+
+	@Override
+	public Map.Entry<String, byte[]> blpop(final int timeout, final String... keys) {
+		return template.executeBlocking(keyList(keys), new JedisCallback<Map.Entry<String, byte[]>>() {
+			@Override
+			public Map.Entry<String, byte[]> call(Jedis jedis) {
+				return toBinaryEntry(jedis.blpop(timeout, toBinaryKeys(keys)));
+			}
+		});
+	}
+
+	@Override
+	public Map.Entry<String, String> brpopString(final int timeout, final String... keys) {
+		return template.executeBlocking(keyList(keys), new JedisCallback<Map.Entry<String, String>>() {
+			@Override
+			public Map.Entry<String, String> call(Jedis jedis) {
+				return toEntry(jedis.brpop(timeout, keys));
+			}
+		});
+	}
+
+	@Override
+	public Map.Entry<String, byte[]> brpop(final int timeout, final String... keys) {
+		return template.executeBlocking(keyList(keys), new JedisCallback<Map.Entry<String, byte[]>>() {
+			@Override
+			public Map.Entry<String, byte[]> call(Jedis jedis) {
+				return toBinaryEntry(jedis.brpop(timeout, toBinaryKeys(keys)));
+			}
+		});
+	}
+
+	@Override
+	public Iterator<String> scan(final String pattern, int count) {
+		final ScanParams params = scanParams(count);
+		if(pattern != null){
+			params.match(pattern);
+		}
+		int shardCount = template.getShardCount();
+		List<Iterator<String>> shards = new ArrayList<Iterator<String>>(shardCount);
+		for(int i = 0; i < shardCount; i++){
+			final int shardIndex = i;
+			shards.add(new ScanIterator<String>() {
+				@Override
+				protected JedisShardInfo selectNode() {
+					return template.selectReadNode(shardIndex);
+				}
+
+				@Override
+				protected ScanResult<String> scan(JedisShardInfo node, final String cursor) {
+					return template.executeOnFixedNode(node, new JedisCallback<ScanResult<String>>() {
+						@Override
+						public ScanResult<String> call(Jedis jedis) {
+							return jedis.scan(cursor, params);
+						}
+					});
+				}
+			});
+		}
+		//前一个分片遍历完才开始读取下一个分片。
+		return Iterators.concat(shards.iterator());
+	}
+
+	@Override
+	public Iterator<String> sscan(final String key, int count) {
+		final ScanParams params = scanParams(count);
+		return new KeyScanIterator<String>(key) {
+			@Override
+			protected ScanResult<String> scan(JedisShardInfo node, final String cursor) {
+				return template.executeOnFixedNode(node, new JedisCallback<ScanResult<String>>() {
+					@Override
+					public ScanResult<String> call(Jedis jedis) {
+						return jedis.sscan(key, cursor, params);
+					}
+				});
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Map.Entry<String, String>> hscanString(final String key, int count) {
+		final ScanParams params = scanParams(count);
+		return new KeyScanIterator<Map.Entry<String, String>>(key) {
+			@Override
+			protected ScanResult<Map.Entry<String, String>> scan(JedisShardInfo node, final String cursor) {
+				return template.executeOnFixedNode(node, new JedisCallback<ScanResult<Map.Entry<String, String>>>() {
+					@Override
+					public ScanResult<Map.Entry<String, String>> call(Jedis jedis) {
+						return jedis.hscan(key, cursor, params);
+					}
+				});
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Map.Entry<String, byte[]>> hscan(final String key, int count) {
+		final ScanParams params = scanParams(count);
+		return new KeyScanIterator<Map.Entry<String, byte[]>>(key) {
+			@Override
+			protected ScanResult<Map.Entry<String, byte[]>> scan(JedisShardInfo node, final String cursor) {
+				return template.executeOnFixedNode(node, new JedisCallback<ScanResult<Map.Entry<String, byte[]>>>() {
+					@Override
+					public ScanResult<Map.Entry<String, byte[]>> call(Jedis jedis) {
+						ScanResult<Map.Entry<byte[], byte[]>> result = jedis.hscan(key.getBytes(RedisContants.CS_UTF8),
+								cursor.getBytes(RedisContants.CS_UTF8), params);
+						List<Map.Entry<String, byte[]>> entries = new ArrayList<Map.Entry<String, byte[]>>(result.getResult().size());
+						for(Map.Entry<byte[], byte[]> entry : result.getResult()){
+							entries.add(new AbstractMap.SimpleImmutableEntry<String, byte[]>(
+									new String(entry.getKey(), RedisContants.CS_UTF8), entry.getValue()));
+						}
+						return new ScanResult<Map.Entry<String, byte[]>>(result.getCursorAsBytes(), entries);
+					}
+				});
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Tuple> zscan(final String key, int count) {
+		final ScanParams params = scanParams(count);
+		return new KeyScanIterator<Tuple>(key) {
+			@Override
+			protected ScanResult<Tuple> scan(JedisShardInfo node, final String cursor) {
+				return template.executeOnFixedNode(node, new JedisCallback<ScanResult<Tuple>>() {
+					@Override
+					public ScanResult<Tuple> call(Jedis jedis) {
+						return jedis.zscan(key, cursor, params);
+					}
+				});
+			}
+		};
+	}
+
+	/**
+	 * 遍历单个键的迭代器，在键所在分片上选择节点。
+	 */
+	private abstract class KeyScanIterator<T> extends ScanIterator<T> {
+
+		private final String key;
+
+		KeyScanIterator(String key) {
+			this.key = key;
+		}
+
+		@Override
+		protected JedisShardInfo selectNode() {
+			return template.selectReadNode(key);
+		}
+
+	}
+
+	/**
+	 * 按下标分页读取单个键的迭代器，在键所在分片上选择节点，所有页都在该节点上读取。
+	 */
+	private abstract class KeyPagedIterator<T> extends PagedIterator<T> {
+
+		private final String key;
+
+		KeyPagedIterator(String key, int pageSize) {
+			super(pageSize, prefetchExecutor);
+			this.key = key;
+		}
+
+		@Override
+		protected JedisShardInfo selectNode() {
+			return template.selectReadNode(key);
+		}
+
+	}
+
+	@Override
+	public Iterable<String> lrangeStringPaged(final String key, final int pageSize) {
+		checkPageSize(pageSize);
+		return new Iterable<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new KeyPagedIterator<String>(key, pageSize) {
+					@Override
+					protected List<String> fetch(JedisShardInfo node, final long start, final long end) {
+						return template.executeOnFixedNode(node, new JedisCallback<List<String>>() {
+							@Override
+							public List<String> call(Jedis jedis) {
+								return jedis.lrange(key, start, end);
+							}
+						});
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public Iterable<byte[]> lrangePaged(final String key, final int pageSize) {
+		checkPageSize(pageSize);
+		return new Iterable<byte[]>() {
+			@Override
+			public Iterator<byte[]> iterator() {
+				return new KeyPagedIterator<byte[]>(key, pageSize) {
+					@Override
+					protected List<byte[]> fetch(JedisShardInfo node, final long start, final long end) {
+						return template.executeOnFixedNode(node, new JedisCallback<List<byte[]>>() {
+							@Override
+							public List<byte[]> call(Jedis jedis) {
+								return jedis.lrange(key.getBytes(RedisContants.CS_UTF8), start, end);
+							}
+						});
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public Iterable<String> zrangeStringPaged(final String key, final int pageSize) {
+		checkPageSize(pageSize);
+		return new Iterable<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new KeyPagedIterator<String>(key, pageSize) {
+					@Override
+					protected List<String> fetch(JedisShardInfo node, final long start, final long end) {
+						return template.executeOnFixedNode(node, new JedisCallback<List<String>>() {
+							@Override
+							public List<String> call(Jedis jedis) {
+								return new ArrayList<String>(jedis.zrange(key, start, end));
+							}
+						});
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public Iterable<byte[]> zrangePaged(final String key, final int pageSize) {
+		checkPageSize(pageSize);
+		return new Iterable<byte[]>() {
+			@Override
+			public Iterator<byte[]> iterator() {
+				return new KeyPagedIterator<byte[]>(key, pageSize) {
+					@Override
+					protected List<byte[]> fetch(JedisShardInfo node, final long start, final long end) {
+						return template.executeOnFixedNode(node, new JedisCallback<List<byte[]>>() {
+							@Override
+							public List<byte[]> call(Jedis jedis) {
+								return new ArrayList<byte[]>(jedis.zrange(key.getBytes(RedisContants.CS_UTF8), start, end));
+							}
+						});
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public <T> T get(String key, Codec<T> codec) {
+		return ValueBuffer.decode(codec, get(key));
+	}
+
+	@Override
+	public <T> void set(String key, T value, Codec<T> codec) {
+		set(key, ValueBuffer.encode(codec, value));
+	}
+
+	@Override
+	public <T> boolean setex(String key, T value, Codec<T> codec, int expires) {
+		return setex(key, ValueBuffer.encode(codec, value), expires);
+	}
+
+	@Override
+	public <T> List<T> mget(List<String> keys, Codec<T> codec) {
+		List<byte[]> values = mget(keys);
+		List<T> results = new ArrayList<T>(values.size());
+		for(byte[] value : values){
+			results.add(ValueBuffer.decode(codec, value));
+		}
+		return results;
+	}
+
+	@Override
+	public <T> T getOrLoad(String key, Codec<T> codec, ValueLoader<T> loader, long ttlMillis) {
+		return cacheAsideLoader.getOrLoad(key, codec, loader, ttlMillis, ttlMillis);
+	}
+
+	@Override
+	public <T> T getOrLoad(String key, Codec<T> codec, ValueLoader<T> loader, long ttlMillis, long staleMillis) {
+		return cacheAsideLoader.getOrLoad(key, codec, loader, ttlMillis, staleMillis);
+	}
+
+	private static List<String> keyList(String... keys){
+		if(keys == null || keys.length == 0){
+			throw new IllegalArgumentException("keys of blocking pop can't be empty!");
+		}
+		return Arrays.asList(keys);
+	}
+
+	private static byte[][] toBinaryKeys(String... keys){
+		byte[][] binaryKeys = new byte[keys.length][];
+		for(int i = 0; i < keys.length; i++){
+			binaryKeys[i] = keys[i].getBytes(RedisContants.CS_UTF8);
+		}
+		return binaryKeys;
+	}
+
+	/**
+	 * 将阻塞弹出的回复[键, 值]转换为键值对，超时时为null。
+	 */
+	private static Map.Entry<String, String> toEntry(List<String> reply){
+		if(reply == null || reply.isEmpty()){
+			return null;
+		}
+		return new AbstractMap.SimpleImmutableEntry<String, String>(reply.get(0), reply.get(1));
+	}
+
+	private static Map.Entry<String, byte[]> toBinaryEntry(List<byte[]> reply){
+		if(reply == null || reply.isEmpty()){
+			return null;
+		}
+		return new AbstractMap.SimpleImmutableEntry<String, byte[]>(new String(reply.get(0), RedisContants.CS_UTF8), reply.get(1));
+	}
+
+	private static void checkPageSize(int pageSize){
+		if(pageSize <= 0){
+			throw new IllegalArgumentException("pageSize must be positive!");
+		}
+	}
+
+	private static ScanParams scanParams(int count){
+		if(count <= 0){
+			throw new IllegalArgumentException("count of scan must be positive!");
+		}
+		return new ScanParams().count(count);
+	}
+
+	private byte[] compress(byte[] value){
+		ValueCompressor compressor = template.getValueCompressor();
+		return compressor == null ? value : compressor.compress(value, template.getStatistic());
+	}
+
+	private byte[] decompress(byte[] data){
+		ValueCompressor compressor = template.getValueCompressor();
+		return compressor == null ? data : compressor.decompress(data, template.getStatistic());
+	}
+
+	/**
+	 * 将pipeline中的状态回复转换为是否成功。
+	 */
+	private static List<Boolean> toStatusList(List<Response<String>> responses){
+		List<Boolean> result = new ArrayList<Boolean>(responses.size());
+		for(Response<String> response : responses){
+			result.add(RedisContants.REDIS_REPLY_STATUS_OK.equals(response.get()));
+		}
+		return result;
+	}
 	
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.krzn.platform.redis.RedisClientRuntimeException;
+
+/**
+ * 相同读请求的合并执行。
+ * <p>同一个键、同一种读取方式的并发读请求中，第一个请求(leader)实际执行，
+ * 其余请求等待并共享它的结果或异常，键过期瞬间的大量相同请求只产生一次往返。
+ * <p>写命令完成后调用written使该键之后的读请求不再加入写之前发出的请求，保证同一线程先写后读能读到自己的写入。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月29日
+ */
+class SingleFlight {
+
+	private static final int GENERATION_STRIPES = 1024;
+
+	private final ConcurrentMap<FlightKey, Call> flights = new ConcurrentHashMap<FlightKey, Call>();
+
+	/**
+	 * 按键分段的写入版本号，读请求只加入版本号相同的请求。
+	 */
+	private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+	/**
+	 * 共享了其他请求结果的请求数。
+	 */
+	private final AtomicLong sharedCount = new AtomicLong();
+
+	/**
+	 * 加入或发起一次读请求。
+	 * 
+	 * @param key 键。
+	 * @param view 读取方式。
+	 * @return 请求，isLeader为true时由调用方执行并通过complete或fail结束。
+	 */
+	Call join(String key, Object view){
+		FlightKey flightKey = new FlightKey(key, view, generations.get(stripe(key)));
+		Call call = new Call(flightKey);
+		Call existing = flights.putIfAbsent(flightKey, call);
+		if(existing != null){
+			sharedCount.incrementAndGet();
+			return existing;
+		}
+		return call;
+	}
+
+	/**
+	 * 键被写入后调用。
+	 */
+	void written(String key){
+		generations.incrementAndGet(stripe(key));
+	}
+
+	long getSharedCount(){
+		return sharedCount.get();
+	}
+
+	private static int stripe(String key){
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return h & (GENERATION_STRIPES - 1);
+	}
+
+	/**
+	 * 一次进行中的请求。
+	 */
+	class Call {
+
+		private final FlightKey flightKey;
+
+		private final SettableFuture<Object> future = SettableFuture.create();
+
+		/**
+		 * 发起请求的线程。
+		 */
+		private final Thread leader = Thread.currentThread();
+
+		Call(FlightKey flightKey) {
+			this.flightKey = flightKey;
+		}
+
+		/**
+		 * 当前线程是否为发起方。
+		 */
+		boolean isLeader(){
+			return leader == Thread.currentThread();
+		}
+
+		void complete(Object result){
+			flights.remove(flightKey, this);
+			future.set(result);
+		}
+
+		void fail(Throwable e){
+			flights.remove(flightKey, this);
+			future.setException(e);
+		}
+
+		/**
+		 * 等待发起方的结果，发起方的异常原样抛出。
+		 */
+		Object await(){
+			try {
+				return Uninterruptibles.getUninterruptibly(future);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if(cause instanceof RuntimeException){
+					throw (RuntimeException) cause;
+				}
+				if(cause instanceof Error){
+					throw (Error) cause;
+				}
+				throw new RedisClientRuntimeException(cause);
+			}
+		}
+
+	}
+
+	private static class FlightKey {
+
+		private final String key;
+
+		private final Object view;
+
+		private final long generation;
+
+		FlightKey(String key, Object view, long generation) {
+			this.key = key;
+			this.view = view;
+			this.generation = generation;
+		}
+
+		@Override
+		public int hashCode() {
+			return (key.hashCode() * 31 + view.hashCode()) * 31 + (int) generation;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof FlightKey)){
+				return false;
+			}
+			FlightKey other = (FlightKey) obj;
+			return generation == other.generation && key.equals(other.key) && view.equals(other.view);
+		}
+
+	}
+
+}
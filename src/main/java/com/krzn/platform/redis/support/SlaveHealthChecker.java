@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.krzn.platform.redis.jedis.JedisGroupShardInfo;
+import com.krzn.platform.redis.jedis.JedisNodePool;
+import com.krzn.platform.redis.jedis.loadbalance.LoadFeedback;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+
+/**
+ * 从节点的健康检查和熔断。
+ * <p>每个从节点有一个熔断器：连续失败达到阈值时，从节点被摘除，不再参与负载均衡，
+ * 读请求发往同组的其他从节点，同组从节点全部被摘除时发往主节点。
+ * <p>后台线程定时PING所有从节点，没有流量的从节点宕机也能及时摘除；被摘除的从节点连续探测成功若干次后恢复。
+ * <p>请求的成败由ShardedJedisTemplate通过{@link LoadFeedback}反馈，只有连接异常和超时算作失败，命令错误不算。
+ * 请求的耗时取决于命令本身，大集合的读取本来就慢，因此慢节点只通过PING探测的耗时判断。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月06日
+ */
+public class SlaveHealthChecker implements LoadFeedback, Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(SlaveHealthChecker.class);
+
+	/**
+	 * 默认的探测间隔，单位毫秒。
+	 */
+	public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+	/**
+	 * 默认的摘除阈值，连续失败或慢探测的次数。
+	 */
+	public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+
+	/**
+	 * 默认的慢探测阈值，单位毫秒。
+	 */
+	public static final long DEFAULT_SLOW_MILLIS = 500;
+
+	/**
+	 * 默认的恢复阈值，连续探测成功的次数。
+	 */
+	public static final int DEFAULT_RECOVER_PROBES = 2;
+
+	private final long intervalMillis;
+
+	private final int failureThreshold;
+
+	private final long slowNanos;
+
+	private final int recoverProbes;
+
+	/**
+	 * 各从节点的状态，以"host:port"为键。
+	 */
+	private final ConcurrentMap<String, NodeState> nodes = new ConcurrentHashMap<String, NodeState>();
+
+	/**
+	 * 被摘除的从节点个数，为0时不需要过滤候选节点。
+	 */
+	private final AtomicInteger ejectedCount = new AtomicInteger();
+
+	private ScheduledExecutorService scheduler;
+
+	private volatile boolean started = false;
+
+	/**
+	 * 同时反馈给负载均衡器时使用的组合反馈，与负载均衡器一起缓存。
+	 */
+	private volatile ChainedFeedback chained;
+
+	public SlaveHealthChecker() {
+		this(DEFAULT_INTERVAL_MILLIS, DEFAULT_FAILURE_THRESHOLD, DEFAULT_SLOW_MILLIS, DEFAULT_RECOVER_PROBES);
+	}
+
+	/**
+	 * @param intervalMillis 探测间隔，单位毫秒。
+	 * @param failureThreshold 连续失败或慢探测达到该次数时摘除从节点。
+	 * @param slowMillis 耗时超过该值的PING探测视为慢探测，单位毫秒。
+	 * @param recoverProbes 被摘除的从节点连续探测成功该次数后恢复。
+	 */
+	public SlaveHealthChecker(long intervalMillis, int failureThreshold, long slowMillis, int recoverProbes) {
+		if(intervalMillis <= 0 || failureThreshold <= 0 || slowMillis <= 0 || recoverProbes <= 0){
+			throw new IllegalArgumentException("intervalMillis, failureThreshold, slowMillis and recoverProbes of SlaveHealthChecker must be positive!");
+		}
+		this.intervalMillis = intervalMillis;
+		this.failureThreshold = failureThreshold;
+		this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMillis);
+		this.recoverProbes = recoverProbes;
+	}
+
+	/**
+	 * 登记所有分片的从节点并开始定时探测，重复调用时忽略。
+	 * 
+	 * @param groups 所有分片的信息。
+	 */
+	public synchronized void start(Collection<JedisGroupShardInfo> groups) {
+		if(started){
+			return;
+		}
+		for(JedisGroupShardInfo group : groups){
+			List<JedisShardInfo> slaveInfos = group.getSlaveInfos();
+			if(slaveInfos == null){
+				continue;
+			}
+			for(JedisShardInfo slave : slaveInfos){
+				nodes.putIfAbsent(addressOf(slave.getHost(), slave.getPort()), new NodeState(slave));
+			}
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactoryBuilder().setNameFormat("redis-slave-health-checker-%d").setDaemon(true).build());
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				probeAll();
+			}
+		}, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+		started = true;
+	}
+
+	public boolean isStarted() {
+		return started;
+	}
+
+	/**
+	 * 过滤掉被摘除的从节点，候选节点可以是Jedis、JedisNodePool或JedisShardInfo。
+	 * 
+	 * @param slaves 一组从节点。
+	 * @return 健康的从节点，没有从节点被摘除时直接返回slaves。
+	 */
+	public <T> List<T> healthy(List<T> slaves) {
+		if(ejectedCount.get() == 0){
+			return slaves;
+		}
+		List<T> healthy = new ArrayList<T>(slaves.size());
+		for(T slave : slaves){
+			NodeState state = nodes.get(addressOf(slave));
+			if(state == null || !state.ejected){
+				healthy.add(slave);
+			}
+		}
+		return healthy;
+	}
+
+	/**
+	 * 从节点是否被摘除。
+	 */
+	public boolean isEjected(JedisShardInfo slave) {
+		NodeState state = nodes.get(addressOf(slave.getHost(), slave.getPort()));
+		return state != null && state.ejected;
+	}
+
+	/**
+	 * 获取被摘除的从节点，"host:port"形式。
+	 */
+	public List<String> getEjectedNodes() {
+		List<String> ejected = new ArrayList<String>();
+		for(Map.Entry<String, NodeState> entry : nodes.entrySet()){
+			if(entry.getValue().ejected){
+				ejected.add(entry.getKey());
+			}
+		}
+		return ejected;
+	}
+
+	@Override
+	public void onStart(JedisShardInfo node) {
+	}
+
+	@Override
+	public void onComplete(JedisShardInfo node, long latencyNanos, boolean failed) {
+		NodeState state = nodes.get(addressOf(node.getHost(), node.getPort()));
+		if(state == null || state.ejected){
+			return;
+		}
+		if(failed){
+			if(state.failures.incrementAndGet() >= failureThreshold){
+				eject(state, "request failed");
+			}
+		}else if(state.failures.get() != 0){
+			state.failures.set(0);
+		}
+	}
+
+	/**
+	 * 获取同时反馈给本检查器和负载均衡器的反馈接口。
+	 * 
+	 * @param balancer 负载均衡器的反馈接口，可以为null。
+	 */
+	LoadFeedback feedback(LoadFeedback balancer) {
+		if(balancer == null){
+			return this;
+		}
+		ChainedFeedback current = chained;
+		if(current == null || current.balancer != balancer){
+			current = new ChainedFeedback(this, balancer);
+			chained = current;
+		}
+		return current;
+	}
+
+	/**
+	 * 探测所有从节点，由后台线程调用。
+	 */
+	private void probeAll() {
+		for(NodeState state : nodes.values()){
+			try{
+				probe(state);
+			}catch(Throwable e){
+				logger.warn("probe of redis slave " + state.shardInfo + " failed!", e);
+			}
+		}
+	}
+
+	private void probe(NodeState state) {
+		long start = System.nanoTime();
+		boolean healthy;
+		try {
+			if(state.connection == null){
+				state.connection = new Jedis(state.shardInfo);
+			}
+			state.connection.ping();
+			healthy = System.nanoTime() - start <= slowNanos;
+		} catch (RuntimeException e) {
+			healthy = false;
+			closeConnection(state);
+		}
+		if(!state.ejected){
+			if(healthy){
+				state.probeFailures = 0;
+			}else if(++state.probeFailures >= failureThreshold){
+				eject(state, "probe failed or took more than " + TimeUnit.NANOSECONDS.toMillis(slowNanos) + "ms");
+			}
+			return;
+		}
+		if(!healthy){
+			state.probeSuccesses = 0;
+		}else if(++state.probeSuccesses >= recoverProbes){
+			state.probeSuccesses = 0;
+			state.probeFailures = 0;
+			state.failures.set(0);
+			synchronized (state) {
+				state.ejected = false;
+			}
+			ejectedCount.decrementAndGet();
+			logger.info("redis slave " + state.shardInfo.getHost() + ":" + state.shardInfo.getPort() + " recovered.");
+		}
+	}
+
+	private void eject(NodeState state, String reason) {
+		synchronized (state) {
+			if(state.ejected){
+				return;
+			}
+			state.ejected = true;
+		}
+		ejectedCount.incrementAndGet();
+		logger.warn("redis slave " + state.shardInfo.getHost() + ":" + state.shardInfo.getPort() + " ejected: " + reason + ".");
+	}
+
+	private static void closeConnection(NodeState state) {
+		if(state.connection != null){
+			try{
+				state.connection.close();
+			}catch(RuntimeException e){
+				//连接已不可用，忽略。
+			}
+			state.connection = null;
+		}
+	}
+
+	static String addressOf(String host, int port) {
+		return host + ":" + port;
+	}
+
+	/**
+	 * 候选节点的地址，候选节点可以是Jedis、JedisNodePool或JedisShardInfo。
+	 */
+	static String addressOf(Object node) {
+		if(node instanceof Jedis){
+			Jedis jedis = (Jedis) node;
+			return addressOf(jedis.getClient().getHost(), jedis.getClient().getPort());
+		}
+		if(node instanceof JedisNodePool){
+			node = ((JedisNodePool) node).getShardInfo();
+		}
+		if(node instanceof JedisShardInfo){
+			JedisShardInfo shardInfo = (JedisShardInfo) node;
+			return addressOf(shardInfo.getHost(), shardInfo.getPort());
+		}
+		return null;
+	}
+
+	/**
+	 * 停止探测并关闭探测连接。
+	 */
+	@Override
+	public synchronized void close() {
+		if(scheduler != null){
+			scheduler.shutdownNow();
+			try {
+				scheduler.awaitTermination(intervalMillis, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		for(NodeState state : nodes.values()){
+			closeConnection(state);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SlaveHealthChecker [nodes=" + nodes.size() + ", ejected=" + getEjectedNodes() + "]";
+	}
+
+	/**
+	 * 一个从节点的状态。
+	 */
+	private static final class NodeState {
+
+		private final JedisShardInfo shardInfo;
+
+		private volatile boolean ejected = false;
+
+		/**
+		 * 请求连续失败的次数。
+		 */
+		private final AtomicInteger failures = new AtomicInteger();
+
+		/**
+		 * 连续失败或变慢的探测次数，只由探测线程访问，不受请求成功的影响。
+		 */
+		private int probeFailures;
+
+		/**
+		 * 被摘除后连续探测成功的次数，只由探测线程访问。
+		 */
+		private int probeSuccesses;
+
+		/**
+		 * 探测连接，只由探测线程访问。
+		 */
+		private Jedis connection;
+
+		NodeState(JedisShardInfo shardInfo) {
+			this.shardInfo = shardInfo;
+		}
+
+	}
+
+	/**
+	 * 依次反馈给检查器和负载均衡器。
+	 */
+	private static final class ChainedFeedback implements LoadFeedback {
+
+		private final LoadFeedback checker;
+
+		private final LoadFeedback balancer;
+
+		ChainedFeedback(LoadFeedback checker, LoadFeedback balancer) {
+			this.checker = checker;
+			this.balancer = balancer;
+		}
+
+		@Override
+		public void onStart(JedisShardInfo node) {
+			checker.onStart(node);
+			balancer.onStart(node);
+		}
+
+		@Override
+		public void onComplete(JedisShardInfo node, long latencyNanos, boolean failed) {
+			checker.onComplete(node, latencyNanos, failed);
+			balancer.onComplete(node, latencyNanos, failed);
+		}
+
+	}
+
+}
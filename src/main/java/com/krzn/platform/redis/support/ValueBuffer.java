@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.krzn.platform.redis.Codec;
+import com.krzn.platform.redis.RedisClientRuntimeException;
+
+/**
+ * 对象值编码用的输出缓冲区，每个线程复用一个。
+ * <p>与ByteArrayOutputStream不同，写入不加锁，编码结束时只复制一次得到命令参数。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年10月31日
+ */
+class ValueBuffer extends OutputStream {
+	
+	private static final int INITIAL_CAPACITY = 1024;
+	
+	/**
+	 * 超过该容量的缓冲区用完后释放，避免大对象之后长期占用内存。
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 1 << 20;
+	
+	private static final ThreadLocal<ValueBuffer> BUFFERS = new ThreadLocal<ValueBuffer>() {
+		@Override
+		protected ValueBuffer initialValue() {
+			return new ValueBuffer();
+		}
+	};
+	
+	private byte[] buffer = new byte[INITIAL_CAPACITY];
+	
+	private int count = 0;
+	
+	/**
+	 * 编码期间是否在使用，编解码器内部再次编码时使用新的缓冲区。
+	 */
+	private boolean inUse = false;
+	
+	/**
+	 * 取得当前线程的缓冲区，用完后必须调用release。
+	 */
+	static ValueBuffer acquire(){
+		ValueBuffer buffer = BUFFERS.get();
+		if(buffer.inUse){
+			buffer = new ValueBuffer();
+		}
+		buffer.inUse = true;
+		return buffer;
+	}
+	
+	/**
+	 * 用编解码器编码一个值。
+	 * 
+	 * @param codec 编解码器。
+	 * @param value 值。
+	 * @return 编码结果。
+	 */
+	static <T> byte[] encode(Codec<T> codec, T value){
+		if(codec == null){
+			throw new IllegalArgumentException("codec can't be null！");
+		}
+		if(value == null){
+			throw new IllegalArgumentException("value to encode can't be null！");
+		}
+		ValueBuffer buffer = acquire();
+		try{
+			codec.encode(value, buffer);
+			return buffer.toByteArray();
+		}catch(IOException e){
+			throw new RedisClientRuntimeException("encode value failed!", e);
+		}finally{
+			buffer.release();
+		}
+	}
+	
+	/**
+	 * 用编解码器解码一个值。
+	 * 
+	 * @param codec 编解码器。
+	 * @param data 数据，为null时返回null。
+	 * @return 解码结果。
+	 */
+	static <T> T decode(Codec<T> codec, byte[] data){
+		if(codec == null){
+			throw new IllegalArgumentException("codec can't be null！");
+		}
+		if(data == null){
+			return null;
+		}
+		try{
+			return codec.decode(data, 0, data.length);
+		}catch(IOException e){
+			throw new RedisClientRuntimeException("decode value failed!", e);
+		}
+	}
+	
+	void release(){
+		count = 0;
+		if(buffer.length > MAX_RETAINED_CAPACITY){
+			buffer = new byte[INITIAL_CAPACITY];
+		}
+		inUse = false;
+	}
+	
+	@Override
+	public void write(int b) {
+		ensureCapacity(count + 1);
+		buffer[count++] = (byte) b;
+	}
+	
+	@Override
+	public void write(byte[] b, int off, int len) {
+		ensureCapacity(count + len);
+		System.arraycopy(b, off, buffer, count, len);
+		count += len;
+	}
+	
+	byte[] toByteArray(){
+		return Arrays.copyOf(buffer, count);
+	}
+	
+	private void ensureCapacity(int capacity){
+		if(capacity > buffer.length){
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, capacity));
+		}
+	}
+	
+}
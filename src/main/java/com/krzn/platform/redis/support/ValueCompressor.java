@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.krzn.platform.redis.RedisClientRuntimeException;
+import com.krzn.platform.redis.RedisClientStatistic;
+
+/**
+ * 字符串类型值的透明压缩。
+ * <p>达到阈值的值用LZ4块格式压缩，前面加一个8字节的头：3字节标记、1字节压缩方式和4字节原始长度。
+ * 标记的首字节0xFF不会出现在UTF-8文本的开头，JSON等文本值不会被误认为压缩数据。
+ * <p>压缩后节省不到1/8的值原样写入；原样写入的值恰好以标记开头时加上不压缩的头，读取时不会被误解压。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月01日
+ */
+public class ValueCompressor {
+
+	private static final byte[] MAGIC = new byte[]{(byte) 0xFF, 'L', 'Z'};
+
+	private static final byte METHOD_STORED = 0;
+
+	private static final byte METHOD_LZ4 = 1;
+
+	private static final int HEADER_LENGTH = 8;
+
+	/**
+	 * 默认的压缩阈值，单位字节。
+	 */
+	public static final int DEFAULT_THRESHOLD = 4096;
+
+	/**
+	 * 压缩阈值，单位字节。
+	 */
+	private final int threshold;
+
+	public ValueCompressor() {
+		this(DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * @param threshold 压缩阈值，长度不小于该值的值才压缩，单位字节。
+	 */
+	public ValueCompressor(int threshold) {
+		if(threshold <= 0){
+			throw new IllegalArgumentException("threshold of ValueCompressor must be positive!");
+		}
+		this.threshold = threshold;
+	}
+
+	/**
+	 * 写入前压缩。
+	 * 
+	 * @param value 值，为null时返回null。
+	 * @param statistic 记录压缩率和耗时的统计，可以为null。
+	 * @return 实际写入的数据。
+	 */
+	public byte[] compress(byte[] value, RedisClientStatistic statistic) {
+		if(value == null){
+			return null;
+		}
+		if(value.length < threshold){
+			return hasMagic(value) ? wrap(value) : value;
+		}
+		long start = System.nanoTime();
+		byte[] buffer = new byte[HEADER_LENGTH + Lz4.maxCompressedLength(value.length)];
+		int length = Lz4.compress(value, buffer, HEADER_LENGTH);
+		byte[] stored;
+		if(length + HEADER_LENGTH <= value.length - (value.length >>> 3)){
+			writeHeader(buffer, METHOD_LZ4, value.length);
+			stored = Arrays.copyOf(buffer, HEADER_LENGTH + length);
+		}else{
+			stored = hasMagic(value) ? wrap(value) : value;
+		}
+		if(statistic != null){
+			statistic.recordCompression(value.length, stored.length, System.nanoTime() - start);
+		}
+		return stored;
+	}
+
+	/**
+	 * 读取后解压，不是压缩数据时原样返回。
+	 * 
+	 * @param data 读到的数据，为null时返回null。
+	 * @param statistic 记录解压耗时的统计，可以为null。
+	 * @return 原始值。
+	 */
+	public byte[] decompress(byte[] data, RedisClientStatistic statistic) {
+		if(data == null || data.length < HEADER_LENGTH || !hasMagic(data)){
+			return data;
+		}
+		int length = ((data[4] & 0xFF) << 24) | ((data[5] & 0xFF) << 16) | ((data[6] & 0xFF) << 8) | (data[7] & 0xFF);
+		if(data[3] == METHOD_STORED){
+			return Arrays.copyOfRange(data, HEADER_LENGTH, data.length);
+		}
+		if(data[3] != METHOD_LZ4 || length < 0 || length > Lz4.maxDecompressedLength(data.length - HEADER_LENGTH)){
+			//不是本类写入的数据，头中的长度超过压缩数据可能解压出的长度时不按该长度分配内存。
+			return data;
+		}
+		long start = System.nanoTime();
+		byte[] value;
+		try {
+			value = Lz4.decompress(data, HEADER_LENGTH, data.length - HEADER_LENGTH, length);
+		} catch (IOException e) {
+			throw new RedisClientRuntimeException("decompress value failed!", e);
+		}
+		if(statistic != null){
+			statistic.recordDecompression(System.nanoTime() - start);
+		}
+		return value;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	private static boolean hasMagic(byte[] data) {
+		return data.length >= MAGIC.length && data[0] == MAGIC[0] && data[1] == MAGIC[1] && data[2] == MAGIC[2];
+	}
+
+	private static byte[] wrap(byte[] value) {
+		byte[] stored = new byte[HEADER_LENGTH + value.length];
+		writeHeader(stored, METHOD_STORED, value.length);
+		System.arraycopy(value, 0, stored, HEADER_LENGTH, value.length);
+		return stored;
+	}
+
+	private static void writeHeader(byte[] buffer, byte method, int length) {
+		System.arraycopy(MAGIC, 0, buffer, 0, MAGIC.length);
+		buffer[3] = method;
+		buffer[4] = (byte) (length >>> 24);
+		buffer[5] = (byte) (length >>> 16);
+		buffer[6] = (byte) (length >>> 8);
+		buffer[7] = (byte) length;
+	}
+
+	@Override
+	public String toString() {
+		return "ValueCompressor [threshold=" + threshold + "]";
+	}
+
+}
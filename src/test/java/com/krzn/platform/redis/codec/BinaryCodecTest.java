@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * BinaryCodec的测试。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月09日
+ */
+public class BinaryCodecTest {
+
+	private static final int[] INTS = {0, 1, -1, 63, -64, 64, -65, 8191, -8192, 8192,
+		Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE - 1, Integer.MIN_VALUE + 1};
+
+	private static final long[] LONGS = {0, 1, -1, 63, -64, 64, -65, Integer.MAX_VALUE, Integer.MIN_VALUE,
+		Integer.MAX_VALUE + 1L, Integer.MIN_VALUE - 1L, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE - 1, Long.MIN_VALUE + 1};
+
+	@Test
+	public void roundTripsIntEdges() throws IOException {
+		for(int value : INTS){
+			assertEquals(value, (int) decode(INT, encode(INT, value)));
+		}
+	}
+
+	@Test
+	public void roundTripsLongEdges() throws IOException {
+		for(long value : LONGS){
+			assertEquals(value, (long) decode(LONG, encode(LONG, value)));
+		}
+	}
+
+	@Test
+	public void encodesSmallMagnitudesCompactly() throws IOException {
+		assertEquals(1, encode(INT, 0).length);
+		assertEquals(1, encode(INT, -1).length);
+		assertEquals(1, encode(INT, -64).length);
+		assertEquals(2, encode(INT, 64).length);
+		assertEquals(5, encode(INT, Integer.MAX_VALUE).length);
+		assertEquals(5, encode(INT, Integer.MIN_VALUE).length);
+		assertEquals(1, encode(LONG, -1L).length);
+		assertEquals(10, encode(LONG, Long.MAX_VALUE).length);
+		assertEquals(10, encode(LONG, Long.MIN_VALUE).length);
+	}
+
+	@Test
+	public void roundTripsNullAndEmpty() throws IOException {
+		assertNull(decode(STRING, encode(STRING, null)));
+		assertEquals("", decode(STRING, encode(STRING, "")));
+		assertNull(decode(BYTES, encode(BYTES, null)));
+		assertArrayEquals(new byte[0], decode(BYTES, encode(BYTES, new byte[0])));
+		byte[] bytes = {0, 1, -1, 127, -128};
+		assertArrayEquals(bytes, decode(BYTES, encode(BYTES, bytes)));
+	}
+
+	@Test
+	public void roundTripsNonBmpCharacters() throws IOException {
+		String[] values = {"ascii", "é中文", "😀", "a😀b𐀀中", "􏿿"};
+		for(String value : values){
+			byte[] data = encode(STRING, value);
+			assertEquals(value, decode(STRING, data));
+			assertArrayEquals(value, value.getBytes("UTF-8"), stringBytes(data));
+		}
+	}
+
+	@Test
+	public void writesUnpairedSurrogatesAsQuestionMark() throws IOException {
+		String[][] cases = {
+			{"\uD800", "?"},
+			{"\uDC00", "?"},
+			{"a\uD83Db", "a?b"},
+			{"a\uDE00\uD83D", "a??"},
+			{"\uDE00😀", "?😀"},
+		};
+		for(String[] c : cases){
+			byte[] data = encode(STRING, c[0]);
+			assertEquals(c[1], decode(STRING, data));
+			assertArrayEquals(c[0], c[0].getBytes("UTF-8"), stringBytes(data));
+		}
+	}
+
+	@Test
+	public void decodesFromOffset() throws IOException {
+		byte[] data = encode(RECORD, new Record(-5, Long.MIN_VALUE, "中😀", new byte[]{1, 2}, 0.5));
+		byte[] padded = new byte[data.length + 7];
+		Arrays.fill(padded, (byte) 0x80);
+		System.arraycopy(data, 0, padded, 3, data.length);
+		Record record = RECORD.decode(padded, 3, data.length);
+		assertEquals(-5, record.i);
+		assertEquals(Long.MIN_VALUE, record.l);
+		assertEquals("中😀", record.s);
+		assertArrayEquals(new byte[]{1, 2}, record.b);
+		assertEquals(0.5, record.d, 0);
+	}
+
+	@Test
+	public void throwsEofOnTruncatedInput() throws IOException {
+		byte[] data = encode(RECORD, new Record(Integer.MIN_VALUE, Long.MAX_VALUE, "中😀", new byte[]{1, 2, 3}, 1.5));
+		for(int length = 0; length < data.length; length++){
+			//截断后的数据放在较长的数组中，解码不能越过length读到后面的字节。
+			byte[] padded = Arrays.copyOf(data, data.length + 16);
+			try{
+				RECORD.decode(padded, 0, length);
+				fail("decoded truncated input of length " + length);
+			}catch(EOFException e){
+				//期望的异常。
+			}
+		}
+	}
+
+	@Test
+	public void rejectsMalformedVarint() throws IOException {
+		byte[] data = new byte[11];
+		Arrays.fill(data, (byte) 0xFF);
+		try{
+			LONG.decode(data, 0, data.length);
+			fail("decoded malformed varint");
+		}catch(EOFException e){
+			fail("malformed varint reported as EOF");
+		}catch(IOException e){
+			//期望的异常。
+		}
+	}
+
+	private static <T> byte[] encode(BinaryCodec<T> codec, T value) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		codec.encode(value, out);
+		return out.toByteArray();
+	}
+
+	private static <T> T decode(BinaryCodec<T> codec, byte[] data) throws IOException {
+		return codec.decode(data, 0, data.length);
+	}
+
+	/**
+	 * 去掉字符串编码前的变长长度。
+	 */
+	private static byte[] stringBytes(byte[] data) {
+		int start = 0;
+		while((data[start] & 0x80) != 0){
+			start++;
+		}
+		return Arrays.copyOfRange(data, start + 1, data.length);
+	}
+
+	private static final BinaryCodec<Integer> INT = new BinaryCodec<Integer>() {
+		@Override
+		protected void write(Integer value, Output out) throws IOException {
+			out.writeInt(value);
+		}
+
+		@Override
+		protected Integer read(Input in) throws IOException {
+			return in.readInt();
+		}
+	};
+
+	private static final BinaryCodec<Long> LONG = new BinaryCodec<Long>() {
+		@Override
+		protected void write(Long value, Output out) throws IOException {
+			out.writeLong(value);
+		}
+
+		@Override
+		protected Long read(Input in) throws IOException {
+			return in.readLong();
+		}
+	};
+
+	private static final BinaryCodec<String> STRING = new BinaryCodec<String>() {
+		@Override
+		protected void write(String value, Output out) throws IOException {
+			out.writeString(value);
+		}
+
+		@Override
+		protected String read(Input in) throws IOException {
+			return in.readString();
+		}
+	};
+
+	private static final BinaryCodec<byte[]> BYTES = new BinaryCodec<byte[]>() {
+		@Override
+		protected void write(byte[] value, Output out) throws IOException {
+			out.writeBytes(value);
+		}
+
+		@Override
+		protected byte[] read(Input in) throws IOException {
+			return in.readBytes();
+		}
+	};
+
+	private static final BinaryCodec<Record> RECORD = new BinaryCodec<Record>() {
+		@Override
+		protected void write(Record value, Output out) throws IOException {
+			out.writeInt(value.i);
+			out.writeLong(value.l);
+			out.writeString(value.s);
+			out.writeBytes(value.b);
+			out.writeDouble(value.d);
+		}
+
+		@Override
+		protected Record read(Input in) throws IOException {
+			return new Record(in.readInt(), in.readLong(), in.readString(), in.readBytes(), in.readDouble());
+		}
+	};
+
+	private static class Record {
+
+		final int i;
+
+		final long l;
+
+		final String s;
+
+		final byte[] b;
+
+		final double d;
+
+		Record(int i, long l, String s, byte[] b, double d) {
+			this.i = i;
+			this.l = l;
+			this.s = s;
+			this.b = b;
+			this.d = d;
+		}
+
+	}
+
+}
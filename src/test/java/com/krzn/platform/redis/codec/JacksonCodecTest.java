@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * JacksonCodec的测试。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月09日
+ */
+public class JacksonCodecTest {
+
+	private final JacksonCodec<Bean> codec = new JacksonCodec<Bean>(Bean.class);
+
+	@Test
+	public void roundTripsNumberEdges() throws IOException {
+		long[] values = {0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+		for(long value : values){
+			Bean bean = new Bean();
+			bean.setId((int) value);
+			bean.setVersion(value);
+			Bean decoded = roundTrip(bean);
+			assertEquals((int) value, decoded.getId());
+			assertEquals(value, decoded.getVersion());
+		}
+	}
+
+	@Test
+	public void roundTripsNulls() throws IOException {
+		assertNull(roundTrip(null));
+		Bean decoded = roundTrip(new Bean());
+		assertNull(decoded.getName());
+		assertNull(decoded.getData());
+	}
+
+	@Test
+	public void roundTripsBytes() throws IOException {
+		Bean bean = new Bean();
+		bean.setData(new byte[]{0, 1, -1, 127, -128});
+		assertArrayEquals(bean.getData(), roundTrip(bean).getData());
+		bean.setData(new byte[0]);
+		assertArrayEquals(new byte[0], roundTrip(bean).getData());
+	}
+
+	@Test
+	public void roundTripsNonBmpCharacters() throws IOException {
+		String[] values = {"", "é中文", "😀", "a😀b𐀀中", "􏿿", "\"\\\n\u0000"};
+		for(String value : values){
+			Bean bean = new Bean();
+			bean.setName(value);
+			assertEquals(value, roundTrip(bean).getName());
+		}
+	}
+
+	@Test
+	public void decodesFromOffset() throws IOException {
+		Bean bean = new Bean();
+		bean.setId(7);
+		bean.setName("中😀");
+		byte[] data = encode(bean);
+		byte[] padded = new byte[data.length + 7];
+		Arrays.fill(padded, (byte) '}');
+		System.arraycopy(data, 0, padded, 3, data.length);
+		Bean decoded = codec.decode(padded, 3, data.length);
+		assertEquals(7, decoded.getId());
+		assertEquals("中😀", decoded.getName());
+	}
+
+	@Test
+	public void failsOnTruncatedInput() throws IOException {
+		Bean bean = new Bean();
+		bean.setId(Integer.MIN_VALUE);
+		bean.setName("中😀");
+		bean.setData(new byte[]{1, 2, 3});
+		byte[] data = encode(bean);
+		for(int length = 1; length < data.length; length++){
+			try{
+				codec.decode(Arrays.copyOf(data, data.length + 16), 0, length);
+				fail("decoded truncated input of length " + length);
+			}catch(IOException e){
+				//Jackson对截断的JSON抛出JsonParseException或EOFException，都是IOException。
+			}
+		}
+	}
+
+	@Test
+	public void leavesOutputStreamOpen() throws IOException {
+		final boolean[] closed = new boolean[1];
+		ByteArrayOutputStream out = new ByteArrayOutputStream() {
+			@Override
+			public void close() throws IOException {
+				closed[0] = true;
+			}
+		};
+		codec.encode(new Bean(), out);
+		assertFalse(closed[0]);
+	}
+
+	@Test
+	public void rejectsNullArguments() {
+		try{
+			new JacksonCodec<Bean>(null);
+			fail("accepted null type");
+		}catch(IllegalArgumentException e){
+			//期望的异常。
+		}
+	}
+
+	private Bean roundTrip(Bean bean) throws IOException {
+		byte[] data = encode(bean);
+		return codec.decode(data, 0, data.length);
+	}
+
+	private byte[] encode(Bean bean) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		codec.encode(bean, out);
+		return out.toByteArray();
+	}
+
+	public static class Bean {
+
+		private int id;
+
+		private long version;
+
+		private String name;
+
+		private byte[] data;
+
+		public int getId() {
+			return id;
+		}
+
+		public void setId(int id) {
+			this.id = id;
+		}
+
+		public long getVersion() {
+			return version;
+		}
+
+		public void setVersion(long version) {
+			this.version = version;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public byte[] getData() {
+			return data;
+		}
+
+		public void setData(byte[] data) {
+			this.data = data;
+		}
+
+	}
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.nio;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.krzn.platform.redis.RedisContants;
+
+/**
+ * 测试用的进程内RESP服务器，支持PING、ECHO、SET、GET、DEL，其他命令返回错误回复。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月09日
+ */
+class FakeRespServer implements Closeable {
+
+	private final ServerSocket serverSocket;
+
+	private final Map<String, byte[]> data = new ConcurrentHashMap<String, byte[]>();
+
+	private final List<Socket> sockets = new CopyOnWriteArrayList<Socket>();
+
+	/**
+	 * 已接受的连接数。
+	 */
+	final AtomicInteger connections = new AtomicInteger();
+
+	/**
+	 * 每个回复前的延迟，单位毫秒。
+	 */
+	volatile long delayMillis = 0;
+
+	/**
+	 * 为false时不再读取请求，客户端的写出会因socket缓冲区满而阻塞。
+	 */
+	volatile boolean reading = true;
+
+	private volatile boolean closed = false;
+
+	FakeRespServer() throws IOException {
+		serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+		Thread acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				accept();
+			}
+		}, "fake-resp-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * 关闭所有已建立的连接，模拟服务端断开。
+	 */
+	void dropConnections() {
+		for(Socket socket : sockets){
+			closeQuietly(socket);
+		}
+		sockets.clear();
+	}
+
+	private void accept() {
+		while(!closed){
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException e) {
+				return;
+			}
+			connections.incrementAndGet();
+			sockets.add(socket);
+			Thread handler = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						handle(socket);
+					} catch (Exception e) {
+						// connection closed
+					} finally {
+						closeQuietly(socket);
+					}
+				}
+			}, "fake-resp-handler");
+			handler.setDaemon(true);
+			handler.start();
+		}
+	}
+
+	private void handle(Socket socket) throws IOException, InterruptedException {
+		InputStream in = new BufferedInputStream(socket.getInputStream());
+		OutputStream out = socket.getOutputStream();
+		while(true){
+			while(!reading){
+				Thread.sleep(10);
+			}
+			if(in.read() != '*'){
+				throw new IOException("not a command!");
+			}
+			int count = Integer.parseInt(readLine(in));
+			String[] args = new String[count];
+			byte[] value = null;
+			for(int i = 0; i < count; i++){
+				if(in.read() != '$'){
+					throw new IOException("not a bulk string!");
+				}
+				byte[] arg = new byte[Integer.parseInt(readLine(in))];
+				readFully(in, arg);
+				readLine(in);
+				args[i] = new String(arg, RedisContants.CS_UTF8);
+				if(i == 2){
+					value = arg;
+				}
+			}
+			if(delayMillis > 0){
+				Thread.sleep(delayMillis);
+			}
+			out.write(reply(args, value));
+			out.flush();
+		}
+	}
+
+	private byte[] reply(String[] args, byte[] value) {
+		String command = args[0].toUpperCase();
+		if("PING".equals(command)){
+			return "+PONG\r\n".getBytes(RedisContants.CS_UTF8);
+		}
+		if("ECHO".equals(command)){
+			return bulk(args[1].getBytes(RedisContants.CS_UTF8));
+		}
+		if("SET".equals(command)){
+			data.put(args[1], value);
+			return "+OK\r\n".getBytes(RedisContants.CS_UTF8);
+		}
+		if("GET".equals(command)){
+			return bulk(data.get(args[1]));
+		}
+		if("DEL".equals(command)){
+			return (":" + (data.remove(args[1]) == null ? 0 : 1) + "\r\n").getBytes(RedisContants.CS_UTF8);
+		}
+		return ("-ERR unknown command '" + args[0] + "'\r\n").getBytes(RedisContants.CS_UTF8);
+	}
+
+	private static byte[] bulk(byte[] value) {
+		if(value == null){
+			return "$-1\r\n".getBytes(RedisContants.CS_UTF8);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream(value.length + 16);
+		byte[] header = ("$" + value.length + "\r\n").getBytes(RedisContants.CS_UTF8);
+		out.write(header, 0, header.length);
+		out.write(value, 0, value.length);
+		out.write('\r');
+		out.write('\n');
+		return out.toByteArray();
+	}
+
+	private static String readLine(InputStream in) throws IOException {
+		StringBuilder line = new StringBuilder();
+		int b;
+		while((b = in.read()) != '\r'){
+			if(b < 0){
+				throw new EOFException();
+			}
+			line.append((char) b);
+		}
+		in.read();
+		return line.toString();
+	}
+
+	private static void readFully(InputStream in, byte[] buffer) throws IOException {
+		int offset = 0;
+		while(offset < buffer.length){
+			int count = in.read(buffer, offset, buffer.length - offset);
+			if(count < 0){
+				throw new EOFException();
+			}
+			offset += count;
+		}
+	}
+
+	private static void closeQuietly(Closeable closeable) {
+		try {
+			closeable.close();
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		closeQuietly(serverSocket);
+		dropConnections();
+	}
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.nio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.krzn.platform.redis.RedisClientTimeoutException;
+import com.krzn.platform.redis.RedisContants;
+import com.krzn.platform.redis.support.CoalescableJedisCallback;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * NioTransport对进程内RESP服务器的测试。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月09日
+ */
+public class NioTransportTest {
+
+	private FakeRespServer server;
+
+	private NioTransport transport;
+
+	private JedisShardInfo node;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new FakeRespServer();
+		transport = new NioTransport(1);
+		node = new JedisShardInfo("127.0.0.1", server.getPort(), 200);
+	}
+
+	@After
+	public void tearDown() {
+		transport.close();
+		server.close();
+	}
+
+	@Test
+	public void executesCommands() {
+		assertNull(transport.execute(node, get("k")));
+		transport.execute(node, set("k", "v"));
+		assertEquals("v", transport.execute(node, get("k")));
+		assertEquals(1, server.connections.get());
+	}
+
+	@Test
+	public void pipelinesConcurrentSends() throws Exception {
+		int count = 1000;
+		@SuppressWarnings("unchecked")
+		ListenableFuture<Object>[] replies = new ListenableFuture[count];
+		for(int i = 0; i < count; i++){
+			replies[i] = transport.send(node, Protocol.Command.ECHO, bytes("m" + i));
+		}
+		for(int i = 0; i < count; i++){
+			assertArrayEquals(bytes("m" + i), (byte[]) replies[i].get(1, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	public void returnsErrorReply() throws Exception {
+		Object reply = transport.send(node, Protocol.Command.HGET, bytes("h"), bytes("f")).get(1, TimeUnit.SECONDS);
+		assertTrue(reply instanceof JedisDataException);
+		assertTrue(((JedisDataException) reply).getMessage().startsWith("ERR unknown command"));
+		//错误回复不影响连接上之后的命令。
+		transport.execute(node, set("k", "v"));
+		assertEquals("v", transport.execute(node, get("k")));
+	}
+
+	@Test
+	public void reconnectsAfterTimeout() throws Exception {
+		transport.execute(node, set("k", "v"));
+		server.delayMillis = 500;
+		try {
+			transport.execute(node, get("k"));
+			fail("slow reply must time out");
+		} catch (RedisClientTimeoutException e) {
+			// expected
+		}
+		server.delayMillis = 0;
+		//超时的连接已关闭，迟到的回复不会错配给新命令。
+		transport.execute(node, set("k", "w"));
+		assertEquals("w", transport.execute(node, get("k")));
+		assertEquals(2, server.connections.get());
+	}
+
+	@Test
+	public void reconnectsAfterServerClose() throws Exception {
+		transport.execute(node, set("k", "v"));
+		server.dropConnections();
+		Thread.sleep(100);
+		try {
+			transport.execute(node, get("k"));
+		} catch (JedisConnectionException e) {
+			// the close may not be noticed before this command
+		}
+		assertEquals("v", transport.execute(node, get("k")));
+		assertEquals(2, server.connections.get());
+	}
+
+	@Test
+	public void failsFastWhenPendingBytesExceeded() throws Exception {
+		NioTransport limited = new NioTransport(1, 1024 * 1024);
+		try {
+			limited.execute(node, set("k", "v"));
+			server.reading = false;
+			byte[] value = new byte[1024 * 1024];
+			boolean rejected = false;
+			for(int i = 0; i < 200 && !rejected; i++){
+				ListenableFuture<Object> reply = limited.send(node, Protocol.Command.SET, bytes("k"), value);
+				if(reply.isDone()){
+					try {
+						reply.get();
+					} catch (ExecutionException e) {
+						rejected = e.getCause() instanceof JedisConnectionException;
+					}
+				}
+			}
+			assertTrue(rejected);
+		} finally {
+			server.reading = true;
+			limited.close();
+		}
+	}
+
+	@Test
+	public void failsOnUnreachableNode() {
+		//不能用刚关闭的临时端口，本地端口恰好分配到同一个端口时会连上自己。
+		JedisShardInfo unreachable = new JedisShardInfo("127.0.0.1", 1, 200);
+		try {
+			transport.execute(unreachable, get("k"));
+			fail("unreachable node must fail");
+		} catch (JedisConnectionException e) {
+			// expected
+		}
+	}
+
+	private static CoalescableJedisCallback<String, String> get(final String key) {
+		return new CoalescableJedisCallback<String, String>() {
+			@Override
+			public Response<String> call(Pipeline pipeline) {
+				return pipeline.get(key);
+			}
+
+			@Override
+			public String call(Jedis jedis) {
+				return jedis.get(key);
+			}
+		};
+	}
+
+	private static CoalescableJedisCallback<String, String> set(final String key, final String value) {
+		return new CoalescableJedisCallback<String, String>() {
+			@Override
+			public Response<String> call(Pipeline pipeline) {
+				return pipeline.set(key, value);
+			}
+
+			@Override
+			public String call(Jedis jedis) {
+				return jedis.set(key, value);
+			}
+		};
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(RedisContants.CS_UTF8);
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.nio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.krzn.platform.redis.RedisContants;
+
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * RespCodec的编解码测试。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月09日
+ */
+public class RespCodecTest {
+
+	@Test
+	public void encodesCommand() {
+		RespCodec.Encoder encoder = new RespCodec.Encoder();
+		encoder.write(bytes("SET"), bytes("key"), bytes("value"));
+		assertEquals("*3\r\n$3\r\nSET\r\n$3\r\nkey\r\n$5\r\nvalue\r\n", string(encoder.flip()));
+		assertEquals(33, encoder.size());
+		encoder.clear();
+		assertTrue(encoder.isEmpty());
+	}
+
+	@Test
+	public void encodesLargeArgument() {
+		RespCodec.Encoder encoder = new RespCodec.Encoder();
+		byte[] value = new byte[100000];
+		Arrays.fill(value, (byte) 'x');
+		encoder.write(bytes("SET"), bytes("k"), value);
+		String encoded = string(encoder.flip());
+		assertTrue(encoded.startsWith("*3\r\n$3\r\nSET\r\n$1\r\nk\r\n$100000\r\nxxx"));
+		assertTrue(encoded.endsWith("xxx\r\n"));
+	}
+
+	@Test
+	public void decodesAllReplyTypes() {
+		RespCodec.Decoder decoder = decoder("+OK\r\n-ERR wrong\r\n:-42\r\n$5\r\nhello\r\n$-1\r\n*-1\r\n*0\r\n");
+		assertArrayEquals(bytes("OK"), (byte[]) decoder.next());
+		Object error = decoder.next();
+		assertTrue(error instanceof JedisDataException);
+		assertEquals("ERR wrong", ((JedisDataException) error).getMessage());
+		assertEquals(Long.valueOf(-42), decoder.next());
+		assertArrayEquals(bytes("hello"), (byte[]) decoder.next());
+		assertNull(decoder.next());
+		assertNull(decoder.next());
+		assertEquals(0, ((List<?>) decoder.next()).size());
+		assertSame(RespCodec.INCOMPLETE, decoder.next());
+	}
+
+	@Test
+	public void decodesNestedMultiBulk() {
+		RespCodec.Decoder decoder = decoder("*3\r\n$1\r\na\r\n*2\r\n:1\r\n$-1\r\n+b\r\n");
+		List<?> reply = (List<?>) decoder.next();
+		assertEquals(3, reply.size());
+		assertArrayEquals(bytes("a"), (byte[]) reply.get(0));
+		List<?> nested = (List<?>) reply.get(1);
+		assertEquals(Long.valueOf(1), nested.get(0));
+		assertNull(nested.get(1));
+		assertArrayEquals(bytes("b"), (byte[]) reply.get(2));
+	}
+
+	@Test
+	public void decodesByteByByte() {
+		byte[] data = bytes("*2\r\n$5\r\nhello\r\n*1\r\n:7\r\n+OK\r\n");
+		RespCodec.Decoder decoder = new RespCodec.Decoder();
+		int replies = 0;
+		for(int i = 0; i < data.length; i++){
+			decoder.append(data, i, 1);
+			Object reply;
+			while((reply = decoder.next()) != RespCodec.INCOMPLETE){
+				replies++;
+				if(replies == 1){
+					List<?> list = (List<?>) reply;
+					assertArrayEquals(bytes("hello"), (byte[]) list.get(0));
+					assertEquals(Long.valueOf(7), ((List<?>) list.get(1)).get(0));
+				}else{
+					assertArrayEquals(bytes("OK"), (byte[]) reply);
+				}
+			}
+		}
+		assertEquals(2, replies);
+	}
+
+	@Test
+	public void decodesLargeBulkInChunks() {
+		int length = 1 << 20;
+		byte[] header = bytes("$" + length + "\r\n");
+		byte[] data = new byte[header.length + length + 2];
+		System.arraycopy(header, 0, data, 0, header.length);
+		for(int i = 0; i < length; i++){
+			data[header.length + i] = (byte) i;
+		}
+		data[data.length - 2] = '\r';
+		data[data.length - 1] = '\n';
+		RespCodec.Decoder decoder = new RespCodec.Decoder();
+		Object reply = RespCodec.INCOMPLETE;
+		for(int offset = 0; offset < data.length; offset += 1000){
+			assertSame(RespCodec.INCOMPLETE, reply);
+			decoder.append(data, offset, Math.min(1000, data.length - offset));
+			reply = decoder.next();
+		}
+		byte[] value = (byte[]) reply;
+		assertEquals(length, value.length);
+		assertEquals((byte) 12345, value[12345]);
+	}
+
+	@Test
+	public void rejectsUnknownReplyType() {
+		try {
+			decoder("!oops\r\n").next();
+			fail("unknown reply type must fail");
+		} catch (JedisDataException e) {
+			assertTrue(e.getMessage().contains("Unknown reply"));
+		}
+	}
+
+	@Test
+	public void rejectsMalformedInteger() {
+		try {
+			decoder(":12a\r\n").next();
+			fail("malformed integer must fail");
+		} catch (JedisDataException e) {
+			assertTrue(e.getMessage().contains("malformed integer"));
+		}
+	}
+
+	private static RespCodec.Decoder decoder(String data) {
+		RespCodec.Decoder decoder = new RespCodec.Decoder();
+		byte[] bytes = bytes(data);
+		decoder.append(bytes, 0, bytes.length);
+		return decoder;
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(RedisContants.CS_UTF8);
+	}
+
+	private static String string(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return new String(bytes, RedisContants.CS_UTF8);
+	}
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Lz4块格式压缩和解压的测试。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月09日
+ */
+public class Lz4Test {
+
+	private final Random random = new Random(20161109);
+
+	@Test
+	public void roundTripsEmptyAndShortInputs() throws IOException {
+		for(int length = 0; length <= 13; length++){
+			roundTrip(randomBytes(length));
+			roundTrip(new byte[length]);
+		}
+	}
+
+	@Test
+	public void roundTripsIncompressibleData() throws IOException {
+		byte[] data = randomBytes(100000);
+		byte[] compressed = compress(data);
+		assertTrue(compressed.length <= Lz4.maxCompressedLength(data.length));
+		assertArrayEquals(data, Lz4.decompress(compressed, 0, compressed.length, data.length));
+	}
+
+	@Test
+	public void roundTripsLongLiteralRuns() throws IOException {
+		for(int literals : new int[]{14, 15, 16, 269, 270, 271, 1000}){
+			byte[] prefix = randomBytes(literals);
+			byte[] data = new byte[literals + 300];
+			System.arraycopy(prefix, 0, data, 0, literals);
+			roundTrip(data);
+			roundTrip(prefix);
+		}
+	}
+
+	@Test
+	public void roundTripsOverlappingMatches() throws IOException {
+		byte[] same = new byte[5000];
+		Arrays.fill(same, (byte) 'a');
+		byte[] compressed = compress(same);
+		assertTrue(compressed.length < 100);
+		roundTrip(same);
+		byte[] pattern = new byte[3001];
+		for(int i = 0; i < pattern.length; i++){
+			pattern[i] = (byte) "abc".charAt(i % 3);
+		}
+		roundTrip(pattern);
+	}
+
+	@Test
+	public void roundTripsMatchAtMaxOffset() throws IOException {
+		byte[] sequence = randomBytes(64);
+		byte[] data = randomBytes(65535 + 64 + 20);
+		System.arraycopy(sequence, 0, data, 0, sequence.length);
+		System.arraycopy(sequence, 0, data, 65535, sequence.length);
+		roundTrip(data);
+	}
+
+	@Test
+	public void decompressesMatchAtMaxOffset() throws IOException {
+		//65535个字面量，距离65535、长度4的匹配，最后5个字面量。
+		byte[] literals = randomBytes(65535);
+		byte[] block = new byte[1 + 257 + literals.length + 2 + 1 + 5];
+		int pos = 0;
+		block[pos++] = (byte) 0xF0;
+		int remaining = literals.length - 15;
+		while(remaining >= 255){
+			block[pos++] = (byte) 255;
+			remaining -= 255;
+		}
+		block[pos++] = (byte) remaining;
+		System.arraycopy(literals, 0, block, pos, literals.length);
+		pos += literals.length;
+		block[pos++] = (byte) 0xFF;
+		block[pos++] = (byte) 0xFF;
+		block[pos++] = 0x50;
+		for(int i = 0; i < 5; i++){
+			block[pos++] = (byte) ('a' + i);
+		}
+		byte[] expected = new byte[literals.length + 4 + 5];
+		System.arraycopy(literals, 0, expected, 0, literals.length);
+		System.arraycopy(literals, 0, expected, literals.length, 4);
+		System.arraycopy("abcde".getBytes(), 0, expected, literals.length + 4, 5);
+		assertArrayEquals(expected, Lz4.decompress(block, 0, pos, expected.length));
+	}
+
+	@Test
+	public void decompressesAtOffset() throws IOException {
+		byte[] data = text(2000);
+		byte[] buffer = new byte[8 + Lz4.maxCompressedLength(data.length)];
+		int length = Lz4.compress(data, buffer, 8);
+		assertArrayEquals(data, Lz4.decompress(buffer, 8, length, data.length));
+	}
+
+	@Test
+	public void rejectsTruncatedBlocks() {
+		byte[] data = text(2000);
+		byte[] compressed = compress(data);
+		for(int length = 0; length < compressed.length; length += 7){
+			try {
+				Lz4.decompress(compressed, 0, length, data.length);
+				fail("truncated block of " + length + " bytes must fail");
+			} catch (IOException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void rejectsCorruptBlocks() {
+		//字面量长度超过剩余数据。
+		assertCorrupt(new byte[]{(byte) 0xF0, 10, 'a'}, 25);
+		//匹配偏移为0。
+		assertCorrupt(new byte[]{0x10, 'a', 0, 0}, 5);
+		//匹配偏移超出已解压的数据。
+		assertCorrupt(new byte[]{0x10, 'a', 2, 0}, 5);
+		//匹配长度超出原始长度。
+		assertCorrupt(new byte[]{0x1F, 'a', 1, 0, 100, 0x10, 'b'}, 10);
+		//解压出的长度与原始长度不符。
+		byte[] data = text(100);
+		byte[] compressed = compress(data);
+		assertCorrupt(compressed, data.length + 1);
+	}
+
+	private static void assertCorrupt(byte[] block, int length) {
+		try {
+			Lz4.decompress(block, 0, block.length, length);
+			fail("corrupt block must fail");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private static void roundTrip(byte[] data) throws IOException {
+		byte[] compressed = compress(data);
+		assertArrayEquals(data, Lz4.decompress(compressed, 0, compressed.length, data.length));
+	}
+
+	private static byte[] compress(byte[] data) {
+		byte[] buffer = new byte[Lz4.maxCompressedLength(data.length)];
+		return Arrays.copyOf(buffer, Lz4.compress(data, buffer, 0));
+	}
+
+	private byte[] randomBytes(int length) {
+		byte[] data = new byte[length];
+		random.nextBytes(data);
+		return data;
+	}
+
+	private byte[] text(int length) {
+		byte[] data = new byte[length];
+		String[] words = {"redis ", "shard ", "slave ", "master ", "key "};
+		int pos = 0;
+		while(pos < length){
+			byte[] word = words[random.nextInt(words.length)].getBytes();
+			int count = Math.min(word.length, length - pos);
+			System.arraycopy(word, 0, data, pos, count);
+			pos += count;
+		}
+		return data;
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016-2020 LEJR.COM All Right Reserved
+ */
+
+package com.krzn.platform.redis.support;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.krzn.platform.redis.RedisClientRuntimeException;
+import com.krzn.platform.redis.RedisClientStatistic;
+
+/**
+ * ValueCompressor的测试。
+ * 
+ * @author yangzhishuo
+ * @version 1.0 
+ * @date 2016年11月09日
+ */
+public class ValueCompressorTest {
+
+	private final ValueCompressor compressor = new ValueCompressor(64);
+
+	@Test
+	public void handlesNull() {
+		assertNull(compressor.compress(null, null));
+		assertNull(compressor.decompress(null, null));
+	}
+
+	@Test
+	public void keepsSmallValues() {
+		byte[] value = "small value".getBytes();
+		assertSame(value, compressor.compress(value, null));
+		assertSame(value, compressor.decompress(value, null));
+	}
+
+	@Test
+	public void compressesLargeValues() {
+		byte[] value = new byte[4096];
+		Arrays.fill(value, (byte) 'x');
+		RedisClientStatistic statistic = new RedisClientStatistic();
+		byte[] stored = compressor.compress(value, statistic);
+		assertTrue(stored.length < 100);
+		assertArrayEquals(value, compressor.decompress(stored, statistic));
+	}
+
+	@Test
+	public void storesIncompressibleValuesAsIs() {
+		byte[] value = new byte[4096];
+		new Random(1).nextBytes(value);
+		value[0] = 'x';
+		byte[] stored = compressor.compress(value, null);
+		assertSame(value, stored);
+		assertSame(value, compressor.decompress(stored, null));
+	}
+
+	@Test
+	public void roundTripsValuesStartingWithMagic() {
+		byte[] small = new byte[]{(byte) 0xFF, 'L', 'Z', 1, 0, 0, 0, 5, 'a'};
+		assertArrayEquals(small, compressor.decompress(compressor.compress(small, null), null));
+		byte[] large = new byte[4096];
+		new Random(2).nextBytes(large);
+		large[0] = (byte) 0xFF;
+		large[1] = 'L';
+		large[2] = 'Z';
+		byte[] stored = compressor.compress(large, null);
+		assertEquals(large.length + 8, stored.length);
+		assertArrayEquals(large, compressor.decompress(stored, null));
+	}
+
+	@Test
+	public void ignoresImpossibleLength() {
+		//头中的长度远超压缩数据可能解压出的长度，不是本类写入的数据，不按该长度分配内存。
+		byte[] foreign = new byte[]{(byte) 0xFF, 'L', 'Z', 1, 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x10, 'a'};
+		assertSame(foreign, compressor.decompress(foreign, null));
+	}
+
+	@Test
+	public void rejectsTruncatedValues() {
+		byte[] value = new byte[4096];
+		Arrays.fill(value, (byte) 'x');
+		byte[] stored = compressor.compress(value, null);
+		try {
+			compressor.decompress(Arrays.copyOf(stored, stored.length - 3), null);
+			fail("truncated value must fail");
+		} catch (RedisClientRuntimeException e) {
+			// expected
+		}
+	}
+
+}